@@ -2,8 +2,14 @@ package ecommerce;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import ecommerce.external.fake.SimulacaoExternaProperties;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableConfigurationProperties(SimulacaoExternaProperties.class)
 public class CompraApplication
 {
 	public static void main(String[] args)
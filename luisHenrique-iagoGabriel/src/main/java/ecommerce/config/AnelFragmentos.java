@@ -0,0 +1,106 @@
+package ecommerce.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash consistente dos clientes nos fragmentos: cada fragmento ocupa
+ * {@code nosVirtuais} pontos de um anel de 64 bits, derivados só do nome dele, e
+ * o cliente fica no primeiro ponto a partir do hash do seu id. Incluir um
+ * fragmento move apenas a fatia de clientes que passa a cair nos pontos novos
+ * (em média 1/N); os demais continuam onde estavam. Imutável.
+ *
+ * <p>Nenhum dado se move sozinho: os clientes da fatia movida continuariam no
+ * fragmento antigo e passariam a não ser encontrados. Por isso o anel é fixo em
+ * produção — {@link AnelGravado} recusa subir com um anel diferente do gravado nos
+ * fragmentos — e mudá-lo exige migrar antes os clientes cujo
+ * {@link #fragmento(long)} muda (com os carrinhos deles) entre o anel antigo e o
+ * novo.
+ */
+public final class AnelFragmentos
+{
+
+	private final List<String> nomes;
+	private final long[] pontos;
+	private final String[] donos;
+	private final String assinatura;
+
+	public AnelFragmentos(List<String> nomes, int nosVirtuais)
+	{
+		if (nomes.isEmpty())
+		{
+			throw new IllegalArgumentException("Nenhum fragmento configurado.");
+		}
+		if (nomes.stream().distinct().count() != nomes.size())
+		{
+			throw new IllegalArgumentException("Nomes de fragmento repetidos: " + nomes);
+		}
+		this.nomes = List.copyOf(nomes);
+		this.assinatura = Long.toHexString(hash(String.join(",", nomes) + "#" + nosVirtuais));
+		int total = nomes.size() * nosVirtuais;
+		long[] hashes = new long[total];
+		String[] porHash = new String[total];
+		Integer[] ordem = new Integer[total];
+		for (int f = 0; f < nomes.size(); f++)
+		{
+			for (int v = 0; v < nosVirtuais; v++)
+			{
+				int i = f * nosVirtuais + v;
+				hashes[i] = hash(nomes.get(f) + "#" + v);
+				porHash[i] = nomes.get(f);
+				ordem[i] = i;
+			}
+		}
+		Arrays.sort(ordem, (a, b) -> Long.compare(hashes[a], hashes[b]));
+		this.pontos = new long[total];
+		this.donos = new String[total];
+		for (int i = 0; i < total; i++)
+		{
+			pontos[i] = hashes[ordem[i]];
+			donos[i] = porHash[ordem[i]];
+		}
+	}
+
+	public String fragmento(long clienteId)
+	{
+		int posicao = Arrays.binarySearch(pontos, misturar(clienteId));
+		if (posicao < 0)
+		{
+			posicao = -posicao - 1;
+		}
+		return donos[posicao == pontos.length ? 0 : posicao];
+	}
+
+	/** Nomes na ordem da configuração; o primeiro guarda os dados globais. */
+	public List<String> nomes()
+	{
+		return nomes;
+	}
+
+	/** Identifica o anel: muda se mudar qualquer nome, a ordem ou os nós virtuais. */
+	public String assinatura()
+	{
+		return assinatura;
+	}
+
+	private static long hash(String texto)
+	{
+		// FNV-1a seguido da mistura: estável entre versões da JVM, ao contrário de String.hashCode
+		long h = 0xcbf29ce484222325L;
+		for (byte b : texto.getBytes(StandardCharsets.UTF_8))
+		{
+			h = (h ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		return misturar(h);
+	}
+
+	/** Finalizador do SplitMix64: ids sequenciais se espalham pelo anel inteiro. */
+	private static long misturar(long valor)
+	{
+		long z = valor + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
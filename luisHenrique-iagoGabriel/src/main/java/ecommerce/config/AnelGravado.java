@@ -0,0 +1,65 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Grava a {@link AnelFragmentos#assinatura() assinatura do anel} em cada fragmento
+ * na primeira subida e, nas seguintes, recusa subir se o anel configurado for
+ * outro: incluir, remover, renomear ou reordenar fragmentos muda o fragmento de
+ * parte dos clientes, que deixariam de ser encontrados. Depois de migrar esses
+ * clientes, sobe-se uma vez com
+ * {@code ecommerce.datasource.fragmentacao.aceitar-novo-anel=true} para regravar a
+ * assinatura.
+ */
+public class AnelGravado
+{
+	private static final Logger log = LoggerFactory.getLogger(AnelGravado.class);
+
+	private final AnelFragmentos anel;
+	private final JdbcTemplate jdbc;
+	private final boolean aceitarNovo;
+
+	public AnelGravado(AnelFragmentos anel, JdbcTemplate jdbc, boolean aceitarNovo)
+	{
+		this.anel = anel;
+		this.jdbc = jdbc;
+		this.aceitarNovo = aceitarNovo;
+	}
+
+	public void verificar()
+	{
+		for (String fragmento : anel.nomes())
+		{
+			ContextoFragmento.executarEm(fragmento, () -> {
+				verificar(fragmento);
+				return null;
+			});
+		}
+	}
+
+	private void verificar(String fragmento)
+	{
+		jdbc.execute("create table if not exists anel_fragmentos (assinatura varchar(64) not null)");
+		List<String> gravadas = jdbc.queryForList("select assinatura from anel_fragmentos", String.class);
+		if (gravadas.equals(List.of(anel.assinatura())))
+		{
+			return;
+		}
+		if (!gravadas.isEmpty() && !aceitarNovo)
+		{
+			throw new IllegalStateException("O fragmento " + fragmento + " foi gravado com outro anel de fragmentos "
+					+ gravadas + " (atual: " + anel.assinatura() + "). Migre os clientes que mudam de fragmento e suba"
+					+ " com ecommerce.datasource.fragmentacao.aceitar-novo-anel=true.");
+		}
+		if (!gravadas.isEmpty())
+		{
+			log.warn("Fragmento {}: anel {} substitui {}.", fragmento, anel.assinatura(), gravadas);
+		}
+		jdbc.update("delete from anel_fragmentos");
+		jdbc.update("insert into anel_fragmentos (assinatura) values (?)", anel.assinatura());
+	}
+}
@@ -0,0 +1,42 @@
+package ecommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+
+/**
+ * Aquecimento do JIT na subida ({@code aquecimento.*}). Roda como ApplicationRunner,
+ * antes de o Spring Boot declarar a aplicação pronta; com
+ * {@code management.endpoint.health.probes.enabled} o balanceador só a vê em
+ * {@code /actuator/health/readiness} depois dele. Desligado nos testes (ver o
+ * surefire no pom).
+ */
+@Configuration
+@ConditionalOnProperty(name = "aquecimento.habilitado", matchIfMissing = true)
+public class AquecimentoConfig
+{
+
+	@Bean
+	public AquecimentoInicial aquecimentoInicial(CompraService compraService, ClienteService clienteService,
+			CarrinhoDeComprasService carrinhoService, CarrinhoDeComprasRepository carrinhoRepository, ObjectMapper mapper,
+			@Value("${aquecimento.minimo-rodadas:5}") int minimoRodadas,
+			@Value("${aquecimento.rodadas-estaveis:3}") int rodadasEstaveis,
+			@Value("${aquecimento.limiar-compilacao-ms:5}") long limiarCompilacaoMs,
+			@Value("${aquecimento.maximo-ms:20000}") long maximoMs,
+			@Value("${aquecimento.iteracoes-por-rodada:500}") int iteracoesPorRodada)
+	{
+		return new AquecimentoInicial(compraService, clienteService, carrinhoService, carrinhoRepository, mapper,
+				new AquecimentoInicial.Limites(minimoRodadas, rodadasEstaveis, limiarCompilacaoMs,
+						Duration.ofMillis(maximoMs), iteracoesPorRodada));
+	}
+}
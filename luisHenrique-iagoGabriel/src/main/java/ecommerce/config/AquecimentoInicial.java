@@ -0,0 +1,266 @@
+package ecommerce.config;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.ItemLoteDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraRecusadaException;
+import ecommerce.service.CompraService;
+import ecommerce.service.ModoEnsaio;
+import ecommerce.service.RequisicaoInvalidaException;
+import ecommerce.service.ResultadoCompra;
+
+/**
+ * Aquecimento na subida ({@code aquecimento.*}): roda carrinhos sintéticos pela
+ * precificação do {@link CompraService}, checkouts de ensaio ({@link ModoEnsaio})
+ * no próprio bean sobre os primeiros carrinhos do banco, a serialização JSON dos
+ * DTOs no {@link ObjectMapper} da aplicação e as consultas de cliente e carrinho
+ * (por ids inexistentes), em rodadas, até o JIT parar de compilar ou o prazo
+ * acabar. Nada é gravado nem chega aos externos. Sem carrinhos no banco, o
+ * checkout só é aquecido até a leitura do cliente.
+ *
+ * <p>A prontidão fica em {@code REFUSING_TRAFFIC} enquanto isso: o Spring Boot só
+ * publica {@code ACCEPTING_TRAFFIC} depois que todos os {@link ApplicationRunner}
+ * terminam.
+ */
+public class AquecimentoInicial implements ApplicationRunner
+{
+
+	private static final Logger log = LoggerFactory.getLogger(AquecimentoInicial.class);
+
+	private static final long ID_INEXISTENTE = -1L;
+	private static final int[] TAMANHOS_CARRINHO = { 1, 3, 10, 40 };
+	private static final int CARRINHOS_REAIS = 4;
+	private static final CompraDTO COMPRA_ENSAIO = new CompraDTO(true, 0L, "Compra finalizada com sucesso.");
+
+	/**
+	 * Termina quando {@code rodadasEstaveis} rodadas seguidas compilaram no máximo
+	 * {@code limiarCompilacaoMs}, depois de {@code minimoRodadas}, ou em {@code maximo}.
+	 */
+	public record Limites(int minimoRodadas, int rodadasEstaveis, long limiarCompilacaoMs, Duration maximo,
+			int iteracoesPorRodada)
+	{
+	}
+
+	public record Resumo(int rodadas, boolean estabilizou, long duracaoMs, long compilacaoMs, int checkouts)
+	{
+	}
+
+	private record Alvo(Long carrinhoId, Long clienteId)
+	{
+	}
+
+	private final CompraService compraService;
+	private final ClienteService clienteService;
+	private final CarrinhoDeComprasService carrinhoService;
+	private final CarrinhoDeComprasRepository carrinhoRepository;
+	private final ObjectMapper mapper;
+	private final Limites limites;
+
+	private final List<CarrinhoDeCompras> carrinhos = new ArrayList<>();
+	private final CarrinhoDeCompras carrinhoInvalido;
+	private List<Alvo> alvos = List.of();
+	private int checkouts;
+	private long sumidouro;
+
+	public AquecimentoInicial(CompraService compraService, ClienteService clienteService,
+			CarrinhoDeComprasService carrinhoService, CarrinhoDeComprasRepository carrinhoRepository,
+			ObjectMapper mapper, Limites limites)
+	{
+		this.compraService = compraService;
+		this.clienteService = clienteService;
+		this.carrinhoService = carrinhoService;
+		this.carrinhoRepository = carrinhoRepository;
+		this.mapper = mapper;
+		this.limites = limites;
+
+		Cliente cliente = new Cliente();
+		cliente.setId(1L);
+		for (int i = 0; i < TAMANHOS_CARRINHO.length; i++)
+		{
+			carrinhos.add(carrinhoSintetico(i + 1L, cliente, TAMANHOS_CARRINHO[i]));
+		}
+		this.carrinhoInvalido = carrinhoSintetico(null, cliente, 2);
+		carrinhoInvalido.getItens().get(1).setQuantidade(0L);
+	}
+
+	@Override
+	public void run(ApplicationArguments args)
+	{
+		aquecer();
+	}
+
+	public Resumo aquecer()
+	{
+		alvos = carrinhoRepository.findAll(PageRequest.of(0, CARRINHOS_REAIS, Sort.by("id"))).stream()
+				.filter(carrinho -> carrinho.getCliente() != null)
+				.map(carrinho -> new Alvo(carrinho.getId(), carrinho.getCliente().getId())).toList();
+		Resumo resumo = rodar();
+		log.info("Aquecimento: {} rodada(s) em {} ms, {} ms de compilação JIT, {} checkout(s) de ensaio{}.",
+				resumo.rodadas(), resumo.duracaoMs(), resumo.compilacaoMs(), resumo.checkouts(),
+				resumo.estabilizou() ? "" : ", sem estabilizar");
+		return resumo;
+	}
+
+	private Resumo rodar()
+	{
+		CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+		boolean medeCompilacao = jit != null && jit.isCompilationTimeMonitoringSupported();
+		long compilacaoInicial = medeCompilacao ? jit.getTotalCompilationTime() : 0L;
+		long compilacaoAnterior = compilacaoInicial;
+
+		long inicio = System.nanoTime();
+		long prazo = inicio + limites.maximo().toNanos();
+		int rodadas = 0;
+		int estaveis = 0;
+		while (System.nanoTime() < prazo
+				&& (rodadas < limites.minimoRodadas() || estaveis < limites.rodadasEstaveis()))
+		{
+			try
+			{
+				rodada();
+			}
+			catch (RuntimeException e)
+			{
+				// aquecimento é só otimização: não impede a aplicação de subir
+				log.warn("Aquecimento interrompido na rodada {}.", rodadas + 1, e);
+				break;
+			}
+			rodadas++;
+			if (medeCompilacao)
+			{
+				long compilacao = jit.getTotalCompilationTime();
+				estaveis = compilacao - compilacaoAnterior <= limites.limiarCompilacaoMs() ? estaveis + 1 : 0;
+				compilacaoAnterior = compilacao;
+			}
+			else
+			{
+				estaveis++;
+			}
+		}
+		return new Resumo(rodadas, rodadas >= limites.minimoRodadas() && estaveis >= limites.rodadasEstaveis(),
+				(System.nanoTime() - inicio) / 1_000_000, compilacaoAnterior - compilacaoInicial, checkouts);
+	}
+
+	private void rodada()
+	{
+		for (int i = 0; i < limites.iteracoesPorRodada(); i++)
+		{
+			CarrinhoDeCompras carrinho = carrinhos.get(i % carrinhos.size());
+			sumidouro += compraService.calcularCustoTotal(carrinho).unscaledValue().longValue();
+			CotacaoDTO cotacao = compraService.cotar(carrinho);
+			sumidouro += compraService.impressaoDigital(carrinho).length();
+			sumidouro += compraService.validar(carrinhoInvalido).violacoes().size();
+
+			// Checkout e JSON a cada 8: o checkout lê do banco, a precificação não
+			if ((i & 7) == 0)
+			{
+				serializar(cotacao, ensaiarCheckout(i >>> 3), i);
+			}
+		}
+		consultar();
+	}
+
+	/** Checkout completo no bean real, em ensaio; sem carrinhos reais, só até a leitura do cliente. */
+	private CompraDTO ensaiarCheckout(int n)
+	{
+		Alvo alvo = alvos.isEmpty() ? new Alvo(ID_INEXISTENTE, ID_INEXISTENTE) : alvos.get(n % alvos.size());
+		try
+		{
+			ResultadoCompra resultado = ModoEnsaio
+					.executar(() -> compraService.finalizar(alvo.carrinhoId(), alvo.clienteId()));
+			checkouts++;
+			return resultado.rejeitada() ? COMPRA_ENSAIO : resultado.compra();
+		}
+		catch (RequisicaoInvalidaException | CompraRecusadaException esperado)
+		{
+			sumidouro++;
+			return COMPRA_ENSAIO;
+		}
+	}
+
+	private void serializar(CotacaoDTO cotacao, CompraDTO compra, int linha)
+	{
+		try
+		{
+			sumidouro += mapper.writeValueAsBytes(cotacao).length;
+			sumidouro += mapper.writeValueAsBytes(compra).length;
+			byte[] resultado = mapper.writeValueAsBytes(
+					new ResultadoLoteDTO(linha, cotacao.carrinhoId(), 1L, 200, compra));
+			sumidouro += resultado.length;
+			ItemLoteDTO item = mapper.readValue("{\"carrinhoId\":" + linha + ",\"clienteId\":1}", ItemLoteDTO.class);
+			sumidouro += item.carrinhoId();
+		}
+		catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException("Falha ao serializar DTO no aquecimento.", e);
+		}
+	}
+
+	/** Caminhos de consulta reais (proxies, transação, Hibernate), só por ids inexistentes. */
+	private void consultar()
+	{
+		Cliente inexistente = new Cliente();
+		inexistente.setId(ID_INEXISTENTE);
+		try
+		{
+			clienteService.buscarPorId(ID_INEXISTENTE);
+		}
+		catch (RequisicaoInvalidaException esperado)
+		{
+			sumidouro++;
+		}
+		try
+		{
+			carrinhoService.buscarPorCarrinhoIdEClienteId(ID_INEXISTENTE, inexistente);
+		}
+		catch (RequisicaoInvalidaException esperado)
+		{
+			sumidouro++;
+		}
+	}
+
+	/**
+	 * Produtos de todos os tipos, frágeis e não, com pesos e preços que passam por
+	 * todas as faixas de frete e de desconto conforme o tamanho do carrinho.
+	 */
+	private static CarrinhoDeCompras carrinhoSintetico(Long id, Cliente cliente, int itens)
+	{
+		TipoProduto[] tipos = TipoProduto.values();
+		List<ItemCompra> lista = new ArrayList<>(itens);
+		for (int i = 0; i < itens; i++)
+		{
+			Produto produto = new Produto((long) i + 1, "Produto " + i, "Produto sintético de aquecimento",
+					BigDecimal.valueOf(15 + (i * 37L) % 400, 0), BigDecimal.valueOf(1 + (i * 13L) % 30, 1),
+					BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, i % 3 == 0, tipos[i % tipos.length]);
+			lista.add(new ItemCompra((long) i + 1, produto, 1L + i % 4));
+		}
+		return new CarrinhoDeCompras(id, cliente, lista, LocalDate.now());
+	}
+}
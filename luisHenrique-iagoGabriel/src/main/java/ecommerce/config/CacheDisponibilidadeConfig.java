@@ -0,0 +1,47 @@
+package ecommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import ecommerce.external.CacheDisponibilidade;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache de disponibilidade na frente do estoque ({@code externos.estoque.cache.*}),
+ * aplicado pelo {@link InstrumentacaoPostProcessor}. Ligado por padrão só com
+ * {@code externos.modo=http}: na frente do simulador ele só esconderia a latência
+ * configurada e os erros injetados; {@code externos.estoque.cache.habilitado}
+ * decide explicitamente nos dois modos. As consultas respondidas
+ * localmente, recusadas localmente e encaminhadas aparecem em
+ * {@code externos.estoque.cache.consultas}.
+ */
+@Configuration
+@ConditionalOnExpression("${externos.estoque.cache.habilitado:'${externos.modo:simulado}' == 'http'}")
+public class CacheDisponibilidadeConfig
+{
+
+	@Bean
+	public CacheDisponibilidade cacheDisponibilidade(MeterRegistry registry,
+			@Value("${externos.estoque.cache.ttl-disponivel-ms:2000}") long ttlDisponivelMs,
+			@Value("${externos.estoque.cache.ttl-indisponivel-ms:500}") long ttlIndisponivelMs,
+			@Value("${externos.estoque.cache.fracao-segura:0.5}") double fracaoSegura,
+			@Value("${externos.estoque.cache.capacidade:100000}") int capacidade)
+	{
+		CacheDisponibilidade cache = new CacheDisponibilidade(new CacheDisponibilidade.Configuracao(
+				Duration.ofMillis(ttlDisponivelMs), Duration.ofMillis(ttlIndisponivelMs), fracaoSegura, capacidade));
+		FunctionCounter.builder("externos.estoque.cache.consultas", cache, CacheDisponibilidade::acertos)
+				.tag("resultado", "disponivel-local").register(registry);
+		FunctionCounter.builder("externos.estoque.cache.consultas", cache, CacheDisponibilidade::recusasLocais)
+				.tag("resultado", "indisponivel-local").register(registry);
+		FunctionCounter.builder("externos.estoque.cache.consultas", cache, CacheDisponibilidade::encaminhadas)
+				.tag("resultado", "encaminhada").register(registry);
+		Gauge.builder("externos.estoque.cache.produtos", cache, CacheDisponibilidade::tamanho).register(registry);
+		return cache;
+	}
+}
@@ -0,0 +1,69 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.external.CacheDisponibilidade;
+import ecommerce.external.LinhasPedido;
+
+/**
+ * Põe o {@link CacheDisponibilidade} na frente do estoque: consultas de
+ * disponibilidade respondidas localmente não chegam ao serviço, as demais
+ * alimentam o cache; cada baixa invalida os produtos dela antes e depois da
+ * chamada, tenha ela dado certo ou não.
+ */
+public class CacheDisponibilidadeInterceptor implements MethodInterceptor
+{
+
+	private final CacheDisponibilidade cache;
+
+	public CacheDisponibilidadeInterceptor(CacheDisponibilidade cache)
+	{
+		this.cache = cache;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		String metodo = invocacao.getMethod().getName();
+		if (!metodo.equals("verificarDisponibilidade") && !metodo.equals("darBaixa"))
+		{
+			return invocacao.proceed();
+		}
+		LinhasPedido linhas = linhas(invocacao.getArguments());
+		if (metodo.equals("darBaixa"))
+		{
+			cache.invalidar(linhas);
+			try
+			{
+				return invocacao.proceed();
+			}
+			finally
+			{
+				cache.invalidar(linhas);
+			}
+		}
+		DisponibilidadeDTO local = cache.consultar(linhas);
+		if (local != null)
+		{
+			return local;
+		}
+		long marca = cache.marca(linhas);
+		DisponibilidadeDTO resposta = (DisponibilidadeDTO) invocacao.proceed();
+		cache.registrar(linhas, marca, resposta);
+		return resposta;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static LinhasPedido linhas(Object[] argumentos)
+	{
+		if (argumentos[0] instanceof LinhasPedido linhas)
+		{
+			return linhas;
+		}
+		return LinhasPedido.de((List<Long>) argumentos[0], (List<Long>) argumentos[1]);
+	}
+}
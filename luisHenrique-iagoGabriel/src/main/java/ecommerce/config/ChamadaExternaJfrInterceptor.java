@@ -0,0 +1,53 @@
+package ecommerce.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import ecommerce.external.EventoChamadaExternaJfr;
+import jdk.jfr.EventType;
+
+/**
+ * Emite um {@link EventoChamadaExternaJfr} por chamada ao serviço externo. Sem
+ * gravação com o evento habilitado a chamada segue direto, sem alocar o evento.
+ */
+public class ChamadaExternaJfrInterceptor implements MethodInterceptor
+{
+
+	private static final EventType TIPO = EventType.getEventType(EventoChamadaExternaJfr.class);
+
+	private final String servico;
+
+	public ChamadaExternaJfrInterceptor(String servico)
+	{
+		this.servico = servico;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		if (!TIPO.isEnabled() || invocacao.getMethod().getDeclaringClass() == Object.class)
+		{
+			return invocacao.proceed();
+		}
+
+		EventoChamadaExternaJfr evento = new EventoChamadaExternaJfr();
+		evento.begin();
+		try
+		{
+			Object resultado = invocacao.proceed();
+			evento.sucesso = true;
+			return resultado;
+		}
+		catch (Throwable e)
+		{
+			evento.erro = e.getClass().getSimpleName();
+			throw e;
+		}
+		finally
+		{
+			evento.servico = servico;
+			evento.operacao = invocacao.getMethod().getName();
+			evento.commit();
+		}
+	}
+}
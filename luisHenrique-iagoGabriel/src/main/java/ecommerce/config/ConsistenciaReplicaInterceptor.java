@@ -0,0 +1,52 @@
+package ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Força o primário durante a requisição quando o cliente informado em
+ * {@code clienteId} escreveu há menos tempo que o atraso das réplicas.
+ */
+@Component
+public class ConsistenciaReplicaInterceptor implements HandlerInterceptor
+{
+	private final JanelaConsistenciaReplica janela;
+
+	@Autowired
+	public ConsistenciaReplicaInterceptor(JanelaConsistenciaReplica janela)
+	{
+		this.janela = janela;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+	{
+		String clienteId = request.getParameter("clienteId");
+		if (clienteId != null && !clienteId.isBlank())
+		{
+			try
+			{
+				if (janela.exigePrimario(Long.valueOf(clienteId.trim())))
+				{
+					ContextoRoteamento.forcarPrimario();
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				// Parâmetro inválido: o próprio controller responde com 400
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex)
+	{
+		ContextoRoteamento.limpar();
+	}
+}
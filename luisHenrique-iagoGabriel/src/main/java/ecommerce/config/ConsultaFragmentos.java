@@ -0,0 +1,84 @@
+package ecommerce.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Consultas administrativas em todos os fragmentos: a mesma operação roda em
+ * paralelo em cada um, numa transação somente-leitura própria, e os resultados
+ * são reunidos. Não é caminho de checkout — esse nunca sai do fragmento do cliente.
+ */
+public class ConsultaFragmentos
+{
+
+	private final AnelFragmentos anel;
+	private final TransactionTemplate leitura;
+	private final ExecutorService executor;
+
+	public ConsultaFragmentos(AnelFragmentos anel, TransactionTemplate leitura, ExecutorService executor)
+	{
+		this.anel = anel;
+		this.leitura = leitura;
+		this.executor = executor;
+	}
+
+	/** Resultado por fragmento, na ordem da configuração. */
+	public <T> Map<String, T> emCada(Supplier<T> consulta)
+	{
+		Map<String, CompletableFuture<T>> pendentes = new LinkedHashMap<>();
+		for (String fragmento : anel.nomes())
+		{
+			pendentes.put(fragmento, CompletableFuture.supplyAsync(
+					() -> ContextoFragmento.executarEm(fragmento, () -> leitura.execute(status -> consulta.get())),
+					executor));
+		}
+		Map<String, T> resultados = new LinkedHashMap<>();
+		pendentes.forEach((fragmento, pendente) -> resultados.put(fragmento, pendente.join()));
+		return resultados;
+	}
+
+	/**
+	 * Junta listas já ordenadas por {@code ordem} em cada fragmento (k-way merge),
+	 * parando em {@code limite}. Cada fragmento precisa devolver ao menos
+	 * {@code limite} itens para a página ser exata.
+	 */
+	public <T> List<T> juntar(Supplier<List<T>> consulta, Comparator<? super T> ordem, int limite)
+	{
+		List<List<T>> listas = new ArrayList<>(emCada(consulta).values());
+		PriorityQueue<int[]> cabecas = new PriorityQueue<>(
+				(a, b) -> ordem.compare(listas.get(a[0]).get(a[1]), listas.get(b[0]).get(b[1])));
+		for (int i = 0; i < listas.size(); i++)
+		{
+			if (!listas.get(i).isEmpty())
+			{
+				cabecas.add(new int[] { i, 0 });
+			}
+		}
+		List<T> juntos = new ArrayList<>(limite);
+		while (!cabecas.isEmpty() && juntos.size() < limite)
+		{
+			int[] cabeca = cabecas.poll();
+			List<T> lista = listas.get(cabeca[0]);
+			juntos.add(lista.get(cabeca[1]));
+			if (cabeca[1] + 1 < lista.size())
+			{
+				cabecas.add(new int[] { cabeca[0], cabeca[1] + 1 });
+			}
+		}
+		return juntos;
+	}
+
+	public long somar(Supplier<Long> contagem)
+	{
+		return emCada(contagem).values().stream().mapToLong(Long::longValue).sum();
+	}
+}
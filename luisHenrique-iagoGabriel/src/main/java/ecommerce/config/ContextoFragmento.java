@@ -0,0 +1,54 @@
+package ecommerce.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Fragmento da operação corrente nesta thread, lido pelo {@link FragmentosDataSource}.
+ * Dentro de uma transação vale até ela terminar: a conexão é escolhida no primeiro
+ * comando e a transação inteira fica no mesmo fragmento.
+ */
+public final class ContextoFragmento
+{
+	private static final ThreadLocal<String> ATUAL = new ThreadLocal<>();
+
+	private ContextoFragmento()
+	{
+	}
+
+	public static String atual()
+	{
+		return ATUAL.get();
+	}
+
+	public static void definir(String fragmento)
+	{
+		ATUAL.set(fragmento);
+	}
+
+	public static void limpar()
+	{
+		ATUAL.remove();
+	}
+
+	/** Executa no fragmento dado e restaura o anterior. */
+	public static <T> T executarEm(String fragmento, Supplier<T> operacao)
+	{
+		String anterior = ATUAL.get();
+		ATUAL.set(fragmento);
+		try
+		{
+			return operacao.get();
+		}
+		finally
+		{
+			if (anterior == null)
+			{
+				ATUAL.remove();
+			}
+			else
+			{
+				ATUAL.set(anterior);
+			}
+		}
+	}
+}
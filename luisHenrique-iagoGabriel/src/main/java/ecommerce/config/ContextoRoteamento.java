@@ -0,0 +1,63 @@
+package ecommerce.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Dica por thread para o {@link RoteamentoLeituraEscritaDataSource}: quando marcada,
+ * mesmo transações somente-leitura vão para o primário. Tarefas entregues a outras
+ * threads levam a marca por {@link #propagar(Runnable)}.
+ */
+public final class ContextoRoteamento
+{
+	private static final ThreadLocal<Boolean> PRIMARIO_FORCADO = new ThreadLocal<>();
+
+	private ContextoRoteamento()
+	{
+	}
+
+	public static void forcarPrimario()
+	{
+		PRIMARIO_FORCADO.set(Boolean.TRUE);
+	}
+
+	public static boolean isPrimarioForcado()
+	{
+		return PRIMARIO_FORCADO.get() != null;
+	}
+
+	public static void limpar()
+	{
+		PRIMARIO_FORCADO.remove();
+	}
+
+	/** Executa com o primário forçado e restaura a marca anterior. */
+	public static <T> T executarNoPrimario(Supplier<T> operacao)
+	{
+		boolean anterior = isPrimarioForcado();
+		forcarPrimario();
+		try
+		{
+			return operacao.get();
+		}
+		finally
+		{
+			if (!anterior)
+			{
+				limpar();
+			}
+		}
+	}
+
+	/** A tarefa com a marca desta thread, para rodar em outra; sem marca, a própria tarefa. */
+	public static Runnable propagar(Runnable tarefa)
+	{
+		if (!isPrimarioForcado())
+		{
+			return tarefa;
+		}
+		return () -> executarNoPrimario(() -> {
+			tarefa.run();
+			return null;
+		});
+	}
+}
@@ -0,0 +1,115 @@
+package ecommerce.config;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Dados de demonstração (perfil {@code demo}): um cliente, um produto de cada tipo
+ * e {@code aplicacao.dados-demo.carrinhos} carrinhos com esses produtos, para
+ * exercitar {@code /finalizar} numa instância recém-criada. Os ids saem no log numa
+ * linha fixa, lida pelo benchmark de inicialização, e em {@link #semeados()}, lido
+ * pela execução de treino do AppCDS.
+ *
+ * <p>O perfil é conferido também na execução: o Spring AOT avalia {@link Profile} na
+ * compilação, e o perfil {@code inicio-rapido} do Maven processa com {@code demo}
+ * para a execução de treino ter dados; sem o perfil ativo na execução, nada é gravado.
+ */
+@Component
+@Profile(DadosDemonstracao.PERFIL)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DadosDemonstracao implements ApplicationRunner
+{
+
+	public static final String PERFIL = "demo";
+
+	/** Ids gravados: o cliente e o intervalo dos carrinhos dele. */
+	public record Semeados(Long clienteId, Long primeiroCarrinhoId, Long ultimoCarrinhoId)
+	{
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(DadosDemonstracao.class);
+
+	private final ClienteRepository clientes;
+	private final ProdutoRepository produtos;
+	private final CarrinhoDeComprasRepository carrinhos;
+	private final Environment ambiente;
+	private final int quantidadeCarrinhos;
+	private volatile Semeados semeados;
+
+	public DadosDemonstracao(ClienteRepository clientes, ProdutoRepository produtos,
+			CarrinhoDeComprasRepository carrinhos, Environment ambiente,
+			@Value("${aplicacao.dados-demo.carrinhos:10}") int quantidadeCarrinhos)
+	{
+		this.clientes = clientes;
+		this.produtos = produtos;
+		this.carrinhos = carrinhos;
+		this.ambiente = ambiente;
+		this.quantidadeCarrinhos = quantidadeCarrinhos;
+	}
+
+	/** O que foi gravado na subida; nulo antes dela ou fora do perfil. */
+	public Semeados semeados()
+	{
+		return semeados;
+	}
+
+	@Override
+	public void run(ApplicationArguments args)
+	{
+		if (!ambiente.acceptsProfiles(Profiles.of(PERFIL)) || quantidadeCarrinhos < 1)
+		{
+			return;
+		}
+		Cliente cliente = clientes.save(new Cliente(null, "Cliente Demonstração", Regiao.SUDESTE, TipoCliente.PRATA));
+
+		List<Produto> catalogo = new ArrayList<>();
+		for (TipoProduto tipo : TipoProduto.values())
+		{
+			catalogo.add(produtos.save(new Produto(null, "Demo " + tipo.name().toLowerCase(),
+					"Produto de demonstração", new BigDecimal("49.90").add(BigDecimal.valueOf(tipo.ordinal() * 25L)),
+					new BigDecimal("1.50"), BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN, tipo == TipoProduto.MOVEL,
+					tipo)));
+		}
+
+		Long primeiro = null;
+		Long ultimo = null;
+		for (int i = 0; i < quantidadeCarrinhos; i++)
+		{
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int j = 0; j <= i % catalogo.size(); j++)
+			{
+				itens.add(new ItemCompra(null, catalogo.get(j), 1L + j % 3));
+			}
+			CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+			primeiro = primeiro == null ? carrinho.getId() : primeiro;
+			ultimo = carrinho.getId();
+		}
+		semeados = new Semeados(cliente.getId(), primeiro, ultimo);
+		log.info("Dados de demonstração: clienteId={} carrinhos={}..{}", cliente.getId(), primeiro, ultimo);
+	}
+}
@@ -0,0 +1,113 @@
+package ecommerce.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Execução de treino do arquivo AppCDS ({@code aplicacao.encerrar-apos-pronta=true}):
+ * quando a aplicação passa a aceitar tráfego, depois do aquecimento, faz
+ * requisições a si mesma para carregar também as classes dos caminhos HTTP —
+ * {@code /actuator/health} e, sobre os {@link DadosDemonstracao} (perfil
+ * {@code demo}), um {@code GET /cotacao} e um {@code POST /finalizar} — e encerra a
+ * JVM, que então grava o arquivo pedido em {@code -XX:ArchiveClassesAtExit}. Sem os dados, ou com alguma resposta fora de 2xx,
+ * encerra com código 1: um arquivo treinado só com o health não serve. Ver o perfil
+ * Maven {@code inicio-rapido}. A propriedade é lida na execução, não por condição no
+ * bean: o Spring AOT avaliaria a condição na compilação, quando ela é falsa.
+ */
+@Component
+public class EncerramentoAposPronta
+{
+
+	private static final Logger log = LoggerFactory.getLogger(EncerramentoAposPronta.class);
+
+	private final boolean habilitado;
+	private final ObjectProvider<DadosDemonstracao> dados;
+
+	public EncerramentoAposPronta(@Value("${aplicacao.encerrar-apos-pronta:false}") boolean habilitado,
+			ObjectProvider<DadosDemonstracao> dados)
+	{
+		this.habilitado = habilitado;
+		this.dados = dados;
+	}
+
+	/** Na prontidão, e não no ApplicationReadyEvent: antes dela o health ainda responde 503. */
+	@EventListener
+	public void encerrar(AvailabilityChangeEvent<ReadinessState> evento)
+	{
+		if (!habilitado || evento.getState() != ReadinessState.ACCEPTING_TRAFFIC
+				|| !(evento.getSource() instanceof ConfigurableApplicationContext contexto))
+		{
+			return;
+		}
+		boolean treinou = false;
+		if (contexto instanceof WebServerApplicationContext web)
+		{
+			treinou = treinar(web.getWebServer().getPort());
+		}
+		int codigo = treinou ? 0 : 1;
+		log.info("Execução de treino concluída{}; encerrando.", treinou ? "" : " com falhas");
+		System.exit(SpringApplication.exit(contexto, () -> codigo));
+	}
+
+	private boolean treinar(int porta)
+	{
+		HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		String base = "http://localhost:" + porta;
+		boolean sucesso = requisitar(cliente, HttpRequest.newBuilder(URI.create(base + "/actuator/health")));
+
+		DadosDemonstracao demonstracao = dados.getIfAvailable();
+		DadosDemonstracao.Semeados semeados = demonstracao == null ? null : demonstracao.semeados();
+		if (semeados == null)
+		{
+			log.warn("Sem dados de demonstração (perfil {}): /cotacao e /finalizar não foram exercitados.",
+					DadosDemonstracao.PERFIL);
+			return false;
+		}
+		String parametros = "?carrinhoId=" + semeados.primeiroCarrinhoId() + "&clienteId=" + semeados.clienteId();
+		sucesso &= requisitar(cliente, HttpRequest.newBuilder(URI.create(base + "/cotacao" + parametros)));
+		sucesso &= requisitar(cliente, HttpRequest.newBuilder(URI.create(base + "/finalizar" + parametros))
+				.POST(HttpRequest.BodyPublishers.noBody()));
+		return sucesso;
+	}
+
+	private static boolean requisitar(HttpClient cliente, HttpRequest.Builder requisicao)
+	{
+		HttpRequest pronta = requisicao.timeout(Duration.ofSeconds(10)).build();
+		try
+		{
+			int status = cliente.send(pronta, HttpResponse.BodyHandlers.discarding()).statusCode();
+			if (status / 100 != 2)
+			{
+				log.warn("Requisição de treino {} {} respondeu {}.", pronta.method(), pronta.uri().getPath(), status);
+				return false;
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.warn("Requisição de treino {} falhou: {}", pronta.uri().getPath(), e.getMessage());
+			return false;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
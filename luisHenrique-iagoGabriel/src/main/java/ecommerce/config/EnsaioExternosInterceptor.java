@@ -0,0 +1,43 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.service.ModoEnsaio;
+
+/**
+ * Responde pelo estoque e pelo pagamento durante o {@link ModoEnsaio}: tudo
+ * disponível, baixa feita, pagamento autorizado (transação 0), estorno aceito. A
+ * chamada não chega ao serviço nem aos demais interceptadores, de modo que o
+ * ensaio não aparece no cache, nos eventos JFR nem no disjuntor. Fora do ensaio,
+ * só prossegue.
+ */
+public class EnsaioExternosInterceptor implements MethodInterceptor
+{
+
+	private static final DisponibilidadeDTO DISPONIVEL = new DisponibilidadeDTO(true, List.of());
+	private static final EstoqueBaixaDTO BAIXA = new EstoqueBaixaDTO(true);
+	private static final PagamentoDTO AUTORIZADO = new PagamentoDTO(true, 0L);
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		if (!ModoEnsaio.ativo())
+		{
+			return invocacao.proceed();
+		}
+		return switch (invocacao.getMethod().getName())
+		{
+			case "verificarDisponibilidade" -> DISPONIVEL;
+			case "darBaixa" -> BAIXA;
+			case "autorizarPagamento" -> AUTORIZADO;
+			case "cancelarPagamento" -> null;
+			default -> invocacao.proceed();
+		};
+	}
+}
@@ -0,0 +1,53 @@
+package ecommerce.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * O Hibernate gera o esquema ({@code ddl-auto}) só na conexão que recebe na subida,
+ * a do primeiro fragmento. Este integrador repete a mesma ação, com o mesmo
+ * mapeamento e as mesmas opções, em cada um dos outros; o {@code drop} adiado do
+ * {@code create-drop} também roda em cada um no encerramento.
+ */
+public class EsquemaFragmentosIntegrator implements Integrator
+{
+
+	private final List<String> outros;
+	private final List<Runnable> aoEncerrar = new ArrayList<>();
+
+	public EsquemaFragmentosIntegrator(List<String> outros)
+	{
+		this.outros = outros;
+	}
+
+	@Override
+	public void integrate(Metadata metadata, BootstrapContext contexto, SessionFactoryImplementor fabrica)
+	{
+		for (String fragmento : outros)
+		{
+			ContextoFragmento.executarEm(fragmento, () -> {
+				SchemaManagementToolCoordinator.process(metadata, fabrica.getServiceRegistry(),
+						fabrica.getProperties(), drop -> aoEncerrar.add(() -> ContextoFragmento.executarEm(fragmento,
+								() -> {
+									drop.perform(fabrica.getServiceRegistry());
+									return null;
+								})));
+				return null;
+			});
+		}
+	}
+
+	@Override
+	public void disintegrate(SessionFactoryImplementor fabrica, SessionFactoryServiceRegistry registro)
+	{
+		aoEncerrar.forEach(Runnable::run);
+		aoEncerrar.clear();
+	}
+}
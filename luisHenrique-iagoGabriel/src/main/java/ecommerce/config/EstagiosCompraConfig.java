@@ -0,0 +1,99 @@
+package ecommerce.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.CheckoutEmEstagios;
+import ecommerce.service.CheckoutEmEstagios.Estagio;
+import ecommerce.service.CompraService;
+import ecommerce.service.ExecutorEstagio;
+import ecommerce.service.ObservadorCompra;
+import ecommerce.service.RetentativaConflito;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checkout em estágios ({@code compra.estagios.*}) para {@code POST /finalizar/estagios}.
+ * Cada estágio é dimensionado à parte, por {@code compra.estagios.<estagio>.threads},
+ * {@code .capacidade-fila} e {@code .politica} ({@code recusar} ou {@code chamador});
+ * os padrões abaixo dão mais threads a quem espera rede e poucas à precificação,
+ * que só usa CPU. Por estágio (tag {@code estagio}):
+ * <ul>
+ * <li>{@code compra.estagio.fila} e {@code compra.estagio.fila.capacidade};</li>
+ * <li>{@code compra.estagio.threads.ocupadas} e {@code compra.estagio.threads};</li>
+ * <li>{@code compra.estagio.espera}: tempo na fila;</li>
+ * <li>{@code compra.estagio.recusadas} e {@code compra.estagio.no.chamador}: o que a
+ * política fez com a fila cheia.</li>
+ * </ul>
+ * O estágio cuja fila enche primeiro é o ponto de saturação.
+ */
+@Configuration
+@ConditionalOnProperty(name = "compra.estagios.habilitado")
+public class EstagiosCompraConfig
+{
+
+	@Bean(destroyMethod = "encerrar")
+	public CheckoutEmEstagios checkoutEmEstagios(CompraService compraService, IEstoqueExternal estoqueExternal,
+			IPagamentoExternal pagamentoExternal, RetentativaConflito retentativa, ApplicationEventPublisher eventos,
+			ObservadorCompra observador, Environment ambiente, MeterRegistry registry)
+	{
+		// Recusa só antes do pagamento, onde desistir não custa nada; depois dele a fila cheia segura o anterior
+		int nucleos = Runtime.getRuntime().availableProcessors();
+		Map<Estagio, ExecutorEstagio> executores = new EnumMap<>(Estagio.class);
+		executores.put(Estagio.CARREGAMENTO, executor(ambiente, Estagio.CARREGAMENTO, 8, 256, "chamador"));
+		executores.put(Estagio.DISPONIBILIDADE, executor(ambiente, Estagio.DISPONIBILIDADE, 16, 256, "recusar"));
+		executores.put(Estagio.PRECIFICACAO, executor(ambiente, Estagio.PRECIFICACAO, nucleos, 256, "chamador"));
+		executores.put(Estagio.PAGAMENTO, executor(ambiente, Estagio.PAGAMENTO, 32, 256, "recusar"));
+		executores.put(Estagio.BAIXA, executor(ambiente, Estagio.BAIXA, 16, 256, "chamador"));
+		// Compensação nunca recusa: um estorno perdido é pagamento sem pedido
+		executores.put(Estagio.COMPENSACAO, new ExecutorEstagio("compensacao",
+				ambiente.getProperty("compra.estagios.compensacao.threads", Integer.class, 4),
+				ambiente.getProperty("compra.estagios.compensacao.capacidade-fila", Integer.class, 1024),
+				ExecutorEstagio.Politica.CHAMADOR));
+		executores.values().forEach(executor -> registrar(executor, registry));
+
+		return new CheckoutEmEstagios(compraService, estoqueExternal, pagamentoExternal, retentativa, eventos,
+				observador, executores);
+	}
+
+	private static ExecutorEstagio executor(Environment ambiente, Estagio estagio, int threads, int capacidadeFila,
+			String politica)
+	{
+		String nome = estagio.name().toLowerCase();
+		String prefixo = "compra.estagios." + nome + ".";
+		return new ExecutorEstagio(nome, ambiente.getProperty(prefixo + "threads", Integer.class, threads),
+				ambiente.getProperty(prefixo + "capacidade-fila", Integer.class, capacidadeFila),
+				ExecutorEstagio.Politica.valueOf(ambiente.getProperty(prefixo + "politica", politica).toUpperCase()));
+	}
+
+	private static void registrar(ExecutorEstagio executor, MeterRegistry registry)
+	{
+		String estagio = executor.nome();
+		Gauge.builder("compra.estagio.fila", executor, ExecutorEstagio::tamanhoFila)
+				.description("Checkouts esperando na fila do estágio").tag("estagio", estagio).register(registry);
+		Gauge.builder("compra.estagio.fila.capacidade", executor, ExecutorEstagio::capacidadeFila)
+				.tag("estagio", estagio).register(registry);
+		Gauge.builder("compra.estagio.threads.ocupadas", executor, ExecutorEstagio::threadsOcupadas)
+				.tag("estagio", estagio).register(registry);
+		Gauge.builder("compra.estagio.threads", executor, ExecutorEstagio::threads)
+				.tag("estagio", estagio).register(registry);
+		FunctionTimer.builder("compra.estagio.espera", executor, ExecutorEstagio::executadas,
+				ExecutorEstagio::esperaTotalNanos, TimeUnit.NANOSECONDS)
+				.description("Tempo na fila do estágio").tag("estagio", estagio).register(registry);
+		FunctionCounter.builder("compra.estagio.recusadas", executor, ExecutorEstagio::recusadas)
+				.tag("estagio", estagio).register(registry);
+		FunctionCounter.builder("compra.estagio.no.chamador", executor, ExecutorEstagio::executadasNoChamador)
+				.tag("estagio", estagio).register(registry);
+	}
+}
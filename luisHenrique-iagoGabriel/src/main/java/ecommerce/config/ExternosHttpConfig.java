@@ -0,0 +1,36 @@
+package ecommerce.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import ecommerce.external.http.EstoqueClient;
+import ecommerce.external.http.EstoqueHttp;
+import ecommerce.external.http.PagamentoClient;
+import ecommerce.external.http.PagamentoHttp;
+
+/**
+ * Estoque e pagamento reais por HTTP ({@code externos.modo=http}), no lugar dos
+ * simuladores. Clientes Feign sobre o pool do Apache HttpClient 5 (conexões
+ * persistentes, gzip nas respostas), com tempos de conexão e leitura por serviço
+ * em {@code spring.cloud.openfeign.client.config.<estoque|pagamento>.*}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "externos.modo", havingValue = "http")
+@EnableFeignClients(clients = { EstoqueClient.class, PagamentoClient.class })
+public class ExternosHttpConfig
+{
+
+	@Bean
+	public EstoqueHttp estoqueHttp(EstoqueClient cliente)
+	{
+		return new EstoqueHttp(cliente);
+	}
+
+	@Bean
+	public PagamentoHttp pagamentoHttp(PagamentoClient cliente)
+	{
+		return new PagamentoHttp(cliente);
+	}
+}
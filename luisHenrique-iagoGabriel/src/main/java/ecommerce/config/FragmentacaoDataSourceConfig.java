@@ -0,0 +1,182 @@
+package ecommerce.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Persistência fragmentada por cliente ({@code ecommerce.datasource.fragmentacao.*}):
+ * um pool por fragmento atrás de um DataSource roteado, o cliente no fragmento
+ * dado pelo {@link AnelFragmentos}, clientes e carrinhos roteados pelo
+ * {@link FragmentoInterceptor}, catálogo replicado em todos e esquema criado em
+ * todos. Pedidos e o arquivo de carrinhos ficam no primeiro fragmento. Não combina
+ * com o roteamento leitura/escrita ({@code ecommerce.datasource.roteamento}). O anel
+ * é fixo: {@link AnelGravado} recusa subir se ele mudou sem migração.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ecommerce.datasource.fragmentacao.habilitado", havingValue = "true")
+@EnableConfigurationProperties(FragmentacaoDataSourceProperties.class)
+public class FragmentacaoDataSourceConfig
+{
+
+	private static final int NOS_VIRTUAIS_PADRAO = 128;
+
+	@Bean
+	public AnelFragmentos anelFragmentos(FragmentacaoDataSourceProperties propriedades)
+	{
+		if (propriedades.fragmentos() == null || propriedades.fragmentos().isEmpty())
+		{
+			throw new IllegalStateException("ecommerce.datasource.fragmentacao.fragmentos não configurado.");
+		}
+		return new AnelFragmentos(
+				propriedades.fragmentos().stream().map(FragmentacaoDataSourceProperties.Fragmento::nome).toList(),
+				propriedades.nosVirtuais() == null ? NOS_VIRTUAIS_PADRAO : propriedades.nosVirtuais());
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(FragmentacaoDataSourceProperties propriedades, AnelFragmentos anel)
+	{
+		Map<String, DataSource> pools = new LinkedHashMap<>();
+		for (FragmentacaoDataSourceProperties.Fragmento fragmento : propriedades.fragmentos())
+		{
+			HikariDataSource pool = new HikariDataSource();
+			pool.setPoolName("fragmento-" + fragmento.nome());
+			pool.setJdbcUrl(fragmento.url());
+			pool.setUsername(fragmento.usuario());
+			pool.setPassword(fragmento.senha());
+			if (fragmento.tamanhoPool() != null)
+			{
+				pool.setMaximumPoolSize(fragmento.tamanhoPool());
+			}
+			pools.put(fragmento.nome(), pool);
+		}
+		return new LazyConnectionDataSourceProxy(new FragmentosDataSource(pools, anel.nomes().get(0)));
+	}
+
+	@Bean(initMethod = "verificar")
+	public AnelGravado anelGravado(AnelFragmentos anel, JdbcTemplate jdbc,
+			FragmentacaoDataSourceProperties propriedades)
+	{
+		return new AnelGravado(anel, jdbc, propriedades.aceitarNovoAnel());
+	}
+
+	@Bean
+	public PendenciasReplicacao pendenciasReplicacao(MeterRegistry registry)
+	{
+		PendenciasReplicacao pendencias = new PendenciasReplicacao();
+		Gauge.builder("fragmentos.replicacao.pendentes", pendencias, PendenciasReplicacao::pendentes)
+				.description("Replicações do catálogo esperando nova tentativa").register(registry);
+		return pendencias;
+	}
+
+	@Bean
+	public GeradorIdsClientes geradorIdsClientes(FragmentacaoDataSourceProperties propriedades)
+	{
+		return new GeradorIdsClientes(propriedades.no() == null ? 0 : propriedades.no());
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer esquemaEmTodosOsFragmentos(AnelFragmentos anel)
+	{
+		List<String> outros = anel.nomes().subList(1, anel.nomes().size());
+		return propriedades -> propriedades.put("hibernate.integrator_provider",
+				(IntegratorProvider) () -> List.of(new EsquemaFragmentosIntegrator(outros)));
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService executorFragmentos(AnelFragmentos anel)
+	{
+		AtomicInteger contador = new AtomicInteger();
+		return Executors.newFixedThreadPool(anel.nomes().size(), tarefa -> {
+			Thread thread = new Thread(tarefa, "fragmentos-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Bean
+	public ConsultaFragmentos consultaFragmentos(AnelFragmentos anel, PlatformTransactionManager transacoes,
+			ExecutorService executorFragmentos)
+	{
+		TransactionTemplate leitura = new TransactionTemplate(transacoes);
+		leitura.setReadOnly(true);
+		leitura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return new ConsultaFragmentos(anel, leitura, executorFragmentos);
+	}
+
+	@Bean
+	@ConditionalOnAvailableEndpoint
+	public FragmentosEndpoint fragmentosEndpoint(AnelFragmentos anel, ConsultaFragmentos consulta,
+			ClienteRepository clientes, CarrinhoDeComprasRepository carrinhos, PendenciasReplicacao pendencias)
+	{
+		return new FragmentosEndpoint(anel, consulta, clientes, carrinhos, pendencias);
+	}
+
+	@Bean
+	public static BeanPostProcessor fragmentacaoRepositorios(ObjectProvider<AnelFragmentos> anel,
+			ObjectProvider<GeradorIdsClientes> gerador, ObjectProvider<JdbcTemplate> jdbc,
+			ObjectProvider<PlatformTransactionManager> transacoes, ObjectProvider<EntityManagerFactory> fabrica,
+			ObjectProvider<PendenciasReplicacao> pendencias)
+	{
+		return new BeanPostProcessor()
+		{
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException
+			{
+				if (!(bean instanceof Advised proxy) || proxy.isFrozen())
+				{
+					return bean;
+				}
+				TransactionTemplate novaTransacao = new TransactionTemplate(transacoes.getObject());
+				novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+				if (bean instanceof ClienteRepository || bean instanceof CarrinhoDeComprasRepository)
+				{
+					proxy.addAdvisor(0, new DefaultPointcutAdvisor(new FragmentoInterceptor(anel.getObject(),
+							bean instanceof ClienteRepository, gerador.getObject())));
+				}
+				else if (bean instanceof ProdutoRepository)
+				{
+					proxy.addAdvisor(0, new DefaultPointcutAdvisor(new ReplicacaoCatalogoInterceptor(anel.getObject(),
+							SharedEntityManagerCreator.createSharedEntityManager(fabrica.getObject()),
+							jdbc.getObject(), novaTransacao, pendencias.getObject())));
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,22 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Fragmentos por cliente ({@code ecommerce.datasource.fragmentacao.*}). A lista de
+ * nomes e {@code nosVirtuais} definem o anel e são fixos depois da primeira subida
+ * (ver {@link AnelGravado}); {@code aceitarNovoAnel} só depois de migrar os clientes
+ * que mudam de fragmento. O primeiro da lista guarda também os dados globais.
+ * {@code no} identifica esta instância na geração de ids de cliente e deve ser
+ * único entre as instâncias (0 a 1023).
+ */
+@ConfigurationProperties(prefix = "ecommerce.datasource.fragmentacao")
+public record FragmentacaoDataSourceProperties(List<Fragmento> fragmentos, Integer nosVirtuais, Integer no,
+		boolean aceitarNovoAnel)
+{
+	public record Fragmento(String nome, String url, String usuario, String senha, Integer tamanhoPool)
+	{
+	}
+}
@@ -0,0 +1,192 @@
+package ecommerce.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+
+/**
+ * Define o fragmento das chamadas a {@code ClienteRepository} e
+ * {@code CarrinhoDeComprasRepository} pelo id do cliente dos argumentos (o id, o
+ * {@link Cliente} ou o dono do {@link CarrinhoDeCompras}). Dentro de uma transação o
+ * fragmento vale até ela terminar, e uma chamada para outro fragmento na mesma
+ * transação é recusada: o checkout inteiro fica num fragmento só. Chamadas sem
+ * cliente (contagens, {@code findById}) só valem dentro de um fragmento já
+ * definido; para varrer todos há o {@link ConsultaFragmentos}.
+ *
+ * <p>Clientes novos recebem o id do {@link GeradorIdsClientes} antes de serem
+ * gravados; como a versão deles ainda é nula, o {@code save} os persiste com esse
+ * id ({@link ecommerce.entity.IdClienteAtribuido}) no fragmento dele.
+ * {@code saveAll} é dividido por fragmento.
+ */
+public class FragmentoInterceptor implements MethodInterceptor
+{
+
+	private final AnelFragmentos anel;
+	private final boolean repositorioDeClientes;
+	private final GeradorIdsClientes gerador;
+
+	public FragmentoInterceptor(AnelFragmentos anel, boolean repositorioDeClientes, GeradorIdsClientes gerador)
+	{
+		this.anel = anel;
+		this.repositorioDeClientes = repositorioDeClientes;
+		this.gerador = gerador;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		Object[] argumentos = invocacao.getArguments();
+		boolean gravacao = invocacao.getMethod().getName().startsWith("save");
+		if (gravacao && argumentos.length > 0 && argumentos[0] instanceof Iterable<?> entidades)
+		{
+			return salvarTodos(invocacao, entidades);
+		}
+		List<Cliente> novos = gravacao && argumentos.length > 0 ? novos(List.of(argumentos[0])) : List.of();
+		return executar(fragmento(argumentos), novos, invocacao);
+	}
+
+	private Object salvarTodos(MethodInvocation invocacao, Iterable<?> entidades) throws Throwable
+	{
+		List<Object> todas = new ArrayList<>();
+		entidades.forEach(todas::add);
+		Set<Object> novos = Collections.newSetFromMap(new IdentityHashMap<>());
+		novos.addAll(novos(todas));
+		Map<String, List<Object>> porFragmento = new LinkedHashMap<>();
+		for (Object entidade : todas)
+		{
+			porFragmento.computeIfAbsent(fragmento(new Object[] { entidade }), f -> new ArrayList<>()).add(entidade);
+		}
+		List<Object> salvos = new ArrayList<>(todas.size());
+		for (Map.Entry<String, List<Object>> grupo : porFragmento.entrySet())
+		{
+			MethodInvocation parcial = ((ProxyMethodInvocation) invocacao)
+					.invocableClone(new Object[] { grupo.getValue() });
+			List<Cliente> novosDoGrupo = new ArrayList<>();
+			for (Object entidade : grupo.getValue())
+			{
+				if (novos.contains(entidade))
+				{
+					novosDoGrupo.add((Cliente) entidade);
+				}
+			}
+			for (Object salvo : (Iterable<?>) executar(grupo.getKey(), novosDoGrupo, parcial))
+			{
+				salvos.add(salvo);
+			}
+		}
+		return salvos;
+	}
+
+	private Object executar(String fragmento, List<Cliente> novos, MethodInvocation invocacao) throws Throwable
+	{
+		String atual = ContextoFragmento.atual();
+		if (atual != null)
+		{
+			if (fragmento != null && !fragmento.equals(atual))
+			{
+				throw new IllegalStateException("Operação no fragmento " + fragmento
+						+ " dentro de uma transação do fragmento " + atual + ".");
+			}
+			return prosseguir(novos, invocacao);
+		}
+		if (fragmento == null)
+		{
+			throw new IllegalStateException(invocacao.getMethod().getName()
+					+ " sem cliente com a persistência fragmentada; use ConsultaFragmentos para todos os fragmentos.");
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			ContextoFragmento.definir(fragmento);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCompletion(int status)
+				{
+					ContextoFragmento.limpar();
+				}
+			});
+			return prosseguir(novos, invocacao);
+		}
+		ContextoFragmento.definir(fragmento);
+		try
+		{
+			return prosseguir(novos, invocacao);
+		}
+		finally
+		{
+			ContextoFragmento.limpar();
+		}
+	}
+
+	/** Um save que falha devolve os clientes novos sem id, como estavam. */
+	private static Object prosseguir(List<Cliente> novos, MethodInvocation invocacao) throws Throwable
+	{
+		try
+		{
+			return invocacao.proceed();
+		}
+		catch (RuntimeException | Error e)
+		{
+			novos.forEach(novo -> novo.setId(null));
+			throw e;
+		}
+	}
+
+	/** Dá id aos clientes ainda sem id e devolve esses. */
+	private List<Cliente> novos(List<?> entidades)
+	{
+		if (!repositorioDeClientes)
+		{
+			return List.of();
+		}
+		List<Cliente> novos = new ArrayList<>(1);
+		for (Object entidade : entidades)
+		{
+			if (entidade instanceof Cliente cliente && cliente.getId() == null)
+			{
+				cliente.setId(gerador.proximo());
+				novos.add(cliente);
+			}
+		}
+		return novos;
+	}
+
+	private String fragmento(Object[] argumentos)
+	{
+		if (argumentos.length == 0)
+		{
+			return null;
+		}
+		Long clienteId = null;
+		if (argumentos[0] instanceof Cliente cliente)
+		{
+			clienteId = cliente.getId();
+		}
+		else if (argumentos[0] instanceof CarrinhoDeCompras carrinho)
+		{
+			clienteId = carrinho.getCliente() == null ? null : carrinho.getCliente().getId();
+		}
+		else if (argumentos[0] instanceof Long id && repositorioDeClientes)
+		{
+			clienteId = id;
+		}
+		else if (argumentos.length > 1 && argumentos[1] instanceof Cliente cliente)
+		{
+			clienteId = cliente.getId();
+		}
+		return clienteId == null ? null : anel.fragmento(clienteId);
+	}
+}
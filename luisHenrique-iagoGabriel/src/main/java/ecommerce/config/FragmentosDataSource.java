@@ -0,0 +1,37 @@
+package ecommerce.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Escolhe o fragmento pelo {@link ContextoFragmento}; sem fragmento definido usa o
+ * primeiro, que guarda os dados globais (pedidos, arquivo) e responde ao Hibernate na
+ * subida. Deve ficar atrás de um LazyConnectionDataSourceProxy, para que a conexão
+ * física só seja escolhida no primeiro comando da transação, depois que o
+ * repositório definiu o fragmento.
+ */
+public class FragmentosDataSource extends AbstractRoutingDataSource
+{
+
+	private final String padrao;
+
+	public FragmentosDataSource(Map<String, DataSource> fragmentos, String padrao)
+	{
+		this.padrao = padrao;
+		setTargetDataSources(new HashMap<>(fragmentos));
+		setDefaultTargetDataSource(fragmentos.get(padrao));
+		setLenientFallback(false);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey()
+	{
+		String atual = ContextoFragmento.atual();
+		return atual == null ? padrao : atual;
+	}
+}
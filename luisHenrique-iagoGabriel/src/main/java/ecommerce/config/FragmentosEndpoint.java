@@ -0,0 +1,54 @@
+package ecommerce.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+/**
+ * Fragmentos em {@code /actuator/fragmentos}: clientes e carrinhos em cada um (por
+ * {@link ConsultaFragmentos}) e as replicações do catálogo pendentes;
+ * {@code /actuator/fragmentos/{clienteId}} diz onde fica um cliente. Só por JMX: o
+ * painel varre todos os fragmentos.
+ */
+@Endpoint(id = "fragmentos")
+public class FragmentosEndpoint
+{
+
+	private final AnelFragmentos anel;
+	private final ConsultaFragmentos consulta;
+	private final ClienteRepository clientes;
+	private final CarrinhoDeComprasRepository carrinhos;
+	private final PendenciasReplicacao pendencias;
+
+	public FragmentosEndpoint(AnelFragmentos anel, ConsultaFragmentos consulta, ClienteRepository clientes,
+			CarrinhoDeComprasRepository carrinhos, PendenciasReplicacao pendencias)
+	{
+		this.anel = anel;
+		this.consulta = consulta;
+		this.clientes = clientes;
+		this.carrinhos = carrinhos;
+		this.pendencias = pendencias;
+	}
+
+	@ReadOperation
+	public Map<String, Object> painel()
+	{
+		Map<String, Object> painel = new LinkedHashMap<>();
+		consulta.emCada(() -> Map.of("clientes", clientes.count(), "carrinhos", carrinhos.count()))
+				.forEach(painel::put);
+		painel.put("replicacoesPendentes", pendencias.pendentes());
+		return painel;
+	}
+
+	@ReadOperation
+	public Map<String, Object> cliente(@Selector long clienteId)
+	{
+		return Map.of("clienteId", clienteId, "fragmento", anel.fragmento(clienteId));
+	}
+}
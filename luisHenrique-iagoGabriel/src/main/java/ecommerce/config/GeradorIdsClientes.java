@@ -0,0 +1,57 @@
+package ecommerce.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ids de cliente únicos entre fragmentos e instâncias, gerados antes da inserção,
+ * já que o id decide o fragmento: milissegundos desde {@link #EPOCA} (41 bits), nó
+ * (10 bits) e sequência no milissegundo (12 bits). Crescentes por instância; se a
+ * sequência esgota, avança para o milissegundo seguinte.
+ */
+public final class GeradorIdsClientes
+{
+
+	/** 2024-01-01T00:00:00Z. */
+	static final long EPOCA = 1_704_067_200_000L;
+	private static final int BITS_NO = 10;
+	private static final int BITS_SEQUENCIA = 12;
+	private static final long MASCARA_SEQUENCIA = (1L << BITS_SEQUENCIA) - 1;
+
+	private final long no;
+	private final LongSupplier relogioMs;
+	private final AtomicLong ultimo = new AtomicLong();
+
+	public GeradorIdsClientes(int no)
+	{
+		this(no, System::currentTimeMillis);
+	}
+
+	GeradorIdsClientes(int no, LongSupplier relogioMs)
+	{
+		if (no < 0 || no >= 1 << BITS_NO)
+		{
+			throw new IllegalArgumentException("Nó fora do intervalo 0.." + ((1 << BITS_NO) - 1) + ": " + no);
+		}
+		this.no = no;
+		this.relogioMs = relogioMs;
+	}
+
+	public long proximo()
+	{
+		long base = ((relogioMs.getAsLong() - EPOCA) << (BITS_NO + BITS_SEQUENCIA)) | (no << BITS_SEQUENCIA);
+		// O relógio voltando não repete ids: segue a partir do último emitido
+		return ultimo.updateAndGet(anterior -> {
+			if (base > anterior)
+			{
+				return base;
+			}
+			if ((anterior & MASCARA_SEQUENCIA) == MASCARA_SEQUENCIA)
+			{
+				// sequência esgotada: milissegundo seguinte, mesmo nó, sequência zero
+				return (anterior & ~MASCARA_SEQUENCIA) + (1L << (BITS_NO + BITS_SEQUENCIA));
+			}
+			return anterior + 1;
+		});
+	}
+}
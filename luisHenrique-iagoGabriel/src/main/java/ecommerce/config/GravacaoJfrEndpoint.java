@@ -0,0 +1,238 @@
+package ecommerce.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import ecommerce.external.EventoChamadaExternaJfr;
+import ecommerce.service.EventoCheckoutJfr;
+import jdk.jfr.Configuration;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Controle de uma gravação JFR, exposto por JMX ({@code org.springframework.boot:type=Endpoint,name=Jfr}):
+ * <ul>
+ * <li>{@code estado}: estado da gravação e dos eventos do ecommerce;</li>
+ * <li>{@code executar("iniciar")} (opcional {@code duracaoSegundos}): inicia com as
+ * configurações {@code default} do JDK, sem os {@link #EVENTOS_SENSIVEIS}, mais os
+ * eventos do ecommerce;</li>
+ * <li>{@code executar("habilitar")} e {@code ("desabilitar")} com {@code evento} (e
+ * opcional {@code limiarMs}): liga ou desliga um tipo de evento na gravação em curso,
+ * p.ex. só checkouts acima de 50 ms;</li>
+ * <li>{@code executar("salvar")} com {@code destino}: grava o conteúdo até agora num
+ * arquivo novo do servidor;</li>
+ * <li>{@code executar("parar")}: encerra e descarta a gravação.</li>
+ * </ul>
+ * {@code dump} devolve o mesmo conteúdo como fluxo, para quando o endpoint for exposto
+ * na web atrás de autenticação; o arquivo temporário é apagado ao fim da leitura.
+ * Fora de uma gravação os eventos do ecommerce ficam desligados e não custam nada.
+ */
+@Endpoint(id = "jfr")
+public class GravacaoJfrEndpoint
+{
+
+	static final List<String> EVENTOS = List.of(EventoCheckoutJfr.NOME, EventoChamadaExternaJfr.NOME);
+
+	/** Copiam propriedades de sistema, variáveis de ambiente e argumentos da JVM: podem conter segredos. */
+	static final List<String> EVENTOS_SENSIVEIS = List.of("jdk.InitialSystemProperty",
+			"jdk.InitialEnvironmentVariable", "jdk.JVMInformation", "jdk.SystemProcess");
+
+	private final Path diretorioTemporario;
+
+	private Recording gravacao;
+
+	public GravacaoJfrEndpoint()
+	{
+		this(Path.of(System.getProperty("java.io.tmpdir")));
+	}
+
+	GravacaoJfrEndpoint(Path diretorioTemporario)
+	{
+		this.diretorioTemporario = diretorioTemporario;
+		// Registra os tipos para que apareçam nas configurações antes do primeiro evento
+		FlightRecorder.register(EventoCheckoutJfr.class);
+		FlightRecorder.register(EventoChamadaExternaJfr.class);
+	}
+
+	@ReadOperation
+	public synchronized Map<String, Object> estado()
+	{
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("gravacao", gravacao == null ? "NENHUMA" : gravacao.getState().name());
+		if (gravacao != null)
+		{
+			estado.put("inicio", gravacao.getStartTime());
+			estado.put("duracao", gravacao.getDuration());
+			estado.put("tamanhoBytes", gravacao.getSize());
+		}
+		Map<String, Boolean> eventos = new LinkedHashMap<>();
+		eventos.put(EventoCheckoutJfr.NOME, EventType.getEventType(EventoCheckoutJfr.class).isEnabled());
+		eventos.put(EventoChamadaExternaJfr.NOME, EventType.getEventType(EventoChamadaExternaJfr.class).isEnabled());
+		estado.put("eventos", eventos);
+		return estado;
+	}
+
+	@WriteOperation
+	public synchronized Map<String, Object> executar(@Selector String acao, @Nullable Long duracaoSegundos,
+			@Nullable String evento, @Nullable Long limiarMs, @Nullable String destino)
+	{
+		Path salvo = null;
+		switch (acao)
+		{
+			case "iniciar" -> iniciar(duracaoSegundos);
+			case "parar" -> parar();
+			case "habilitar" -> gravacaoAtiva().enable(eventoValido(evento))
+					.withThreshold(Duration.ofMillis(limiarMs == null ? 0L : limiarMs));
+			case "desabilitar" -> gravacaoAtiva().disable(eventoValido(evento));
+			case "salvar" -> salvo = salvar(destino);
+			default -> throw new InvalidEndpointRequestException("Ação desconhecida: " + acao,
+					"use iniciar, parar, habilitar, desabilitar ou salvar");
+		}
+		Map<String, Object> estado = estado();
+		if (salvo != null)
+		{
+			estado.put("arquivo", salvo.toString());
+		}
+		return estado;
+	}
+
+	@ReadOperation(produces = "application/octet-stream")
+	public synchronized Resource dump(@Selector String arquivo)
+	{
+		if (!"dump".equals(arquivo))
+		{
+			throw new InvalidEndpointRequestException("Recurso desconhecido: " + arquivo, "use /actuator/jfr/dump");
+		}
+		Recording ativa = gravacaoAtiva();
+		Path temporario = null;
+		try
+		{
+			temporario = Files.createTempFile(diretorioTemporario, "checkout-", ".jfr");
+			ativa.dump(temporario);
+			// Apagado quando quem responde fechar o fluxo, e não só na saída da JVM
+			return new InputStreamResource(Files.newInputStream(temporario, StandardOpenOption.DELETE_ON_CLOSE),
+					"gravação JFR ecommerce-checkout");
+		}
+		catch (IOException e)
+		{
+			apagar(temporario);
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Path salvar(String destino)
+	{
+		if (destino == null || destino.isBlank() || !Path.of(destino).isAbsolute())
+		{
+			throw new InvalidEndpointRequestException("Informe o destino como caminho absoluto.", "destino inválido");
+		}
+		Path arquivo = Path.of(destino);
+		if (Files.exists(arquivo))
+		{
+			throw new InvalidEndpointRequestException("O destino já existe: " + destino, "destino existente");
+		}
+		try
+		{
+			gravacaoAtiva().dump(arquivo);
+			return arquivo;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void apagar(Path arquivo)
+	{
+		if (arquivo == null)
+		{
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(arquivo);
+		}
+		catch (IOException e)
+		{
+			// Sobra um temporário; a falha original é a que interessa
+		}
+	}
+
+	private void iniciar(Long duracaoSegundos)
+	{
+		if (gravacao != null && gravacao.getState() == RecordingState.RUNNING)
+		{
+			throw new InvalidEndpointRequestException("Já existe uma gravação em curso.", "gravação em curso");
+		}
+		parar();
+		try
+		{
+			Map<String, String> configuracoes = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+			EVENTOS_SENSIVEIS.forEach(nome -> configuracoes.put(nome + "#enabled", "false"));
+			gravacao = new Recording(configuracoes);
+		}
+		catch (IOException | ParseException e)
+		{
+			throw new IllegalStateException("Configuração JFR 'default' indisponível.", e);
+		}
+		gravacao.setName("ecommerce-checkout");
+		gravacao.setToDisk(true);
+		EVENTOS.forEach(nome -> gravacao.enable(nome).withoutStackTrace());
+		if (duracaoSegundos != null && duracaoSegundos > 0)
+		{
+			gravacao.setDuration(Duration.ofSeconds(duracaoSegundos));
+		}
+		gravacao.start();
+	}
+
+	private void parar()
+	{
+		if (gravacao != null)
+		{
+			gravacao.close();
+			gravacao = null;
+		}
+	}
+
+	private Recording gravacaoAtiva()
+	{
+		if (gravacao == null)
+		{
+			throw new InvalidEndpointRequestException("Nenhuma gravação em curso.", "nenhuma gravação");
+		}
+		return gravacao;
+	}
+
+	private static String eventoValido(String evento)
+	{
+		if (evento == null || evento.isBlank())
+		{
+			throw new InvalidEndpointRequestException("Informe o evento.", "evento ausente");
+		}
+		if (EVENTOS_SENSIVEIS.contains(evento))
+		{
+			throw new InvalidEndpointRequestException("Evento não permitido: " + evento, "evento sensível");
+		}
+		return evento;
+	}
+}
@@ -0,0 +1,167 @@
+package ecommerce.config;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+import ecommerce.external.CacheDisponibilidade;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.MonitoresExternos;
+import ecommerce.rastreamento.Rastreador;
+import ecommerce.rastreamento.RastreamentoInterceptor;
+
+/**
+ * Aplica os interceptadores de observabilidade aos adaptadores de estoque e
+ * pagamento (eventos JFR, spans, monitor de saúde com disjuntor; no estoque, antes
+ * deles, o cache de disponibilidade quando houver; na frente de todos, as respostas
+ * do {@link ecommerce.service.ModoEnsaio}) e aos
+ * repositórios (spans), só nos métodos do
+ * contrato — os métodos de configuração dos simuladores ficam de fora. Beans que
+ * já são proxies do Spring, como os repositórios do Spring Data, recebem os
+ * interceptadores na cadeia existente; os demais ganham um proxy de subclasse
+ * (CGLIB), para que quem injeta a implementação concreta (simuladores,
+ * repositórios do perfil inmemory) continue recebendo o mesmo tipo.
+ */
+public class InstrumentacaoPostProcessor implements BeanPostProcessor
+{
+
+	private record Componente(String nome, Class<?> contrato, boolean externo)
+	{
+	}
+
+	private final boolean jfr;
+	private final ObjectProvider<Rastreador> rastreador;
+	private final ObjectProvider<MonitoresExternos> monitores;
+	private final ObjectProvider<CacheDisponibilidade> cache;
+
+	public InstrumentacaoPostProcessor(boolean jfr, ObjectProvider<Rastreador> rastreador,
+			ObjectProvider<MonitoresExternos> monitores)
+	{
+		this(jfr, rastreador, monitores, null);
+	}
+
+	public InstrumentacaoPostProcessor(boolean jfr, ObjectProvider<Rastreador> rastreador,
+			ObjectProvider<MonitoresExternos> monitores, ObjectProvider<CacheDisponibilidade> cache)
+	{
+		this.jfr = jfr;
+		this.rastreador = rastreador;
+		this.monitores = monitores;
+		this.cache = cache;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException
+	{
+		List<Advisor> advisors = advisors(bean);
+		if (advisors.isEmpty())
+		{
+			return bean;
+		}
+		if (bean instanceof Advised proxy && !proxy.isFrozen() && AopUtils.isAopProxy(bean))
+		{
+			// No início da cadeia: os interceptadores do Spring Data encerram a chamada sem prosseguir
+			for (int i = 0; i < advisors.size(); i++)
+			{
+				proxy.addAdvisor(i, advisors.get(i));
+			}
+			return bean;
+		}
+		ProxyFactory fabrica = new ProxyFactory(bean);
+		fabrica.setProxyTargetClass(!Proxy.isProxyClass(bean.getClass()));
+		advisors.forEach(fabrica::addAdvisor);
+		return fabrica.getProxy(bean.getClass().getClassLoader());
+	}
+
+	private List<Advisor> advisors(Object bean)
+	{
+		Componente componente = componente(bean);
+		List<Advisor> advisors = new ArrayList<>(4);
+		if (componente == null)
+		{
+			return advisors;
+		}
+		if (componente.externo())
+		{
+			// Antes de tudo: o ensaio do aquecimento não sai do processo nem conta em lugar nenhum
+			advisors.add(advisor(componente, new EnsaioExternosInterceptor()));
+		}
+		CacheDisponibilidade disponibilidade = cache == null ? null : cache.getIfAvailable();
+		if (disponibilidade != null && IEstoqueExternal.class.isAssignableFrom(componente.contrato()))
+		{
+			// Primeiro: uma resposta local não é chamada externa nem conta para o disjuntor
+			advisors.add(advisor(componente, new CacheDisponibilidadeInterceptor(disponibilidade)));
+		}
+		if (jfr && componente.externo())
+		{
+			advisors.add(advisor(componente, new ChamadaExternaJfrInterceptor(componente.nome())));
+		}
+		Rastreador disponivel = rastreador.getIfAvailable();
+		if (disponivel != null)
+		{
+			advisors.add(advisor(componente, new RastreamentoInterceptor(componente.nome(), disponivel)));
+		}
+		MonitoresExternos saude = monitores.getIfAvailable();
+		if (saude != null && componente.externo())
+		{
+			// Por último: uma recusa do disjuntor ainda aparece no span e no evento JFR
+			advisors.add(advisor(componente, new MonitorExternoInterceptor(saude.monitor(componente.nome()),
+					IEstoqueExternal.class.isAssignableFrom(componente.contrato()))));
+		}
+		return advisors;
+	}
+
+	private static Advisor advisor(Componente componente, Advice interceptador)
+	{
+		return new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut()
+		{
+			@Override
+			public boolean matches(Method metodo, Class<?> alvo)
+			{
+				return ClassUtils.hasMethod(componente.contrato(), metodo.getName(), metodo.getParameterTypes());
+			}
+		}, interceptador);
+	}
+
+	private static Componente componente(Object bean)
+	{
+		if (bean instanceof IEstoqueExternalPrimitivo)
+		{
+			return new Componente("estoque", IEstoqueExternalPrimitivo.class, true);
+		}
+		if (bean instanceof IEstoqueExternal)
+		{
+			return new Componente("estoque", IEstoqueExternal.class, true);
+		}
+		if (bean instanceof IPagamentoExternal)
+		{
+			return new Componente("pagamento", IPagamentoExternal.class, true);
+		}
+		if (bean instanceof Repository)
+		{
+			for (Class<?> tipo : ClassUtils.getAllInterfacesAsSet(bean))
+			{
+				if (Repository.class.isAssignableFrom(tipo) && tipo.getPackageName().startsWith("ecommerce"))
+				{
+					return new Componente(tipo.getSimpleName(), tipo, false);
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,75 @@
+package ecommerce.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ecommerce.service.CarrinhosAlteradosEvento;
+import ecommerce.service.CompraFinalizadaEvento;
+
+/**
+ * Guarda, por cliente, o instante da última escrita. Durante a janela configurada
+ * (o atraso máximo esperado das réplicas) as leituras desse cliente vão para o
+ * primário, para que ele não veja um carrinho ou pedido desatualizado. Toda escrita
+ * em carrinho abre a janela: checkout concluído, reserva e confirmação, recálculo
+ * de totais e arquivamento.
+ */
+@Component
+public class JanelaConsistenciaReplica
+{
+	private final long janelaNanos;
+	private final LongSupplier relogio;
+	private final Map<Long, Long> expiracaoPorCliente = new ConcurrentHashMap<>();
+
+	@Autowired
+	public JanelaConsistenciaReplica(@Value("${ecommerce.datasource.janela-consistencia-ms:5000}") long janelaMs)
+	{
+		this(janelaMs, System::nanoTime);
+	}
+
+	public JanelaConsistenciaReplica(long janelaMs, LongSupplier relogio)
+	{
+		this.janelaNanos = TimeUnit.MILLISECONDS.toNanos(janelaMs);
+		this.relogio = relogio;
+	}
+
+	@EventListener
+	public void aoFinalizarCompra(CompraFinalizadaEvento evento)
+	{
+		registrarEscrita(evento.clienteId());
+	}
+
+	@EventListener
+	public void aoAlterarCarrinhos(CarrinhosAlteradosEvento evento)
+	{
+		evento.clienteIds().forEach(this::registrarEscrita);
+	}
+
+	public void registrarEscrita(Long clienteId)
+	{
+		if (clienteId != null)
+		{
+			expiracaoPorCliente.put(clienteId, relogio.getAsLong() + janelaNanos);
+		}
+	}
+
+	public boolean exigePrimario(Long clienteId)
+	{
+		Long expiracao = clienteId == null ? null : expiracaoPorCliente.get(clienteId);
+		return expiracao != null && expiracao - relogio.getAsLong() > 0;
+	}
+
+	@Scheduled(fixedDelayString = "${ecommerce.datasource.janela-consistencia-ms:5000}")
+	public void descartarExpirados()
+	{
+		long agora = relogio.getAsLong();
+		expiracaoPorCliente.values().removeIf(expiracao -> expiracao - agora <= 0);
+	}
+}
@@ -0,0 +1,30 @@
+package ecommerce.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Threads do checkout em lote ({@code compra.lote.*}), compartilhadas entre os
+ * lotes em curso. Cada lote limita as próprias linhas em curso; a fila só enche
+ * com muitos lotes simultâneos, e aí as linhas recusadas voltam com 503.
+ */
+@Configuration
+public class LoteConfig
+{
+
+	@Bean(destroyMethod = "shutdown")
+	public ThreadPoolExecutor compraLoteExecutor(@Value("${compra.lote.threads:16}") int threads,
+			@Value("${compra.lote.capacidade-fila:256}") int capacidadeFila)
+	{
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(capacidadeFila), new CustomizableThreadFactory("compra-lote-"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
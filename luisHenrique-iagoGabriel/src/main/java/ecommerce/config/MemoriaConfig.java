@@ -0,0 +1,52 @@
+package ecommerce.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Perfil {@code inmemory}: sem DataSource nem JPA (ver application-inmemory.properties),
+ * os repositórios passam a ser os de {@code ecommerce.external.fake}. Serve para medir
+ * o caminho de CPU do checkout sem o banco; as transações não têm recurso a demarcar.
+ */
+@Configuration
+@Profile("inmemory")
+public class MemoriaConfig
+{
+
+	@Bean
+	public PlatformTransactionManager transactionManager()
+	{
+		return new TransacaoSemRecursoManager();
+	}
+
+	static class TransacaoSemRecursoManager extends AbstractPlatformTransactionManager
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected Object doGetTransaction()
+		{
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition)
+		{
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status)
+		{
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status)
+		{
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import ecommerce.external.LinhasPedido;
+import ecommerce.external.MonitorExterno;
+
+/**
+ * Alimenta o {@link MonitorExterno} do serviço: latência, erro, chamadas em curso
+ * e tamanho do lote (a primeira lista ou {@link LinhasPedido} dos argumentos, ou 1).
+ * No estoque, os ids de produto da chamada alimentam também a contenção por produto. Métodos
+ * {@code cancelar*} são compensações e não são barrados pelo disjuntor.
+ */
+public class MonitorExternoInterceptor implements MethodInterceptor
+{
+
+	private final MonitorExterno monitor;
+	private final boolean contencaoPorProduto;
+
+	public MonitorExternoInterceptor(MonitorExterno monitor, boolean contencaoPorProduto)
+	{
+		this.monitor = monitor;
+		this.contencaoPorProduto = contencaoPorProduto;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		Object[] argumentos = invocacao.getArguments();
+		List<?> lista = argumentos.length == 0 ? null
+				: argumentos[0] instanceof LinhasPedido linhas ? linhas.idsComoLista()
+				: argumentos[0] instanceof List<?> l ? l : null;
+		List<Long> produtos = contencaoPorProduto && lista != null ? (List<Long>) lista : List.of();
+
+		monitor.entrar(invocacao.getMethod().getName().startsWith("cancelar"));
+		monitor.contencao().entrar(produtos);
+		long inicio = System.nanoTime();
+		boolean erro = true;
+		try
+		{
+			Object resultado = invocacao.proceed();
+			erro = false;
+			return resultado;
+		}
+		finally
+		{
+			monitor.contencao().sair(produtos);
+			monitor.sair(System.nanoTime() - inicio, erro, lista == null ? 1 : lista.size());
+		}
+	}
+}
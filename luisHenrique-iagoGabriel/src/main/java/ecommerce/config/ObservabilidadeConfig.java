@@ -0,0 +1,79 @@
+package ecommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import ecommerce.external.CacheDisponibilidade;
+import ecommerce.external.MonitorExterno;
+import ecommerce.external.MonitoresExternos;
+import ecommerce.rastreamento.Rastreador;
+import ecommerce.service.MetricasCompra;
+import ecommerce.service.ObservadorCompra;
+import ecommerce.service.ObservadorCompraJfr;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Observadores do checkout: métricas Micrometer ({@code compra.metricas.habilitado})
+ * e eventos JFR ({@code compra.jfr.habilitado}). Desligados ambos, o CompraService
+ * recebe o observador nulo e a instrumentação não custa nada além das leituras de
+ * relógio.
+ *
+ * <p>Também o monitor de saúde e o disjuntor dos serviços externos
+ * ({@code externos.monitor.*}, {@code externos.circuito.*}).
+ */
+@Configuration
+public class ObservabilidadeConfig
+{
+
+	@Bean
+	public ObservadorCompra observadorCompra(MeterRegistry registry,
+			@Value("${compra.metricas.habilitado:true}") boolean metricas,
+			@Value("${compra.jfr.habilitado:true}") boolean jfr)
+	{
+		return ObservadorCompra.combinar(metricas ? new MetricasCompra(registry) : ObservadorCompra.NENHUM,
+				jfr ? new ObservadorCompraJfr() : ObservadorCompra.NENHUM);
+	}
+
+	@Bean
+	public static InstrumentacaoPostProcessor instrumentacaoPostProcessor(Environment ambiente,
+			ObjectProvider<Rastreador> rastreador, ObjectProvider<MonitoresExternos> monitores,
+			ObjectProvider<CacheDisponibilidade> cache)
+	{
+		return new InstrumentacaoPostProcessor(ambiente.getProperty("compra.jfr.habilitado", Boolean.class, true),
+				rastreador, monitores, cache);
+	}
+
+	@Bean
+	public MonitoresExternos monitoresExternos(@Value("${externos.monitor.janela-s:60}") long janelaSegundos,
+			@Value("${externos.monitor.baldes:12}") int baldes,
+			@Value("${externos.circuito.habilitado:true}") boolean circuito,
+			@Value("${externos.circuito.taxa-erro:0.5}") double taxaErro,
+			@Value("${externos.circuito.minimo-chamadas:20}") int minimoChamadas,
+			@Value("${externos.circuito.espera-aberto-ms:5000}") long esperaAbertoMs)
+	{
+		return new MonitoresExternos(new MonitorExterno.Configuracao(Duration.ofSeconds(janelaSegundos), baldes,
+				circuito, taxaErro, minimoChamadas, Duration.ofMillis(esperaAbertoMs)));
+	}
+
+	@Bean
+	@ConditionalOnAvailableEndpoint
+	public SaudeExternosEndpoint saudeExternosEndpoint(MonitoresExternos monitores)
+	{
+		return new SaudeExternosEndpoint(monitores);
+	}
+
+	@Bean
+	@ConditionalOnAvailableEndpoint
+	@ConditionalOnProperty(name = "compra.jfr.habilitado", matchIfMissing = true)
+	public GravacaoJfrEndpoint gravacaoJfrEndpoint()
+	{
+		return new GravacaoJfrEndpoint();
+	}
+}
@@ -0,0 +1,63 @@
+package ecommerce.config;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Replicações do catálogo que falharam num fragmento, repetidas até darem certo:
+ * sem elas o fragmento fica com o catálogo divergente em silêncio. Cada repetição
+ * refaz a replicação inteira naquele fragmento com o estado atual da origem, de
+ * modo que repetir fora de ordem não regrava um valor antigo. O tamanho da fila sai
+ * em {@code fragmentos.replicacao.pendentes} e no painel de
+ * {@link FragmentosEndpoint}.
+ */
+public class PendenciasReplicacao
+{
+	private static final Logger log = LoggerFactory.getLogger(PendenciasReplicacao.class);
+
+	private record Pendencia(String fragmento, String descricao, Runnable repeticao)
+	{
+	}
+
+	private final Queue<Pendencia> pendentes = new ConcurrentLinkedQueue<>();
+
+	public void registrar(String fragmento, String descricao, Runnable repeticao, RuntimeException falha)
+	{
+		log.warn("Replicação de {} no fragmento {} falhou; fica pendente.", descricao, fragmento, falha);
+		pendentes.add(new Pendencia(fragmento, descricao, repeticao));
+	}
+
+	@Scheduled(fixedDelayString = "${ecommerce.datasource.fragmentacao.replicacao.intervalo-ms:5000}")
+	public void repetir()
+	{
+		// Só as que já estavam na fila: uma que volta a falhar espera a próxima rodada
+		for (int restantes = pendentes.size(); restantes > 0; restantes--)
+		{
+			Pendencia pendencia = pendentes.poll();
+			if (pendencia == null)
+			{
+				return;
+			}
+			try
+			{
+				pendencia.repeticao().run();
+				log.info("Replicação de {} no fragmento {} concluída.", pendencia.descricao(), pendencia.fragmento());
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Replicação de {} no fragmento {} falhou de novo: {}", pendencia.descricao(),
+						pendencia.fragmento(), e.toString());
+				pendentes.add(pendencia);
+			}
+		}
+	}
+
+	public int pendentes()
+	{
+		return pendentes.size();
+	}
+}
@@ -0,0 +1,61 @@
+package ecommerce.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import ecommerce.rastreamento.ExportadorArquivo;
+import ecommerce.rastreamento.ExportadorSpans;
+import ecommerce.rastreamento.FiltroRastreamento;
+import ecommerce.rastreamento.Rastreador;
+
+/**
+ * Rastreamento das requisições ({@code rastreamento.*}). O exportador padrão é
+ * escolhido por {@code rastreamento.exportador} ({@code arquivo} ou
+ * {@code nenhum}); um bean {@link ExportadorSpans} próprio o substitui. O do arquivo
+ * grava numa thread própria, com até {@code rastreamento.fila-exportacao} rastros na
+ * fila.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rastreamento.habilitado", matchIfMissing = true)
+public class RastreamentoConfig
+{
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ExportadorSpans exportadorSpans(@Value("${rastreamento.exportador:nenhum}") String exportador,
+			@Value("${rastreamento.arquivo:${user.home}/.shoppingcart/${ecommerce.instancia:${server.port:8080}}/spans.ndjson}") Path arquivo,
+			@Value("${rastreamento.fila-exportacao:" + ExportadorArquivo.CAPACIDADE_FILA_PADRAO + "}") int capacidadeFila)
+	{
+		return switch (exportador)
+		{
+			case "arquivo" -> new ExportadorArquivo(arquivo, capacidadeFila);
+			case "nenhum" -> ExportadorSpans.NENHUM;
+			default -> throw new IllegalArgumentException("Exportador de spans desconhecido: " + exportador);
+		};
+	}
+
+	@Bean
+	public Rastreador rastreador(ExportadorSpans exportador,
+			@Value("${rastreamento.amostragem.taxa:0.01}") double taxa,
+			@Value("${rastreamento.amostragem.limite-lento-ms:500}") long limiteLentoMs)
+	{
+		return new Rastreador(taxa, Duration.ofMillis(limiteLentoMs), exportador);
+	}
+
+	@Bean
+	public FilterRegistrationBean<FiltroRastreamento> filtroRastreamento(Rastreador rastreador)
+	{
+		FilterRegistrationBean<FiltroRastreamento> registro = new FilterRegistrationBean<>(
+				new FiltroRastreamento(rastreador));
+		registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registro;
+	}
+}
@@ -0,0 +1,50 @@
+package ecommerce.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import ecommerce.service.RecalculoCarrinhosService;
+
+/**
+ * Threads do recálculo de carrinhos ({@code carrinhos.recalculo.*}): um
+ * {@link ForkJoinPool} próprio, separado do comum e das threads HTTP, com
+ * paralelismo pequeno para deixar conexões e CPU ao checkout.
+ */
+@Configuration
+@Profile("!inmemory")
+public class RecalculoCarrinhosConfig
+{
+
+	@Bean(destroyMethod = "shutdown")
+	public ForkJoinPool recalculoCarrinhosPool(@Value("${carrinhos.recalculo.paralelismo:0}") int paralelismo)
+	{
+		int threads = paralelismo > 0 ? paralelismo : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		return new ForkJoinPool(threads, pool -> {
+			var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("recalculo-carrinhos-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+
+	/** Onde corre o recálculo pedido pelo endpoint, fora da thread HTTP. */
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService recalculoCarrinhosExecutor()
+	{
+		return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("recalculo-"));
+	}
+
+	@Bean
+	@ConditionalOnAvailableEndpoint
+	public RecalculoCarrinhosEndpoint recalculoCarrinhosEndpoint(RecalculoCarrinhosService service)
+	{
+		return new RecalculoCarrinhosEndpoint(service, recalculoCarrinhosExecutor());
+	}
+}
@@ -0,0 +1,88 @@
+package ecommerce.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import ecommerce.service.RecalculoCarrinhosService;
+
+/**
+ * Recálculo de carrinhos no endpoint {@code recalculo}, só por JMX: grava em todos
+ * os carrinhos afetados e não deve sair por HTTP sem autenticação.
+ * <ul>
+ * <li>{@code recalcular(produtoIds)}: inicia o recálculo em segundo plano e
+ * responde na hora; um por vez;</li>
+ * <li>{@code estado()}: se há um em curso e o resultado do último.</li>
+ * </ul>
+ */
+@Endpoint(id = "recalculo")
+public class RecalculoCarrinhosEndpoint
+{
+
+	private final RecalculoCarrinhosService service;
+	private final Executor executor;
+	private CompletableFuture<RecalculoCarrinhosService.Resultado> ultimo;
+	private int produtosUltimo;
+
+	public RecalculoCarrinhosEndpoint(RecalculoCarrinhosService service, Executor executor)
+	{
+		this.service = service;
+		this.executor = executor;
+	}
+
+	@ReadOperation
+	public synchronized Map<String, Object> estado()
+	{
+		Map<String, Object> estado = new LinkedHashMap<>();
+		estado.put("emCurso", ultimo != null && !ultimo.isDone());
+		if (ultimo != null)
+		{
+			estado.put("produtos", produtosUltimo);
+			if (ultimo.isCompletedExceptionally())
+			{
+				estado.put("erro", ultimo.handle((r, e) -> String.valueOf(e.getCause() == null ? e : e.getCause()))
+						.join());
+			}
+			else if (ultimo.isDone())
+			{
+				estado.put("resultado", ultimo.join());
+			}
+		}
+		return estado;
+	}
+
+	@WriteOperation
+	public synchronized Map<String, Object> recalcular(List<Long> produtoIds)
+	{
+		if (produtoIds == null || produtoIds.isEmpty())
+		{
+			throw new InvalidEndpointRequestException("Informe produtoIds.", "produtoIds vazio");
+		}
+		if (ultimo != null && !ultimo.isDone())
+		{
+			throw new InvalidEndpointRequestException("Já há um recálculo em curso.", "recálculo em curso");
+		}
+		List<Long> produtos = List.copyOf(produtoIds);
+		produtosUltimo = produtos.size();
+		ultimo = CompletableFuture.supplyAsync(() -> service.recalcular(produtos), executor);
+		return estado();
+	}
+
+	/** Para testes e scripts: espera o recálculo em curso, se houver. */
+	public RecalculoCarrinhosService.Resultado aguardar()
+	{
+		CompletableFuture<RecalculoCarrinhosService.Resultado> atual;
+		synchronized (this)
+		{
+			atual = ultimo;
+		}
+		return atual == null ? null : atual.join();
+	}
+}
@@ -0,0 +1,163 @@
+package ecommerce.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.Produto;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Mantém o catálogo em todos os fragmentos: os itens de carrinho referenciam
+ * produtos por chave estrangeira e o checkout os precifica sem sair do fragmento do
+ * cliente. A gravação acontece no fragmento corrente (ou no primeiro) e é repetida
+ * nos demais, com o mesmo id, depois do commit — ou na hora, fora de transação.
+ * Um fragmento que falha não impede os outros: a falha fica em
+ * {@link PendenciasReplicacao}, que a repete com o estado da origem naquele momento.
+ * Leituras seguem sem desvio.
+ */
+public class ReplicacaoCatalogoInterceptor implements MethodInterceptor
+{
+
+	private final AnelFragmentos anel;
+	private final EntityManager entityManager;
+	private final JdbcTemplate jdbc;
+	private final TransactionTemplate novaTransacao;
+	private final PendenciasReplicacao pendencias;
+
+	public ReplicacaoCatalogoInterceptor(AnelFragmentos anel, EntityManager entityManager, JdbcTemplate jdbc,
+			TransactionTemplate novaTransacao, PendenciasReplicacao pendencias)
+	{
+		this.anel = anel;
+		this.entityManager = entityManager;
+		this.jdbc = jdbc;
+		this.novaTransacao = novaTransacao;
+		this.pendencias = pendencias;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		String metodo = invocacao.getMethod().getName();
+		boolean gravacao = metodo.startsWith("save");
+		if (!gravacao && !metodo.startsWith("delete"))
+		{
+			return invocacao.proceed();
+		}
+		String origem = ContextoFragmento.atual() != null ? ContextoFragmento.atual() : anel.nomes().get(0);
+		MethodInvocation copia = gravacao ? null : ((ProxyMethodInvocation) invocacao).invocableClone();
+		Object resultado = invocacao.proceed();
+
+		List<Produto> produtos = gravacao ? produtos(resultado) : List.of();
+		List<Long> ids = produtos.stream().map(Produto::getId).toList();
+		String descricao = gravacao ? "produtos " + ids : metodo + Arrays.toString(invocacao.getArguments());
+		Runnable replicar = () -> {
+			for (String fragmento : anel.nomes())
+			{
+				if (fragmento.equals(origem))
+				{
+					continue;
+				}
+				try
+				{
+					replicarEm(fragmento, produtos, copia);
+				}
+				catch (RuntimeException e)
+				{
+					pendencias.registrar(fragmento, descricao,
+							() -> replicarEm(fragmento, gravacao ? naOrigem(origem, ids) : List.of(), copia), e);
+				}
+			}
+		};
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					replicar.run();
+				}
+			});
+		}
+		else
+		{
+			replicar.run();
+		}
+		return resultado;
+	}
+
+	private void replicarEm(String fragmento, List<Produto> produtos, MethodInvocation copia)
+	{
+		ContextoFragmento.executarEm(fragmento, () -> novaTransacao.execute(status -> {
+			if (copia == null)
+			{
+				produtos.forEach(this::gravar);
+				return null;
+			}
+			return repetir(copia);
+		}));
+	}
+
+	/** O estado atual dos produtos na origem; os removidos desde então ficam com a replicação da remoção. */
+	private List<Produto> naOrigem(String origem, List<Long> ids)
+	{
+		return ContextoFragmento.executarEm(origem, () -> novaTransacao.execute(status -> ids.stream()
+				.map(id -> entityManager.find(Produto.class, id)).filter(Objects::nonNull).toList()));
+	}
+
+	private void gravar(Produto produto)
+	{
+		if (entityManager.find(Produto.class, produto.getId()) == null)
+		{
+			// IDENTITY ignora id atribuído no persist: a linha nasce com o id da origem e o merge a completa
+			jdbc.update("insert into produto (id) values (?)", produto.getId());
+		}
+		entityManager.merge(produto);
+	}
+
+	private static Object repetir(MethodInvocation copia)
+	{
+		try
+		{
+			return ((ProxyMethodInvocation) copia).invocableClone().proceed();
+		}
+		catch (RuntimeException | Error e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static List<Produto> produtos(Object resultado)
+	{
+		List<Produto> produtos = new ArrayList<>();
+		if (resultado instanceof Produto produto)
+		{
+			produtos.add(produto);
+		}
+		else if (resultado instanceof Iterable<?> varios)
+		{
+			for (Object item : varios)
+			{
+				if (item instanceof Produto produto)
+				{
+					produtos.add(produto);
+				}
+			}
+		}
+		return produtos;
+	}
+}
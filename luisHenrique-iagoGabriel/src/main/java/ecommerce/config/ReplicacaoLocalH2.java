@@ -0,0 +1,133 @@
+package ecommerce.config;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Faz de bancos H2 locais réplicas atrasadas de outro, para o perfil "roteamento":
+ * o H2 não replica, então a cada {@code ecommerce.datasource.replicacao-local.intervalo-ms}
+ * o conteúdo do primário é copiado para cada réplica. Entre uma cópia e outra a
+ * réplica fica de fato para trás, e uma escrita enviada a ela por engano nunca
+ * aparece no primário.
+ * <p>
+ * A primeira cópia cria o esquema na réplica a partir do primário ({@code SCRIPT
+ * NODATA}) e desliga nela a integridade referencial; as seguintes trocam os dados
+ * de todas as tabelas numa transação só, lidos de um mesmo instante do primário,
+ * de modo que as leituras na réplica nunca veem tabelas pela metade.
+ */
+public class ReplicacaoLocalH2 implements SmartInitializingSingleton
+{
+	private static final Logger log = LoggerFactory.getLogger(ReplicacaoLocalH2.class);
+
+	private static final String TABELAS = "select table_name from information_schema.tables"
+			+ " where table_schema = 'PUBLIC' and table_type = 'BASE TABLE' order by table_name";
+
+	private final JdbcTemplate primario;
+	private final TransactionTemplate leituraPrimario;
+	private final List<DataSource> replicas;
+	private final List<DataSource> comEsquema = new ArrayList<>();
+
+	public ReplicacaoLocalH2(DataSource primario, List<DataSource> replicas)
+	{
+		this.primario = new JdbcTemplate(primario);
+		this.leituraPrimario = new TransactionTemplate(new DataSourceTransactionManager(primario));
+		this.leituraPrimario.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.leituraPrimario.setReadOnly(true);
+		this.replicas = replicas;
+	}
+
+	/** Primeira cópia logo depois da criação do esquema, antes de a aplicação atender. */
+	@Override
+	public void afterSingletonsInstantiated()
+	{
+		replicar();
+	}
+
+	@Scheduled(fixedDelayString = "${ecommerce.datasource.replicacao-local.intervalo-ms:1000}")
+	public synchronized void replicar()
+	{
+		Map<String, List<Object[]>> dados = leituraPrimario.execute(status -> lerPrimario());
+		if (dados == null || dados.isEmpty())
+		{
+			return;
+		}
+		for (DataSource replica : replicas)
+		{
+			try
+			{
+				copiarPara(replica, dados);
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Falha ao copiar o primário para a réplica local; nova tentativa no próximo ciclo.", e);
+			}
+		}
+	}
+
+	private Map<String, List<Object[]>> lerPrimario()
+	{
+		Map<String, List<Object[]>> dados = new LinkedHashMap<>();
+		for (String tabela : primario.queryForList(TABELAS, String.class))
+		{
+			dados.put(tabela, primario.query("select * from " + tabela, (rs, linha) -> valores(rs)));
+		}
+		return dados;
+	}
+
+	private void copiarPara(DataSource replica, Map<String, List<Object[]>> dados)
+	{
+		JdbcTemplate jdbc = new JdbcTemplate(replica);
+		if (!comEsquema.contains(replica))
+		{
+			jdbc.execute("drop all objects");
+			for (String comando : primario.queryForList("script nodata nopasswords nosettings", String.class))
+			{
+				if (!comando.startsWith("--"))
+				{
+					jdbc.execute(comando);
+				}
+			}
+			jdbc.execute("set referential_integrity false");
+			comEsquema.add(replica);
+		}
+
+		new TransactionTemplate(new DataSourceTransactionManager(replica)).executeWithoutResult(status -> {
+			for (Map.Entry<String, List<Object[]>> tabela : dados.entrySet())
+			{
+				jdbc.update("delete from " + tabela.getKey());
+				if (!tabela.getValue().isEmpty())
+				{
+					String marcadores = String.join(",", Collections.nCopies(tabela.getValue().get(0).length, "?"));
+					jdbc.batchUpdate("insert into " + tabela.getKey() + " overriding system value values ("
+							+ marcadores + ")", tabela.getValue());
+				}
+			}
+		});
+	}
+
+	private static Object[] valores(ResultSet rs) throws SQLException
+	{
+		Object[] valores = new Object[rs.getMetaData().getColumnCount()];
+		for (int i = 0; i < valores.length; i++)
+		{
+			valores[i] = rs.getObject(i + 1);
+		}
+		return valores;
+	}
+}
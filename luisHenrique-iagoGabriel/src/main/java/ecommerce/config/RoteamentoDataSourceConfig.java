@@ -0,0 +1,85 @@
+package ecommerce.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Substitui o DataSource único por um roteado: escrita (finalizarCompra) no
+ * primário, transações {@code readOnly} (consultas de carrinho, cliente e pedidos)
+ * nas réplicas. Ativado com {@code ecommerce.datasource.roteamento.habilitado=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ecommerce.datasource.roteamento.habilitado", havingValue = "true")
+@EnableConfigurationProperties(RoteamentoDataSourceProperties.class)
+public class RoteamentoDataSourceConfig
+{
+
+	@Bean
+	@Primary
+	public DataSource dataSource(RoteamentoDataSourceProperties propriedades)
+	{
+		if (propriedades.primario() == null)
+		{
+			throw new IllegalStateException("ecommerce.datasource.primario.url não configurado.");
+		}
+
+		DataSource primario = pool("primario", propriedades.primario());
+		List<RoteamentoDataSourceProperties.Conexao> conexoesReplicas = propriedades.replicas() == null ? List.of()
+				: propriedades.replicas();
+
+		List<DataSource> replicas = new ArrayList<>();
+		for (int i = 0; i < conexoesReplicas.size(); i++)
+		{
+			replicas.add(pool("replica-" + i, conexoesReplicas.get(i)));
+		}
+
+		return new LazyConnectionDataSourceProxy(new RoteamentoLeituraEscritaDataSource(primario, replicas));
+	}
+
+	/**
+	 * Com primário e réplicas em bancos H2 locais (perfil "roteamento"), copia um para
+	 * as outras periodicamente; conexões próprias, fora dos pools da aplicação.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "ecommerce.datasource.replicacao-local.habilitado", havingValue = "true")
+	public ReplicacaoLocalH2 replicacaoLocalH2(RoteamentoDataSourceProperties propriedades)
+	{
+		List<DataSource> replicas = new ArrayList<>();
+		if (propriedades.replicas() != null)
+		{
+			propriedades.replicas().forEach(replica -> replicas.add(direta(replica)));
+		}
+		return new ReplicacaoLocalH2(direta(propriedades.primario()), replicas);
+	}
+
+	private static DataSource direta(RoteamentoDataSourceProperties.Conexao conexao)
+	{
+		return new DriverManagerDataSource(conexao.url(), conexao.usuario(), conexao.senha());
+	}
+
+	private static HikariDataSource pool(String nome, RoteamentoDataSourceProperties.Conexao conexao)
+	{
+		HikariDataSource pool = new HikariDataSource();
+		pool.setPoolName(nome);
+		pool.setJdbcUrl(conexao.url());
+		pool.setUsername(conexao.usuario());
+		pool.setPassword(conexao.senha());
+		if (conexao.tamanhoPool() != null)
+		{
+			pool.setMaximumPoolSize(conexao.tamanhoPool());
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,13 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ecommerce.datasource")
+public record RoteamentoDataSourceProperties(Conexao primario, List<Conexao> replicas)
+{
+	public record Conexao(String url, String usuario, String senha, Integer tamanhoPool)
+	{
+	}
+}
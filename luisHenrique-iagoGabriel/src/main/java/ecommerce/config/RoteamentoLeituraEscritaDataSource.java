@@ -0,0 +1,52 @@
+package ecommerce.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Envia transações somente-leitura para as réplicas (em rodízio) e todo o resto
+ * para o primário. Deve ficar atrás de um LazyConnectionDataSourceProxy, para que
+ * a conexão física só seja escolhida depois de a transação marcar o read-only.
+ */
+public class RoteamentoLeituraEscritaDataSource extends AbstractRoutingDataSource
+{
+	static final String PRIMARIO = "primario";
+
+	private final String[] replicas;
+	private final AtomicInteger proxima = new AtomicInteger();
+
+	public RoteamentoLeituraEscritaDataSource(DataSource primario, List<DataSource> replicas)
+	{
+		Map<Object, Object> destinos = new HashMap<>();
+		destinos.put(PRIMARIO, primario);
+
+		this.replicas = new String[replicas.size()];
+		for (int i = 0; i < replicas.size(); i++)
+		{
+			this.replicas[i] = "replica-" + i;
+			destinos.put(this.replicas[i], replicas.get(i));
+		}
+
+		setTargetDataSources(destinos);
+		setDefaultTargetDataSource(primario);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey()
+	{
+		if (replicas.length == 0 || ContextoRoteamento.isPrimarioForcado()
+				|| !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+		{
+			return PRIMARIO;
+		}
+		return replicas[Math.floorMod(proxima.getAndIncrement(), replicas.length)];
+	}
+}
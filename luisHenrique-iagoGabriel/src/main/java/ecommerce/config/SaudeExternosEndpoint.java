@@ -0,0 +1,91 @@
+package ecommerce.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import ecommerce.external.JanelaDeslizante;
+import ecommerce.external.MonitorExterno;
+import ecommerce.external.MonitoresExternos;
+
+/**
+ * Painel dos serviços externos em {@code /actuator/externos} (ou
+ * {@code /actuator/externos/{servico}}): estado do disjuntor, chamadas em curso e
+ * recusadas e, na janela deslizante, taxa de erro, histograma e percentis de
+ * latência e tamanho dos lotes. Para o estoque, os produtos mais disputados.
+ * Só lê os contadores; não interfere nas chamadas em curso.
+ */
+@Endpoint(id = "externos")
+public class SaudeExternosEndpoint
+{
+
+	static final int PRODUTOS_NO_PAINEL = 20;
+
+	private final MonitoresExternos monitores;
+
+	public SaudeExternosEndpoint(MonitoresExternos monitores)
+	{
+		this.monitores = monitores;
+	}
+
+	@ReadOperation
+	public Map<String, Object> painel()
+	{
+		Map<String, Object> painel = new LinkedHashMap<>();
+		monitores.todos().forEach((servico, monitor) -> painel.put(servico, resumo(monitor)));
+		return painel;
+	}
+
+	@ReadOperation
+	public Map<String, Object> servico(@Selector String servico)
+	{
+		MonitorExterno monitor = monitores.todos().get(servico);
+		return monitor == null ? null : resumo(monitor);
+	}
+
+	private static Map<String, Object> resumo(MonitorExterno monitor)
+	{
+		JanelaDeslizante.Resumo janela = monitor.resumo();
+		Map<String, Object> resumo = new LinkedHashMap<>();
+		resumo.put("circuito", monitor.estadoCircuito().name());
+		resumo.put("emCurso", monitor.emCurso());
+		resumo.put("recusadas", monitor.recusadas());
+		resumo.put("janelaMs", janela.duracaoJanelaMs());
+		resumo.put("chamadas", janela.chamadas());
+		resumo.put("erros", janela.erros());
+		resumo.put("taxaErro", janela.taxaErro());
+
+		Map<String, Double> latencia = new LinkedHashMap<>();
+		latencia.put("p50", janela.percentilMs(50.0));
+		latencia.put("p90", janela.percentilMs(90.0));
+		latencia.put("p99", janela.percentilMs(99.0));
+		latencia.put("max", janela.percentilMs(100.0));
+		resumo.put("latenciaMs", latencia);
+
+		Map<String, Long> histograma = new LinkedHashMap<>();
+		long[] faixas = janela.histograma();
+		for (int i = 0; i < faixas.length; i++)
+		{
+			if (faixas[i] > 0)
+			{
+				histograma.put(i == 0 ? "<1us"
+						: i == faixas.length - 1 ? ">=" + (1L << (i - 1)) + "us" : "<" + (1L << i) + "us", faixas[i]);
+			}
+		}
+		resumo.put("histogramaLatencia", histograma);
+
+		Map<String, Object> lote = new LinkedHashMap<>();
+		lote.put("medio", janela.loteMedio());
+		lote.put("maximo", janela.maxLote());
+		resumo.put("lote", lote);
+
+		if (monitor.servico().equals("estoque"))
+		{
+			resumo.put("contencaoProdutos", monitor.contencao().maisDisputados(PRODUTOS_NO_PAINEL));
+		}
+		return resumo;
+	}
+}
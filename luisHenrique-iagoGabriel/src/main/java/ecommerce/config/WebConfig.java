@@ -0,0 +1,24 @@
+package ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer
+{
+	private final ConsistenciaReplicaInterceptor consistenciaReplicaInterceptor;
+
+	@Autowired
+	public WebConfig(ConsistenciaReplicaInterceptor consistenciaReplicaInterceptor)
+	{
+		this.consistenciaReplicaInterceptor = consistenciaReplicaInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry)
+	{
+		registry.addInterceptor(consistenciaReplicaInterceptor);
+	}
+}
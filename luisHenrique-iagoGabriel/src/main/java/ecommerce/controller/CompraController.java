@@ -1,46 +1,170 @@
 package ecommerce.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.service.CheckoutEmEstagios;
 import ecommerce.service.CompraService;
+import ecommerce.service.ResultadoCompra;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/")
 public class CompraController
 {
 
+	static final String NDJSON = "application/x-ndjson";
+
 	private final CompraService compraService;
+	private final FinalizacaoEmLote lote;
+	private final CheckoutEmEstagios estagios;
+
+	public CompraController(CompraService compraService, Executor executorLote, int paralelismoLote,
+			int maxBytesLinha)
+	{
+		this(compraService, executorLote, paralelismoLote, maxBytesLinha, null);
+	}
 
 	@Autowired
-	public CompraController(CompraService compraService)
+	public CompraController(CompraService compraService, @Qualifier("compraLoteExecutor") Executor executorLote,
+			@Value("${compra.lote.paralelismo:8}") int paralelismoLote,
+			@Value("${compra.lote.max-bytes-linha:4096}") int maxBytesLinha,
+			ObjectProvider<CheckoutEmEstagios> estagios)
 	{
 		this.compraService = compraService;
+		this.lote = new FinalizacaoEmLote(executorLote, paralelismoLote, maxBytesLinha, this::finalizarCompra);
+		this.estagios = estagios == null ? null : estagios.getIfAvailable();
+	}
+
+	/**
+	 * Checkout em lote: corpo NDJSON com uma linha {@code {"carrinhoId":..,"clienteId":..}}
+	 * por compra; a resposta traz um {@link ecommerce.dto.ResultadoLoteDTO} por linha,
+	 * na ordem em que terminam, com o mesmo status que {@code /finalizar} daria.
+	 */
+	@PostMapping(path = "/finalizar/lote", consumes = NDJSON, produces = NDJSON)
+	public void finalizarLote(InputStream corpo, HttpServletResponse resposta) throws IOException
+	{
+		resposta.setContentType(NDJSON);
+		resposta.setCharacterEncoding("UTF-8");
+		lote.processar(corpo, resposta.getOutputStream());
+	}
+
+	/**
+	 * Cotação do carrinho com ETag: um {@code If-None-Match} com a impressão digital
+	 * atual recebe 304 sem que o preço seja recalculado.
+	 */
+	@GetMapping("/cotacao")
+	public ResponseEntity<CotacaoDTO> cotar(@RequestParam Long carrinhoId, @RequestParam Long clienteId,
+			WebRequest requisicao)
+	{
+		try
+		{
+			CotacaoDTO cotacao = compraService.cotar(carrinhoId, clienteId, requisicao::checkNotModified);
+			if (cotacao == null)
+			{
+				// checkNotModified já preparou o 304 com o ETag
+				return null;
+			}
+			return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(cotacao);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+		}
 	}
 
+	/**
+	 * Conflito de versão (outro checkout do mesmo carrinho reservou antes) volta como
+	 * 409, sem nova tentativa: repetir o checkout inteiro cobraria o carrinho de novo.
+	 */
 	@PostMapping("/finalizar")
 	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId)
 	{
 		try
 		{
-			CompraDTO compraDTO = compraService.finalizarCompra(carrinhoId, clienteId);
-			return ResponseEntity.ok(compraDTO);
+			return resposta(compraService.finalizar(carrinhoId, clienteId));
 		}
-		catch (IllegalArgumentException e)
+		catch (Exception e)
+		{
+			return resposta(e);
+		}
+	}
+
+	/**
+	 * O mesmo checkout pelo {@link CheckoutEmEstagios}, com as mesmas respostas, mais
+	 * 503 quando um estágio está saturado. A thread da requisição é liberada logo após
+	 * a entrega ao primeiro estágio. 404 se {@code compra.estagios.habilitado} for falso.
+	 */
+	@PostMapping("/finalizar/estagios")
+	public CompletableFuture<ResponseEntity<CompraDTO>> finalizarEmEstagios(@RequestParam Long carrinhoId,
+			@RequestParam Long clienteId)
+	{
+		if (estagios == null)
+		{
+			return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+		}
+		return estagios.finalizar(carrinhoId, clienteId).handle((resultado, falha) -> {
+			if (falha == null)
+			{
+				return resposta(resultado);
+			}
+			return resposta(falha instanceof CompletionException && falha.getCause() != null ? falha.getCause() : falha);
+		});
+	}
+
+	private static ResponseEntity<CompraDTO> resposta(ResultadoCompra resultado)
+	{
+		if (resultado.rejeitada())
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(resultado.compra());
+		}
+		return ResponseEntity.ok(resultado.compra());
+	}
+
+	private static ResponseEntity<CompraDTO> resposta(Throwable e)
+	{
+		if (e instanceof IllegalArgumentException)
 		{
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, e.getMessage()));
 		}
-		catch (IllegalStateException e)
+		if (e instanceof IllegalStateException)
 		{
 			return ResponseEntity.status(HttpStatus.CONFLICT).body(new CompraDTO(false, null, e.getMessage()));
 		}
-		catch (Exception e)
+		if (e instanceof OptimisticLockingFailureException)
+		{
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body(new CompraDTO(false, null, "Carrinho alterado durante a compra."));
+		}
+		if (e instanceof FalhaServicoExternoException)
+		{
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.body(new CompraDTO(false, null, "Serviço externo indisponível."));
+		}
+		if (e instanceof RejectedExecutionException)
 		{
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-					.body(new CompraDTO(false, null, "Erro ao processar compra."));
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.body(new CompraDTO(false, null, "Checkout saturado; tente novamente."));
 		}
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+				.body(new CompraDTO(false, null, "Erro ao processar compra."));
 	}
 }
@@ -0,0 +1,244 @@
+package ecommerce.controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.config.ContextoRoteamento;
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.ItemLoteDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+import ecommerce.rastreamento.Rastreador;
+
+/**
+ * Checkout em lote sobre NDJSON: lê uma linha {@code {"carrinhoId":..,"clienteId":..}}
+ * por vez, finaliza até {@code paralelismo} linhas ao mesmo tempo e escreve o
+ * resultado de cada uma assim que ela termina (fora de ordem, identificado pelo
+ * número da linha). Com todas as vagas ocupadas a leitura para, e o cliente sente
+ * a contrapressão pelo TCP; em memória ficam só as linhas em curso.
+ */
+public class FinalizacaoEmLote
+{
+
+	public record Resumo(long linhas, long falhas)
+	{
+	}
+
+	private record Linha(String conteudo, boolean excedida)
+	{
+	}
+
+	private final Executor executor;
+	private final int paralelismo;
+	private final int maxBytesLinha;
+	private final BiFunction<Long, Long, ResponseEntity<CompraDTO>> finalizar;
+	private final ObjectMapper json = new ObjectMapper();
+
+	public FinalizacaoEmLote(Executor executor, int paralelismo, int maxBytesLinha,
+			BiFunction<Long, Long, ResponseEntity<CompraDTO>> finalizar)
+	{
+		if (paralelismo < 1)
+		{
+			throw new IllegalArgumentException("Paralelismo deve ser ao menos 1.");
+		}
+		this.executor = executor;
+		this.paralelismo = paralelismo;
+		this.maxBytesLinha = maxBytesLinha;
+		this.finalizar = finalizar;
+	}
+
+	public Resumo processar(InputStream entrada, OutputStream saida) throws IOException
+	{
+		Escritor escritor = new Escritor(saida);
+		Semaphore vagas = new Semaphore(paralelismo);
+		InputStream leitor = new BufferedInputStream(entrada);
+		long numero = 0;
+		try
+		{
+			Linha linha;
+			while (!escritor.falhou() && (linha = proxima(leitor)) != null)
+			{
+				numero++;
+				if (!linha.excedida() && linha.conteudo().isBlank())
+				{
+					continue;
+				}
+				vagas.acquire();
+				long n = numero;
+				Linha atual = linha;
+				try
+				{
+					executor.execute(ContextoRoteamento.propagar(Rastreador.propagar(() -> {
+						try
+						{
+							escritor.escrever(processar(n, atual));
+						}
+						catch (RuntimeException e)
+						{
+							escritor.escrever(new ResultadoLoteDTO(n, null, null,
+									HttpStatus.INTERNAL_SERVER_ERROR.value(),
+									new CompraDTO(false, null, "Erro ao processar compra.")));
+						}
+						finally
+						{
+							vagas.release();
+						}
+					})));
+				}
+				catch (RejectedExecutionException e)
+				{
+					vagas.release();
+					escritor.escrever(new ResultadoLoteDTO(n, null, null, HttpStatus.SERVICE_UNAVAILABLE.value(),
+							new CompraDTO(false, null, "Capacidade de processamento em lote esgotada.")));
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Lote interrompido na linha " + numero + ".");
+		}
+		finally
+		{
+			// Espera as linhas em curso antes de encerrar a resposta
+			vagas.acquireUninterruptibly(paralelismo);
+		}
+		escritor.confirmar();
+		return new Resumo(escritor.linhas(), escritor.falhas());
+	}
+
+	private ResultadoLoteDTO processar(long numero, Linha linha)
+	{
+		if (linha.excedida())
+		{
+			return invalida(numero, "Linha maior que " + maxBytesLinha + " bytes.");
+		}
+		ItemLoteDTO item;
+		try
+		{
+			item = json.readValue(linha.conteudo(), ItemLoteDTO.class);
+		}
+		catch (JsonProcessingException e)
+		{
+			return invalida(numero, "Linha não é um JSON válido.");
+		}
+		if (item == null || item.carrinhoId() == null || item.clienteId() == null)
+		{
+			return invalida(numero, "carrinhoId e clienteId são obrigatórios.");
+		}
+		ResponseEntity<CompraDTO> resposta = finalizar.apply(item.carrinhoId(), item.clienteId());
+		return new ResultadoLoteDTO(numero, item.carrinhoId(), item.clienteId(), resposta.getStatusCode().value(),
+				resposta.getBody());
+	}
+
+	private static ResultadoLoteDTO invalida(long numero, String mensagem)
+	{
+		return new ResultadoLoteDTO(numero, null, null, HttpStatus.BAD_REQUEST.value(),
+				new CompraDTO(false, null, mensagem));
+	}
+
+	/** Próxima linha (sem o terminador) ou nulo no fim; o excesso além do limite é descartado. */
+	private Linha proxima(InputStream entrada) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		boolean excedida = false;
+		int b;
+		while ((b = entrada.read()) != -1 && b != '\n')
+		{
+			if (bytes.size() < maxBytesLinha)
+			{
+				bytes.write(b);
+			}
+			else
+			{
+				excedida = true;
+			}
+		}
+		if (b == -1 && bytes.size() == 0 && !excedida)
+		{
+			return null;
+		}
+		String conteudo = bytes.toString(StandardCharsets.UTF_8);
+		return new Linha(conteudo.endsWith("\r") ? conteudo.substring(0, conteudo.length() - 1) : conteudo,
+				excedida);
+	}
+
+	/** Serializa as escritas das threads do lote; uma linha por resultado, com flush. */
+	private final class Escritor
+	{
+		private final Writer saida;
+		private long linhas;
+		private long falhas;
+		private IOException falha;
+
+		Escritor(OutputStream saida)
+		{
+			this.saida = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+		}
+
+		synchronized void escrever(ResultadoLoteDTO resultado)
+		{
+			linhas++;
+			if (resultado.status() != HttpStatus.OK.value())
+			{
+				falhas++;
+			}
+			if (falha != null)
+			{
+				return;
+			}
+			try
+			{
+				saida.write(json.writeValueAsString(resultado));
+				saida.write('\n');
+				saida.flush();
+			}
+			catch (IOException e)
+			{
+				// Cliente desconectou: para de ler; as linhas em curso terminam sem saída
+				falha = e;
+			}
+		}
+
+		synchronized boolean falhou()
+		{
+			return falha != null;
+		}
+
+		synchronized long linhas()
+		{
+			return linhas;
+		}
+
+		synchronized long falhas()
+		{
+			return falhas;
+		}
+
+		synchronized void confirmar() throws IOException
+		{
+			if (falha != null)
+			{
+				throw falha;
+			}
+			saida.flush();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package ecommerce.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import ecommerce.dto.PedidoDTO;
+import ecommerce.service.PedidoService;
+
+@RestController
+@RequestMapping("/pedidos")
+public class PedidoController
+{
+
+	private final PedidoService pedidoService;
+
+	@Autowired
+	public PedidoController(PedidoService pedidoService)
+	{
+		this.pedidoService = pedidoService;
+	}
+
+	@GetMapping
+	public ResponseEntity<List<PedidoDTO>> historico(@RequestParam Long clienteId,
+			@RequestParam(defaultValue = "0") int pagina, @RequestParam(defaultValue = "20") int tamanho)
+	{
+		return ResponseEntity.ok(pedidoService.historico(clienteId, pagina, tamanho));
+	}
+
+	@GetMapping("/{codigo}")
+	public ResponseEntity<PedidoDTO> buscar(@PathVariable String codigo)
+	{
+		try
+		{
+			return ResponseEntity.ok(pedidoService.buscarPorCodigo(codigo));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package ecommerce.dto;
+
+/** Corpo da autorização de pagamento no serviço HTTP de pagamentos. */
+public record AutorizacaoPagamentoDTO(Long clienteId, Double valor)
+{
+}
@@ -0,0 +1,14 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Preço do carrinho sem finalizar a compra: {@code subtotal} é
+ * {@code subtotalItens - desconto}, {@code frete} é {@code fretePeso + freteFragil}
+ * e {@code total} é o mesmo valor que o checkout cobraria.
+ */
+public record CotacaoDTO(Long carrinhoId, Long versao, BigDecimal subtotalItens, BigDecimal desconto,
+		BigDecimal subtotal, BigDecimal pesoTotal, BigDecimal fretePeso, BigDecimal freteFragil, BigDecimal frete,
+		BigDecimal total)
+{
+}
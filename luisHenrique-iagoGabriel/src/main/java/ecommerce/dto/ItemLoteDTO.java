@@ -0,0 +1,6 @@
+package ecommerce.dto;
+
+/** Uma linha do lote de checkout (NDJSON). */
+public record ItemLoteDTO(Long carrinhoId, Long clienteId)
+{
+}
@@ -0,0 +1,16 @@
+package ecommerce.dto;
+
+import ecommerce.external.LinhasPedido;
+
+/**
+ * Corpo das chamadas HTTP ao estoque: as linhas do pedido como dois arrays
+ * paralelos, já consolidadas por produto.
+ */
+public record LinhasEstoqueDTO(long[] ids, long[] quantidades)
+{
+
+	public static LinhasEstoqueDTO de(LinhasPedido linhas)
+	{
+		return new LinhasEstoqueDTO(linhas.ids(), linhas.quantidades());
+	}
+}
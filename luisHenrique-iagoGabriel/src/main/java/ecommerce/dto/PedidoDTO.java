@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record PedidoDTO(String codigo, Long carrinhoId, Long transacaoPagamentoId, BigDecimal valorTotal,
+		LocalDateTime dataHora)
+{
+}
@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+/**
+ * Resultado de uma linha do lote de checkout. As linhas terminam fora de ordem;
+ * {@code linha} é o número da linha na entrada, a partir de 1.
+ */
+public record ResultadoLoteDTO(long linha, Long carrinhoId, Long clienteId, int status, CompraDTO compra)
+{
+}
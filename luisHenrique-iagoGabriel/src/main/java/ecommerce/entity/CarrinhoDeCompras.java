@@ -1,19 +1,29 @@
 package ecommerce.entity;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
+@Table(indexes = {
+		@Index(name = "idx_carrinho_cliente", columnList = "cliente_id"), // carrinhos de um cliente
+		@Index(name = "idx_carrinho_data", columnList = "data, id") // arquivamento por idade (keyset)
+})
 public class CarrinhoDeCompras
 {
 
@@ -31,6 +41,20 @@ public class CarrinhoDeCompras
 
 	private LocalDate data;
 
+	/**
+	 * Último total calculado, em reais (R$), gravado pelo recálculo em massa depois
+	 * de mudanças de preço (ver RecalculoCarrinhosService); nulo se nunca calculado.
+	 * Não altera a versão: o checkout sempre reprecifica.
+	 */
+	@Column(name = "valor_total")
+	private BigDecimal valorTotal;
+
+	@Column(name = "total_calculado_em")
+	private LocalDateTime totalCalculadoEm;
+
+	@Version // Detecta carrinho alterado por outra transação (concorrência otimista)
+	private Long versao;
+
 	public CarrinhoDeCompras()
 	{
 	}
@@ -83,4 +107,34 @@ public class CarrinhoDeCompras
 	{
 		this.data = data;
 	}
+
+	public BigDecimal getValorTotal()
+	{
+		return valorTotal;
+	}
+
+	public void setValorTotal(BigDecimal valorTotal)
+	{
+		this.valorTotal = valorTotal;
+	}
+
+	public LocalDateTime getTotalCalculadoEm()
+	{
+		return totalCalculadoEm;
+	}
+
+	public void setTotalCalculadoEm(LocalDateTime totalCalculadoEm)
+	{
+		this.totalCalculadoEm = totalCalculadoEm;
+	}
+
+	public Long getVersao()
+	{
+		return versao;
+	}
+
+	public void setVersao(Long versao)
+	{
+		this.versao = versao;
+	}
 }
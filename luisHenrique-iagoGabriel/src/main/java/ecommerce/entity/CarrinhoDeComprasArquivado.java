@@ -0,0 +1,56 @@
+package ecommerce.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Cópia de um carrinho removido pelo arquivamento. Gravada apenas por SQL em lote
+ * (ver ArquivamentoCarrinhosService); mapeada para que o esquema seja gerado junto
+ * com o resto.
+ */
+@Entity
+@Table(name = "carrinho_de_compras_arquivo")
+public class CarrinhoDeComprasArquivado
+{
+
+	@Id
+	private Long id;
+
+	@Column(name = "cliente_id")
+	private Long clienteId;
+
+	private LocalDate data;
+
+	@Column(name = "arquivado_em")
+	private LocalDateTime arquivadoEm;
+
+	public CarrinhoDeComprasArquivado()
+	{
+	}
+
+	// Getters
+	public Long getId()
+	{
+		return id;
+	}
+
+	public Long getClienteId()
+	{
+		return clienteId;
+	}
+
+	public LocalDate getData()
+	{
+		return data;
+	}
+
+	public LocalDateTime getArquivadoEm()
+	{
+		return arquivadoEm;
+	}
+}
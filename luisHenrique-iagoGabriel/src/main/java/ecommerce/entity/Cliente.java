@@ -1,18 +1,23 @@
 package ecommerce.entity;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 
 @Entity
 public class Cliente
 {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(generator = "cliente_id")
+	@GenericGenerator(name = "cliente_id", type = IdClienteAtribuido.class,
+			parameters = @Parameter(name = "sequence_name", value = "cliente_seq"))
 	private Long id;
 
 	private String nome;
@@ -22,6 +27,9 @@ public class Cliente
 	@Enumerated(EnumType.STRING) // Armazenar o enum como String no banco
 	private TipoCliente tipo;
 
+	@Version // Nula só antes da primeira gravação: cliente com id atribuído ainda é novo
+	private Long versao;
+
 	public Cliente()
 	{
 	}
@@ -74,4 +82,14 @@ public class Cliente
 	{
 		this.tipo = tipo;
 	}
+
+	public Long getVersao()
+	{
+		return versao;
+	}
+
+	public void setVersao(Long versao)
+	{
+		this.versao = versao;
+	}
 }
@@ -0,0 +1,21 @@
+package ecommerce.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * Id do {@link Cliente}: mantém o id já atribuído antes da gravação (a persistência
+ * fragmentada decide o fragmento pelo id e o atribui antes de gravar); sem id,
+ * usa a sequência {@code cliente_seq}.
+ */
+public class IdClienteAtribuido extends SequenceStyleGenerator
+{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public Object generate(SharedSessionContractImplementor sessao, Object entidade)
+	{
+		Object atribuido = sessao.getEntityPersister(null, entidade).getIdentifier(entidade, sessao);
+		return atribuido != null ? atribuido : super.generate(sessao, entidade);
+	}
+}
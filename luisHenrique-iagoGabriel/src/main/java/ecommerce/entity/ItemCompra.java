@@ -4,10 +4,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
+@Table(indexes = {
+		@Index(name = "idx_item_carrinho", columnList = "carrinho_id"), // itens de um carrinho
+		@Index(name = "idx_item_produto", columnList = "produto_id") // carrinhos que contêm um produto
+})
 public class ItemCompra
 {
 
@@ -21,6 +28,9 @@ public class ItemCompra
 
 	private Long quantidade;
 
+	@Version
+	private Long versao;
+
 	public ItemCompra()
 	{
 	}
@@ -62,4 +72,14 @@ public class ItemCompra
 	{
 		this.quantidade = quantidade;
 	}
+
+	public Long getVersao()
+	{
+		return versao;
+	}
+
+	public void setVersao(Long versao)
+	{
+		this.versao = versao;
+	}
 }
@@ -0,0 +1,50 @@
+package ecommerce.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/** Cópia de um item de carrinho arquivado (ver {@link CarrinhoDeComprasArquivado}). */
+@Entity
+@Table(name = "item_compra_arquivo", indexes = @Index(name = "idx_item_arquivo_carrinho", columnList = "carrinho_id"))
+public class ItemCompraArquivado
+{
+
+	@Id
+	private Long id;
+
+	@Column(name = "carrinho_id")
+	private Long carrinhoId;
+
+	@Column(name = "produto_id")
+	private Long produtoId;
+
+	private Long quantidade;
+
+	public ItemCompraArquivado()
+	{
+	}
+
+	// Getters
+	public Long getId()
+	{
+		return id;
+	}
+
+	public Long getCarrinhoId()
+	{
+		return carrinhoId;
+	}
+
+	public Long getProdutoId()
+	{
+		return produtoId;
+	}
+
+	public Long getQuantidade()
+	{
+		return quantidade;
+	}
+}
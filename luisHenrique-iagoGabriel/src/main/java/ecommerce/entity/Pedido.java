@@ -0,0 +1,128 @@
+package ecommerce.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(indexes = @Index(name = "idx_pedido_cliente_data", columnList = "cliente_id, data_hora"))
+public class Pedido
+{
+
+	// Sequência (e não IDENTITY) para que o Hibernate consiga agrupar os INSERTs em lote
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+	@SequenceGenerator(name = "pedido_seq", sequenceName = "pedido_seq", allocationSize = 50)
+	private Long id;
+
+	/** Identificador gerado no checkout; torna a regravação a partir do journal idempotente. */
+	@Column(nullable = false, unique = true, length = 36)
+	private String codigo;
+
+	@Column(name = "cliente_id")
+	private Long clienteId;
+
+	private Long carrinhoId;
+
+	private Long transacaoPagamentoId;
+
+	/** Valor total cobrado em reais (R$). */
+	private BigDecimal valorTotal;
+
+	@Column(name = "data_hora")
+	private LocalDateTime dataHora;
+
+	public Pedido()
+	{
+	}
+
+	public Pedido(String codigo, Long clienteId, Long carrinhoId, Long transacaoPagamentoId, BigDecimal valorTotal,
+			LocalDateTime dataHora)
+	{
+		this.codigo = codigo;
+		this.clienteId = clienteId;
+		this.carrinhoId = carrinhoId;
+		this.transacaoPagamentoId = transacaoPagamentoId;
+		this.valorTotal = valorTotal;
+		this.dataHora = dataHora;
+	}
+
+	// Getters e Setters
+	public Long getId()
+	{
+		return id;
+	}
+
+	public void setId(Long id)
+	{
+		this.id = id;
+	}
+
+	public String getCodigo()
+	{
+		return codigo;
+	}
+
+	public void setCodigo(String codigo)
+	{
+		this.codigo = codigo;
+	}
+
+	public Long getClienteId()
+	{
+		return clienteId;
+	}
+
+	public void setClienteId(Long clienteId)
+	{
+		this.clienteId = clienteId;
+	}
+
+	public Long getCarrinhoId()
+	{
+		return carrinhoId;
+	}
+
+	public void setCarrinhoId(Long carrinhoId)
+	{
+		this.carrinhoId = carrinhoId;
+	}
+
+	public Long getTransacaoPagamentoId()
+	{
+		return transacaoPagamentoId;
+	}
+
+	public void setTransacaoPagamentoId(Long transacaoPagamentoId)
+	{
+		this.transacaoPagamentoId = transacaoPagamentoId;
+	}
+
+	public BigDecimal getValorTotal()
+	{
+		return valorTotal;
+	}
+
+	public void setValorTotal(BigDecimal valorTotal)
+	{
+		this.valorTotal = valorTotal;
+	}
+
+	public LocalDateTime getDataHora()
+	{
+		return dataHora;
+	}
+
+	public void setDataHora(LocalDateTime dataHora)
+	{
+		this.dataHora = dataHora;
+	}
+}
@@ -0,0 +1,249 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import ecommerce.dto.DisponibilidadeDTO;
+
+/**
+ * Disponibilidade recente por produto, aprendida das respostas do estoque. O
+ * estoque só responde "tem" ou "não tem" para a quantidade pedida, então o cache
+ * guarda por produto a maior quantidade confirmada e a menor recusada, por pouco
+ * tempo:
+ * <ul>
+ * <li>responde "disponível" localmente só se toda linha pede no máximo
+ * {@code fracaoSegura} da quantidade confirmada; perto do limite encaminha;</li>
+ * <li>responde "indisponível" localmente se alguma linha pede pelo menos a
+ * quantidade recusada (com TTL menor);</li>
+ * <li>qualquer outra combinação vai ao estoque.</li>
+ * </ul>
+ * Cada baixa invalida os produtos dela. Uma resposta que estava em voo durante a
+ * invalidação de um dos seus produtos não é guardada (geração por faixa de ids).
+ * A baixa em si nunca passa pelo cache: é ela que decide a venda.
+ */
+public final class CacheDisponibilidade
+{
+
+	public static final DisponibilidadeDTO DISPONIVEL = new DisponibilidadeDTO(true, List.of());
+
+	private static final int FAIXAS = 64;
+
+	public record Configuracao(Duration ttlDisponivel, Duration ttlIndisponivel, double fracaoSegura,
+			int capacidade)
+	{
+	}
+
+	/** Quantidade confirmada (0 se nenhuma) e recusada ({@code Long.MAX_VALUE} se nenhuma) do produto. */
+	private record Entrada(long confirmada, long recusada, long expiraEm)
+	{
+	}
+
+	private final ConcurrentHashMap<Long, Entrada> entradas = new ConcurrentHashMap<>();
+	private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS);
+	private final long ttlDisponivelNanos;
+	private final long ttlIndisponivelNanos;
+	private final double fracaoSegura;
+	private final int capacidade;
+	private final LongSupplier relogio;
+	private volatile long proximaLimpeza;
+
+	private final LongAdder acertos = new LongAdder();
+	private final LongAdder recusasLocais = new LongAdder();
+	private final LongAdder encaminhadas = new LongAdder();
+
+	public CacheDisponibilidade(Configuracao configuracao)
+	{
+		this(configuracao, System::nanoTime);
+	}
+
+	CacheDisponibilidade(Configuracao configuracao, LongSupplier relogio)
+	{
+		this.ttlDisponivelNanos = configuracao.ttlDisponivel().toNanos();
+		this.ttlIndisponivelNanos = configuracao.ttlIndisponivel().toNanos();
+		this.fracaoSegura = configuracao.fracaoSegura();
+		this.capacidade = configuracao.capacidade();
+		this.relogio = relogio;
+		this.proximaLimpeza = relogio.getAsLong();
+	}
+
+	/** Resposta local, ou nulo quando a consulta precisa ir ao estoque. */
+	public DisponibilidadeDTO consultar(LinhasPedido linhas)
+	{
+		long agora = relogio.getAsLong();
+		List<Long> recusados = null;
+		boolean encaminhar = linhas.tamanho() == 0;
+		for (int i = 0; i < linhas.tamanho(); i++)
+		{
+			long quantidade = linhas.quantidade(i);
+			Entrada entrada = entradas.get(linhas.id(i));
+			if (entrada == null || agora - entrada.expiraEm() >= 0)
+			{
+				encaminhar = true;
+			}
+			else if (quantidade >= entrada.recusada())
+			{
+				if (recusados == null)
+				{
+					recusados = new ArrayList<>(2);
+				}
+				recusados.add(linhas.id(i));
+			}
+			else if (quantidade > (long) (entrada.confirmada() * fracaoSegura))
+			{
+				encaminhar = true;
+			}
+		}
+		if (recusados != null)
+		{
+			recusasLocais.increment();
+			return new DisponibilidadeDTO(false, recusados);
+		}
+		if (encaminhar)
+		{
+			encaminhadas.increment();
+			return null;
+		}
+		acertos.increment();
+		return DISPONIVEL;
+	}
+
+	/** Marca a tomar antes de encaminhar a consulta, para {@link #registrar}. */
+	public long marca(LinhasPedido linhas)
+	{
+		long soma = 0;
+		for (int i = 0; i < linhas.tamanho(); i++)
+		{
+			soma += geracoes.get(faixa(linhas.id(i)));
+		}
+		return soma;
+	}
+
+	/**
+	 * Guarda a resposta do estoque. Uma recusa sem a lista de produtos
+	 * indisponíveis não diz nada por produto e é ignorada.
+	 */
+	public void registrar(LinhasPedido linhas, long marca, DisponibilidadeDTO resposta)
+	{
+		if (resposta == null || resposta.disponivel() == null)
+		{
+			return;
+		}
+		Set<Long> recusados = Set.of();
+		if (!resposta.disponivel())
+		{
+			if (resposta.idsProdutosIndisponiveis() == null || resposta.idsProdutosIndisponiveis().isEmpty())
+			{
+				return;
+			}
+			recusados = new HashSet<>(resposta.idsProdutosIndisponiveis());
+		}
+		if (marca(linhas) != marca || !abrirEspaco(linhas.tamanho()))
+		{
+			return;
+		}
+		long agora = relogio.getAsLong();
+		Entrada[] gravadas = new Entrada[linhas.tamanho()];
+		for (int i = 0; i < linhas.tamanho(); i++)
+		{
+			long quantidade = linhas.quantidade(i);
+			boolean recusado = recusados.contains(linhas.id(i));
+			gravadas[i] = entradas.compute(linhas.id(i),
+					(id, atual) -> combinar(atual, quantidade, recusado, agora));
+		}
+		// Uma baixa entre a marca e a gravação: desfaz o que pode ter ficado velho
+		if (marca(linhas) != marca)
+		{
+			for (int i = 0; i < linhas.tamanho(); i++)
+			{
+				entradas.remove(linhas.id(i), gravadas[i]);
+			}
+		}
+	}
+
+	/** Esquece os produtos das linhas; chamado antes e depois de cada baixa. */
+	public void invalidar(LinhasPedido linhas)
+	{
+		for (int i = 0; i < linhas.tamanho(); i++)
+		{
+			geracoes.incrementAndGet(faixa(linhas.id(i)));
+			entradas.remove(linhas.id(i));
+		}
+	}
+
+	public long acertos()
+	{
+		return acertos.sum();
+	}
+
+	public long recusasLocais()
+	{
+		return recusasLocais.sum();
+	}
+
+	public long encaminhadas()
+	{
+		return encaminhadas.sum();
+	}
+
+	public int tamanho()
+	{
+		return entradas.size();
+	}
+
+	/**
+	 * Confirmação e recusa se contradizem só quando o estoque mudou; a resposta nova
+	 * vale sozinha. Do contrário mantém a maior confirmada e a menor recusada, cada
+	 * uma renovando o prazo só quando é ela que muda.
+	 */
+	private Entrada combinar(Entrada atual, long quantidade, boolean recusado, long agora)
+	{
+		boolean vigente = atual != null && agora - atual.expiraEm() < 0;
+		if (recusado)
+		{
+			long expiraEm = agora + ttlIndisponivelNanos;
+			if (vigente && atual.confirmada() < quantidade)
+			{
+				return new Entrada(atual.confirmada(), Math.min(atual.recusada(), quantidade),
+						Math.min(atual.expiraEm(), expiraEm));
+			}
+			return new Entrada(0L, quantidade, expiraEm);
+		}
+		if (vigente && atual.recusada() > quantidade)
+		{
+			if (atual.confirmada() >= quantidade)
+			{
+				return atual;
+			}
+			return new Entrada(quantidade, atual.recusada(),
+					atual.recusada() == Long.MAX_VALUE ? agora + ttlDisponivelNanos : atual.expiraEm());
+		}
+		return new Entrada(quantidade, Long.MAX_VALUE, agora + ttlDisponivelNanos);
+	}
+
+	private boolean abrirEspaco(int novas)
+	{
+		if (entradas.size() + novas <= capacidade)
+		{
+			return true;
+		}
+		long agora = relogio.getAsLong();
+		if (agora - proximaLimpeza >= 0)
+		{
+			proximaLimpeza = agora + ttlIndisponivelNanos;
+			entradas.values().removeIf(entrada -> agora - entrada.expiraEm() >= 0);
+		}
+		return entradas.size() + novas <= capacidade;
+	}
+
+	private static int faixa(long id)
+	{
+		return (int) (id ^ (id >>> 32)) & (FAIXAS - 1);
+	}
+}
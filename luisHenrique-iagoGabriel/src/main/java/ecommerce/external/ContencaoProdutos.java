@@ -0,0 +1,86 @@
+package ecommerce.external;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contenção por produto no caminho do estoque: quantas chamadas tocaram o
+ * produto, quantas começaram com outra chamada do mesmo produto ainda em curso e
+ * o pico de chamadas simultâneas. Limitado a {@link #MAX_PRODUTOS} produtos; os
+ * que chegam depois não são acompanhados.
+ */
+public class ContencaoProdutos
+{
+
+	static final int MAX_PRODUTOS = 10_000;
+
+	public record Estatistica(Long produtoId, long chamadas, long sobreposicoes, int picoSimultaneas)
+	{
+	}
+
+	private static final class Contador
+	{
+		final LongAdder chamadas = new LongAdder();
+		final LongAdder sobreposicoes = new LongAdder();
+		final AtomicInteger emCurso = new AtomicInteger();
+		final AtomicInteger pico = new AtomicInteger();
+	}
+
+	private final ConcurrentMap<Long, Contador> porProduto = new ConcurrentHashMap<>();
+
+	public void entrar(List<Long> produtosIds)
+	{
+		for (Long id : produtosIds)
+		{
+			Contador contador = contador(id);
+			if (contador == null)
+			{
+				continue;
+			}
+			contador.chamadas.increment();
+			int simultaneas = contador.emCurso.incrementAndGet();
+			if (simultaneas > 1)
+			{
+				contador.sobreposicoes.increment();
+			}
+			contador.pico.accumulateAndGet(simultaneas, Math::max);
+		}
+	}
+
+	public void sair(List<Long> produtosIds)
+	{
+		for (Long id : produtosIds)
+		{
+			Contador contador = porProduto.get(id);
+			if (contador != null)
+			{
+				contador.emCurso.decrementAndGet();
+			}
+		}
+	}
+
+	/** Os {@code limite} produtos com mais sobreposições. */
+	public List<Estatistica> maisDisputados(int limite)
+	{
+		return porProduto.entrySet().stream()
+				.map(e -> new Estatistica(e.getKey(), e.getValue().chamadas.sum(), e.getValue().sobreposicoes.sum(),
+						e.getValue().pico.get()))
+				.sorted(Comparator.comparingLong(Estatistica::sobreposicoes).reversed()
+						.thenComparing(Comparator.comparingLong(Estatistica::chamadas).reversed()))
+				.limit(limite).toList();
+	}
+
+	private Contador contador(Long id)
+	{
+		Contador contador = porProduto.get(id);
+		if (contador != null || id == null || porProduto.size() >= MAX_PRODUTOS)
+		{
+			return contador;
+		}
+		return porProduto.computeIfAbsent(id, k -> new Contador());
+	}
+}
@@ -0,0 +1,35 @@
+package ecommerce.external;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma chamada a um serviço externo (estoque ou pagamento) no JDK Flight Recorder.
+ * Emitido pelo {@code ChamadaExternaJfrInterceptor}.
+ */
+@Name(EventoChamadaExternaJfr.NOME)
+@Label("Chamada externa")
+@Category({ "Ecommerce", "Externos" })
+@Description("Chamada a um serviço externo, com o resultado")
+@StackTrace(false)
+public class EventoChamadaExternaJfr extends Event
+{
+
+	public static final String NOME = "ecommerce.ChamadaExterna";
+
+	@Label("Serviço")
+	public String servico;
+
+	@Label("Operação")
+	public String operacao;
+
+	@Label("Sucesso")
+	public boolean sucesso;
+
+	@Label("Erro")
+	public String erro;
+}
@@ -0,0 +1,15 @@
+package ecommerce.external;
+
+/**
+ * Falha de comunicação com um serviço externo (erro, indisponibilidade ou tempo
+ * esgotado), distinta de uma resposta negativa como estoque insuficiente.
+ */
+public class FalhaServicoExternoException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public FalhaServicoExternoException(String mensagem)
+	{
+		super(mensagem);
+	}
+}
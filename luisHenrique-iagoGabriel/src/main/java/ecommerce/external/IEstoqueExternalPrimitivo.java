@@ -0,0 +1,62 @@
+package ecommerce.external;
+
+import java.util.List;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * Variante de {@link IEstoqueExternal} com as linhas do pedido em {@link LinhasPedido}
+ * (arrays de long, produtos consolidados) em vez de duas {@code List<Long>} paralelas.
+ * Por padrão os métodos delegam para os de listas; implementações nativas os
+ * sobrescrevem. {@link #de(IEstoqueExternal)} adapta qualquer implementação antiga.
+ * A ponte padrão aloca as duas visões de {@link LinhasPedido#idsComoLista()} por
+ * chamada e encaixota cada valor que a implementação ler; o {@code EstoqueHttp}
+ * sobrescreve, o simulador não lê as listas e fica nela.
+ */
+public interface IEstoqueExternalPrimitivo extends IEstoqueExternal
+{
+
+	default DisponibilidadeDTO verificarDisponibilidade(LinhasPedido linhas)
+	{
+		return verificarDisponibilidade(linhas.idsComoLista(), linhas.quantidadesComoLista());
+	}
+
+	default EstoqueBaixaDTO darBaixa(LinhasPedido linhas)
+	{
+		return darBaixa(linhas.idsComoLista(), linhas.quantidadesComoLista());
+	}
+
+	/**
+	 * Dá baixa com uma chave de idempotência: repetir com a mesma chave não baixa de
+	 * novo, e a chave identifica a baixa também quando a resposta não chega. Por
+	 * padrão ignora a chave (os simuladores sempre respondem); o {@code EstoqueHttp} a
+	 * envia.
+	 */
+	default EstoqueBaixaDTO darBaixa(LinhasPedido linhas, String chaveIdempotencia)
+	{
+		return darBaixa(linhas);
+	}
+
+	static IEstoqueExternalPrimitivo de(IEstoqueExternal estoque)
+	{
+		if (estoque instanceof IEstoqueExternalPrimitivo primitivo)
+		{
+			return primitivo;
+		}
+		return new IEstoqueExternalPrimitivo()
+		{
+			@Override
+			public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+			{
+				return estoque.darBaixa(produtosIds, produtosQuantidades);
+			}
+
+			@Override
+			public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+			{
+				return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+			}
+		};
+	}
+}
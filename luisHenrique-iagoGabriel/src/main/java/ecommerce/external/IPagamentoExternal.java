@@ -5,7 +5,12 @@ import ecommerce.dto.PagamentoDTO;
 public interface IPagamentoExternal
 {
 
-	PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal);
+	/**
+	 * Autoriza o pagamento. Repetir a chamada com a mesma {@code chaveIdempotencia}
+	 * não cobra de novo; a chave identifica a autorização também quando a resposta
+	 * não chega.
+	 */
+	PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia);
 
 	void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId);
 }
@@ -0,0 +1,183 @@
+package ecommerce.external;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Contadores de chamadas numa janela deslizante de baldes de tempo fixo, sem
+ * locks: cada registro cai no balde do instante atual, e um balde de outra época
+ * é zerado por quem vencer o CAS da época. Registros concorrentes com a virada de
+ * um balde podem se perder ou cair no balde novo — imprecisão aceita em troca de
+ * não bloquear quem chama.
+ *
+ * <p>A latência vai para um histograma de potências de 2 em microssegundos; os
+ * percentis do {@link Resumo} são o limite superior do balde que os contém.
+ */
+public class JanelaDeslizante
+{
+
+	/** Baldes do histograma: o último acumula tudo acima de 2^(N-2) µs (~16 s). */
+	static final int FAIXAS_LATENCIA = 26;
+
+	public record Resumo(long chamadas, long erros, long somaLote, long maxLote, long[] histograma,
+			long duracaoJanelaMs)
+	{
+
+		public double taxaErro()
+		{
+			return chamadas == 0 ? 0.0 : (double) erros / chamadas;
+		}
+
+		public double loteMedio()
+		{
+			return chamadas == 0 ? 0.0 : (double) somaLote / chamadas;
+		}
+
+		/** Limite superior, em ms, da faixa que contém o percentil; 0 sem chamadas. */
+		public double percentilMs(double percentil)
+		{
+			long total = 0;
+			for (long contagem : histograma)
+			{
+				total += contagem;
+			}
+			if (total == 0)
+			{
+				return 0.0;
+			}
+			long alvo = (long) Math.ceil(total * percentil / 100.0);
+			long acumulado = 0;
+			for (int i = 0; i < histograma.length; i++)
+			{
+				acumulado += histograma[i];
+				if (acumulado >= Math.max(1L, alvo))
+				{
+					return limiteSuperiorMicros(i) / 1_000.0;
+				}
+			}
+			return limiteSuperiorMicros(histograma.length - 1) / 1_000.0;
+		}
+	}
+
+	private static final class Balde
+	{
+		final AtomicLong epoca = new AtomicLong(Long.MIN_VALUE);
+		final LongAdder chamadas = new LongAdder();
+		final LongAdder erros = new LongAdder();
+		final LongAdder somaLote = new LongAdder();
+		final AtomicLong maxLote = new AtomicLong();
+		final AtomicLongArray histograma = new AtomicLongArray(FAIXAS_LATENCIA);
+
+		void zerar()
+		{
+			chamadas.reset();
+			erros.reset();
+			somaLote.reset();
+			maxLote.set(0);
+			for (int i = 0; i < FAIXAS_LATENCIA; i++)
+			{
+				histograma.set(i, 0);
+			}
+		}
+	}
+
+	private final Balde[] baldes;
+	private final long larguraBaldeNanos;
+	private final LongSupplier relogio;
+
+	public JanelaDeslizante(long janelaMs, int quantidadeBaldes)
+	{
+		this(janelaMs, quantidadeBaldes, System::nanoTime);
+	}
+
+	JanelaDeslizante(long janelaMs, int quantidadeBaldes, LongSupplier relogio)
+	{
+		if (quantidadeBaldes < 1 || janelaMs < quantidadeBaldes)
+		{
+			throw new IllegalArgumentException("Janela deve ter ao menos um balde de 1 ms.");
+		}
+		this.baldes = new Balde[quantidadeBaldes];
+		for (int i = 0; i < quantidadeBaldes; i++)
+		{
+			baldes[i] = new Balde();
+		}
+		this.larguraBaldeNanos = TimeUnit.MILLISECONDS.toNanos(janelaMs) / quantidadeBaldes;
+		this.relogio = relogio;
+	}
+
+	public void registrar(long latenciaNanos, boolean erro, int lote)
+	{
+		Balde balde = baldeAtual();
+		balde.chamadas.increment();
+		if (erro)
+		{
+			balde.erros.increment();
+		}
+		balde.somaLote.add(lote);
+		long maximo;
+		while (lote > (maximo = balde.maxLote.get()) && !balde.maxLote.compareAndSet(maximo, lote))
+		{
+			// outra thread registrou um lote maior ou igual; relê
+		}
+		balde.histograma.incrementAndGet(faixa(latenciaNanos / 1_000));
+	}
+
+	public Resumo resumo()
+	{
+		long atual = relogio.getAsLong() / larguraBaldeNanos;
+		long chamadas = 0, erros = 0, somaLote = 0, maxLote = 0;
+		long[] histograma = new long[FAIXAS_LATENCIA];
+		for (Balde balde : baldes)
+		{
+			long epoca = balde.epoca.get();
+			if (epoca > atual - baldes.length && epoca <= atual)
+			{
+				chamadas += balde.chamadas.sum();
+				erros += balde.erros.sum();
+				somaLote += balde.somaLote.sum();
+				maxLote = Math.max(maxLote, balde.maxLote.get());
+				for (int i = 0; i < FAIXAS_LATENCIA; i++)
+				{
+					histograma[i] += balde.histograma.get(i);
+				}
+			}
+		}
+		return new Resumo(chamadas, erros, somaLote, maxLote, histograma,
+				TimeUnit.NANOSECONDS.toMillis(larguraBaldeNanos * baldes.length));
+	}
+
+	/** Esquece as chamadas registradas até agora. */
+	public void limpar()
+	{
+		for (Balde balde : baldes)
+		{
+			balde.epoca.set(Long.MIN_VALUE);
+		}
+	}
+
+	private Balde baldeAtual()
+	{
+		long epoca = relogio.getAsLong() / larguraBaldeNanos;
+		Balde balde = baldes[(int) Math.floorMod(epoca, (long) baldes.length)];
+		long vista = balde.epoca.get();
+		if (vista < epoca && balde.epoca.compareAndSet(vista, epoca))
+		{
+			balde.zerar();
+		}
+		return balde;
+	}
+
+	static int faixa(long micros)
+	{
+		return Math.min(FAIXAS_LATENCIA - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/** Faixa 0: abaixo de 1 µs; faixa i: até 2^i - 1 µs; a última é reportada pelo seu piso. */
+	static long limiteSuperiorMicros(int faixa)
+	{
+		return faixa == FAIXAS_LATENCIA - 1 ? 1L << (faixa - 1) : (1L << faixa) - 1;
+	}
+}
@@ -0,0 +1,273 @@
+package ecommerce.external;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Linhas de um pedido para o estoque em estrutura de arrays: {@code ids[i]} e
+ * {@code quantidades[i]} formam a linha {@code i}. Cada produto aparece uma só vez
+ * (o {@link Construtor} soma as quantidades repetidas), na ordem em que apareceu
+ * primeiro. Imutável.
+ */
+public final class LinhasPedido
+{
+
+	public static final LinhasPedido VAZIA = new LinhasPedido(new long[0], new long[0]);
+
+	private final long[] ids;
+	private final long[] quantidades;
+
+	private LinhasPedido(long[] ids, long[] quantidades)
+	{
+		this.ids = ids;
+		this.quantidades = quantidades;
+	}
+
+	public static Construtor construtor(int capacidade)
+	{
+		return new Construtor(capacidade);
+	}
+
+	/** Linhas a partir de arrays paralelos, consolidando produtos repetidos. */
+	public static LinhasPedido de(long[] ids, long[] quantidades)
+	{
+		if (ids.length != quantidades.length)
+		{
+			throw new IllegalArgumentException("ids e quantidades com tamanhos diferentes.");
+		}
+		Construtor construtor = new Construtor(ids.length);
+		for (int i = 0; i < ids.length; i++)
+		{
+			construtor.adicionar(ids[i], quantidades[i]);
+		}
+		return construtor.construir();
+	}
+
+	/**
+	 * Linhas a partir das listas paralelas de {@link IEstoqueExternal}, consolidando
+	 * produtos repetidos. Id ou quantidade nulos são {@link IllegalArgumentException}.
+	 */
+	public static LinhasPedido de(List<Long> ids, List<Long> quantidades)
+	{
+		if (ids.size() != quantidades.size())
+		{
+			throw new IllegalArgumentException("ids e quantidades com tamanhos diferentes.");
+		}
+		Construtor construtor = new Construtor(ids.size());
+		for (int i = 0; i < ids.size(); i++)
+		{
+			Long id = ids.get(i);
+			Long quantidade = quantidades.get(i);
+			if (id == null || quantidade == null)
+			{
+				throw new IllegalArgumentException("Linha " + i + " sem id de produto ou sem quantidade.");
+			}
+			construtor.adicionar(id, quantidade);
+		}
+		return construtor.construir();
+	}
+
+	public int tamanho()
+	{
+		return ids.length;
+	}
+
+	public long id(int linha)
+	{
+		return ids[linha];
+	}
+
+	public long quantidade(int linha)
+	{
+		return quantidades[linha];
+	}
+
+	public long[] ids()
+	{
+		return ids.clone();
+	}
+
+	public long[] quantidades()
+	{
+		return quantidades.clone();
+	}
+
+	/** Visão somente leitura para a API de listas; o boxing acontece só na leitura. */
+	public List<Long> idsComoLista()
+	{
+		return new Visao(ids);
+	}
+
+	public List<Long> quantidadesComoLista()
+	{
+		return new Visao(quantidades);
+	}
+
+	@Override
+	public boolean equals(Object outro)
+	{
+		return outro instanceof LinhasPedido linhas && Arrays.equals(ids, linhas.ids)
+				&& Arrays.equals(quantidades, linhas.quantidades);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * Arrays.hashCode(ids) + Arrays.hashCode(quantidades);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LinhasPedido[ids=" + Arrays.toString(ids) + ", quantidades=" + Arrays.toString(quantidades) + "]";
+	}
+
+	/**
+	 * Acumula linhas somando as quantidades de produtos repetidos. Até
+	 * {@value #LIMITE_BUSCA_LINEAR} produtos procura o repetido por varredura; acima
+	 * disso monta uma tabela de endereçamento aberto id → linha, sem boxing.
+	 * Não deve ser reutilizado depois de {@link #construir()}, que pode ficar com
+	 * os arrays dele.
+	 */
+	public static final class Construtor
+	{
+		private static final int LIMITE_BUSCA_LINEAR = 8;
+
+		private long[] ids;
+		private long[] quantidades;
+		private int tamanho;
+		private int[] tabela;
+
+		private Construtor(int capacidade)
+		{
+			int inicial = Math.max(capacidade, 1);
+			this.ids = new long[inicial];
+			this.quantidades = new long[inicial];
+		}
+
+		public Construtor adicionar(long id, long quantidade)
+		{
+			int linha = procurar(id);
+			if (linha >= 0)
+			{
+				quantidades[linha] = Math.addExact(quantidades[linha], quantidade);
+				return this;
+			}
+			if (tamanho == ids.length)
+			{
+				ids = Arrays.copyOf(ids, tamanho * 2);
+				quantidades = Arrays.copyOf(quantidades, tamanho * 2);
+			}
+			ids[tamanho] = id;
+			quantidades[tamanho] = quantidade;
+			tamanho++;
+			if (tabela != null)
+			{
+				indexar(tamanho - 1);
+			}
+			else if (tamanho > LIMITE_BUSCA_LINEAR)
+			{
+				reindexar();
+			}
+			return this;
+		}
+
+		public LinhasPedido construir()
+		{
+			if (tamanho == 0)
+			{
+				return VAZIA;
+			}
+			if (tamanho == ids.length)
+			{
+				return new LinhasPedido(ids, quantidades);
+			}
+			return new LinhasPedido(Arrays.copyOf(ids, tamanho), Arrays.copyOf(quantidades, tamanho));
+		}
+
+		private int procurar(long id)
+		{
+			if (tabela == null)
+			{
+				for (int i = 0; i < tamanho; i++)
+				{
+					if (ids[i] == id)
+					{
+						return i;
+					}
+				}
+				return -1;
+			}
+			int mascara = tabela.length - 1;
+			for (int posicao = espalhar(id) & mascara; tabela[posicao] != 0; posicao = (posicao + 1) & mascara)
+			{
+				if (ids[tabela[posicao] - 1] == id)
+				{
+					return tabela[posicao] - 1;
+				}
+			}
+			return -1;
+		}
+
+		private void indexar(int linha)
+		{
+			if (tamanho * 2 > tabela.length)
+			{
+				reindexar();
+				return;
+			}
+			int mascara = tabela.length - 1;
+			int posicao = espalhar(ids[linha]) & mascara;
+			while (tabela[posicao] != 0)
+			{
+				posicao = (posicao + 1) & mascara;
+			}
+			tabela[posicao] = linha + 1;
+		}
+
+		private void reindexar()
+		{
+			tabela = new int[Integer.highestOneBit(Math.max(tamanho, ids.length) * 4 - 1)];
+			int mascara = tabela.length - 1;
+			for (int i = 0; i < tamanho; i++)
+			{
+				int posicao = espalhar(ids[i]) & mascara;
+				while (tabela[posicao] != 0)
+				{
+					posicao = (posicao + 1) & mascara;
+				}
+				tabela[posicao] = i + 1;
+			}
+		}
+
+		private static int espalhar(long id)
+		{
+			long h = id * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+	private static final class Visao extends AbstractList<Long> implements RandomAccess
+	{
+		private final long[] valores;
+
+		Visao(long[] valores)
+		{
+			this.valores = valores;
+		}
+
+		@Override
+		public Long get(int indice)
+		{
+			return valores[indice];
+		}
+
+		@Override
+		public int size()
+		{
+			return valores.length;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Saúde de um serviço externo: janela deslizante de chamadas, chamadas em curso e
+ * um disjuntor simples. O disjuntor abre quando, na janela, há ao menos
+ * {@code minimoChamadas} e a taxa de erro chega a {@code taxaErroAbertura}; aberto,
+ * recusa chamadas por {@code esperaAberto} e depois deixa passar uma única sonda,
+ * que fecha o circuito (limpando a janela) ou o reabre.
+ *
+ * <p>Só exceções contam como erro: uma resposta negativa (estoque insuficiente,
+ * pagamento negado) é uma chamada bem-sucedida.
+ */
+public class MonitorExterno
+{
+
+	public enum EstadoCircuito
+	{
+		FECHADO, ABERTO, MEIO_ABERTO
+	}
+
+	public record Configuracao(Duration janela, int baldes, boolean circuitoHabilitado, double taxaErroAbertura,
+			int minimoChamadas, Duration esperaAberto)
+	{
+
+		public static Configuracao padrao()
+		{
+			return new Configuracao(Duration.ofMinutes(1), 12, true, 0.5, 20, Duration.ofSeconds(5));
+		}
+	}
+
+	private final String servico;
+	private final Configuracao configuracao;
+	private final LongSupplier relogio;
+	private final JanelaDeslizante janela;
+	private final ContencaoProdutos contencao = new ContencaoProdutos();
+	private final AtomicInteger emCurso = new AtomicInteger();
+	private final LongAdder recusadas = new LongAdder();
+	private final AtomicReference<EstadoCircuito> estado = new AtomicReference<>(EstadoCircuito.FECHADO);
+	private volatile long abertoAteNanos;
+
+	public MonitorExterno(String servico, Configuracao configuracao)
+	{
+		this(servico, configuracao, System::nanoTime);
+	}
+
+	MonitorExterno(String servico, Configuracao configuracao, LongSupplier relogio)
+	{
+		this.servico = servico;
+		this.configuracao = configuracao;
+		this.relogio = relogio;
+		this.janela = new JanelaDeslizante(configuracao.janela().toMillis(), configuracao.baldes(), relogio);
+	}
+
+	/**
+	 * Antes de uma chamada: recusa com {@link FalhaServicoExternoException} se o
+	 * circuito estiver aberto. Compensações (estornos) passam sempre.
+	 */
+	public void entrar(boolean compensacao)
+	{
+		if (!compensacao && !permitir())
+		{
+			recusadas.increment();
+			throw new FalhaServicoExternoException(servico + ": circuito aberto.");
+		}
+		emCurso.incrementAndGet();
+	}
+
+	public void sair(long latenciaNanos, boolean erro, int lote)
+	{
+		emCurso.decrementAndGet();
+		janela.registrar(latenciaNanos, erro, lote);
+		if (!configuracao.circuitoHabilitado())
+		{
+			return;
+		}
+		EstadoCircuito atual = estado.get();
+		if (atual == EstadoCircuito.MEIO_ABERTO)
+		{
+			if (erro)
+			{
+				abrir(EstadoCircuito.MEIO_ABERTO);
+			}
+			else if (estado.compareAndSet(EstadoCircuito.MEIO_ABERTO, EstadoCircuito.FECHADO))
+			{
+				janela.limpar();
+			}
+		}
+		else if (atual == EstadoCircuito.FECHADO && erro)
+		{
+			JanelaDeslizante.Resumo resumo = janela.resumo();
+			if (resumo.chamadas() >= configuracao.minimoChamadas()
+					&& resumo.taxaErro() >= configuracao.taxaErroAbertura())
+			{
+				abrir(EstadoCircuito.FECHADO);
+			}
+		}
+	}
+
+	private boolean permitir()
+	{
+		if (!configuracao.circuitoHabilitado())
+		{
+			return true;
+		}
+		EstadoCircuito atual = estado.get();
+		if (atual == EstadoCircuito.FECHADO)
+		{
+			return true;
+		}
+		// Aberto e vencida a espera: a thread que vencer o CAS é a sonda
+		return atual == EstadoCircuito.ABERTO && relogio.getAsLong() - abertoAteNanos >= 0
+				&& estado.compareAndSet(EstadoCircuito.ABERTO, EstadoCircuito.MEIO_ABERTO);
+	}
+
+	private void abrir(EstadoCircuito de)
+	{
+		abertoAteNanos = relogio.getAsLong() + configuracao.esperaAberto().toNanos();
+		estado.compareAndSet(de, EstadoCircuito.ABERTO);
+	}
+
+	public String servico()
+	{
+		return servico;
+	}
+
+	public EstadoCircuito estadoCircuito()
+	{
+		return estado.get();
+	}
+
+	public int emCurso()
+	{
+		return emCurso.get();
+	}
+
+	public long recusadas()
+	{
+		return recusadas.sum();
+	}
+
+	public JanelaDeslizante.Resumo resumo()
+	{
+		return janela.resumo();
+	}
+
+	public ContencaoProdutos contencao()
+	{
+		return contencao;
+	}
+}
@@ -0,0 +1,29 @@
+package ecommerce.external;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/** Um {@link MonitorExterno} por serviço externo, criado no primeiro uso. */
+public class MonitoresExternos
+{
+
+	private final MonitorExterno.Configuracao configuracao;
+	private final ConcurrentMap<String, MonitorExterno> monitores = new ConcurrentSkipListMap<>();
+
+	public MonitoresExternos(MonitorExterno.Configuracao configuracao)
+	{
+		this.configuracao = configuracao;
+	}
+
+	public MonitorExterno monitor(String servico)
+	{
+		return monitores.computeIfAbsent(servico, s -> new MonitorExterno(s, configuracao));
+	}
+
+	public Map<String, MonitorExterno> todos()
+	{
+		return Collections.unmodifiableMap(monitores);
+	}
+}
@@ -1,208 +1,117 @@
 package ecommerce.external.fake;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
 import ecommerce.repository.CarrinhoDeComprasRepository;
 
-public class CarrinhoDeComprasRepositoryFake implements CarrinhoDeComprasRepository {
-    private final Map<Long, CarrinhoDeCompras> banco = new HashMap<>();
+@Repository
+@Profile("inmemory")
+public class CarrinhoDeComprasRepositoryFake extends RepositorioEmMemoria<CarrinhoDeCompras>
+        implements CarrinhoDeComprasRepository {
 
-    public void salvar(CarrinhoDeCompras carrinho) {
-        banco.put(carrinho.getId(), carrinho);
-    }
-
-    @Override
-    public Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente) {
-        CarrinhoDeCompras c = banco.get(id);
-        if (c != null && c.getCliente() != null && c.getCliente().getId().equals(cliente.getId())) {
-            return Optional.of(c);
-        }
-        return Optional.empty();
-    }
-
-    @Override
-    public Optional<CarrinhoDeCompras> findById(Long aLong) {
-        return Optional.ofNullable(banco.get(aLong));
-    }
-
-    @Override
-    public <S extends CarrinhoDeCompras> S save(S entity) {
-        banco.put(entity.getId(), entity);
-        return entity;
-    }
-
-    @Override
-    public List<CarrinhoDeCompras> findAll() {
-        return new ArrayList<>(banco.values());
-    }
-
-    @Override
-    public boolean existsById(Long aLong) {
-        return banco.containsKey(aLong);
-    }
-
-    @Override
-    public long count() {
-        return banco.size();
-    }
-
-    @Override
-    public void deleteById(Long aLong) {
-        banco.remove(aLong);
-    }
-
-    @Override
-    public void delete(CarrinhoDeCompras entity) {
-        banco.remove(entity.getId());
-    }
-
-    @Override
-    public void deleteAll(Iterable<? extends CarrinhoDeCompras> entities) {
-        entities.forEach(e -> banco.remove(e.getId()));
-    }
-
-    @Override
-    public void deleteAll() {
-        banco.clear();
-    }
-
-    @Override
-    public void deleteAllByIdInBatch(Iterable<Long> ids) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'deleteAllByIdInBatch'");
-    }
-
-    @Override
-    public void deleteAllInBatch() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'deleteAllInBatch'");
-    }
-
-    @Override
-    public void deleteAllInBatch(Iterable<CarrinhoDeCompras> entities) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'deleteAllInBatch'");
-    }
-
-    @Override
-    public <S extends CarrinhoDeCompras> List<S> findAll(Example<S> example) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAll'");
-    }
-
-    @Override
-    public <S extends CarrinhoDeCompras> List<S> findAll(Example<S> example, Sort sort) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAll'");
-    }
-
-    @Override
-    public void flush() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'flush'");
-    }
-
-    @Override
-    public CarrinhoDeCompras getById(Long arg0) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getById'");
-    }
-
-    @Override
-    public CarrinhoDeCompras getOne(Long arg0) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getOne'");
-    }
-
-    @Override
-    public CarrinhoDeCompras getReferenceById(Long id) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getReferenceById'");
-    }
+    // índice secundário cliente -> carrinhos, mantido junto com a chave primária
+    private final Map<Long, Set<Long>> carrinhosPorCliente = new ConcurrentHashMap<>();
+    // cliente sob o qual cada carrinho está indexado: a instância gravada pode ter
+    // sido alterada antes de ser salva de novo, e então não diz mais onde estava
+    private final Map<Long, Long> clienteIndexado = new ConcurrentHashMap<>();
+    private final AtomicLong sequenciaItens = new AtomicLong();
 
     @Override
-    public <S extends CarrinhoDeCompras> List<S> saveAllAndFlush(Iterable<S> entities) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'saveAllAndFlush'");
+    protected Long idDe(CarrinhoDeCompras entidade) {
+        return entidade.getId();
     }
 
     @Override
-    public <S extends CarrinhoDeCompras> S saveAndFlush(S entity) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'saveAndFlush'");
+    protected void atribuirId(CarrinhoDeCompras entidade, Long id) {
+        entidade.setId(id);
     }
 
     @Override
-    public List<CarrinhoDeCompras> findAllById(Iterable<Long> ids) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAllById'");
-    }
-
-    @Override
-    public <S extends CarrinhoDeCompras> List<S> saveAll(Iterable<S> entities) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'saveAll'");
-    }
-
-    @Override
-    public void deleteAllById(Iterable<? extends Long> ids) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'deleteAllById'");
-    }
-
-    @Override
-    public List<CarrinhoDeCompras> findAll(Sort sort) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAll'");
-    }
-
-    @Override
-    public Page<CarrinhoDeCompras> findAll(Pageable pageable) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAll'");
+    protected void indexar(CarrinhoDeCompras anterior, CarrinhoDeCompras atual) {
+        Long clienteAnterior = anterior == null ? null : clienteIndexado.remove(anterior.getId());
+        if (clienteAnterior != null) {
+            Set<Long> ids = carrinhosPorCliente.get(clienteAnterior);
+            if (ids != null) {
+                ids.remove(anterior.getId());
+            }
+        }
+        if (atual != null) {
+            Long clienteAtual = clienteIdDe(atual);
+            if (clienteAtual != null) {
+                carrinhosPorCliente.computeIfAbsent(clienteAtual, k -> ConcurrentHashMap.newKeySet())
+                        .add(atual.getId());
+                clienteIndexado.put(atual.getId(), clienteAtual);
+            }
+            // cascata dos itens, como no mapeamento JPA
+            if (atual.getItens() != null) {
+                for (ItemCompra item : atual.getItens()) {
+                    if (item.getId() == null) {
+                        item.setId(sequenciaItens.incrementAndGet());
+                    }
+                }
+            }
+        }
     }
 
     @Override
-    public <S extends CarrinhoDeCompras> long count(Example<S> example) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'count'");
+    public Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente) {
+        if (cliente == null || cliente.getId() == null) {
+            return Optional.empty();
+        }
+        Set<Long> ids = carrinhosPorCliente.get(cliente.getId());
+        if (ids == null || !ids.contains(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(banco.get(id));
     }
 
     @Override
-    public <S extends CarrinhoDeCompras> boolean exists(Example<S> example) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'exists'");
+    public int incrementarVersao(Long id, Cliente cliente, long versaoLida) {
+        int[] linhas = new int[1];
+        banco.computeIfPresent(id, (chave, gravado) -> {
+            long versaoGravada = gravado.getVersao() == null ? 0L : gravado.getVersao();
+            if (versaoGravada == versaoLida && cliente != null
+                    && Objects.equals(clienteIdDe(gravado), cliente.getId())) {
+                gravado.setVersao(versaoGravada + 1);
+                linhas[0] = 1;
+            }
+            return gravado;
+        });
+        return linhas[0];
     }
 
     @Override
-    public <S extends CarrinhoDeCompras> Page<S> findAll(Example<S> example, Pageable pageable) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findAll'");
+    public List<CarrinhoDeCompras> buscarComItens(Collection<Long> ids) {
+        List<CarrinhoDeCompras> carrinhos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CarrinhoDeCompras carrinho = banco.get(id);
+            if (carrinho != null) {
+                carrinhos.add(carrinho);
+            }
+        }
+        return carrinhos;
     }
 
-    @Override
-    public <S extends CarrinhoDeCompras, R> R findBy(Example<S> example,
-            Function<FetchableFluentQuery<S>, R> queryFunction) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findBy'");
+    private static Long clienteIdDe(CarrinhoDeCompras carrinho) {
+        return carrinho == null || carrinho.getCliente() == null ? null : carrinho.getCliente().getId();
     }
 
-    @Override
-    public <S extends CarrinhoDeCompras> Optional<S> findOne(Example<S> example) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'findOne'");
+    public Set<Long> idsPorCliente(Long clienteId) {
+        Set<Long> ids = carrinhosPorCliente.get(clienteId);
+        return ids == null ? Set.of() : Set.copyOf(ids);
     }
 }
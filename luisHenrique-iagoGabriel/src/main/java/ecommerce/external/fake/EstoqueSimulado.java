@@ -3,19 +3,34 @@ package ecommerce.external.fake;
 import java.util.Collections;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
-import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalPrimitivo;
 
+// ignora as linhas: as variantes de LinhasPedido ficam nas implementações padrão,
+// que passam pelos métodos de listas abaixo (e pelas sobrescritas deles)
 @Service
-public class EstoqueSimulado implements IEstoqueExternal {
-	private boolean disponivel = true;
-	private boolean baixaSucesso = true;
+@ConditionalOnProperty(name = "externos.modo", havingValue = "simulado", matchIfMissing = true)
+public class EstoqueSimulado implements IEstoqueExternalPrimitivo {
+	private volatile boolean disponivel = true;
+	private volatile boolean baixaSucesso = true;
 
-	private boolean verificarDisponibilidadeChamado = false;
-	private boolean darBaixaChamado = false;
+	private volatile boolean verificarDisponibilidadeChamado = false;
+	private volatile boolean darBaixaChamado = false;
+
+	private volatile SimulacaoChamada simulacao = SimulacaoChamada.SEM_EFEITO;
+
+	public EstoqueSimulado() {
+	}
+
+	@Autowired
+	public EstoqueSimulado(SimulacaoExternaProperties propriedades) {
+		this.simulacao = propriedades.simulacaoEstoque();
+	}
 
 	public void configurarDisponibilidade(boolean disponivel) {
 		this.disponivel = disponivel;
@@ -25,6 +40,10 @@ public class EstoqueSimulado implements IEstoqueExternal {
 		this.baixaSucesso = baixaSucesso;
 	}
 
+	public void configurarSimulacao(SimulacaoChamada simulacao) {
+		this.simulacao = simulacao == null ? SimulacaoChamada.SEM_EFEITO : simulacao;
+	}
+
 	public boolean isVerificarDisponibilidadeChamado() {
 		return verificarDisponibilidadeChamado;
 	}
@@ -36,6 +55,7 @@ public class EstoqueSimulado implements IEstoqueExternal {
 	@Override
 	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
 		this.darBaixaChamado = true;
+		simulacao.aplicar("estoque.darBaixa");
 		// record EstoqueBaixaDTO(Boolean sucesso)
 		return new EstoqueBaixaDTO(baixaSucesso);
 	}
@@ -43,6 +63,7 @@ public class EstoqueSimulado implements IEstoqueExternal {
 	@Override
 	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
 		this.verificarDisponibilidadeChamado = true;
+		simulacao.aplicar("estoque.verificarDisponibilidade");
 		// record DisponibilidadeDTO(Boolean disponivel, List<Long>
 		// idsProdutosIndisponiveis)
 		return new DisponibilidadeDTO(disponivel, Collections.emptyList());
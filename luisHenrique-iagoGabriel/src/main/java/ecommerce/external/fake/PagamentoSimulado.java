@@ -1,26 +1,48 @@
 package ecommerce.external.fake;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.PagamentoDTO;
 import ecommerce.external.IPagamentoExternal;
 
 @Service
+@ConditionalOnProperty(name = "externos.modo", havingValue = "simulado", matchIfMissing = true)
 public class PagamentoSimulado implements IPagamentoExternal {
 
-	private boolean autorizado = true;
-	private Long proximaTransacaoId = 1L;
+	private volatile boolean autorizado = true;
+	// cada autorização consome um id: únicos e crescentes mesmo sob concorrência
+	private final AtomicLong proximaTransacaoId = new AtomicLong(1L);
+
+	private volatile boolean cancelarChamado = false;
+	private volatile Cancelamento ultimoCancelamento;
+
+	private volatile SimulacaoChamada simulacao = SimulacaoChamada.SEM_EFEITO;
+
+	private record Cancelamento(Long clienteId, Long transacaoId) {
+	}
+
+	public PagamentoSimulado() {
+	}
 
-	private boolean cancelarChamado = false;
-	private Long ultimoClienteCancelamento;
-	private Long ultimaTransacaoCancelamento;
+	@Autowired
+	public PagamentoSimulado(SimulacaoExternaProperties propriedades) {
+		this.simulacao = propriedades.simulacaoPagamento();
+	}
 
 	public void configurarAutorizacao(boolean autorizado) {
 		this.autorizado = autorizado;
 	}
 
 	public void configurarProximaTransacao(Long transacaoId) {
-		this.proximaTransacaoId = transacaoId;
+		this.proximaTransacaoId.set(transacaoId);
+	}
+
+	public void configurarSimulacao(SimulacaoChamada simulacao) {
+		this.simulacao = simulacao == null ? SimulacaoChamada.SEM_EFEITO : simulacao;
 	}
 
 	public boolean isCancelarChamado() {
@@ -28,23 +50,27 @@ public class PagamentoSimulado implements IPagamentoExternal {
 	}
 
 	public Long getUltimoClienteCancelamento() {
-		return ultimoClienteCancelamento;
+		Cancelamento cancelamento = ultimoCancelamento;
+		return cancelamento == null ? null : cancelamento.clienteId();
 	}
 
 	public Long getUltimaTransacaoCancelamento() {
-		return ultimaTransacaoCancelamento;
+		Cancelamento cancelamento = ultimoCancelamento;
+		return cancelamento == null ? null : cancelamento.transacaoId();
 	}
 
+	/** A chave de idempotência é ignorada: o simulador nunca perde uma resposta. */
 	@Override
-	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia) {
+		simulacao.aplicar("pagamento.autorizarPagamento");
 		// record PagamentoDTO(Boolean autorizado, Long transacaoId)
-		return new PagamentoDTO(autorizado, proximaTransacaoId);
+		return new PagamentoDTO(autorizado, proximaTransacaoId.getAndIncrement());
 	}
 
 	@Override
 	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
 		this.cancelarChamado = true;
-		this.ultimoClienteCancelamento = clienteId;
-		this.ultimaTransacaoCancelamento = pagamentoTransacaoId;
+		this.ultimoCancelamento = new Cancelamento(clienteId, pagamentoTransacaoId);
+		simulacao.aplicar("pagamento.cancelarPagamento");
 	}
 }
@@ -0,0 +1,76 @@
+package ecommerce.external.fake;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import ecommerce.entity.Pedido;
+import ecommerce.repository.PedidoRepository;
+
+@Repository
+@Profile("inmemory")
+public class PedidoRepositoryFake extends RepositorioEmMemoria<Pedido> implements PedidoRepository {
+
+    private static final Comparator<Pedido> MAIS_RECENTE_PRIMEIRO = Comparator
+            .comparing(Pedido::getDataHora, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Pedido::getId, Comparator.reverseOrder());
+
+    private final Map<String, Long> idPorCodigo = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> pedidosPorCliente = new ConcurrentHashMap<>();
+
+    @Override
+    protected Long idDe(Pedido entidade) {
+        return entidade.getId();
+    }
+
+    @Override
+    protected void atribuirId(Pedido entidade, Long id) {
+        entidade.setId(id);
+    }
+
+    @Override
+    protected void indexar(Pedido anterior, Pedido atual) {
+        if (anterior != null) {
+            idPorCodigo.remove(anterior.getCodigo());
+            Set<Long> ids = anterior.getClienteId() == null ? null : pedidosPorCliente.get(anterior.getClienteId());
+            if (ids != null) {
+                ids.remove(anterior.getId());
+            }
+        }
+        if (atual != null) {
+            idPorCodigo.put(atual.getCodigo(), atual.getId());
+            if (atual.getClienteId() != null) {
+                pedidosPorCliente.computeIfAbsent(atual.getClienteId(), k -> ConcurrentHashMap.newKeySet())
+                        .add(atual.getId());
+            }
+        }
+    }
+
+    @Override
+    public List<Pedido> findByClienteIdOrderByDataHoraDesc(Long clienteId, Pageable pageable) {
+        Set<Long> ids = clienteId == null ? Set.of() : pedidosPorCliente.getOrDefault(clienteId, Set.of());
+        List<Pedido> ordenados = ids.stream().map(banco::get).filter(Objects::nonNull)
+                .sorted(MAIS_RECENTE_PRIMEIRO).toList();
+        return pagina(ordenados, pageable, p -> p).getContent();
+    }
+
+    @Override
+    public Optional<Pedido> findByCodigo(String codigo) {
+        Long id = idPorCodigo.get(codigo);
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public List<String> findCodigosExistentes(Collection<String> codigos) {
+        return codigos.stream().filter(idPorCodigo::containsKey).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package ecommerce.external.fake;
+
+import java.util.Random;
+
+/**
+ * Distribuição de latência de um serviço simulado, em milissegundos.
+ * CAUDA_LONGA é log-normal parametrizada pela mediana e pelo p99: a maioria das
+ * chamadas é rápida e poucas são muito lentas, como em serviços remotos reais.
+ */
+public final class PerfilLatencia {
+	public enum Distribuicao {
+		NENHUMA, FIXA, NORMAL, CAUDA_LONGA
+	}
+
+	public static final PerfilLatencia NENHUMA = new PerfilLatencia(Distribuicao.NENHUMA, 0, 0);
+
+	private static final double Z_99 = 2.3263478740408408;
+
+	private final Distribuicao distribuicao;
+	private final double parametroA;
+	private final double parametroB;
+
+	private PerfilLatencia(Distribuicao distribuicao, double parametroA, double parametroB) {
+		this.distribuicao = distribuicao;
+		this.parametroA = parametroA;
+		this.parametroB = parametroB;
+	}
+
+	public static PerfilLatencia fixa(long latenciaMs) {
+		exigirNaoNegativo(latenciaMs, "latenciaMs");
+		return new PerfilLatencia(Distribuicao.FIXA, latenciaMs, 0);
+	}
+
+	public static PerfilLatencia normal(long mediaMs, long desvioMs) {
+		exigirNaoNegativo(mediaMs, "mediaMs");
+		exigirNaoNegativo(desvioMs, "desvioMs");
+		return new PerfilLatencia(Distribuicao.NORMAL, mediaMs, desvioMs);
+	}
+
+	public static PerfilLatencia caudaLonga(long medianaMs, long p99Ms) {
+		if (medianaMs <= 0 || p99Ms < medianaMs) {
+			throw new IllegalArgumentException("Cauda longa exige 0 < mediana <= p99.");
+		}
+		double mu = Math.log(medianaMs);
+		double sigma = (Math.log(p99Ms) - mu) / Z_99;
+		return new PerfilLatencia(Distribuicao.CAUDA_LONGA, mu, sigma);
+	}
+
+	public static PerfilLatencia de(Distribuicao distribuicao, long latenciaMs, long desvioMs, long p99Ms) {
+		if (distribuicao == null) {
+			return NENHUMA;
+		}
+		switch (distribuicao) {
+		case FIXA:
+			return fixa(latenciaMs);
+		case NORMAL:
+			return normal(latenciaMs, desvioMs);
+		case CAUDA_LONGA:
+			return caudaLonga(latenciaMs, p99Ms);
+		default:
+			return NENHUMA;
+		}
+	}
+
+	public Distribuicao getDistribuicao() {
+		return distribuicao;
+	}
+
+	public long amostrarMs(Random aleatorio) {
+		switch (distribuicao) {
+		case FIXA:
+			return (long) parametroA;
+		case NORMAL:
+			return Math.max(0L, Math.round(parametroA + parametroB * aleatorio.nextGaussian()));
+		case CAUDA_LONGA:
+			return Math.round(Math.exp(parametroA + parametroB * aleatorio.nextGaussian()));
+		default:
+			return 0L;
+		}
+	}
+
+	private static void exigirNaoNegativo(long valor, String nome) {
+		if (valor < 0) {
+			throw new IllegalArgumentException(nome + " não pode ser negativo.");
+		}
+	}
+}
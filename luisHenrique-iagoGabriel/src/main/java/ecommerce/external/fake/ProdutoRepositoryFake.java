@@ -0,0 +1,22 @@
+package ecommerce.external.fake;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import ecommerce.entity.Produto;
+import ecommerce.repository.ProdutoRepository;
+
+@Repository
+@Profile("inmemory")
+public class ProdutoRepositoryFake extends RepositorioEmMemoria<Produto> implements ProdutoRepository {
+
+    @Override
+    protected Long idDe(Produto entidade) {
+        return entidade.getId();
+    }
+
+    @Override
+    protected void atribuirId(Produto entidade, Long id) {
+        entidade.setId(id);
+    }
+}
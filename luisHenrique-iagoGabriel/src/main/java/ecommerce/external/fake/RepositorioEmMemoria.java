@@ -0,0 +1,449 @@
+package ecommerce.external.fake;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.data.util.DirectFieldAccessFallbackBeanWrapper;
+
+/**
+ * Base dos repositórios em memória (perfil {@code inmemory} e testes): mapa
+ * concorrente por id, geração de ids e um gancho para índices secundários, chamado
+ * dentro da atualização atômica da chave. As entidades são guardadas por
+ * referência, sem cópia nem isolamento entre transações. Ordenação e consultas por
+ * exemplo percorrem o mapa inteiro: servem ao perfil, não a volumes de banco.
+ */
+public abstract class RepositorioEmMemoria<T> implements JpaRepository<T, Long> {
+
+    protected final ConcurrentHashMap<Long, T> banco = new ConcurrentHashMap<>();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    protected abstract Long idDe(T entidade);
+
+    protected abstract void atribuirId(T entidade, Long id);
+
+    /** Mantém os índices secundários; {@code anterior} ou {@code atual} podem ser nulos. */
+    protected void indexar(T anterior, T atual) {
+    }
+
+    public void salvar(T entidade) {
+        save(entidade);
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        Long id = idDe(entity);
+        if (id == null) {
+            id = sequencia.incrementAndGet();
+            atribuirId(entity, id);
+        } else {
+            sequencia.accumulateAndGet(id, Math::max);
+        }
+        banco.compute(id, (chave, anterior) -> {
+            indexar(anterior, entity);
+            return entity;
+        });
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> salvas = new ArrayList<>();
+        entities.forEach(e -> salvas.add(save(e)));
+        return salvas;
+    }
+
+    @Override
+    public Optional<T> findById(Long aLong) {
+        return Optional.ofNullable(banco.get(aLong));
+    }
+
+    @Override
+    public boolean existsById(Long aLong) {
+        return banco.containsKey(aLong);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return new ArrayList<>(banco.values());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<Long> ids) {
+        List<T> encontradas = new ArrayList<>();
+        ids.forEach(id -> {
+            T entidade = banco.get(id);
+            if (entidade != null) {
+                encontradas.add(entidade);
+            }
+        });
+        return encontradas;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> ordenadas = banco.values().stream().sorted(Comparator.comparing(this::idDe)).toList();
+        return pagina(ordenadas, pageable, Function.identity());
+    }
+
+    @Override
+    public long count() {
+        return banco.size();
+    }
+
+    @Override
+    public void deleteById(Long aLong) {
+        banco.computeIfPresent(aLong, (chave, anterior) -> {
+            indexar(anterior, null);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(T entity) {
+        deleteById(idDe(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        banco.keySet().forEach(this::deleteById);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<T> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    @Deprecated
+    public T getOne(Long aLong) {
+        return banco.get(aLong);
+    }
+
+    @Override
+    @Deprecated
+    public T getById(Long aLong) {
+        return banco.get(aLong);
+    }
+
+    @Override
+    public T getReferenceById(Long aLong) {
+        return banco.get(aLong);
+    }
+
+    protected static <E, R> Page<R> pagina(List<E> ordenadas, Pageable pageable, Function<E, R> conversao) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(ordenadas.stream().map(conversao).toList());
+        }
+        int inicio = (int) Math.min(pageable.getOffset(), ordenadas.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), ordenadas.size());
+        return new PageImpl<>(ordenadas.subList(inicio, fim).stream().map(conversao).toList(), pageable,
+                ordenadas.size());
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return banco.values().stream().sorted(comparador(sort)).toList();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return filtrar(example).toList();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        return filtrar(example).sorted(comparador(sort)).toList();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return pagina(filtrar(example).sorted(comparador(pageable.getSort())).toList(), pageable,
+                Function.identity());
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return filtrar(example).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return filtrar(example).findAny().isPresent();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ConsultaFluente<>(filtrar(example).toList(), Sort.unsorted(), Integer.MAX_VALUE));
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return Optional.ofNullable(unico(filtrar(example).limit(2).toList()));
+    }
+
+    /**
+     * Entidades que casam com o exemplo, com a semântica do JPA: propriedades nulas da
+     * sonda ignoradas (ou exigidas nulas, com {@code includeNullValues}), textos pelo
+     * {@code StringMatcher} de cada caminho, associações comparadas propriedade a
+     * propriedade e coleções ignoradas.
+     */
+    @SuppressWarnings("unchecked")
+    private <S extends T> Stream<S> filtrar(Example<S> example) {
+        ExampleMatcher matcher = example.getMatcher();
+        ExampleMatcherAccessor acesso = new ExampleMatcherAccessor(matcher);
+        return banco.values().stream()
+                .filter(entidade -> example.getProbeType().isInstance(entidade))
+                .filter(entidade -> {
+                    List<Boolean> comparacoes = new ArrayList<>();
+                    comparar(acesso, "", example.getProbe(), entidade, comparacoes);
+                    return matcher.isAllMatching() ? !comparacoes.contains(false)
+                            : comparacoes.isEmpty() || comparacoes.contains(true);
+                })
+                .map(entidade -> (S) entidade);
+    }
+
+    private static void comparar(ExampleMatcherAccessor acesso, String prefixo, Object sonda, Object entidade,
+            List<Boolean> comparacoes) {
+        BeanWrapper propriedadesSonda = new DirectFieldAccessFallbackBeanWrapper(sonda);
+        for (PropertyDescriptor descritor : propriedadesSonda.getPropertyDescriptors()) {
+            String caminho = prefixo + descritor.getName();
+            if ("class".equals(descritor.getName()) || descritor.getReadMethod() == null
+                    || acesso.isIgnoredPath(caminho)) {
+                continue;
+            }
+            Object esperado = acesso.getValueTransformerForPath(caminho)
+                    .apply(Optional.ofNullable(propriedadesSonda.getPropertyValue(descritor.getName())))
+                    .orElse(null);
+            Object atual = entidade == null ? null : valor(entidade, descritor.getName());
+            if (esperado == null) {
+                if (acesso.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    comparacoes.add(atual == null);
+                }
+            } else if (esperado instanceof Collection<?> || esperado instanceof Map<?, ?>) {
+                continue;
+            } else if (esperado instanceof String texto) {
+                comparacoes.add(atual instanceof String alvo && casar(texto, alvo,
+                        acesso.getStringMatcherForPath(caminho), acesso.isIgnoreCaseForPath(caminho)));
+            } else if (BeanUtils.isSimpleValueType(esperado.getClass())) {
+                comparacoes.add(igual(esperado, atual));
+            } else if (atual == null) {
+                comparacoes.add(false);
+            } else {
+                comparar(acesso, caminho + ".", esperado, atual, comparacoes);
+            }
+        }
+    }
+
+    private static boolean casar(String esperado, String atual, ExampleMatcher.StringMatcher modo,
+            boolean ignorarCaixa) {
+        if (ignorarCaixa) {
+            esperado = esperado.toLowerCase(Locale.ROOT);
+            atual = atual.toLowerCase(Locale.ROOT);
+        }
+        switch (modo) {
+            case STARTING:
+                return atual.startsWith(esperado);
+            case ENDING:
+                return atual.endsWith(esperado);
+            case CONTAINING:
+                return atual.contains(esperado);
+            case REGEX:
+                return Pattern.compile(esperado).matcher(atual).matches();
+            default:
+                return atual.equals(esperado);
+        }
+    }
+
+    /** Como o banco: {@code 10.0} e {@code 10.00} são o mesmo número. */
+    private static boolean igual(Object esperado, Object atual) {
+        if (esperado instanceof BigDecimal decimal && atual instanceof BigDecimal outro) {
+            return decimal.compareTo(outro) == 0;
+        }
+        return Objects.equals(esperado, atual);
+    }
+
+    /** Ordena pelas propriedades do {@link Sort}; caminhos aninhados ({@code cliente.id}) valem. */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Comparator<Object> comparador(Sort sort) {
+        Comparator<Object> comparador = (a, b) -> 0;
+        for (Sort.Order ordem : sort) {
+            Comparator<Comparable> natural = Comparator.naturalOrder();
+            if (ordem.isDescending()) {
+                natural = natural.reversed();
+            }
+            boolean nulosPrimeiro = ordem.getNullHandling() == Sort.NullHandling.NATIVE ? ordem.isAscending()
+                    : ordem.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+            Comparator<Comparable> comNulos = nulosPrimeiro ? Comparator.nullsFirst(natural)
+                    : Comparator.nullsLast(natural);
+            comparador = comparador.thenComparing(entidade -> {
+                Object valor = valor(entidade, ordem.getProperty());
+                return (Comparable) (ordem.isIgnoreCase() && valor instanceof String texto
+                        ? texto.toLowerCase(Locale.ROOT) : valor);
+            }, comNulos);
+        }
+        return comparador;
+    }
+
+    private static Object valor(Object entidade, String caminho) {
+        Object atual = entidade;
+        for (String propriedade : caminho.split("\\.")) {
+            if (atual == null) {
+                return null;
+            }
+            atual = new DirectFieldAccessFallbackBeanWrapper(atual).getPropertyValue(propriedade);
+        }
+        return atual;
+    }
+
+    private static <S> S unico(List<S> encontradas) {
+        if (encontradas.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1);
+        }
+        return encontradas.isEmpty() ? null : encontradas.get(0);
+    }
+
+    /** {@link FetchableFluentQuery} sobre uma lista já filtrada; projeções só por interface. */
+    private static final class ConsultaFluente<S> implements FetchableFluentQuery<S> {
+
+        private static final ProjectionFactory PROJECOES = new SpelAwareProxyProjectionFactory();
+
+        private final List<S> resultados;
+        private final Sort sort;
+        private final int limite;
+
+        ConsultaFluente(List<S> resultados, Sort sort, int limite) {
+            this.resultados = resultados;
+            this.sort = sort;
+            this.limite = limite;
+        }
+
+        @Override
+        public FetchableFluentQuery<S> sortBy(Sort sort) {
+            return new ConsultaFluente<>(resultados, this.sort.and(sort), limite);
+        }
+
+        @Override
+        public FetchableFluentQuery<S> limit(int limite) {
+            if (limite < 0) {
+                throw new IllegalArgumentException("Limite não pode ser negativo.");
+            }
+            return new ConsultaFluente<>(resultados, sort, limite);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <R> FetchableFluentQuery<R> as(Class<R> tipo) {
+            if (resultados.stream().allMatch(tipo::isInstance)) {
+                return new ConsultaFluente<>((List<R>) resultados, sort, limite);
+            }
+            if (!tipo.isInterface()) {
+                throw new IllegalArgumentException("Projeção em memória só por interface: " + tipo.getName() + ".");
+            }
+            return new ConsultaFluente<>(resultados.stream().map(r -> PROJECOES.createProjection(tipo, r)).toList(),
+                    sort, limite);
+        }
+
+        @Override
+        public FetchableFluentQuery<S> project(Collection<String> propriedades) {
+            // As entidades em memória já estão inteiras; a lista de propriedades é só uma dica
+            return this;
+        }
+
+        @Override
+        public S oneValue() {
+            return unico(stream().limit(2).toList());
+        }
+
+        @Override
+        public S firstValue() {
+            return stream().findFirst().orElse(null);
+        }
+
+        @Override
+        public List<S> all() {
+            return stream().toList();
+        }
+
+        @Override
+        public Page<S> page(Pageable pageable) {
+            List<S> ordenadas = stream().toList();
+            return pagina(ordenadas, pageable, Function.identity());
+        }
+
+        @Override
+        public Stream<S> stream() {
+            return resultados.stream().sorted(comparador(sort)).limit(limite);
+        }
+
+        @Override
+        public long count() {
+            return Math.min(resultados.size(), limite);
+        }
+
+        @Override
+        public boolean exists() {
+            return limite > 0 && !resultados.isEmpty();
+        }
+    }
+}
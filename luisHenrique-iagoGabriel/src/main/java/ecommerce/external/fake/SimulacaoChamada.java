@@ -0,0 +1,83 @@
+package ecommerce.external.fake;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import ecommerce.external.FalhaServicoExternoException;
+
+/**
+ * Comportamento imutável aplicado a cada chamada de um simulador: espera uma
+ * latência amostrada do perfil e, conforme a configuração, esgota o tempo ou
+ * falha. Um timeout igual a zero desliga o tempo limite.
+ */
+public final class SimulacaoChamada {
+	public static final SimulacaoChamada SEM_EFEITO = new SimulacaoChamada(PerfilLatencia.NENHUMA, 0.0, 0L);
+
+	private final PerfilLatencia latencia;
+	private final double taxaFalha;
+	private final long timeoutMs;
+
+	public SimulacaoChamada(PerfilLatencia latencia, double taxaFalha, long timeoutMs) {
+		if (taxaFalha < 0.0 || taxaFalha > 1.0) {
+			throw new IllegalArgumentException("taxaFalha deve estar entre 0 e 1.");
+		}
+		if (timeoutMs < 0) {
+			throw new IllegalArgumentException("timeoutMs não pode ser negativo.");
+		}
+		this.latencia = latencia == null ? PerfilLatencia.NENHUMA : latencia;
+		this.taxaFalha = taxaFalha;
+		this.timeoutMs = timeoutMs;
+	}
+
+	public PerfilLatencia getLatencia() {
+		return latencia;
+	}
+
+	public double getTaxaFalha() {
+		return taxaFalha;
+	}
+
+	public long getTimeoutMs() {
+		return timeoutMs;
+	}
+
+	public void aplicar(String operacao) {
+		aplicar(operacao, ThreadLocalRandom.current());
+	}
+
+	void aplicar(String operacao, Random aleatorio) {
+		aplicar(operacao, aleatorio, ms -> dormir(operacao, ms));
+	}
+
+	/** Com a espera injetada, para os testes conferirem quanto a chamada esperaria sem dormir. */
+	void aplicar(String operacao, Random aleatorio, LongConsumer esperar) {
+		if (this == SEM_EFEITO) {
+			return;
+		}
+
+		long esperaMs = latencia.amostrarMs(aleatorio);
+		if (timeoutMs > 0 && esperaMs >= timeoutMs) {
+			esperar.accept(timeoutMs);
+			throw new FalhaServicoExternoException(operacao + ": tempo esgotado após " + timeoutMs + " ms.");
+		}
+		esperar.accept(esperaMs);
+
+		if (taxaFalha > 0.0 && aleatorio.nextDouble() < taxaFalha) {
+			throw new FalhaServicoExternoException(operacao + ": falha simulada.");
+		}
+	}
+
+	private static void dormir(String operacao, long ms) {
+		if (ms <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.MILLISECONDS.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FalhaServicoExternoException(operacao + ": chamada interrompida.");
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package ecommerce.external.fake;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Perfis dos simuladores de estoque e pagamento ({@code externos.simulacao.*}).
+ * Serviço sem configuração responde imediatamente e nunca falha.
+ */
+@ConfigurationProperties(prefix = "externos.simulacao")
+public record SimulacaoExternaProperties(Chamada estoque, Chamada pagamento) {
+
+	public record Chamada(PerfilLatencia.Distribuicao distribuicao, Long latenciaMs, Long desvioMs, Long p99Ms,
+			Double taxaFalha, Long timeoutMs) {
+
+		public SimulacaoChamada paraSimulacao() {
+			PerfilLatencia perfil = PerfilLatencia.de(distribuicao, valor(latenciaMs), valor(desvioMs), valor(p99Ms));
+			return new SimulacaoChamada(perfil, taxaFalha == null ? 0.0 : taxaFalha, valor(timeoutMs));
+		}
+
+		private static long valor(Long valor) {
+			return valor == null ? 0L : valor;
+		}
+	}
+
+	public SimulacaoChamada simulacaoEstoque() {
+		return estoque == null ? SimulacaoChamada.SEM_EFEITO : estoque.paraSimulacao();
+	}
+
+	public SimulacaoChamada simulacaoPagamento() {
+		return pagamento == null ? SimulacaoChamada.SEM_EFEITO : pagamento.paraSimulacao();
+	}
+}
@@ -0,0 +1,49 @@
+package ecommerce.external.http;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.rastreamento.Rastreador;
+import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import feign.jackson.JacksonDecoder;
+import feign.jackson.JacksonEncoder;
+
+/**
+ * Configuração própria dos clientes {@link EstoqueClient} e {@link PagamentoClient}
+ * (fora da varredura de componentes de propósito: vale só para eles). JSON direto
+ * pelo Jackson, com o ObjectMapper da aplicação, sem passar pelos
+ * HttpMessageConverters do Spring MVC; e o {@code traceparent} do span corrente
+ * propagado para o serviço chamado.
+ */
+public class ClientesHttpConfiguracao
+{
+
+	@Bean
+	public Encoder encoderExternos(ObjectMapper mapper)
+	{
+		return new JacksonEncoder(mapper);
+	}
+
+	@Bean
+	public Decoder decoderExternos(ObjectMapper mapper)
+	{
+		return new JacksonDecoder(mapper);
+	}
+
+	@Bean
+	public RequestInterceptor propagacaoTraceparent(ObjectProvider<Rastreador> rastreador)
+	{
+		return requisicao -> {
+			Rastreador disponivel = rastreador.getIfAvailable();
+			String traceparent = disponivel == null ? null : disponivel.traceparent();
+			if (traceparent != null)
+			{
+				requisicao.header(Rastreador.CABECALHO, traceparent);
+			}
+		};
+	}
+}
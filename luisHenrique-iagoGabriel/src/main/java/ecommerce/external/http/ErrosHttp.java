@@ -0,0 +1,19 @@
+package ecommerce.external.http;
+
+import ecommerce.external.FalhaServicoExternoException;
+import feign.FeignException;
+
+final class ErrosHttp
+{
+
+	private ErrosHttp()
+	{
+	}
+
+	/** Status conhecido (4xx/5xx) ou falha de comunicação (conexão, tempo esgotado; status negativo). */
+	static FalhaServicoExternoException falha(String operacao, FeignException e)
+	{
+		String motivo = e.status() > 0 ? "HTTP " + e.status() : "falha de comunicação (" + e.getMessage() + ")";
+		return new FalhaServicoExternoException(operacao + ": " + motivo + ".");
+	}
+}
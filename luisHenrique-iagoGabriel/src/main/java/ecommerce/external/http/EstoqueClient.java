@@ -0,0 +1,32 @@
+package ecommerce.external.http;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.LinhasEstoqueDTO;
+
+@FeignClient(name = "estoque", url = "${externos.estoque.url}", configuration = ClientesHttpConfiguracao.class)
+public interface EstoqueClient
+{
+
+	String CHAVE_IDEMPOTENCIA = "Idempotency-Key";
+
+	@PostMapping(path = "/estoque/disponibilidade", consumes = MediaType.APPLICATION_JSON_VALUE)
+	DisponibilidadeDTO verificarDisponibilidade(@RequestBody LinhasEstoqueDTO linhas);
+
+	@PostMapping(path = "/estoque/baixa", consumes = MediaType.APPLICATION_JSON_VALUE)
+	EstoqueBaixaDTO darBaixa(@RequestBody LinhasEstoqueDTO linhas);
+
+	@PostMapping(path = "/estoque/baixa", consumes = MediaType.APPLICATION_JSON_VALUE)
+	EstoqueBaixaDTO darBaixa(@RequestHeader(CHAVE_IDEMPOTENCIA) String chave, @RequestBody LinhasEstoqueDTO linhas);
+
+	/** Desfaz a baixa feita com a chave, se houver; sem ela, impede que a chave dê baixa depois. */
+	@PostMapping("/estoque/baixas/idempotencia/{chave}/estorno")
+	void estornarPorChave(@PathVariable("chave") String chave);
+}
@@ -0,0 +1,103 @@
+package ecommerce.external.http;
+
+import java.util.List;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.LinhasEstoqueDTO;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.LinhasPedido;
+import feign.FeignException;
+
+/**
+ * Estoque real por HTTP ({@code externos.modo=http}). Implementa as variantes de
+ * {@link LinhasPedido} de forma nativa: os arrays vão direto para o corpo JSON; as
+ * de listas consolidam primeiro. Erros HTTP e de comunicação viram
+ * {@link FalhaServicoExternoException}, como nos simuladores.
+ *
+ * <p>A baixa do checkout vai com a chave de idempotência no cabeçalho
+ * {@value EstoqueClient#CHAVE_IDEMPOTENCIA}. Sem resposta (tempo esgotado, conexão
+ * perdida) ou com 5xx, o estoque pode ter baixado mesmo assim, e o checkout estorna o
+ * pagamento ao receber a falha: a baixa é desfeita pela chave antes de a falha
+ * propagar. Se o estorno também falhar, a falha dele fica suprimida na original, com
+ * a chave, para a conciliação.
+ */
+public class EstoqueHttp implements IEstoqueExternalPrimitivo
+{
+
+	private final EstoqueClient cliente;
+
+	public EstoqueHttp(EstoqueClient cliente)
+	{
+		this.cliente = cliente;
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(LinhasPedido linhas)
+	{
+		try
+		{
+			return cliente.verificarDisponibilidade(LinhasEstoqueDTO.de(linhas));
+		}
+		catch (FeignException e)
+		{
+			throw ErrosHttp.falha("estoque.verificarDisponibilidade", e);
+		}
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(LinhasPedido linhas)
+	{
+		try
+		{
+			return cliente.darBaixa(LinhasEstoqueDTO.de(linhas));
+		}
+		catch (FeignException e)
+		{
+			throw ErrosHttp.falha("estoque.darBaixa", e);
+		}
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(LinhasPedido linhas, String chaveIdempotencia)
+	{
+		try
+		{
+			return cliente.darBaixa(chaveIdempotencia, LinhasEstoqueDTO.de(linhas));
+		}
+		catch (FeignException e)
+		{
+			FalhaServicoExternoException falha = ErrosHttp.falha("estoque.darBaixa", e);
+			if (e.status() <= 0 || e.status() >= 500)
+			{
+				estornarPorChave(chaveIdempotencia, falha);
+			}
+			throw falha;
+		}
+	}
+
+	private void estornarPorChave(String chaveIdempotencia, FalhaServicoExternoException falha)
+	{
+		try
+		{
+			cliente.estornarPorChave(chaveIdempotencia);
+		}
+		catch (FeignException e)
+		{
+			falha.addSuppressed(ErrosHttp.falha("estoque.estornarPorChave(" + chaveIdempotencia + ")", e));
+		}
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return verificarDisponibilidade(LinhasPedido.de(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return darBaixa(LinhasPedido.de(produtosIds, produtosQuantidades));
+	}
+}
@@ -0,0 +1,30 @@
+package ecommerce.external.http;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+
+@FeignClient(name = "pagamento", url = "${externos.pagamento.url}", configuration = ClientesHttpConfiguracao.class)
+public interface PagamentoClient
+{
+
+	String CHAVE_IDEMPOTENCIA = "Idempotency-Key";
+
+	@PostMapping(path = "/pagamentos/autorizacao", consumes = MediaType.APPLICATION_JSON_VALUE)
+	PagamentoDTO autorizar(@RequestHeader(CHAVE_IDEMPOTENCIA) String chave,
+			@RequestBody AutorizacaoPagamentoDTO autorizacao);
+
+	@PostMapping("/pagamentos/{transacaoId}/cancelamento")
+	void cancelar(@PathVariable("transacaoId") Long transacaoId, @RequestParam("clienteId") Long clienteId);
+
+	/** Cancela a autorização feita com a chave, se houver; sem ela, impede que a chave autorize depois. */
+	@PostMapping("/pagamentos/idempotencia/{chave}/cancelamento")
+	void cancelarPorChave(@PathVariable("chave") String chave, @RequestParam("clienteId") Long clienteId);
+}
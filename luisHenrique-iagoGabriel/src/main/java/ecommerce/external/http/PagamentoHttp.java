@@ -0,0 +1,72 @@
+package ecommerce.external.http;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.IPagamentoExternal;
+import feign.FeignException;
+
+/**
+ * Pagamento real por HTTP ({@code externos.modo=http}). Erros HTTP e de
+ * comunicação viram {@link FalhaServicoExternoException}.
+ *
+ * <p>A autorização vai com a chave de idempotência no cabeçalho
+ * {@value PagamentoClient#CHAVE_IDEMPOTENCIA}. Sem resposta (tempo esgotado,
+ * conexão perdida) ou com 5xx, o provedor pode ter autorizado mesmo assim e o
+ * checkout não teria o id da transação para estornar: a autorização é cancelada
+ * pela chave antes de a falha propagar. Se o cancelamento também falhar, a falha
+ * dele fica suprimida na original, para a conciliação.
+ */
+public class PagamentoHttp implements IPagamentoExternal
+{
+
+	private final PagamentoClient cliente;
+
+	public PagamentoHttp(PagamentoClient cliente)
+	{
+		this.cliente = cliente;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia)
+	{
+		try
+		{
+			return cliente.autorizar(chaveIdempotencia, new AutorizacaoPagamentoDTO(clienteId, custoTotal));
+		}
+		catch (FeignException e)
+		{
+			FalhaServicoExternoException falha = ErrosHttp.falha("pagamento.autorizarPagamento", e);
+			if (e.status() <= 0 || e.status() >= 500)
+			{
+				cancelarPorChave(clienteId, chaveIdempotencia, falha);
+			}
+			throw falha;
+		}
+	}
+
+	private void cancelarPorChave(Long clienteId, String chaveIdempotencia, FalhaServicoExternoException falha)
+	{
+		try
+		{
+			cliente.cancelarPorChave(chaveIdempotencia, clienteId);
+		}
+		catch (FeignException e)
+		{
+			falha.addSuppressed(ErrosHttp.falha("pagamento.cancelarPorChave", e));
+		}
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		try
+		{
+			cliente.cancelar(pagamentoTransacaoId, clienteId);
+		}
+		catch (FeignException e)
+		{
+			throw ErrosHttp.falha("pagamento.cancelarPagamento", e);
+		}
+	}
+}
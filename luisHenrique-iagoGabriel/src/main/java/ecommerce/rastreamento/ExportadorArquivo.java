@@ -0,0 +1,208 @@
+package ecommerce.rastreamento;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Grava um span por linha (NDJSON) num arquivo local, acrescentando ao final. O
+ * arquivo só é criado no primeiro rastro exportado.
+ *
+ * <p>Quem finaliza a raiz só enfileira: uma thread própria serializa, grava e dá
+ * flush quando a fila esvazia. A fila é limitada; cheia, o rastro é recusado com
+ * {@link RejectedExecutionException} (e contado como descartado pelo
+ * {@link Rastreador}) em vez de segurar a requisição. {@link #close()} grava o que
+ * já estava na fila.
+ */
+public class ExportadorArquivo implements ExportadorSpans, Closeable
+{
+	private static final Logger log = LoggerFactory.getLogger(ExportadorArquivo.class);
+
+	public static final int CAPACIDADE_FILA_PADRAO = 1024;
+
+	private record Lote(Rastreador.Motivo motivo, List<Span> spans)
+	{
+	}
+
+	private static final Lote FIM = new Lote(null, List.of());
+
+	private final Path arquivo;
+	private final ObjectMapper json = new ObjectMapper();
+	private final BlockingQueue<Lote> fila;
+	private final Thread gravador;
+	private final LongAdder falhas = new LongAdder();
+	private volatile boolean encerrado;
+	private BufferedWriter saida;
+
+	public ExportadorArquivo(Path arquivo)
+	{
+		this(arquivo, CAPACIDADE_FILA_PADRAO);
+	}
+
+	public ExportadorArquivo(Path arquivo, int capacidadeFila)
+	{
+		if (capacidadeFila < 1)
+		{
+			throw new IllegalArgumentException("Capacidade da fila deve ser ao menos 1.");
+		}
+		this.arquivo = arquivo;
+		this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+		this.gravador = new Thread(this::gravar, "rastreamento-exportador");
+		this.gravador.setDaemon(true);
+		// Não herda o class loader do Tomcat de quem criou o bean
+		this.gravador.setContextClassLoader(ExportadorArquivo.class.getClassLoader());
+		this.gravador.start();
+	}
+
+	@Override
+	public void exportar(Rastreador.Motivo motivo, List<Span> spans)
+	{
+		if (encerrado || !fila.offer(new Lote(motivo, spans)))
+		{
+			throw new RejectedExecutionException("Fila do exportador de spans cheia.");
+		}
+	}
+
+	/** Lotes que não chegaram ao arquivo por erro de E/S. */
+	public long falhas()
+	{
+		return falhas.sum();
+	}
+
+	private void gravar()
+	{
+		try
+		{
+			Lote lote;
+			while ((lote = fila.take()) != FIM)
+			{
+				escrever(lote);
+				if (fila.isEmpty())
+				{
+					descarregar();
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			fechar();
+		}
+	}
+
+	private void escrever(Lote lote)
+	{
+		try
+		{
+			if (saida == null)
+			{
+				Path diretorio = arquivo.toAbsolutePath().getParent();
+				if (diretorio != null)
+				{
+					Files.createDirectories(diretorio);
+				}
+				saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			for (Span span : lote.spans())
+			{
+				saida.write(linha(lote.motivo(), span));
+				saida.newLine();
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			falhas.increment();
+			log.warn("Falha ao gravar spans em {}: {}", arquivo, e.toString());
+		}
+	}
+
+	private void descarregar()
+	{
+		if (saida == null)
+		{
+			return;
+		}
+		try
+		{
+			saida.flush();
+		}
+		catch (IOException e)
+		{
+			falhas.increment();
+			log.warn("Falha ao gravar spans em {}: {}", arquivo, e.toString());
+		}
+	}
+
+	private void fechar()
+	{
+		if (saida == null)
+		{
+			return;
+		}
+		try
+		{
+			saida.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Falha ao fechar {}: {}", arquivo, e.toString());
+		}
+		saida = null;
+	}
+
+	private String linha(Rastreador.Motivo motivo, Span span) throws JsonProcessingException
+	{
+		Map<String, Object> campos = new LinkedHashMap<>();
+		campos.put("traceId", span.traceId());
+		campos.put("spanId", span.spanId());
+		campos.put("paiId", span.paiId());
+		campos.put("nome", span.nome());
+		campos.put("inicioEpochMicros", span.inicioEpochMicros());
+		campos.put("duracaoMicros", span.duracaoNanos() / 1_000);
+		campos.put("erro", span.erro());
+		campos.put("motivo", motivo.name());
+		return json.writeValueAsString(campos);
+	}
+
+	/** Para de aceitar rastros e espera a thread gravar os que já estavam na fila. */
+	@Override
+	public void close() throws IOException
+	{
+		if (encerrado)
+		{
+			return;
+		}
+		encerrado = true;
+		try
+		{
+			fila.put(FIM);
+			gravador.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			gravador.interrupt();
+		}
+	}
+}
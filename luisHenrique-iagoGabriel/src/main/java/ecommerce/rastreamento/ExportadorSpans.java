@@ -0,0 +1,18 @@
+package ecommerce.rastreamento;
+
+import java.util.List;
+
+/**
+ * Destino dos rastros amostrados. Recebe os spans de um rastro de uma vez, na
+ * thread que finalizou a raiz; implementações lentas devem enfileirar e, com a
+ * fila cheia, recusar com {@link java.util.concurrent.RejectedExecutionException}.
+ */
+@FunctionalInterface
+public interface ExportadorSpans
+{
+
+	ExportadorSpans NENHUM = (motivo, spans) -> {
+	};
+
+	void exportar(Rastreador.Motivo motivo, List<Span> spans);
+}
@@ -0,0 +1,58 @@
+package ecommerce.rastreamento;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Abre a raiz do rastro de cada requisição, continuando o {@code traceparent}
+ * recebido, e devolve o contexto no mesmo cabeçalho da resposta. Respostas 5xx
+ * marcam o rastro como falho. Os endpoints do Actuator ficam de fora.
+ */
+public class FiltroRastreamento extends OncePerRequestFilter
+{
+
+	private final Rastreador rastreador;
+
+	public FiltroRastreamento(Rastreador rastreador)
+	{
+		this.rastreador = rastreador;
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request)
+	{
+		return request.getRequestURI().startsWith("/actuator");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException
+	{
+		Span raiz = rastreador.iniciarRaiz(request.getMethod() + " " + request.getRequestURI(),
+				request.getHeader(Rastreador.CABECALHO));
+		response.setHeader(Rastreador.CABECALHO, rastreador.traceparent());
+		try
+		{
+			chain.doFilter(request, response);
+			if (response.getStatus() >= 500)
+			{
+				raiz.marcarErro("HTTP " + response.getStatus());
+			}
+		}
+		catch (IOException | ServletException | RuntimeException e)
+		{
+			raiz.marcarErro(e);
+			throw e;
+		}
+		finally
+		{
+			raiz.finalizar();
+		}
+	}
+}
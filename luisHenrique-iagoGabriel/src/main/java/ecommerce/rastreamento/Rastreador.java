@@ -0,0 +1,222 @@
+package ecommerce.rastreamento;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cria spans e decide quais rastros exportar:
+ * <ul>
+ * <li>na cabeça, ao abrir a raiz: segue o bit "sampled" do traceparent recebido ou,
+ * sem ele, sorteia com a taxa configurada;</li>
+ * <li>na cauda, ao fechar a raiz: rastros que falharam ou passaram do limite de
+ * lentidão são exportados mesmo sem a amostragem na cabeça.</li>
+ * </ul>
+ * O contexto é propagado por thread; spans filhos só existem dentro de um rastro
+ * (fora dele {@link #iniciar} devolve {@link Span#NENHUM} sem alocar) e o contexto
+ * segue para chamadas de saída no formato W3C de {@link #traceparent()}. Tarefas
+ * entregues a outras threads levam o contexto por {@link #propagar(Runnable)}.
+ */
+public class Rastreador
+{
+
+	public enum Motivo
+	{
+		CABECA, ERRO, LENTO
+	}
+
+	public static final String CABECALHO = "traceparent";
+
+	private static final Logger log = LoggerFactory.getLogger(Rastreador.class);
+
+	private static final ThreadLocal<Span> ATUAL = new ThreadLocal<>();
+
+	private final double taxaAmostragem;
+	private final long limiteLentoNanos;
+	private final ExportadorSpans exportador;
+	private final LongAdder exportados = new LongAdder();
+	private final LongAdder descartados = new LongAdder();
+
+	public Rastreador(double taxaAmostragem, Duration limiteLento, ExportadorSpans exportador)
+	{
+		if (taxaAmostragem < 0.0 || taxaAmostragem > 1.0)
+		{
+			throw new IllegalArgumentException("Taxa de amostragem deve estar entre 0 e 1.");
+		}
+		this.taxaAmostragem = taxaAmostragem;
+		this.limiteLentoNanos = limiteLento.toNanos();
+		this.exportador = exportador;
+	}
+
+	/**
+	 * Abre a raiz do rastro desta thread, continuando o rastro remoto quando
+	 * {@code traceparent} é válido.
+	 */
+	public Span iniciarRaiz(String nome, String traceparent)
+	{
+		String traceId = null;
+		String paiId = null;
+		boolean amostrado;
+		if (valido(traceparent))
+		{
+			traceId = traceparent.substring(3, 35);
+			paiId = traceparent.substring(36, 52);
+			amostrado = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+		}
+		else
+		{
+			amostrado = ThreadLocalRandom.current().nextDouble() < taxaAmostragem;
+		}
+		Rastro rastro = new Rastro(this, traceId != null ? traceId : novoId(2), amostrado);
+		Span raiz = new Span(rastro, novoId(1), paiId, nome, ATUAL.get());
+		ATUAL.set(raiz);
+		return raiz;
+	}
+
+	/** Span filho do corrente, ou {@link Span#NENHUM} fora de um rastro. */
+	public Span iniciar(String nome)
+	{
+		Span pai = ATUAL.get();
+		if (pai == null)
+		{
+			return Span.NENHUM;
+		}
+		Span span = new Span(pai.rastro(), novoId(1), pai.spanId(), nome, pai);
+		ATUAL.set(span);
+		return span;
+	}
+
+	/**
+	 * A tarefa com o span corrente desta thread, para rodar em outra; fora de um
+	 * rastro, a própria tarefa. Os spans abertos lá são filhos do corrente e saem no
+	 * rastro se terminarem antes da raiz; depois dela, só o contexto segue adiante
+	 * (no {@link #traceparent()} das chamadas de saída).
+	 */
+	public static Runnable propagar(Runnable tarefa)
+	{
+		Span capturado = ATUAL.get();
+		if (capturado == null)
+		{
+			return tarefa;
+		}
+		return () -> {
+			Span anterior = ATUAL.get();
+			ATUAL.set(capturado);
+			try
+			{
+				tarefa.run();
+			}
+			finally
+			{
+				restaurar(anterior);
+			}
+		};
+	}
+
+	public boolean ativo()
+	{
+		return ATUAL.get() != null;
+	}
+
+	/** Contexto do span corrente para uma chamada de saída; nulo fora de um rastro. */
+	public String traceparent()
+	{
+		Span atual = ATUAL.get();
+		if (atual == null)
+		{
+			return null;
+		}
+		return "00-" + atual.traceId() + "-" + atual.spanId() + (atual.rastro().amostradoNaCabeca() ? "-01" : "-00");
+	}
+
+	public long exportados()
+	{
+		return exportados.sum();
+	}
+
+	public long descartados()
+	{
+		return descartados.sum();
+	}
+
+	void concluir(Rastro rastro, Span raiz, List<Span> spans)
+	{
+		Motivo motivo = rastro.amostradoNaCabeca() ? Motivo.CABECA
+				: rastro.falhou() ? Motivo.ERRO
+				: raiz.duracaoNanos() >= limiteLentoNanos ? Motivo.LENTO : null;
+		if (motivo == null)
+		{
+			descartados.increment();
+			return;
+		}
+		try
+		{
+			exportador.exportar(motivo, spans);
+			exportados.increment();
+		}
+		catch (RejectedExecutionException e)
+		{
+			// Exportador saturado: descartar é o combinado, não um erro a cada rastro
+			descartados.increment();
+		}
+		catch (RuntimeException e)
+		{
+			descartados.increment();
+			log.warn("Falha ao exportar o rastro {}: {}", rastro.traceId(), e.toString());
+		}
+	}
+
+	static void restaurar(Span anterior)
+	{
+		if (anterior == null)
+		{
+			ATUAL.remove();
+		}
+		else
+		{
+			ATUAL.set(anterior);
+		}
+	}
+
+	static long agoraEpochMicros()
+	{
+		Instant agora = Instant.now();
+		return agora.getEpochSecond() * 1_000_000L + agora.getNano() / 1_000;
+	}
+
+	private static boolean valido(String traceparent)
+	{
+		if (traceparent == null || traceparent.length() != 55 || !traceparent.startsWith("00-")
+				|| traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-')
+		{
+			return false;
+		}
+		for (int i = 3; i < 55; i++)
+		{
+			if (i != 35 && i != 52 && Character.digit(traceparent.charAt(i), 16) < 0)
+			{
+				return false;
+			}
+		}
+		return !traceparent.startsWith("00-00000000000000000000000000000000")
+				&& !traceparent.regionMatches(36, "0000000000000000", 0, 16);
+	}
+
+	private static String novoId(int longs)
+	{
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		StringBuilder id = new StringBuilder(longs * 16);
+		for (int i = 0; i < longs; i++)
+		{
+			String hex = Long.toHexString(aleatorio.nextLong() | (i == longs - 1 ? 1L : 0L));
+			id.append("0".repeat(16 - hex.length())).append(hex);
+		}
+		return id.toString();
+	}
+}
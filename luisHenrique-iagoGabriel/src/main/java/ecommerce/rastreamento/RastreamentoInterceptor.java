@@ -0,0 +1,51 @@
+package ecommerce.rastreamento;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Span em volta de cada chamada do bean interceptado, nomeado
+ * {@code <componente>.<método>}. Fora de um rastro a chamada segue direto.
+ */
+public class RastreamentoInterceptor implements MethodInterceptor
+{
+
+	private final String componente;
+	private final Rastreador rastreador;
+	private final ConcurrentMap<Method, String> nomes = new ConcurrentHashMap<>();
+
+	public RastreamentoInterceptor(String componente, Rastreador rastreador)
+	{
+		this.componente = componente;
+		this.rastreador = rastreador;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocacao) throws Throwable
+	{
+		Method metodo = invocacao.getMethod();
+		if (!rastreador.ativo() || metodo.getDeclaringClass() == Object.class)
+		{
+			return invocacao.proceed();
+		}
+
+		Span span = rastreador.iniciar(nomes.computeIfAbsent(metodo, m -> componente + "." + m.getName()));
+		try
+		{
+			return invocacao.proceed();
+		}
+		catch (Throwable e)
+		{
+			span.marcarErro(e);
+			throw e;
+		}
+		finally
+		{
+			span.finalizar();
+		}
+	}
+}
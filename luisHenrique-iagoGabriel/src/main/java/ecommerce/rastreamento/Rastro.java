@@ -0,0 +1,76 @@
+package ecommerce.rastreamento;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spans de um rastro neste processo, guardados até a raiz terminar: só então se
+ * sabe se o rastro foi lento ou falhou (amostragem na cauda).
+ */
+final class Rastro
+{
+
+	/** Limite de spans guardados por rastro; o excedente é descartado e contado. */
+	static final int MAX_SPANS = 512;
+
+	private final Rastreador rastreador;
+	private final String traceId;
+	private final boolean amostradoNaCabeca;
+	private final List<Span> spans = new ArrayList<>(8);
+	private volatile boolean falhou;
+	private int descartados;
+
+	Rastro(Rastreador rastreador, String traceId, boolean amostradoNaCabeca)
+	{
+		this.rastreador = rastreador;
+		this.traceId = traceId;
+		this.amostradoNaCabeca = amostradoNaCabeca;
+	}
+
+	String traceId()
+	{
+		return traceId;
+	}
+
+	boolean amostradoNaCabeca()
+	{
+		return amostradoNaCabeca;
+	}
+
+	boolean falhou()
+	{
+		return falhou;
+	}
+
+	void marcarFalha()
+	{
+		falhou = true;
+	}
+
+	synchronized void adicionar(Span span)
+	{
+		if (spans.size() < MAX_SPANS)
+		{
+			spans.add(span);
+		}
+		else
+		{
+			descartados++;
+		}
+	}
+
+	synchronized int descartados()
+	{
+		return descartados;
+	}
+
+	void concluir(Span raiz)
+	{
+		List<Span> copia;
+		synchronized (this)
+		{
+			copia = List.copyOf(spans);
+		}
+		rastreador.concluir(this, raiz, copia);
+	}
+}
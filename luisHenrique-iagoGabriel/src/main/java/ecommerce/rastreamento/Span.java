@@ -0,0 +1,103 @@
+package ecommerce.rastreamento;
+
+/**
+ * Um trecho de um rastro. Criado por {@link Rastreador}, vira o span corrente da
+ * thread até {@link #finalizar()}, que restaura o anterior. {@link #NENHUM} é
+ * devolvido quando não há rastro em curso e ignora todas as chamadas.
+ */
+public final class Span
+{
+
+	public static final Span NENHUM = new Span(null, null, null, null, null);
+
+	private final Rastro rastro;
+	private final String spanId;
+	private final String paiId;
+	private final String nome;
+	private final Span anterior;
+	private final long inicioNanos;
+	private final long inicioEpochMicros;
+	private long duracaoNanos = -1L;
+	private String erro;
+
+	Span(Rastro rastro, String spanId, String paiId, String nome, Span anterior)
+	{
+		this.rastro = rastro;
+		this.spanId = spanId;
+		this.paiId = paiId;
+		this.nome = nome;
+		this.anterior = anterior;
+		this.inicioEpochMicros = rastro == null ? 0L : Rastreador.agoraEpochMicros();
+		this.inicioNanos = System.nanoTime();
+	}
+
+	public void marcarErro(Throwable e)
+	{
+		marcarErro(e.getClass().getSimpleName());
+	}
+
+	public void marcarErro(String descricao)
+	{
+		if (rastro != null)
+		{
+			erro = descricao;
+			rastro.marcarFalha();
+		}
+	}
+
+	public void finalizar()
+	{
+		if (rastro == null || duracaoNanos >= 0)
+		{
+			return;
+		}
+		duracaoNanos = System.nanoTime() - inicioNanos;
+		Rastreador.restaurar(anterior);
+		rastro.adicionar(this);
+		if (anterior == null || anterior.rastro != rastro)
+		{
+			rastro.concluir(this);
+		}
+	}
+
+	Rastro rastro()
+	{
+		return rastro;
+	}
+
+	public String traceId()
+	{
+		return rastro == null ? null : rastro.traceId();
+	}
+
+	public String spanId()
+	{
+		return spanId;
+	}
+
+	/** Nulo na raiz de um rastro iniciado aqui; o span remoto quando veio num traceparent. */
+	public String paiId()
+	{
+		return paiId;
+	}
+
+	public String nome()
+	{
+		return nome;
+	}
+
+	public long inicioEpochMicros()
+	{
+		return inicioEpochMicros;
+	}
+
+	public long duracaoNanos()
+	{
+		return duracaoNanos;
+	}
+
+	public String erro()
+	{
+		return erro;
+	}
+}
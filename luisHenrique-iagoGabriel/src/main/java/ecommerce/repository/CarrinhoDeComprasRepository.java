@@ -1,16 +1,46 @@
 package ecommerce.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface CarrinhoDeComprasRepository extends JpaRepository<CarrinhoDeCompras, Long>
 {
 
+	/** Com itens e produtos: o checkout os usa depois que a transação da leitura termina. */
+	@EntityGraph(attributePaths = { "itens", "itens.produto" })
 	Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente);
+
+	/**
+	 * Compare-and-set da versão: incrementa apenas se ela ainda for
+	 * {@code versaoLida}. Retorna 0 quando outra transação alterou o carrinho.
+	 * Limpa o contexto de persistência, cujas cópias ficariam com a versão antiga.
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query("update CarrinhoDeCompras c set c.versao = coalesce(c.versao, 0) + 1"
+			+ " where c.id = :id and c.cliente = :cliente and coalesce(c.versao, 0) = :versaoLida")
+	int incrementarVersao(@Param("id") Long id, @Param("cliente") Cliente cliente,
+			@Param("versaoLida") long versaoLida);
+
+	/**
+	 * Carrinhos com itens e produtos numa consulta só, sem cópia para verificação
+	 * de alterações: para precificar em massa, não para alterar.
+	 */
+	@Query("select distinct c from CarrinhoDeCompras c left join fetch c.itens i left join fetch i.produto"
+			+ " where c.id in :ids")
+	@QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+	List<CarrinhoDeCompras> buscarComItens(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,25 @@
+package ecommerce.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import ecommerce.entity.Pedido;
+
+@Repository
+public interface PedidoRepository extends JpaRepository<Pedido, Long>
+{
+
+	List<Pedido> findByClienteIdOrderByDataHoraDesc(Long clienteId, Pageable pageable);
+
+	Optional<Pedido> findByCodigo(String codigo);
+
+	@Query("select p.codigo from Pedido p where p.codigo in :codigos")
+	List<String> findCodigosExistentes(@Param("codigos") Collection<String> codigos);
+}
@@ -0,0 +1,145 @@
+package ecommerce.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.config.AnelFragmentos;
+import ecommerce.config.ContextoFragmento;
+
+/**
+ * Move para as tabelas de arquivo os carrinhos mais antigos que a idade
+ * configurada. Percorre a tabela por keyset (id crescente) em lotes de tamanho
+ * fixo e cada lote é movido com quatro comandos em massa numa transação própria,
+ * de modo que a memória usada não depende do tamanho da tabela. Com a persistência
+ * fragmentada, cada fragmento é arquivado por vez, no próprio arquivo. Os donos dos
+ * carrinhos de cada lote saem num {@link CarrinhosAlteradosEvento}.
+ */
+@Service
+@Profile("!inmemory")
+public class ArquivamentoCarrinhosService
+{
+	private static final Logger log = LoggerFactory.getLogger(ArquivamentoCarrinhosService.class);
+
+	private static final String SELECIONAR_LOTE = "select id, cliente_id from carrinho_de_compras"
+			+ " where data < ? and id > ? order by id fetch first ? rows only";
+
+	private record Selecionado(Long id, Long clienteId)
+	{
+	}
+
+	private final JdbcTemplate jdbc;
+	private final TransactionTemplate transacao;
+	private final int tamanhoLote;
+	private final int idadeDias;
+	private final boolean habilitado;
+	private final List<String> fragmentos;
+	private final ApplicationEventPublisher eventos;
+
+	public ArquivamentoCarrinhosService(JdbcTemplate jdbc, TransactionTemplate transacao, int tamanhoLote,
+			int idadeDias, boolean habilitado)
+	{
+		this(jdbc, transacao, tamanhoLote, idadeDias, habilitado, null, evento -> {
+		});
+	}
+
+	@Autowired
+	public ArquivamentoCarrinhosService(JdbcTemplate jdbc, TransactionTemplate transacao,
+			@Value("${carrinhos.arquivamento.tamanho-lote:500}") int tamanhoLote,
+			@Value("${carrinhos.arquivamento.idade-dias:90}") int idadeDias,
+			@Value("${carrinhos.arquivamento.habilitado:true}") boolean habilitado,
+			ObjectProvider<AnelFragmentos> anel, ApplicationEventPublisher eventos)
+	{
+		this.jdbc = jdbc;
+		this.transacao = transacao;
+		this.tamanhoLote = tamanhoLote;
+		this.idadeDias = idadeDias;
+		this.habilitado = habilitado;
+		AnelFragmentos fragmentado = anel == null ? null : anel.getIfAvailable();
+		this.fragmentos = fragmentado == null ? List.of() : fragmentado.nomes();
+		this.eventos = eventos;
+	}
+
+	@Scheduled(cron = "${carrinhos.arquivamento.cron:0 0 3 * * *}")
+	public void executarAgendado()
+	{
+		if (habilitado)
+		{
+			arquivar(LocalDate.now().minusDays(idadeDias));
+		}
+	}
+
+	/** Arquiva os carrinhos com data anterior a {@code limite}; retorna quantos foram movidos. */
+	public long arquivar(LocalDate limite)
+	{
+		if (fragmentos.isEmpty())
+		{
+			return arquivarBanco(limite);
+		}
+		long total = 0;
+		for (String fragmento : fragmentos)
+		{
+			total += ContextoFragmento.executarEm(fragmento, () -> arquivarBanco(limite));
+		}
+		return total;
+	}
+
+	private long arquivarBanco(LocalDate limite)
+	{
+		long inicio = System.nanoTime();
+		long ultimoId = 0;
+		long total = 0;
+
+		List<Selecionado> selecionados;
+		while (!(selecionados = jdbc.query(SELECIONAR_LOTE,
+				(rs, linha) -> new Selecionado(rs.getLong(1), rs.getObject(2, Long.class)), limite, ultimoId,
+				tamanhoLote)).isEmpty())
+		{
+			List<Long> lote = selecionados.stream().map(Selecionado::id).toList();
+			transacao.executeWithoutResult(status -> moverLote(lote));
+			eventos.publishEvent(new CarrinhosAlteradosEvento(
+					selecionados.stream().map(Selecionado::clienteId).filter(Objects::nonNull).distinct().toList()));
+
+			ultimoId = lote.get(lote.size() - 1);
+			total += lote.size();
+		}
+
+		log.info("Arquivamento de carrinhos anteriores a {}: {} carrinho(s) em {} ms.", limite, total,
+				(System.nanoTime() - inicio) / 1_000_000);
+		return total;
+	}
+
+	private void moverLote(List<Long> ids)
+	{
+		String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+		Object[] parametros = ids.toArray();
+
+		Object[] parametrosCarrinho = new Object[ids.size() + 1];
+		parametrosCarrinho[0] = Timestamp.valueOf(LocalDateTime.now());
+		System.arraycopy(parametros, 0, parametrosCarrinho, 1, parametros.length);
+
+		jdbc.update("insert into carrinho_de_compras_arquivo (id, cliente_id, data, arquivado_em)"
+				+ " select id, cliente_id, data, ? from carrinho_de_compras where id in (" + marcadores + ")",
+				parametrosCarrinho);
+		jdbc.update("insert into item_compra_arquivo (id, carrinho_id, produto_id, quantidade)"
+				+ " select id, carrinho_id, produto_id, quantidade from item_compra where carrinho_id in ("
+				+ marcadores + ")", parametros);
+		jdbc.update("delete from item_compra where carrinho_id in (" + marcadores + ")", parametros);
+		jdbc.update("delete from carrinho_de_compras where id in (" + marcadores + ")", parametros);
+	}
+}
@@ -0,0 +1,14 @@
+package ecommerce.service;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.external.LinhasPedido;
+
+/**
+ * Resultado de {@link CompraService#carregar}: o carrinho lido e validado, já
+ * reservado quando válido. {@code linhas} é nulo e {@code versaoReservada} é zero
+ * para carrinho rejeitado.
+ */
+public record CarrinhoCarregado(Long clienteId, CarrinhoDeCompras carrinho, ResultadoValidacao validacao,
+		LinhasPedido linhas, long versaoReservada)
+{
+}
@@ -1,7 +1,12 @@
 package ecommerce.service;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
@@ -11,16 +16,64 @@ import ecommerce.repository.CarrinhoDeComprasRepository;
 public class CarrinhoDeComprasService
 {
 	private final CarrinhoDeComprasRepository repository;
+	private final ApplicationEventPublisher eventos;
 
-	@Autowired
 	public CarrinhoDeComprasService(CarrinhoDeComprasRepository repository)
+	{
+		this(repository, evento -> {
+		});
+	}
+
+	@Autowired
+	public CarrinhoDeComprasService(CarrinhoDeComprasRepository repository, ApplicationEventPublisher eventos)
 	{
 		this.repository = repository;
+		this.eventos = eventos;
 	}
 
+	@Transactional(readOnly = true)
 	public CarrinhoDeCompras buscarPorCarrinhoIdEClienteId(Long carrinhoId, Cliente cliente)
 	{
 		return repository.findByIdAndCliente(carrinhoId, cliente)
-				.orElseThrow(() -> new IllegalArgumentException("Carrinho não encontrado."));
+				.orElseThrow(() -> new RequisicaoInvalidaException("Carrinho não encontrado."));
+	}
+
+	/**
+	 * Reserva o carrinho para o checkout incrementando sua versão, se ainda for a
+	 * lida: se outra transação o alterou desde a leitura, falha com
+	 * OptimisticLockingFailureException. Devolve a versão reservada, única de quem
+	 * reservou. Sem transação de quem chama, a reserva é gravada aqui mesmo e a linha
+	 * não fica travada durante as chamadas externas do checkout.
+	 */
+	@Transactional
+	public long reservarParaCompra(CarrinhoDeCompras carrinho)
+	{
+		long versaoLida = carrinho.getVersao() == null ? 0L : carrinho.getVersao();
+		incrementar(carrinho, versaoLida);
+		return versaoLida + 1;
+	}
+
+	/**
+	 * Confirma, logo antes da baixa, que o carrinho ainda está na versão reservada e
+	 * a incrementa de novo: um carrinho alterado ou reservado por outro checkout
+	 * depois da reserva falha com OptimisticLockingFailureException, e só um dos
+	 * checkouts de um mesmo carrinho chega à baixa.
+	 */
+	@Transactional
+	public void confirmarReserva(CarrinhoDeCompras carrinho, long versaoReservada)
+	{
+		incrementar(carrinho, versaoReservada);
+	}
+
+	private void incrementar(CarrinhoDeCompras carrinho, long versao)
+	{
+		if (repository.incrementarVersao(carrinho.getId(), carrinho.getCliente(), versao) == 0)
+		{
+			throw new ObjectOptimisticLockingFailureException(CarrinhoDeCompras.class, carrinho.getId());
+		}
+		if (carrinho.getCliente() != null && carrinho.getCliente().getId() != null)
+		{
+			eventos.publishEvent(new CarrinhosAlteradosEvento(List.of(carrinho.getCliente().getId())));
+		}
 	}
 }
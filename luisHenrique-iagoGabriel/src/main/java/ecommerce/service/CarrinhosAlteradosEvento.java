@@ -0,0 +1,12 @@
+package ecommerce.service;
+
+import java.util.Collection;
+
+/**
+ * Publicado a cada escrita em carrinhos: reserva e confirmação do checkout,
+ * recálculo de totais e arquivamento. Leva os clientes donos dos carrinhos
+ * alterados.
+ */
+public record CarrinhosAlteradosEvento(Collection<Long> clienteIds)
+{
+}
@@ -0,0 +1,348 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import ecommerce.config.ContextoRoteamento;
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.ObservadorCompra.Desfecho;
+import ecommerce.service.ObservadorCompra.Etapa;
+
+/**
+ * O checkout de {@link CompraService#finalizar} dividido em estágios, cada um com
+ * o seu {@link ExecutorEstagio}: carregamento, disponibilidade, precificação,
+ * pagamento, baixa e compensação. Cada estágio faz a sua parte e entrega o checkout
+ * ao próximo; nenhuma thread espera por outro estágio, e um provedor de pagamento
+ * lento ocupa só as threads do pagamento. As regras e os desfechos são os do
+ * checkout síncrono: o carrinho é reservado no carregamento e a reserva é confirmada
+ * na baixa, antes de tocar o estoque; de dois checkouts do mesmo carrinho em curso
+ * só um passa da confirmação, e o outro estorna e termina em conflito. As
+ * diferenças:
+ * <ul>
+ * <li>um conflito na reserva é repetido ({@link RetentativaConflito}); quem reservou
+ * antes perde na confirmação;</li>
+ * <li>um estágio saturado termina o checkout com {@link RejectedExecutionException}
+ * (desfecho {@link Desfecho#SATURADO}); depois da autorização do pagamento, com a
+ * compensação antes.</li>
+ * </ul>
+ * A compensação nunca recusa: o estágio roda na thread de quem entrega se a fila
+ * estiver cheia ou se o checkout já estiver encerrando.
+ */
+public class CheckoutEmEstagios
+{
+
+	public enum Estagio
+	{
+		CARREGAMENTO, DISPONIBILIDADE, PRECIFICACAO, PAGAMENTO, BAIXA, COMPENSACAO
+	}
+
+	/** Estado de um checkout entre os estágios; cada entrega publica o que o anterior escreveu. */
+	private static final class Checkout
+	{
+		final Long carrinhoId;
+		final Long clienteId;
+		final ObservadorCompra.Medicao medicao;
+		final CompletableFuture<ResultadoCompra> resultado = new CompletableFuture<>();
+
+		CarrinhoCarregado carregado;
+		int itens;
+		BigDecimal custoTotal;
+		PagamentoDTO pagamento;
+		boolean baixado;
+		boolean compensando;
+		Desfecho desfecho;
+
+		Checkout(Long carrinhoId, Long clienteId, ObservadorCompra.Medicao medicao)
+		{
+			this.carrinhoId = carrinhoId;
+			this.clienteId = clienteId;
+			this.medicao = medicao;
+		}
+	}
+
+	private final CompraService compraService;
+	private final IEstoqueExternalPrimitivo estoqueExternal;
+	private final IPagamentoExternal pagamentoExternal;
+	private final RetentativaConflito retentativa;
+	private final ApplicationEventPublisher eventos;
+	private final ObservadorCompra observador;
+	private final Map<Estagio, ExecutorEstagio> executores;
+
+	public CheckoutEmEstagios(CompraService compraService, IEstoqueExternal estoqueExternal,
+			IPagamentoExternal pagamentoExternal, RetentativaConflito retentativa, ApplicationEventPublisher eventos,
+			ObservadorCompra observador, Map<Estagio, ExecutorEstagio> executores)
+	{
+		for (Estagio estagio : Estagio.values())
+		{
+			if (!executores.containsKey(estagio))
+			{
+				throw new IllegalArgumentException("Sem executor para o estágio " + estagio + ".");
+			}
+		}
+		if (executores.get(Estagio.COMPENSACAO).politica() != ExecutorEstagio.Politica.CHAMADOR)
+		{
+			throw new IllegalArgumentException("A compensação não pode recusar tarefas.");
+		}
+		this.compraService = compraService;
+		this.estoqueExternal = IEstoqueExternalPrimitivo.de(estoqueExternal);
+		this.pagamentoExternal = pagamentoExternal;
+		this.retentativa = retentativa;
+		this.eventos = eventos;
+		this.observador = observador;
+		this.executores = new EnumMap<>(executores);
+	}
+
+	/**
+	 * Entrega o checkout ao carregamento e volta na hora. O futuro termina como
+	 * {@link CompraService#finalizar}: com o resultado, ou com a mesma exceção. Depois
+	 * de {@link #encerrar} termina saturado, sem carregar nada. Como no checkout
+	 * síncrono, todos os estágios usam o primário: a marca de {@link ContextoRoteamento}
+	 * segue com o checkout de um executor para o outro.
+	 */
+	public CompletableFuture<ResultadoCompra> finalizar(Long carrinhoId, Long clienteId)
+	{
+		Checkout checkout = new Checkout(carrinhoId, clienteId, observador.iniciar());
+		if (executores.get(Estagio.CARREGAMENTO).encerrado())
+		{
+			terminar(checkout, new RejectedExecutionException("Checkout em estágios encerrado."));
+			return checkout.resultado;
+		}
+		ContextoRoteamento.executarNoPrimario(() -> {
+			entregar(Estagio.CARREGAMENTO, checkout, this::carregar);
+			return null;
+		});
+		return checkout.resultado;
+	}
+
+	public ExecutorEstagio executor(Estagio estagio)
+	{
+		return executores.get(estagio);
+	}
+
+	/**
+	 * Para de aceitar checkouts e espera os aceitos terminarem, estágio por estágio, na
+	 * ordem e sem prazo: cada estágio só para depois que o anterior terminou de lhe
+	 * entregar. A compensação para por último, quando nenhum estágio pode mais
+	 * pedir um estorno; até lá, e mesmo depois, ela roda na thread de quem pede.
+	 */
+	public void encerrar()
+	{
+		boolean interrompido = false;
+		for (ExecutorEstagio executor : executores.values())
+		{
+			executor.encerrar();
+			while (true)
+			{
+				try
+				{
+					executor.aguardarTermino(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+					break;
+				}
+				catch (InterruptedException e)
+				{
+					// Desistir aqui deixaria estornos para trás: espera até o fim e repassa a interrupção
+					interrompido = true;
+				}
+			}
+		}
+		if (interrompido)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void carregar(Checkout checkout)
+	{
+		CarrinhoCarregado carregado = retentativa
+				.executar(() -> compraService.carregar(checkout.carrinhoId, checkout.clienteId, checkout.medicao));
+		if (!carregado.validacao().valido())
+		{
+			checkout.desfecho = Desfecho.INVALIDO;
+			concluir(checkout, ResultadoCompra.rejeitada(carregado.validacao()));
+			return;
+		}
+		checkout.carregado = carregado;
+		checkout.itens = carregado.carrinho().getItens().size();
+		entregar(Estagio.DISPONIBILIDADE, checkout, this::verificarDisponibilidade);
+	}
+
+	private void verificarDisponibilidade(Checkout checkout)
+	{
+		long inicio = System.nanoTime();
+		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(checkout.carregado.linhas());
+		checkout.medicao.etapa(Etapa.DISPONIBILIDADE, System.nanoTime() - inicio);
+		if (!disponibilidade.disponivel())
+		{
+			checkout.desfecho = Desfecho.FORA_DE_ESTOQUE;
+			throw new CompraRecusadaException("Itens fora de estoque.");
+		}
+		entregar(Estagio.PRECIFICACAO, checkout, this::precificar);
+	}
+
+	private void precificar(Checkout checkout)
+	{
+		long inicio = System.nanoTime();
+		checkout.custoTotal = compraService.calcularCustoTotal(checkout.carregado.carrinho());
+		checkout.medicao.etapa(Etapa.PRECIFICACAO, System.nanoTime() - inicio);
+		entregar(Estagio.PAGAMENTO, checkout, this::autorizarPagamento);
+	}
+
+	private void autorizarPagamento(Checkout checkout)
+	{
+		long inicio = System.nanoTime();
+		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(checkout.carregado.clienteId(),
+				checkout.custoTotal.doubleValue(), CompraService.chaveIdempotencia(checkout.carregado.carrinho(),
+						checkout.carregado.versaoReservada()));
+		checkout.medicao.etapa(Etapa.AUTORIZACAO_PAGAMENTO, System.nanoTime() - inicio);
+		if (!pagamento.autorizado())
+		{
+			checkout.desfecho = Desfecho.PAGAMENTO_NEGADO;
+			throw new CompraRecusadaException("Pagamento não autorizado.");
+		}
+		checkout.pagamento = pagamento;
+		entregar(Estagio.BAIXA, checkout, this::darBaixa);
+	}
+
+	private void darBaixa(Checkout checkout)
+	{
+		compraService.confirmarReserva(checkout.carregado);
+		long inicio = System.nanoTime();
+		EstoqueBaixaDTO baixa;
+		try
+		{
+			baixa = estoqueExternal.darBaixa(checkout.carregado.linhas(), CompraService.chaveIdempotencia(
+					checkout.carregado.carrinho(), checkout.carregado.versaoReservada()));
+		}
+		finally
+		{
+			checkout.medicao.etapa(Etapa.BAIXA_ESTOQUE, System.nanoTime() - inicio);
+		}
+		if (!baixa.sucesso())
+		{
+			checkout.desfecho = Desfecho.FALHA_BAIXA;
+			throw new CompraRecusadaException("Erro ao dar baixa no estoque.");
+		}
+		checkout.baixado = true;
+
+		Long transacaoId = checkout.pagamento.transacaoId();
+		eventos.publishEvent(new CompraFinalizadaEvento(checkout.carregado.clienteId(),
+				checkout.carregado.carrinho().getId(), transacaoId, checkout.custoTotal));
+		checkout.desfecho = Desfecho.SUCESSO;
+		concluir(checkout, ResultadoCompra.concluida(new CompraDTO(true, transacaoId, "Compra finalizada com sucesso.")));
+	}
+
+	/** Estorna o pagamento já autorizado e só então termina com a falha original. */
+	private void compensar(Checkout checkout, Throwable falha)
+	{
+		long inicio = System.nanoTime();
+		try
+		{
+			pagamentoExternal.cancelarPagamento(checkout.carregado.clienteId(), checkout.pagamento.transacaoId());
+		}
+		catch (RuntimeException e)
+		{
+			falha.addSuppressed(e);
+		}
+		finally
+		{
+			checkout.medicao.etapa(Etapa.COMPENSACAO, System.nanoTime() - inicio);
+		}
+		terminar(checkout, falha);
+	}
+
+	private void entregar(Estagio estagio, Checkout checkout, Consumer<Checkout> passo)
+	{
+		try
+		{
+			executores.get(estagio).executar(() -> {
+				try
+				{
+					passo.accept(checkout);
+				}
+				catch (RuntimeException | Error e)
+				{
+					falhar(checkout, e);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			falhar(checkout, e);
+		}
+	}
+
+	private void falhar(Checkout checkout, Throwable falha)
+	{
+		if (checkout.pagamento != null && !checkout.baixado && !checkout.compensando)
+		{
+			checkout.compensando = true;
+			entregar(Estagio.COMPENSACAO, checkout, c -> compensar(c, falha));
+			return;
+		}
+		terminar(checkout, falha);
+	}
+
+	private void terminar(Checkout checkout, Throwable falha)
+	{
+		if (checkout.desfecho == null)
+		{
+			checkout.desfecho = desfecho(falha);
+		}
+		try
+		{
+			checkout.medicao.concluir(checkout.desfecho, checkout.itens, checkout.custoTotal);
+		}
+		finally
+		{
+			checkout.resultado.completeExceptionally(falha);
+		}
+	}
+
+	private static void concluir(Checkout checkout, ResultadoCompra resultado)
+	{
+		try
+		{
+			checkout.medicao.concluir(checkout.desfecho, checkout.itens, checkout.custoTotal);
+		}
+		finally
+		{
+			checkout.resultado.complete(resultado);
+		}
+	}
+
+	private static Desfecho desfecho(Throwable falha)
+	{
+		if (falha instanceof IllegalArgumentException)
+		{
+			return Desfecho.INVALIDO;
+		}
+		if (falha instanceof OptimisticLockingFailureException)
+		{
+			return Desfecho.CONFLITO;
+		}
+		if (falha instanceof FalhaServicoExternoException)
+		{
+			return Desfecho.FALHA_EXTERNA;
+		}
+		if (falha instanceof RejectedExecutionException)
+		{
+			return Desfecho.SATURADO;
+		}
+		return Desfecho.ERRO;
+	}
+}
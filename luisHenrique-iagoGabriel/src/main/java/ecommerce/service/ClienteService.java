@@ -2,6 +2,7 @@ package ecommerce.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import ecommerce.entity.Cliente;
 import ecommerce.repository.ClienteRepository;
@@ -18,9 +19,10 @@ public class ClienteService
 		this.repository = repository;
 	}
 
+	@Transactional(readOnly = true)
 	public Cliente buscarPorId(Long clienteId)
 	{
-		return repository.findById(clienteId).orElseThrow(() -> new IllegalArgumentException("Cliente não encontrado"));
+		return repository.findById(clienteId).orElseThrow(() -> new RequisicaoInvalidaException("Cliente não encontrado"));
 	}
 
 }
@@ -0,0 +1,11 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Publicado pelo {@link CompraService} ao fim de um checkout bem-sucedido, depois
+ * do pagamento autorizado e da baixa no estoque.
+ */
+public record CompraFinalizadaEvento(Long clienteId, Long carrinhoId, Long transacaoPagamentoId, BigDecimal custoTotal)
+{
+}
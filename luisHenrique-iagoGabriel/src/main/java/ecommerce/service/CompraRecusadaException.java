@@ -0,0 +1,21 @@
+package ecommerce.service;
+
+/**
+ * Compra recusada por uma regra de negócio (fora de estoque, pagamento negado,
+ * falha na baixa). Sem pilha, como {@link RequisicaoInvalidaException}.
+ */
+public class CompraRecusadaException extends IllegalStateException
+{
+	private static final long serialVersionUID = 1L;
+
+	public CompraRecusadaException(String mensagem)
+	{
+		super(mensagem);
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
@@ -5,12 +5,17 @@ import java.math.RoundingMode;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import ecommerce.config.ContextoRoteamento;
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CotacaoDTO;
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
 import ecommerce.dto.PagamentoDTO;
@@ -19,9 +24,13 @@ import ecommerce.entity.Cliente;
 import ecommerce.entity.ItemCompra;
 import ecommerce.entity.Produto;
 import ecommerce.entity.TipoProduto;
+import ecommerce.external.FalhaServicoExternoException;
 import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.LinhasPedido;
 import ecommerce.external.IPagamentoExternal;
-import static ecommerce.utils.Msg.get;
+import ecommerce.service.ObservadorCompra.Desfecho;
+import ecommerce.service.ObservadorCompra.Etapa;
 import jakarta.transaction.Transactional;
 
 @Service
@@ -47,96 +56,390 @@ public class CompraService {
 	private static final BigDecimal TAXA_MINIMA = new BigDecimal("12.00");
 	private static final BigDecimal TAXA_FRAGIL_POR_UNIDADE = new BigDecimal("5.00");
 
+	/** Entra na impressão digital das cotações: mudar as regras acima invalida os ETags já emitidos. */
+	private static final long VERSAO_REGRAS_PRECIFICACAO = 1L;
+
 	private final CarrinhoDeComprasService carrinhoService;
 	private final ClienteService clienteService;
 
-	private final IEstoqueExternal estoqueExternal;
+	private final IEstoqueExternalPrimitivo estoqueExternal;
 	private final IPagamentoExternal pagamentoExternal;
 
-	@Autowired
+	private final ApplicationEventPublisher eventos;
+	private final ObservadorCompra observador;
+
 	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
 			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal) {
+		this(carrinhoService, clienteService, estoqueExternal, pagamentoExternal, evento -> {
+		}, ObservadorCompra.NENHUM);
+	}
+
+	@Autowired
+	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			ApplicationEventPublisher eventos, ObservadorCompra observador) {
 		this.carrinhoService = carrinhoService;
 		this.clienteService = clienteService;
 
-		this.estoqueExternal = estoqueExternal;
+		this.estoqueExternal = IEstoqueExternalPrimitivo.de(estoqueExternal);
 		this.pagamentoExternal = pagamentoExternal;
+
+		this.eventos = eventos;
+		this.observador = observador;
 	}
 
-	@Transactional
+	/**
+	 * Como {@link #finalizar}, mas lança {@link RequisicaoInvalidaException} com a
+	 * primeira violação quando o carrinho é rejeitado na validação.
+	 */
 	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId) {
+		ResultadoCompra resultado = finalizar(carrinhoId, clienteId);
+		if (resultado.rejeitada()) {
+			throw resultado.validacao().excecao();
+		}
+		return resultado.compra();
+	}
+
+	/**
+	 * Finaliza a compra. O carrinho é validado logo após a leitura, antes da reserva e
+	 * das chamadas externas; se inválido, volta como resultado rejeitado com todas as
+	 * violações, sem exceção. Cliente ou carrinho inexistentes e recusas posteriores
+	 * (estoque, pagamento, baixa) continuam lançando, sem pilha.
+	 *
+	 * <p>Sem transação em volta (e sem open-in-view): nenhuma conexão nem trava de
+	 * linha atravessa as chamadas externas. O carrinho válido é reservado antes delas, numa transação
+	 * curta, e a reserva é confirmada imediatamente antes da baixa; um carrinho
+	 * alterado ou reservado por outro checkout no meio do caminho faz este estornar e
+	 * falhar com {@link OptimisticLockingFailureException}. Uma recusa adiante não
+	 * desfaz a reserva (o carrinho só fica com a versão à frente). A versão reservada
+	 * compõe a chave de idempotência do pagamento e da baixa. Em
+	 * {@link ModoEnsaio} não reserva, não publica o evento e não é medido.
+	 *
+	 * <p>Com o roteamento leitura/escrita, o checkout inteiro fica no primário
+	 * ({@link ContextoRoteamento}): numa réplica atrasada o carrinho viria numa versão
+	 * antiga e a reserva falharia sem conflito de verdade.
+	 */
+	public ResultadoCompra finalizar(Long carrinhoId, Long clienteId) {
+		return ContextoRoteamento.executarNoPrimario(() -> finalizarNoPrimario(carrinhoId, clienteId));
+	}
+
+	private ResultadoCompra finalizarNoPrimario(Long carrinhoId, Long clienteId) {
+		boolean ensaio = ModoEnsaio.ativo();
+		ObservadorCompra.Medicao medicao = ensaio ? ObservadorCompra.Medicao.NENHUMA : observador.iniciar();
+		Desfecho desfecho = Desfecho.ERRO;
+		int itens = 0;
+		BigDecimal custoTotal = null;
+		try {
+			long inicio = System.nanoTime();
+			Cliente cliente = clienteService.buscarPorId(clienteId);
+			inicio = registrarEtapa(medicao, Etapa.CLIENTE, inicio);
+
+			CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+			ResultadoValidacao validacao = validarParaCompra(carrinho);
+			if (!validacao.valido()) {
+				registrarEtapa(medicao, Etapa.CARRINHO, inicio);
+				desfecho = Desfecho.INVALIDO;
+				return ResultadoCompra.rejeitada(validacao);
+			}
+			itens = carrinho.getItens().size();
+			LinhasPedido linhas = linhasPedido(carrinho);
+			long versaoReservada = ensaio ? 0L : carrinhoService.reservarParaCompra(carrinho);
+			inicio = registrarEtapa(medicao, Etapa.CARRINHO, inicio);
+
+			DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(linhas);
+			inicio = registrarEtapa(medicao, Etapa.DISPONIBILIDADE, inicio);
+
+			if (!disponibilidade.disponivel()) {
+				desfecho = Desfecho.FORA_DE_ESTOQUE;
+				throw new CompraRecusadaException("Itens fora de estoque.");
+			}
+
+			custoTotal = precificar(carrinho);
+			inicio = registrarEtapa(medicao, Etapa.PRECIFICACAO, inicio);
+
+			String chave = chaveIdempotencia(carrinho, versaoReservada);
+			PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue(),
+					chave);
+			inicio = registrarEtapa(medicao, Etapa.AUTORIZACAO_PAGAMENTO, inicio);
+
+			if (!pagamento.autorizado()) {
+				desfecho = Desfecho.PAGAMENTO_NEGADO;
+				throw new CompraRecusadaException("Pagamento não autorizado.");
+			}
+
+			try {
+				if (!ensaio) {
+					carrinhoService.confirmarReserva(carrinho, versaoReservada);
+				}
+			} catch (OptimisticLockingFailureException e) {
+				estornar(cliente.getId(), pagamento.transacaoId(), e);
+				registrarEtapa(medicao, Etapa.COMPENSACAO, inicio);
+				throw e;
+			}
+
+			EstoqueBaixaDTO baixaDTO;
+			try {
+				baixaDTO = estoqueExternal.darBaixa(linhas, chave);
+			} catch (RuntimeException e) {
+				// pagamento já autorizado: estorna antes de propagar a falha do estoque; uma
+				// baixa sem resposta já foi desfeita pela chave no cliente do estoque
+				inicio = registrarEtapa(medicao, Etapa.BAIXA_ESTOQUE, inicio);
+				estornar(cliente.getId(), pagamento.transacaoId(), e);
+				registrarEtapa(medicao, Etapa.COMPENSACAO, inicio);
+				throw e;
+			}
+			inicio = registrarEtapa(medicao, Etapa.BAIXA_ESTOQUE, inicio);
+
+			if (!baixaDTO.sucesso()) {
+				desfecho = Desfecho.FALHA_BAIXA;
+				CompraRecusadaException recusa = new CompraRecusadaException("Erro ao dar baixa no estoque.");
+				estornar(cliente.getId(), pagamento.transacaoId(), recusa);
+				registrarEtapa(medicao, Etapa.COMPENSACAO, inicio);
+				throw recusa;
+			}
+
+			if (!ensaio) {
+				eventos.publishEvent(new CompraFinalizadaEvento(cliente.getId(), carrinho.getId(),
+						pagamento.transacaoId(), custoTotal));
+			}
+
+			CompraDTO compraDTO = new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
+
+			desfecho = Desfecho.SUCESSO;
+			return ResultadoCompra.concluida(compraDTO);
+		} catch (IllegalArgumentException e) {
+			desfecho = Desfecho.INVALIDO;
+			throw e;
+		} catch (OptimisticLockingFailureException e) {
+			desfecho = Desfecho.CONFLITO;
+			throw e;
+		} catch (FalhaServicoExternoException e) {
+			desfecho = Desfecho.FALHA_EXTERNA;
+			throw e;
+		} finally {
+			medicao.concluir(desfecho, itens, custoTotal);
+		}
+	}
+
+	/**
+	 * Chave de idempotência da autorização e da baixa: o carrinho e a versão que este
+	 * checkout reservou, única dele. Uma repetição do mesmo checkout não cobra nem baixa
+	 * de novo, checkouts diferentes do mesmo carrinho nunca compartilham a cobrança, e
+	 * uma baixa sem resposta pode ser desfeita ou conciliada pela chave.
+	 */
+	static String chaveIdempotencia(CarrinhoDeCompras carrinho, long versaoReservada) {
+		return "carrinho-" + carrinho.getId() + "-v" + versaoReservada;
+	}
+
+	/**
+	 * Estorna o pagamento já autorizado. Se o estorno também falhar, a falha dele fica
+	 * suprimida em {@code falha}, que continua sendo a que propaga.
+	 */
+	private void estornar(Long clienteId, Long transacaoId, RuntimeException falha) {
+		try {
+			pagamentoExternal.cancelarPagamento(clienteId, transacaoId);
+		} catch (RuntimeException e) {
+			falha.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * Primeiro estágio do {@link CheckoutEmEstagios}: lê cliente e carrinho, valida e,
+	 * se válido, reserva o carrinho, numa transação que termina aqui. Os itens e
+	 * produtos voltam carregados, para os estágios seguintes usarem fora da sessão.
+	 */
+	@Transactional
+	public CarrinhoCarregado carregar(Long carrinhoId, Long clienteId, ObservadorCompra.Medicao medicao) {
+		long inicio = System.nanoTime();
+		Cliente cliente = clienteService.buscarPorId(clienteId);
+		inicio = registrarEtapa(medicao, Etapa.CLIENTE, inicio);
+
+		CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+		ResultadoValidacao validacao = validarParaCompra(carrinho);
+		if (!validacao.valido()) {
+			registrarEtapa(medicao, Etapa.CARRINHO, inicio);
+			return new CarrinhoCarregado(cliente.getId(), carrinho, validacao, null, 0L);
+		}
+		LinhasPedido linhas = linhasPedido(carrinho);
+		long versaoReservada = carrinhoService.reservarParaCompra(carrinho);
+		registrarEtapa(medicao, Etapa.CARRINHO, inicio);
+		return new CarrinhoCarregado(cliente.getId(), carrinho, validacao, linhas, versaoReservada);
+	}
+
+	/**
+	 * Último passo do {@link CheckoutEmEstagios} antes da baixa: confirma a reserva
+	 * feita em {@link #carregar}, ou falha com {@link OptimisticLockingFailureException}
+	 * se outro checkout ou uma alteração passou à frente.
+	 */
+	public void confirmarReserva(CarrinhoCarregado carregado) {
+		carrinhoService.confirmarReserva(carregado.carrinho(), carregado.versaoReservada());
+	}
+
+	/**
+	 * Cotação do carrinho do cliente. Se {@code jaConhecida} aceitar a impressão
+	 * digital atual (o cliente já tem esta versão), devolve nulo sem precificar.
+	 */
+	@Transactional
+	public CotacaoDTO cotar(Long carrinhoId, Long clienteId, Predicate<String> jaConhecida) {
 		Cliente cliente = clienteService.buscarPorId(clienteId);
 		CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+		validarCarrinhoParaCompra(carrinho);
+		if (jaConhecida.test(impressaoDigital(carrinho))) {
+			return null;
+		}
+		return cotar(carrinho);
+	}
 
-		List<Long> produtosIds = carrinho.getItens().stream().map(i -> i.getProduto().getId())
-				.collect(Collectors.toList());
-		List<Long> produtosQtds = carrinho.getItens().stream().map(i -> i.getQuantidade()).collect(Collectors.toList());
+	public CotacaoDTO cotar(CarrinhoDeCompras carrinho) {
+		validarCarrinhoParaCompra(carrinho);
+
+		BigDecimal subtotalItens = calcularSubtotal(carrinho.getItens());
+		BigDecimal desconto = subtotalItens.multiply(obterPercentualDescontoCarrinho(subtotalItens));
+		BigDecimal subtotal = subtotalItens.subtract(desconto);
+
+		BigDecimal pesoTotal = calcularPesoTotalCompra(carrinho);
+		BigDecimal fretePeso = calcularEncargoPeso(pesoTotal);
+		BigDecimal freteFragil = calcularEncargoFragilidade(carrinho);
+		BigDecimal frete = fretePeso.add(freteFragil);
 
-		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds);
+		return new CotacaoDTO(carrinho.getId(), carrinho.getVersao(), duasCasas(subtotalItens), duasCasas(desconto),
+				duasCasas(subtotal), pesoTotal, duasCasas(fretePeso), duasCasas(freteFragil), duasCasas(frete),
+				subtotal.add(frete).setScale(2, RoundingMode.HALF_UP));
+	}
+
+	/**
+	 * Identifica o que determina o preço: carrinho, versão, itens (produto e
+	 * quantidade), os atributos de produto usados na precificação e a versão das
+	 * regras. Calculada sem precificar; serve de ETag da cotação.
+	 */
+	public String impressaoDigital(CarrinhoDeCompras carrinho) {
+		long hash = 0xcbf29ce484222325L;
+		hash = misturar(hash, VERSAO_REGRAS_PRECIFICACAO);
+		for (ItemCompra item : carrinho.getItens()) {
+			Produto produto = item.getProduto();
+			hash = misturar(hash, produto.getId() == null ? 0L : produto.getId());
+			hash = misturar(hash, item.getQuantidade() == null ? 0L : item.getQuantidade());
+			hash = misturar(hash, valor(produto.getPreco()));
+			hash = misturar(hash, valor(produto.getPesoFisico()));
+			hash = misturar(hash, Boolean.TRUE.equals(produto.isFragil()) ? 1L : 0L);
+			hash = misturar(hash, produto.getTipo() == null ? -1L : produto.getTipo().ordinal());
+		}
+		return carrinho.getId() + "-" + (carrinho.getVersao() == null ? 0L : carrinho.getVersao()) + "-"
+				+ Long.toHexString(hash);
+	}
 
-		if (!disponibilidade.disponivel()) {
-			throw new IllegalStateException("Itens fora de estoque.");
+	/** FNV-1a de 64 bits sobre os 8 bytes de {@code valor}. */
+	private static long misturar(long hash, long valor) {
+		for (int i = 0; i < 8; i++) {
+			hash ^= (valor >>> (i * 8)) & 0xff;
+			hash *= 0x100000001b3L;
 		}
+		return hash;
+	}
 
-		BigDecimal custoTotal = calcularCustoTotal(carrinho);
+	private static long valor(BigDecimal valor) {
+		return valor == null ? Long.MIN_VALUE : valor.stripTrailingZeros().hashCode();
+	}
 
-		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+	private static BigDecimal duasCasas(BigDecimal valor) {
+		return valor.setScale(2, RoundingMode.HALF_UP);
+	}
 
-		if (!pagamento.autorizado()) {
-			throw new IllegalStateException("Pagamento não autorizado.");
+	/**
+	 * Uma linha por produto, quantidades somadas. Só para carrinho aprovado por
+	 * {@link #validarParaCompra}, que já recusou produto sem id.
+	 */
+	private static LinhasPedido linhasPedido(CarrinhoDeCompras carrinho) {
+		List<ItemCompra> itens = carrinho.getItens();
+		LinhasPedido.Construtor linhas = LinhasPedido.construtor(itens.size());
+		for (ItemCompra item : itens) {
+			linhas.adicionar(item.getProduto().getId(), item.getQuantidade());
 		}
+		return linhas.construir();
+	}
 
-		EstoqueBaixaDTO baixaDTO = estoqueExternal.darBaixa(produtosIds, produtosQtds);
+	private static long registrarEtapa(ObservadorCompra.Medicao medicao, Etapa etapa, long inicio) {
+		long agora = System.nanoTime();
+		medicao.etapa(etapa, agora - inicio);
+		return agora;
+	}
 
-		if (!baixaDTO.sucesso()) {
-			pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
-			throw new IllegalStateException("Erro ao dar baixa no estoque.");
+	private void validarCarrinhoParaCompra(CarrinhoDeCompras carrinho) {
+		ResultadoValidacao validacao = validar(carrinho);
+		if (!validacao.valido()) {
+			throw validacao.excecao();
 		}
+	}
 
-		CompraDTO compraDTO = new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
+	/**
+	 * Verifica todas as regras em todos os itens e devolve todas as violações de uma
+	 * vez; carrinho válido devolve sempre {@link ResultadoValidacao#VALIDO}.
+	 */
+	public ResultadoValidacao validar(CarrinhoDeCompras carrinho) {
+		return validar(carrinho, false);
+	}
 
-		return compraDTO;
+	/**
+	 * {@link #validar} mais o que só a compra exige: produto sem id (não persistido)
+	 * não tem o que baixar no estoque ({@link Violacao#PRODUTO_SEM_ID}).
+	 */
+	ResultadoValidacao validarParaCompra(CarrinhoDeCompras carrinho) {
+		return validar(carrinho, true);
 	}
 
-	private void validarCarrinhoParaCompra(CarrinhoDeCompras carrinho) {
+	private ResultadoValidacao validar(CarrinhoDeCompras carrinho, boolean exigirId) {
 		if (carrinho == null || carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
-			throw new IllegalArgumentException(get("erro.carrinho.invalido"));
+			return ResultadoValidacao.de(Violacao.CARRINHO_INVALIDO.bit(), Violacao.CARRINHO_INVALIDO);
 		}
 
-		carrinho.getItens().forEach(item -> {
-			validarItemCompra(item);
-		});
+		int violacoes = 0;
+		Violacao primeira = null;
+		for (ItemCompra item : carrinho.getItens()) {
+			int doItem = validarItemCompra(item, exigirId);
+			if (primeira == null && doItem != 0) {
+				primeira = Violacao.values()[Integer.numberOfTrailingZeros(doItem)];
+			}
+			violacoes |= doItem;
+		}
+		return ResultadoValidacao.de(violacoes, primeira);
 	}
 
-	private void validarItemCompra(ItemCompra item) {
-		if (item.getProduto() == null) {
-			throw new IllegalArgumentException(get("erro.item.produto.invalido"));
+	private int validarItemCompra(ItemCompra item, boolean exigirId) {
+		if (item == null || item.getProduto() == null) {
+			return Violacao.ITEM_PRODUTO_INVALIDO.bit();
 		}
 
+		int violacoes = 0;
 		if (item.getQuantidade() == null || item.getQuantidade() <= 0) {
-			throw new IllegalArgumentException(get("erro.item.quantidade.invalida"));
+			violacoes |= Violacao.ITEM_QUANTIDADE_INVALIDA.bit();
 		}
 
-		validarProduto(item.getProduto());
+		if (exigirId && item.getProduto().getId() == null) {
+			violacoes |= Violacao.PRODUTO_SEM_ID.bit();
+		}
+
+		return violacoes | validarProduto(item.getProduto());
 	}
 
-	private void validarProduto(Produto produto) {
+	private int validarProduto(Produto produto) {
+		int violacoes = 0;
 		if (islNullOrLessEqualZero(produto.getAltura()) ||
 				islNullOrLessEqualZero(produto.getLargura()) ||
 				islNullOrLessEqualZero(produto.getComprimento())) {
-			throw new IllegalArgumentException(get("erro.produto.dimensoes.invalidas"));
+			violacoes |= Violacao.PRODUTO_DIMENSOES_INVALIDAS.bit();
 		}
 		if (islNullOrLessEqualZero(produto.getPesoFisico()))
-			throw new IllegalArgumentException(get("erro.produto.peso.invalido"));
+			violacoes |= Violacao.PRODUTO_PESO_INVALIDO.bit();
 		if (islNullOrLessEqualZero(produto.getPreco()))
-			throw new IllegalArgumentException(get("erro.produto.preco.invalido"));
+			violacoes |= Violacao.PRODUTO_PRECO_INVALIDO.bit();
 		if (produto.getTipo() == null)
-			throw new IllegalArgumentException(get("erro.produto.tipo.invalido"));
+			violacoes |= Violacao.PRODUTO_TIPO_INVALIDO.bit();
 		if (produto.getNome() == null || produto.getNome().isBlank())
-			throw new IllegalArgumentException(get("erro.produto.nome.invalido"));
+			violacoes |= Violacao.PRODUTO_NOME_INVALIDO.bit();
 		if (produto.getDescricao() == null || produto.getDescricao().isBlank())
-			throw new IllegalArgumentException(get("erro.produto.descricao.invalida"));
+			violacoes |= Violacao.PRODUTO_DESCRICAO_INVALIDA.bit();
 
+		return violacoes;
 	}
 
 	private boolean islNullOrLessEqualZero(BigDecimal value) {
@@ -145,7 +448,10 @@ public class CompraService {
 
 	public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho) {
 		validarCarrinhoParaCompra(carrinho);
+		return precificar(carrinho);
+	}
 
+	private BigDecimal precificar(CarrinhoDeCompras carrinho) {
 		var subtotal = calcularSubtotal(carrinho);
 		var frete = calcularFrete(carrinho);
 
@@ -0,0 +1,84 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Um checkout no JDK Flight Recorder: a duração do evento é a do checkout inteiro,
+ * o que permite alinhá-lo com pausas de GC e contenção de locks na mesma linha do
+ * tempo; as etapas ficam em campos próprios.
+ */
+@Name(EventoCheckoutJfr.NOME)
+@Label("Checkout")
+@Category({ "Ecommerce", "Checkout" })
+@Description("Checkout de um carrinho, com a duração de cada etapa e o desfecho")
+@StackTrace(false)
+public class EventoCheckoutJfr extends Event implements ObservadorCompra.Medicao {
+
+	public static final String NOME = "ecommerce.Checkout";
+
+	@Label("Itens")
+	int itens;
+
+	@Label("Custo total")
+	double custoTotal;
+
+	@Label("Desfecho")
+	String desfecho;
+
+	@Label("Cliente")
+	@Timespan(Timespan.NANOSECONDS)
+	long cliente;
+
+	@Label("Carrinho")
+	@Timespan(Timespan.NANOSECONDS)
+	long carrinho;
+
+	@Label("Disponibilidade")
+	@Timespan(Timespan.NANOSECONDS)
+	long disponibilidade;
+
+	@Label("Precificação")
+	@Timespan(Timespan.NANOSECONDS)
+	long precificacao;
+
+	@Label("Autorização do pagamento")
+	@Timespan(Timespan.NANOSECONDS)
+	long autorizacaoPagamento;
+
+	@Label("Baixa no estoque")
+	@Timespan(Timespan.NANOSECONDS)
+	long baixaEstoque;
+
+	@Label("Compensação")
+	@Timespan(Timespan.NANOSECONDS)
+	long compensacao;
+
+	@Override
+	public void etapa(ObservadorCompra.Etapa etapa, long duracaoNanos) {
+		switch (etapa) {
+		case CLIENTE -> cliente = duracaoNanos;
+		case CARRINHO -> carrinho = duracaoNanos;
+		case DISPONIBILIDADE -> disponibilidade = duracaoNanos;
+		case PRECIFICACAO -> precificacao = duracaoNanos;
+		case AUTORIZACAO_PAGAMENTO -> autorizacaoPagamento = duracaoNanos;
+		case BAIXA_ESTOQUE -> baixaEstoque = duracaoNanos;
+		case COMPENSACAO -> compensacao = duracaoNanos;
+		}
+	}
+
+	@Override
+	public void concluir(ObservadorCompra.Desfecho desfecho, int itens, BigDecimal custoTotal) {
+		this.desfecho = desfecho.name();
+		this.itens = itens;
+		this.custoTotal = custoTotal == null ? Double.NaN : custoTotal.doubleValue();
+		commit();
+	}
+}
@@ -0,0 +1,154 @@
+package ecommerce.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import ecommerce.config.ContextoRoteamento;
+import ecommerce.rastreamento.Rastreador;
+
+/**
+ * Threads e fila de um estágio do {@link CheckoutEmEstagios}, ambas limitadas e só
+ * dele. Com a fila cheia vale a política do estágio:
+ * <ul>
+ * <li>{@link Politica#RECUSAR}: quem entrega recebe {@link RejectedExecutionException}
+ * e o checkout termina como saturado (503 na borda);</li>
+ * <li>{@link Politica#CHAMADOR}: a tarefa roda na thread de quem entrega — a do
+ * estágio anterior, ou a da requisição no primeiro —, que deixa de consumir a
+ * própria fila; a pressão sobe pela cadeia até a entrada. Vale também depois do
+ * encerramento, para que nada entregue a um estágio assim se perca.</li>
+ * </ul>
+ * Conta o tempo que cada tarefa passou na fila, separado do tempo de execução que
+ * o {@link ObservadorCompra} já mede por etapa: a fila é onde a saturação aparece
+ * primeiro. O rastro e a marca de roteamento de quem entrega seguem com a tarefa
+ * ({@link Rastreador#propagar}, {@link ContextoRoteamento#propagar}).
+ */
+public final class ExecutorEstagio
+{
+
+	public enum Politica
+	{
+		RECUSAR, CHAMADOR
+	}
+
+	private final String nome;
+	private final Politica politica;
+	private final int capacidadeFila;
+	private final ThreadPoolExecutor executor;
+
+	private final LongAdder recusadas = new LongAdder();
+	private final LongAdder noChamador = new LongAdder();
+	private final LongAdder executadas = new LongAdder();
+	private final LongAdder esperaNanos = new LongAdder();
+
+	public ExecutorEstagio(String nome, int threads, int capacidadeFila, Politica politica)
+	{
+		if (threads < 1 || capacidadeFila < 1)
+		{
+			throw new IllegalArgumentException("Estágio " + nome + ": threads e fila devem ser ao menos 1.");
+		}
+		this.nome = nome;
+		this.politica = politica;
+		this.capacidadeFila = capacidadeFila;
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(capacidadeFila), new CustomizableThreadFactory("compra-" + nome + "-"),
+				politica == Politica.CHAMADOR ? this::executarNoChamador : this::recusar);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	public void executar(Runnable tarefa)
+	{
+		long entrada = System.nanoTime();
+		Runnable comContexto = ContextoRoteamento.propagar(Rastreador.propagar(tarefa));
+		executor.execute(() -> {
+			esperaNanos.add(System.nanoTime() - entrada);
+			executadas.increment();
+			comContexto.run();
+		});
+	}
+
+	private void recusar(Runnable tarefa, ThreadPoolExecutor executor)
+	{
+		recusadas.increment();
+		throw new RejectedExecutionException("Estágio " + nome + " saturado.");
+	}
+
+	/** Como {@link ThreadPoolExecutor.CallerRunsPolicy}, mas também depois do encerramento, em vez de descartar. */
+	private void executarNoChamador(Runnable tarefa, ThreadPoolExecutor executor)
+	{
+		noChamador.increment();
+		tarefa.run();
+	}
+
+	public String nome()
+	{
+		return nome;
+	}
+
+	public Politica politica()
+	{
+		return politica;
+	}
+
+	public int tamanhoFila()
+	{
+		return executor.getQueue().size();
+	}
+
+	public int capacidadeFila()
+	{
+		return capacidadeFila;
+	}
+
+	public int threadsOcupadas()
+	{
+		return executor.getActiveCount();
+	}
+
+	public int threads()
+	{
+		return executor.getMaximumPoolSize();
+	}
+
+	public long recusadas()
+	{
+		return recusadas.sum();
+	}
+
+	public long executadasNoChamador()
+	{
+		return noChamador.sum();
+	}
+
+	/** Tarefas que passaram pela fila (as executadas no chamador não entram). */
+	public long executadas()
+	{
+		return executadas.sum();
+	}
+
+	public double esperaTotalNanos()
+	{
+		return esperaNanos.sum();
+	}
+
+	public void encerrar()
+	{
+		executor.shutdown();
+	}
+
+	public boolean encerrado()
+	{
+		return executor.isShutdown();
+	}
+
+	/** Espera as tarefas já aceitas terminarem; devolve falso se o prazo acabou antes. */
+	public boolean aguardarTermino(long tempo, TimeUnit unidade) throws InterruptedException
+	{
+		return executor.awaitTermination(tempo, unidade);
+	}
+}
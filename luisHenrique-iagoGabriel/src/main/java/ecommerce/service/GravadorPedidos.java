@@ -0,0 +1,266 @@
+package ecommerce.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ecommerce.entity.Pedido;
+import ecommerce.repository.PedidoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Grava os pedidos em write-behind: o checkout apenas anexa o pedido ao journal
+ * local e ao buffer circular em memória; uma tarefa agendada descarrega o buffer
+ * no banco em lotes. Ao iniciar, pedidos que ficaram só no journal (queda do
+ * processo antes da descarga) são regravados. O journal fica em
+ * {@code pedidos.gravacao.diretorio}, nunca no diretório de onde o processo subiu,
+ * e por padrão num subdiretório por instância ({@code ecommerce.instancia}).
+ * <p>
+ * Cada descarga sela o segmento corrente do journal antes de esvaziar o buffer e,
+ * se tudo foi gravado, descarta os segmentos selados: o journal não depende de o
+ * buffer ficar vazio para encolher.
+ */
+@Service
+public class GravadorPedidos
+{
+	private static final Logger log = LoggerFactory.getLogger(GravadorPedidos.class);
+
+	private static final int LOTE_CONSULTA_RECUPERACAO = 500;
+
+	private final PedidoRepository repository;
+	private final JournalPedidos journal;
+	private final BlockingQueue<Pedido> buffer;
+	private final int tamanhoLote;
+
+	// Protege o par (journal, buffer): um pedido anexado a um segmento já está no buffer
+	// (ou em sincronosPendentes) quando o segmento é selado
+	private final ReentrantLock trava = new ReentrantLock();
+
+	// Gravações síncronas (buffer cheio) que falharam; entram na próxima descarga
+	private final ConcurrentLinkedQueue<Pedido> sincronosPendentes = new ConcurrentLinkedQueue<>();
+
+	// Lote cuja gravação falhou; é reenviado antes de qualquer outro na próxima descarga.
+	// Volátil porque pendentes() o lê fora da descarga
+	private volatile List<Pedido> loteRetido = new ArrayList<>();
+
+	@Autowired
+	public GravadorPedidos(PedidoRepository repository,
+			@Value("${pedidos.gravacao.diretorio:${user.home}/.shoppingcart/${ecommerce.instancia:${server.port:8080}}}") String diretorio,
+			@Value("${pedidos.gravacao.journal:pedidos.journal}") String arquivoJournal,
+			@Value("${pedidos.gravacao.sincronizar-disco:false}") boolean sincronizarDisco,
+			@Value("${pedidos.gravacao.capacidade-buffer:8192}") int capacidadeBuffer,
+			@Value("${pedidos.gravacao.tamanho-lote:256}") int tamanhoLote) throws IOException
+	{
+		this(repository, new JournalPedidos(Path.of(diretorio).toAbsolutePath().resolve(arquivoJournal),
+				sincronizarDisco), capacidadeBuffer, tamanhoLote);
+	}
+
+	public GravadorPedidos(PedidoRepository repository, JournalPedidos journal, int capacidadeBuffer, int tamanhoLote)
+	{
+		this.repository = repository;
+		this.journal = journal;
+		this.buffer = new ArrayBlockingQueue<>(capacidadeBuffer);
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	/**
+	 * Só depois do commit do checkout: um pedido de compra desfeita nunca chega ao
+	 * journal. Sem transação (checkout em estágios), grava na hora.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void aoFinalizarCompra(CompraFinalizadaEvento evento)
+	{
+		registrar(new Pedido(UUID.randomUUID().toString(), evento.clienteId(), evento.carrinhoId(),
+				evento.transacaoPagamentoId(), evento.custoTotal(), LocalDateTime.now()));
+	}
+
+	public void registrar(Pedido pedido)
+	{
+		trava.lock();
+		try
+		{
+			anexarAoJournal(pedido);
+			if (buffer.offer(pedido))
+			{
+				return;
+			}
+
+			// Buffer cheio: degrada para gravação síncrona em vez de perder o pedido. Ainda
+			// sob a trava, para a descarga não selar o segmento antes de o pedido estar no banco
+			// ou em sincronosPendentes
+			log.warn("Buffer de pedidos cheio; gravando o pedido {} de forma síncrona.", pedido.getCodigo());
+			try
+			{
+				repository.save(pedido);
+			}
+			catch (RuntimeException e)
+			{
+				log.error("Falha ao gravar o pedido {}; nova tentativa na próxima descarga.", pedido.getCodigo(), e);
+				sincronosPendentes.add(pedido);
+			}
+		}
+		finally
+		{
+			trava.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${pedidos.gravacao.intervalo-ms:200}")
+	public synchronized void descarregar()
+	{
+		// Tudo o que está nos segmentos selados já está no banco, no buffer, no lote
+		// retido ou em sincronosPendentes, e é gravado abaixo
+		long selado = selarJournal();
+
+		if (!sincronosPendentes.isEmpty())
+		{
+			List<Pedido> falhos = new ArrayList<>(loteRetido);
+			for (Pedido pedido; (pedido = sincronosPendentes.poll()) != null;)
+			{
+				falhos.add(pedido);
+			}
+			loteRetido = falhos;
+		}
+		if (!loteRetido.isEmpty())
+		{
+			if (!gravar(loteRetido))
+			{
+				return;
+			}
+			loteRetido = new ArrayList<>();
+		}
+
+		List<Pedido> lote = new ArrayList<>(tamanhoLote);
+		while (buffer.drainTo(lote, tamanhoLote) > 0)
+		{
+			if (!gravar(lote))
+			{
+				loteRetido = lote;
+				return;
+			}
+			lote = new ArrayList<>(tamanhoLote);
+		}
+
+		descartarJournal(selado);
+	}
+
+	public int pendentes()
+	{
+		return buffer.size() + loteRetido.size() + sincronosPendentes.size();
+	}
+
+	@PostConstruct
+	public void recuperar() throws IOException
+	{
+		List<Pedido> noJournal = journal.ler();
+		if (noJournal.isEmpty())
+		{
+			return;
+		}
+
+		int regravados = 0;
+		for (int inicio = 0; inicio < noJournal.size(); inicio += LOTE_CONSULTA_RECUPERACAO)
+		{
+			List<Pedido> lote = noJournal.subList(inicio,
+					Math.min(inicio + LOTE_CONSULTA_RECUPERACAO, noJournal.size()));
+
+			Set<String> codigos = new HashSet<>();
+			lote.forEach(p -> codigos.add(p.getCodigo()));
+			Set<String> existentes = new HashSet<>(repository.findCodigosExistentes(codigos));
+
+			List<Pedido> faltantes = lote.stream().filter(p -> !existentes.contains(p.getCodigo())).toList();
+			if (!faltantes.isEmpty())
+			{
+				repository.saveAll(faltantes);
+				regravados += faltantes.size();
+			}
+		}
+
+		log.info("Journal de pedidos recuperado: {} registro(s) lido(s), {} regravado(s).", noJournal.size(),
+				regravados);
+		journal.truncar();
+	}
+
+	@PreDestroy
+	public void encerrar() throws IOException
+	{
+		descarregar();
+		journal.close();
+	}
+
+	private boolean gravar(List<Pedido> lote)
+	{
+		try
+		{
+			repository.saveAll(lote);
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Falha ao gravar lote de {} pedido(s); nova tentativa na próxima descarga.", lote.size(), e);
+			return false;
+		}
+	}
+
+	private void anexarAoJournal(Pedido pedido)
+	{
+		try
+		{
+			journal.anexar(pedido);
+		}
+		catch (IOException e)
+		{
+			// O pagamento já foi autorizado: segue apenas com o buffer em memória
+			log.error("Falha ao anexar o pedido {} ao journal.", pedido.getCodigo(), e);
+		}
+	}
+
+	private long selarJournal()
+	{
+		trava.lock();
+		try
+		{
+			return journal.selar();
+		}
+		catch (IOException e)
+		{
+			log.error("Falha ao selar o segmento corrente do journal de pedidos.", e);
+			return -1;
+		}
+		finally
+		{
+			trava.unlock();
+		}
+	}
+
+	private void descartarJournal(long selado)
+	{
+		try
+		{
+			journal.descartarAte(selado);
+		}
+		catch (IOException e)
+		{
+			log.error("Falha ao descartar segmentos do journal de pedidos.", e);
+		}
+	}
+}
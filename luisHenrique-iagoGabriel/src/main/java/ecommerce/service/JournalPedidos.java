@@ -0,0 +1,275 @@
+package ecommerce.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import ecommerce.entity.Pedido;
+
+/**
+ * Journal local append-only com os pedidos capturados e ainda não confirmados no
+ * banco. Uma linha por pedido; linhas incompletas (escrita interrompida por queda
+ * do processo) são ignoradas na leitura.
+ * <p>
+ * O journal é dividido em segmentos ({@code <arquivo>.<n>}): {@link #selar()} fecha o
+ * segmento corrente e abre o próximo, e {@link #descartarAte(long)} apaga os segmentos
+ * selados cujos pedidos já estão no banco. Assim o journal encolhe a cada descarga,
+ * mesmo que o buffer nunca chegue a esvaziar. Cada instância só apaga os segmentos que
+ * ela mesma selou; os encontrados no disco ao subir são lidos e apagados pela
+ * recuperação.
+ */
+public class JournalPedidos implements Closeable
+{
+	private static final String SEPARADOR = ";";
+
+	private final Path diretorio;
+	private final String nome;
+	private final boolean sincronizarDisco;
+
+	// Segmentos selados por esta instância e ainda não descartados, por número
+	private final TreeMap<Long, Path> selados = new TreeMap<>();
+
+	private long numeroAtual;
+	private Path segmentoAtual;
+	private FileChannel canal;
+
+	public JournalPedidos(Path arquivo, boolean sincronizarDisco) throws IOException
+	{
+		this.diretorio = arquivo.toAbsolutePath().getParent();
+		this.nome = arquivo.getFileName().toString();
+		this.sincronizarDisco = sincronizarDisco;
+
+		Files.createDirectories(diretorio);
+		abrirSegmento(ultimoNumeroNoDisco() + 1);
+	}
+
+	public synchronized void anexar(Pedido pedido) throws IOException
+	{
+		ByteBuffer linha = ByteBuffer.wrap(formatar(pedido).getBytes(StandardCharsets.UTF_8));
+		while (linha.hasRemaining())
+		{
+			canal.write(linha);
+		}
+		if (sincronizarDisco)
+		{
+			canal.force(false);
+		}
+	}
+
+	/**
+	 * Todos os pedidos do journal no disco, inclusive os de segmentos deixados por uma
+	 * execução anterior, na ordem em que foram anexados.
+	 */
+	public synchronized List<Pedido> ler() throws IOException
+	{
+		List<Pedido> pedidos = new ArrayList<>();
+		for (Path segmento : segmentosNoDisco().values())
+		{
+			try (BufferedReader leitor = Files.newBufferedReader(segmento, StandardCharsets.UTF_8))
+			{
+				String linha;
+				while ((linha = leitor.readLine()) != null)
+				{
+					Pedido pedido = interpretar(linha);
+					if (pedido != null)
+					{
+						pedidos.add(pedido);
+					}
+				}
+			}
+		}
+		return pedidos;
+	}
+
+	/**
+	 * Fecha o segmento corrente, se tiver algum pedido, e passa a anexar num novo.
+	 *
+	 * @return o número do último segmento selado ainda não descartado, ou -1 se não
+	 *         houver nenhum
+	 */
+	public synchronized long selar() throws IOException
+	{
+		if (canal.size() > 0)
+		{
+			FileChannel anterior = canal;
+			long numeroAnterior = numeroAtual;
+			Path segmentoAnterior = segmentoAtual;
+			abrirSegmento(numeroAtual + 1);
+			selados.put(numeroAnterior, segmentoAnterior);
+			anterior.close();
+		}
+		return selados.isEmpty() ? -1 : selados.lastKey();
+	}
+
+	/**
+	 * Apaga os segmentos selados por esta instância até {@code numero}, inclusive.
+	 */
+	public synchronized void descartarAte(long numero) throws IOException
+	{
+		Iterator<Path> segmentos = selados.headMap(numero, true).values().iterator();
+		while (segmentos.hasNext())
+		{
+			Files.deleteIfExists(segmentos.next());
+			segmentos.remove();
+		}
+	}
+
+	/**
+	 * Esvazia o journal: apaga todos os segmentos no disco, exceto o corrente, que é
+	 * truncado. Usado depois que a recuperação regravou tudo o que {@link #ler()} devolveu.
+	 */
+	public synchronized void truncar() throws IOException
+	{
+		for (Path segmento : segmentosNoDisco().values())
+		{
+			if (!segmento.equals(segmentoAtual))
+			{
+				Files.deleteIfExists(segmento);
+			}
+		}
+		selados.clear();
+		canal.truncate(0);
+		if (sincronizarDisco)
+		{
+			canal.force(false);
+		}
+	}
+
+	/**
+	 * Bytes ainda guardados por esta instância: o segmento corrente e os selados não
+	 * descartados.
+	 */
+	public synchronized long tamanho() throws IOException
+	{
+		long tamanho = canal.size();
+		for (Path segmento : selados.values())
+		{
+			tamanho += Files.size(segmento);
+		}
+		return tamanho;
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		canal.close();
+	}
+
+	private void abrirSegmento(long numero) throws IOException
+	{
+		// Outra instância no mesmo diretório pode ter criado o número antes
+		for (long candidato = numero;; candidato++)
+		{
+			Path segmento = diretorio.resolve(nome + "." + candidato);
+			try
+			{
+				canal = FileChannel.open(segmento, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND);
+				numeroAtual = candidato;
+				segmentoAtual = segmento;
+				return;
+			}
+			catch (FileAlreadyExistsException e)
+			{
+				// Tenta o próximo número
+			}
+		}
+	}
+
+	private long ultimoNumeroNoDisco() throws IOException
+	{
+		TreeMap<Long, Path> segmentos = segmentosNoDisco();
+		return segmentos.isEmpty() ? 0 : segmentos.lastKey();
+	}
+
+	// Segmentos no diretório por número; o arquivo sem sufixo, de versões anteriores do
+	// journal, entra como o número 0
+	private TreeMap<Long, Path> segmentosNoDisco() throws IOException
+	{
+		TreeMap<Long, Path> segmentos = new TreeMap<>();
+		try (Stream<Path> arquivos = Files.list(diretorio))
+		{
+			arquivos.forEach(arquivo -> {
+				Long numero = numeroDoSegmento(arquivo.getFileName().toString());
+				if (numero != null)
+				{
+					segmentos.put(numero, arquivo);
+				}
+			});
+		}
+		return segmentos;
+	}
+
+	private Long numeroDoSegmento(String arquivo)
+	{
+		if (arquivo.equals(nome))
+		{
+			return 0L;
+		}
+		if (!arquivo.startsWith(nome + ".") || arquivo.length() == nome.length() + 1)
+		{
+			return null;
+		}
+		String sufixo = arquivo.substring(nome.length() + 1);
+		for (int i = 0; i < sufixo.length(); i++)
+		{
+			if (!Character.isDigit(sufixo.charAt(i)))
+			{
+				return null;
+			}
+		}
+		return sufixo.length() > 18 ? null : Long.valueOf(sufixo);
+	}
+
+	static String formatar(Pedido pedido)
+	{
+		return pedido.getCodigo() + SEPARADOR
+				+ texto(pedido.getClienteId()) + SEPARADOR
+				+ texto(pedido.getCarrinhoId()) + SEPARADOR
+				+ texto(pedido.getTransacaoPagamentoId()) + SEPARADOR
+				+ texto(pedido.getValorTotal() == null ? null : pedido.getValorTotal().toPlainString()) + SEPARADOR
+				+ texto(pedido.getDataHora()) + '\n';
+	}
+
+	static Pedido interpretar(String linha)
+	{
+		String[] campos = linha.split(SEPARADOR, -1);
+		if (campos.length != 6 || campos[0].isEmpty() || campos[5].isEmpty())
+		{
+			return null;
+		}
+		try
+		{
+			return new Pedido(campos[0], longOuNulo(campos[1]), longOuNulo(campos[2]), longOuNulo(campos[3]),
+					campos[4].isEmpty() ? null : new BigDecimal(campos[4]), LocalDateTime.parse(campos[5]));
+		}
+		catch (RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	private static String texto(Object valor)
+	{
+		return valor == null ? "" : valor.toString();
+	}
+
+	private static Long longOuNulo(String valor)
+	{
+		return valor.isEmpty() ? null : Long.valueOf(valor);
+	}
+}
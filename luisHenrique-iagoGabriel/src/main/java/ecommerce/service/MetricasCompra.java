@@ -0,0 +1,84 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas Micrometer do checkout: um timer por etapa ({@code compra.etapa}) e um
+ * do checkout inteiro por desfecho ({@code compra.finalizar}), ambos com percentis
+ * calculados no cliente e histograma publicado; um contador por desfecho
+ * ({@code compra.desfecho}) e o gauge de checkouts em andamento
+ * ({@code compra.em.andamento}). Os medidores são criados uma vez, na construção,
+ * para que o caminho quente não faça buscas no registro.
+ */
+public class MetricasCompra implements ObservadorCompra {
+
+	private static final double[] PERCENTIS = { 0.5, 0.9, 0.99, 0.999 };
+
+	private final Map<Etapa, Timer> porEtapa = new EnumMap<>(Etapa.class);
+	private final Map<Desfecho, Timer> duracaoPorDesfecho = new EnumMap<>(Desfecho.class);
+	private final Map<Desfecho, Counter> contagemPorDesfecho = new EnumMap<>(Desfecho.class);
+	private final AtomicInteger emAndamento = new AtomicInteger();
+
+	public MetricasCompra(MeterRegistry registry) {
+		for (Etapa etapa : Etapa.values()) {
+			porEtapa.put(etapa, timer("compra.etapa", "Duração de cada etapa do checkout", registry)
+					.tag("etapa", etapa.name().toLowerCase())
+					.register(registry));
+		}
+		for (Desfecho desfecho : Desfecho.values()) {
+			String tag = desfecho.name().toLowerCase();
+			duracaoPorDesfecho.put(desfecho, timer("compra.finalizar", "Duração do checkout completo", registry)
+					.tag("desfecho", tag)
+					.register(registry));
+			contagemPorDesfecho.put(desfecho, Counter.builder("compra.desfecho")
+					.description("Checkouts concluídos por desfecho")
+					.tag("desfecho", tag)
+					.register(registry));
+		}
+		Gauge.builder("compra.em.andamento", emAndamento, AtomicInteger::get)
+				.description("Checkouts em andamento")
+				.register(registry);
+	}
+
+	private static Timer.Builder timer(String nome, String descricao, MeterRegistry registry) {
+		return Timer.builder(nome)
+				.description(descricao)
+				.publishPercentiles(PERCENTIS)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(100_000))
+				.maximumExpectedValue(Duration.ofSeconds(30));
+	}
+
+	@Override
+	public Medicao iniciar() {
+		emAndamento.incrementAndGet();
+		long inicio = System.nanoTime();
+		return new Medicao() {
+			@Override
+			public void etapa(Etapa etapa, long duracaoNanos) {
+				porEtapa.get(etapa).record(duracaoNanos, TimeUnit.NANOSECONDS);
+			}
+
+			@Override
+			public void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal) {
+				emAndamento.decrementAndGet();
+				duracaoPorDesfecho.get(desfecho).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+				contagemPorDesfecho.get(desfecho).increment();
+			}
+		};
+	}
+
+	public int emAndamento() {
+		return emAndamento.get();
+	}
+}
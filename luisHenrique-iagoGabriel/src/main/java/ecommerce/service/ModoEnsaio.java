@@ -0,0 +1,43 @@
+package ecommerce.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Checkout de ensaio nesta thread, usado pelo aquecimento: a chamada percorre os
+ * beans reais (proxies, transação, consultas), mas nada sai do processo nem fica
+ * gravado. Os externos respondem sem chamar o serviço
+ * ({@link ecommerce.config.EnsaioExternosInterceptor}) e o {@link CompraService}
+ * não reserva o carrinho, não publica {@link CompraFinalizadaEvento} nem entra nas
+ * métricas.
+ */
+public final class ModoEnsaio
+{
+	private static final ThreadLocal<Boolean> ATIVO = new ThreadLocal<>();
+
+	private ModoEnsaio()
+	{
+	}
+
+	public static boolean ativo()
+	{
+		return ATIVO.get() != null;
+	}
+
+	/** Executa a operação em ensaio e restaura o modo anterior. */
+	public static <T> T executar(Supplier<T> operacao)
+	{
+		boolean anterior = ativo();
+		ATIVO.set(Boolean.TRUE);
+		try
+		{
+			return operacao.get();
+		}
+		finally
+		{
+			if (!anterior)
+			{
+				ATIVO.remove();
+			}
+		}
+	}
+}
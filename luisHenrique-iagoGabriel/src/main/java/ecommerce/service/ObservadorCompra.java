@@ -0,0 +1,87 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Recebe a duração de cada etapa do checkout e o seu desfecho. A implementação
+ * {@link #NENHUM} devolve sempre a mesma medição vazia: sem observador configurado
+ * o checkout não aloca nada por causa da instrumentação.
+ */
+public interface ObservadorCompra {
+
+	enum Etapa {
+		CLIENTE, CARRINHO, DISPONIBILIDADE, PRECIFICACAO, AUTORIZACAO_PAGAMENTO, BAIXA_ESTOQUE, COMPENSACAO
+	}
+
+	enum Desfecho {
+		SUCESSO, INVALIDO, FORA_DE_ESTOQUE, PAGAMENTO_NEGADO, FALHA_BAIXA, CONFLITO, FALHA_EXTERNA, SATURADO, ERRO
+	}
+
+	/** Medição de um único checkout; {@link #concluir} é chamado exatamente uma vez. */
+	interface Medicao {
+
+		Medicao NENHUMA = new Medicao() {
+			@Override
+			public void etapa(Etapa etapa, long duracaoNanos) {
+			}
+
+			@Override
+			public void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal) {
+			}
+		};
+
+		void etapa(Etapa etapa, long duracaoNanos);
+
+		/** {@code custoTotal} é nulo quando o checkout termina antes da precificação. */
+		void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal);
+	}
+
+	ObservadorCompra NENHUM = () -> Medicao.NENHUMA;
+
+	Medicao iniciar();
+
+	/** Repassa a todos os observadores; as medições vazias são descartadas a cada checkout. */
+	static ObservadorCompra combinar(ObservadorCompra... observadores) {
+		ObservadorCompra[] ativos = Arrays.stream(observadores).filter(o -> o != NENHUM)
+				.toArray(ObservadorCompra[]::new);
+		if (ativos.length == 0) {
+			return NENHUM;
+		}
+		if (ativos.length == 1) {
+			return ativos[0];
+		}
+		return () -> {
+			Medicao[] medicoes = new Medicao[ativos.length];
+			int total = 0;
+			for (ObservadorCompra observador : ativos) {
+				Medicao medicao = observador.iniciar();
+				if (medicao != Medicao.NENHUMA) {
+					medicoes[total++] = medicao;
+				}
+			}
+			if (total == 0) {
+				return Medicao.NENHUMA;
+			}
+			if (total == 1) {
+				return medicoes[0];
+			}
+			Medicao[] todas = Arrays.copyOf(medicoes, total);
+			return new Medicao() {
+				@Override
+				public void etapa(Etapa etapa, long duracaoNanos) {
+					for (Medicao medicao : todas) {
+						medicao.etapa(etapa, duracaoNanos);
+					}
+				}
+
+				@Override
+				public void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal) {
+					for (Medicao medicao : todas) {
+						medicao.concluir(desfecho, itens, custoTotal);
+					}
+				}
+			};
+		};
+	}
+}
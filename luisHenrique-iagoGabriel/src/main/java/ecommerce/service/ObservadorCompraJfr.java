@@ -0,0 +1,22 @@
+package ecommerce.service;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emite um {@link EventoCheckoutJfr} por checkout enquanto alguma gravação JFR
+ * tiver o evento habilitado; fora disso devolve a medição vazia, sem alocar.
+ */
+public class ObservadorCompraJfr implements ObservadorCompra {
+
+	private static final EventType TIPO = EventType.getEventType(EventoCheckoutJfr.class);
+
+	@Override
+	public Medicao iniciar() {
+		if (!TIPO.isEnabled()) {
+			return Medicao.NENHUMA;
+		}
+		EventoCheckoutJfr evento = new EventoCheckoutJfr();
+		evento.begin();
+		return evento;
+	}
+}
@@ -0,0 +1,54 @@
+package ecommerce.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ecommerce.dto.PedidoDTO;
+import ecommerce.entity.Pedido;
+import ecommerce.repository.PedidoRepository;
+
+/**
+ * Consulta do histórico de pedidos. Como a gravação é write-behind, um pedido
+ * recém-finalizado aparece aqui após a próxima descarga do {@link GravadorPedidos}.
+ */
+@Service
+public class PedidoService
+{
+	private static final int TAMANHO_MAXIMO_PAGINA = 100;
+
+	private final PedidoRepository repository;
+
+	@Autowired
+	public PedidoService(PedidoRepository repository)
+	{
+		this.repository = repository;
+	}
+
+	@Transactional(readOnly = true)
+	public List<PedidoDTO> historico(Long clienteId, int pagina, int tamanho)
+	{
+		PageRequest pageable = PageRequest.of(Math.max(pagina, 0),
+				Math.min(Math.max(tamanho, 1), TAMANHO_MAXIMO_PAGINA));
+
+		return repository.findByClienteIdOrderByDataHoraDesc(clienteId, pageable).stream()
+				.map(PedidoService::paraDTO)
+				.toList();
+	}
+
+	@Transactional(readOnly = true)
+	public PedidoDTO buscarPorCodigo(String codigo)
+	{
+		return repository.findByCodigo(codigo).map(PedidoService::paraDTO)
+				.orElseThrow(() -> new IllegalArgumentException("Pedido não encontrado."));
+	}
+
+	private static PedidoDTO paraDTO(Pedido pedido)
+	{
+		return new PedidoDTO(pedido.getCodigo(), pedido.getCarrinhoId(), pedido.getTransacaoPagamentoId(),
+				pedido.getValorTotal(), pedido.getDataHora());
+	}
+}
@@ -0,0 +1,321 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.config.AnelFragmentos;
+import ecommerce.config.ContextoFragmento;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+
+/**
+ * Recalcula o total gravado dos carrinhos que contêm produtos com preço alterado
+ * (uma promoção muda milhares de uma vez). Os carrinhos afetados saem do índice
+ * item→produto ({@code idx_item_produto}) em páginas por keyset, com no máximo
+ * {@value #MAXIMO_PARAMETROS_IN} produtos por {@code in (...)} (limite de Oracle e
+ * afins); cada página é dividida em trechos num {@link ForkJoinPool} próprio, e
+ * cada trecho carrega os carrinhos com itens numa consulta, precifica com as regras
+ * do checkout e grava os totais em lote, numa transação curta.
+ *
+ * <p>Para não disputar com o checkout: o paralelismo é fixo e pequeno (cada trecho
+ * ocupa uma conexão do pool), a vazão é limitada em carrinhos por segundo (a
+ * espera acontece em quem entrega a página ao pool, uma rodada de trechos por vez,
+ * nunca numa thread do pool) e a gravação não incrementa a versão, de modo que
+ * um checkout em curso nunca falha por causa do recálculo. Ao contrário, o total
+ * só é gravado se a versão ainda for a lida; um carrinho alterado no meio do
+ * caminho fica para quem o alterou. Os donos dos carrinhos regravados saem num
+ * {@link CarrinhosAlteradosEvento} por trecho.
+ */
+@Service
+@Profile("!inmemory")
+public class RecalculoCarrinhosService
+{
+	private static final Logger log = LoggerFactory.getLogger(RecalculoCarrinhosService.class);
+
+	private static final String ATUALIZAR_TOTAL = "update carrinho_de_compras set valor_total = ?,"
+			+ " total_calculado_em = ? where id = ? and coalesce(versao, 0) = ?";
+
+	static final int MAXIMO_PARAMETROS_IN = 1000;
+
+	/** {@code carrinhos} são os carregados, a soma de atualizados, inválidos e conflitos. */
+	public record Resultado(long carrinhos, long atualizados, long invalidos, long conflitos, long duracaoMs)
+	{
+	}
+
+	private final CarrinhoDeComprasRepository repository;
+	private final CompraService compraService;
+	private final JdbcTemplate jdbc;
+	private final TransactionTemplate transacao;
+	private final ForkJoinPool pool;
+	private final int tamanhoTrecho;
+	private final int tamanhoPagina;
+	private final LimiteVazao limite;
+	private final List<String> fragmentos;
+	private final ApplicationEventPublisher eventos;
+
+	public RecalculoCarrinhosService(CarrinhoDeComprasRepository repository, CompraService compraService,
+			JdbcTemplate jdbc, TransactionTemplate transacao, ForkJoinPool pool, int tamanhoTrecho,
+			int tamanhoPagina, int carrinhosPorSegundo)
+	{
+		this(repository, compraService, jdbc, transacao, pool, tamanhoTrecho, tamanhoPagina, carrinhosPorSegundo,
+				null, evento -> {
+				});
+	}
+
+	@Autowired
+	public RecalculoCarrinhosService(CarrinhoDeComprasRepository repository, CompraService compraService,
+			JdbcTemplate jdbc, TransactionTemplate transacao, @Qualifier("recalculoCarrinhosPool") ForkJoinPool pool,
+			@Value("${carrinhos.recalculo.tamanho-trecho:100}") int tamanhoTrecho,
+			@Value("${carrinhos.recalculo.tamanho-pagina:5000}") int tamanhoPagina,
+			@Value("${carrinhos.recalculo.carrinhos-por-segundo:2000}") int carrinhosPorSegundo,
+			ObjectProvider<AnelFragmentos> anel, ApplicationEventPublisher eventos)
+	{
+		this.repository = repository;
+		this.compraService = compraService;
+		this.jdbc = jdbc;
+		this.transacao = transacao;
+		this.pool = pool;
+		this.tamanhoTrecho = tamanhoTrecho;
+		this.tamanhoPagina = tamanhoPagina;
+		this.limite = new LimiteVazao(carrinhosPorSegundo);
+		AnelFragmentos fragmentado = anel == null ? null : anel.getIfAvailable();
+		this.fragmentos = fragmentado == null ? List.of() : fragmentado.nomes();
+		this.eventos = eventos;
+	}
+
+	/** Recalcula os carrinhos que contêm algum dos produtos; cada fragmento por vez. */
+	public Resultado recalcular(Collection<Long> produtoIds)
+	{
+		long inicio = System.nanoTime();
+		Contagem contagem = new Contagem();
+		if (!produtoIds.isEmpty())
+		{
+			List<Long> produtos = new ArrayList<>(produtoIds);
+			if (fragmentos.isEmpty())
+			{
+				recalcularBanco(null, produtos, contagem);
+			}
+			for (String fragmento : fragmentos)
+			{
+				ContextoFragmento.executarEm(fragmento, () -> {
+					recalcularBanco(fragmento, produtos, contagem);
+					return null;
+				});
+			}
+		}
+		Resultado resultado = new Resultado(contagem.carrinhos.sum(), contagem.atualizados.sum(),
+				contagem.invalidos.sum(), contagem.conflitos.sum(), (System.nanoTime() - inicio) / 1_000_000);
+		log.info("Recálculo de carrinhos para {} produto(s): {}.", produtoIds.size(), resultado);
+		return resultado;
+	}
+
+	private void recalcularBanco(String fragmento, List<Long> produtos, Contagem contagem)
+	{
+		List<List<Long>> blocos = new ArrayList<>();
+		for (int i = 0; i < produtos.size(); i += MAXIMO_PARAMETROS_IN)
+		{
+			blocos.add(produtos.subList(i, Math.min(i + MAXIMO_PARAMETROS_IN, produtos.size())));
+		}
+		long ultimoId = 0;
+		List<Long> pagina;
+		do
+		{
+			pagina = pagina(blocos, ultimoId);
+			if (!pagina.isEmpty())
+			{
+				processar(fragmento, pagina, contagem);
+				ultimoId = pagina.get(pagina.size() - 1);
+			}
+		}
+		while (pagina.size() == tamanhoPagina);
+	}
+
+	/**
+	 * Os próximos {@code tamanhoPagina} carrinhos depois de {@code ultimoId} com algum
+	 * dos produtos: os primeiros de cada bloco, juntos sem repetição. Os primeiros da
+	 * junção estão sempre entre os primeiros do próprio bloco, então o keyset vale.
+	 */
+	private List<Long> pagina(List<List<Long>> blocos, long ultimoId)
+	{
+		TreeSet<Long> ids = new TreeSet<>();
+		for (List<Long> bloco : blocos)
+		{
+			String selecionar = "select distinct carrinho_id from item_compra where produto_id in ("
+					+ String.join(",", Collections.nCopies(bloco.size(), "?"))
+					+ ") and carrinho_id > ? order by carrinho_id fetch first ? rows only";
+			Object[] parametros = Arrays.copyOf(bloco.toArray(), bloco.size() + 2);
+			parametros[bloco.size()] = ultimoId;
+			parametros[bloco.size() + 1] = tamanhoPagina;
+			ids.addAll(jdbc.queryForList(selecionar, Long.class, parametros));
+		}
+		return ids.stream().limit(tamanhoPagina).toList();
+	}
+
+	/** Entrega a página ao pool uma rodada de trechos por vez, esperando a vazão antes de cada uma. */
+	private void processar(String fragmento, List<Long> pagina, Contagem contagem)
+	{
+		int rodada = tamanhoTrecho * pool.getParallelism();
+		for (int i = 0; i < pagina.size(); i += rodada)
+		{
+			List<Long> ids = pagina.subList(i, Math.min(i + rodada, pagina.size()));
+			limite.aguardar(ids.size());
+			pool.invoke(new Trecho(fragmento, ids, contagem));
+		}
+	}
+
+	/** Divide ao meio até {@code tamanhoTrecho} carrinhos; as folhas precificam e gravam. */
+	private final class Trecho extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String fragmento;
+		private final List<Long> ids;
+		private final Contagem contagem;
+
+		Trecho(String fragmento, List<Long> ids, Contagem contagem)
+		{
+			this.fragmento = fragmento;
+			this.ids = ids;
+			this.contagem = contagem;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (ids.size() > tamanhoTrecho)
+			{
+				int meio = ids.size() / 2;
+				invokeAll(new Trecho(fragmento, ids.subList(0, meio), contagem),
+						new Trecho(fragmento, ids.subList(meio, ids.size()), contagem));
+				return;
+			}
+			if (fragmento == null)
+			{
+				recalcularTrecho(ids, contagem);
+			}
+			else
+			{
+				// As threads do pool não herdam o fragmento de quem chamou
+				ContextoFragmento.executarEm(fragmento, () -> {
+					recalcularTrecho(ids, contagem);
+					return null;
+				});
+			}
+		}
+	}
+
+	private void recalcularTrecho(List<Long> ids, Contagem contagem)
+	{
+		transacao.executeWithoutResult(status -> {
+			Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+			List<Object[]> totais = new ArrayList<>(ids.size());
+			List<Long> clientes = new ArrayList<>(ids.size());
+			List<CarrinhoDeCompras> carregados = repository.buscarComItens(ids);
+			// Só os que ainda existem: um carrinho removido depois da página não entra na conta
+			contagem.carrinhos.add(carregados.size());
+			for (CarrinhoDeCompras carrinho : carregados)
+			{
+				if (!compraService.validar(carrinho).valido())
+				{
+					contagem.invalidos.increment();
+					continue;
+				}
+				BigDecimal total = compraService.calcularCustoTotal(carrinho);
+				totais.add(new Object[] { total, agora, carrinho.getId(),
+						carrinho.getVersao() == null ? 0L : carrinho.getVersao() });
+				clientes.add(carrinho.getCliente() == null ? null : carrinho.getCliente().getId());
+			}
+			int atualizados = 0;
+			List<Long> alterados = new ArrayList<>(totais.size());
+			int[] linhas = jdbc.batchUpdate(ATUALIZAR_TOTAL, totais);
+			for (int i = 0; i < linhas.length; i++)
+			{
+				if (linhas[i] > 0)
+				{
+					atualizados++;
+					if (clientes.get(i) != null)
+					{
+						alterados.add(clientes.get(i));
+					}
+				}
+			}
+			contagem.atualizados.add(atualizados);
+			contagem.conflitos.add(totais.size() - atualizados);
+			if (!alterados.isEmpty())
+			{
+				eventos.publishEvent(new CarrinhosAlteradosEvento(alterados));
+			}
+		});
+	}
+
+	private static final class Contagem
+	{
+		final LongAdder carrinhos = new LongAdder();
+		final LongAdder atualizados = new LongAdder();
+		final LongAdder invalidos = new LongAdder();
+		final LongAdder conflitos = new LongAdder();
+	}
+
+	/**
+	 * Vazão máxima compartilhada por todos os recálculos: cada rodada reserva a sua
+	 * fatia de tempo e espera por ela, fora do pool. Zero ou negativo desliga o limite.
+	 */
+	static final class LimiteVazao
+	{
+		private final long nanosPorCarrinho;
+		private final AtomicLong proximaLiberacao = new AtomicLong(System.nanoTime());
+
+		LimiteVazao(int carrinhosPorSegundo)
+		{
+			this.nanosPorCarrinho = carrinhosPorSegundo <= 0 ? 0L : TimeUnit.SECONDS.toNanos(1) / carrinhosPorSegundo;
+		}
+
+		void aguardar(int carrinhos)
+		{
+			if (nanosPorCarrinho == 0)
+			{
+				return;
+			}
+			long custo = carrinhos * nanosPorCarrinho;
+			long agora = System.nanoTime();
+			// Tempo ocioso não vira crédito: a reserva começa em "agora" se a fila estiver vazia
+			long liberacao = proximaLiberacao.getAndAccumulate(custo, (proxima, c) -> Math.max(proxima, agora) + c);
+			long espera = liberacao - agora;
+			if (espera > 0)
+			{
+				try
+				{
+					TimeUnit.NANOSECONDS.sleep(espera);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package ecommerce.service;
+
+/**
+ * Requisição de compra rejeitada por dados inválidos ou inexistentes. Sem pilha:
+ * é lançada em volume por tráfego inválido, e a mensagem já diz o que houve.
+ */
+public class RequisicaoInvalidaException extends IllegalArgumentException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient ResultadoValidacao validacao;
+
+	public RequisicaoInvalidaException(String mensagem)
+	{
+		this(mensagem, null);
+	}
+
+	public RequisicaoInvalidaException(String mensagem, ResultadoValidacao validacao)
+	{
+		super(mensagem);
+		this.validacao = validacao;
+	}
+
+	/** Violações do carrinho, quando a rejeição veio da validação; nulo caso contrário. */
+	public ResultadoValidacao getValidacao()
+	{
+		return validacao;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
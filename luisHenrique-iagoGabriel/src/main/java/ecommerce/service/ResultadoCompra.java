@@ -0,0 +1,26 @@
+package ecommerce.service;
+
+import ecommerce.dto.CompraDTO;
+
+/**
+ * Resultado de {@link CompraService#finalizar}: a compra concluída ou o carrinho
+ * rejeitado na validação, sem exceção.
+ */
+public record ResultadoCompra(CompraDTO compra, ResultadoValidacao validacao)
+{
+
+	static ResultadoCompra concluida(CompraDTO compra)
+	{
+		return new ResultadoCompra(compra, ResultadoValidacao.VALIDO);
+	}
+
+	static ResultadoCompra rejeitada(ResultadoValidacao validacao)
+	{
+		return new ResultadoCompra(new CompraDTO(false, null, validacao.mensagem()), validacao);
+	}
+
+	public boolean rejeitada()
+	{
+		return !validacao.valido();
+	}
+}
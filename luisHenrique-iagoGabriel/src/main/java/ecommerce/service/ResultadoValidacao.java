@@ -0,0 +1,89 @@
+package ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado da validação de um carrinho: todas as regras violadas (como máscara de
+ * bits de {@link Violacao}) e a primeira encontrada na ordem de verificação, que dá
+ * a mensagem das APIs que lançam exceção. O carrinho válido recebe sempre a mesma
+ * instância {@link #VALIDO}, então o caminho feliz não aloca.
+ */
+public final class ResultadoValidacao
+{
+
+	public static final ResultadoValidacao VALIDO = new ResultadoValidacao(0, null);
+
+	private final int violacoes;
+	private final Violacao primeira;
+
+	private ResultadoValidacao(int violacoes, Violacao primeira)
+	{
+		this.violacoes = violacoes;
+		this.primeira = primeira;
+	}
+
+	static ResultadoValidacao de(int violacoes, Violacao primeira)
+	{
+		return violacoes == 0 ? VALIDO : new ResultadoValidacao(violacoes, primeira);
+	}
+
+	public boolean valido()
+	{
+		return violacoes == 0;
+	}
+
+	public boolean contem(Violacao violacao)
+	{
+		return (violacoes & violacao.bit()) != 0;
+	}
+
+	/** Primeira violação encontrada; nula se válido. */
+	public Violacao primeira()
+	{
+		return primeira;
+	}
+
+	/** Todas as violações, na ordem de {@link Violacao}. */
+	public List<Violacao> violacoes()
+	{
+		if (violacoes == 0)
+		{
+			return Collections.emptyList();
+		}
+		List<Violacao> lista = new ArrayList<>(Integer.bitCount(violacoes));
+		for (Violacao violacao : Violacao.values())
+		{
+			if (contem(violacao))
+			{
+				lista.add(violacao);
+			}
+		}
+		return lista;
+	}
+
+	/** Mensagens distintas de todas as violações, começando pela primeira encontrada. */
+	public String mensagem()
+	{
+		if (violacoes == 0)
+		{
+			return "";
+		}
+		StringBuilder mensagem = new StringBuilder(primeira.mensagem());
+		for (Violacao violacao : violacoes())
+		{
+			if (mensagem.indexOf(violacao.mensagem()) < 0)
+			{
+				mensagem.append(' ').append(violacao.mensagem());
+			}
+		}
+		return mensagem.toString();
+	}
+
+	/** Para as APIs que lançam: exceção sem pilha com a mensagem da primeira violação. */
+	public RequisicaoInvalidaException excecao()
+	{
+		return new RequisicaoInvalidaException(primeira.mensagem(), this);
+	}
+}
@@ -0,0 +1,76 @@
+package ecommerce.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reexecuta uma operação transacional que falhou por conflito de versão, com
+ * espera exponencial e jitter. Deve envolver a chamada de fora da transação, para
+ * que cada tentativa abra uma transação nova e releia o carrinho.
+ */
+@Component
+public class RetentativaConflito
+{
+	private static final Logger log = LoggerFactory.getLogger(RetentativaConflito.class);
+
+	private final int maxTentativas;
+	private final long esperaInicialMs;
+
+	@Autowired
+	public RetentativaConflito(@Value("${compra.retentativa.max-tentativas:3}") int maxTentativas,
+			@Value("${compra.retentativa.espera-inicial-ms:10}") long esperaInicialMs)
+	{
+		this.maxTentativas = Math.max(1, maxTentativas);
+		this.esperaInicialMs = esperaInicialMs;
+	}
+
+	public <T> T executar(Supplier<T> operacao)
+	{
+		for (int tentativa = 1;; tentativa++)
+		{
+			try
+			{
+				return operacao.get();
+			}
+			catch (OptimisticLockingFailureException e)
+			{
+				if (tentativa >= maxTentativas)
+				{
+					throw e;
+				}
+				log.debug("Conflito de versão na tentativa {} de {}; repetindo.", tentativa, maxTentativas);
+				if (!esperar(tentativa))
+				{
+					throw e;
+				}
+			}
+		}
+	}
+
+	private boolean esperar(int tentativa)
+	{
+		long base = esperaInicialMs << (tentativa - 1);
+		if (base <= 0)
+		{
+			return true;
+		}
+		try
+		{
+			TimeUnit.MILLISECONDS.sleep(base + ThreadLocalRandom.current().nextLong(base));
+			return true;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
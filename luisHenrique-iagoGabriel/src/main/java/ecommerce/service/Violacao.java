@@ -0,0 +1,43 @@
+package ecommerce.service;
+
+import ecommerce.utils.Msg;
+
+/** Regras de validação do carrinho para a compra, na ordem em que são verificadas. */
+public enum Violacao
+{
+	CARRINHO_INVALIDO("erro.carrinho.invalido"),
+	ITEM_PRODUTO_INVALIDO("erro.item.produto.invalido"),
+	ITEM_QUANTIDADE_INVALIDA("erro.item.quantidade.invalida"),
+	PRODUTO_DIMENSOES_INVALIDAS("erro.produto.dimensoes.invalidas"),
+	PRODUTO_PESO_INVALIDO("erro.produto.peso.invalido"),
+	PRODUTO_PRECO_INVALIDO("erro.produto.preco.invalido"),
+	PRODUTO_TIPO_INVALIDO("erro.produto.tipo.invalido"),
+	PRODUTO_NOME_INVALIDO("erro.produto.nome.invalido"),
+	PRODUTO_DESCRICAO_INVALIDA("erro.produto.descricao.invalida"),
+	PRODUTO_SEM_ID("erro.produto.sem.id");
+
+	private final String chave;
+	private final String mensagem;
+
+	Violacao(String chave)
+	{
+		this.chave = chave;
+		this.mensagem = Msg.get(chave);
+	}
+
+	public String chave()
+	{
+		return chave;
+	}
+
+	/** Mensagem já resolvida no carregamento do enum; não consulta o bundle por rejeição. */
+	public String mensagem()
+	{
+		return mensagem;
+	}
+
+	int bit()
+	{
+		return 1 << ordinal();
+	}
+}
@@ -0,0 +1,152 @@
+package ecommerce.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+
+/**
+ * Carga sobre {@code POST /finalizar} com a aplicação no mesmo processo (H2 e
+ * externos simulados), por cenário: caminho feliz, fora de estoque, pagamento
+ * negado e falha na baixa. Reporta vazão e p50/p99/p99.9 corrigidos para omissão
+ * coordenada (ver {@link GeradorCarga}).
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=CargaFinalizarBenchmark -Dcarga.modelo=aberto -Dcarga.taxa=500
+ * mvn -Pbenchmark test -Dtest=CargaFinalizarBenchmark -Dcarga.modelo=fechado -Dcarga.concorrencia=64
+ * </pre>
+ *
+ * Outros parâmetros: {@code carga.cenarios}, {@code carga.carrinhos},
+ * {@code carga.aquecimento-s}, {@code carga.duracao-s}; a latência dos externos
+ * segue {@code externos.simulacao.*} (também aceitos como -D).
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmark-carga;DB_CLOSE_DELAY=-1",
+        "carrinhos.arquivamento.habilitado=false",
+        "pedidos.gravacao.diretorio=target/benchmark", "pedidos.gravacao.journal=pedidos-carga.journal" })
+public class CargaFinalizarBenchmark {
+
+    private record Cenario(String nome, int statusEsperado, Runnable configurar) {
+    }
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EstoqueSimulado estoque;
+
+    @Autowired
+    private PagamentoSimulado pagamento;
+
+    @AfterEach
+    void restaurarSimuladores() {
+        estoque.configurarDisponibilidade(true);
+        estoque.configurarBaixaSucesso(true);
+        pagamento.configurarAutorizacao(true);
+    }
+
+    @Test
+    void cargaPorCenario() throws Exception {
+        GeradorDadosSinteticos gerador = new GeradorDadosSinteticos(jdbc);
+        gerador.limpar();
+        gerador.gerar(GeradorDadosSinteticos.Configuracao.padrao(Integer.getInteger("carga.carrinhos", 5_000)));
+        List<long[]> pares = jdbc.query("select id, cliente_id from carrinho_de_compras order by id",
+                (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) });
+
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        GeradorCarga.Requisicao finalizar = sequencia -> {
+            long[] par = pares.get((int) (sequencia % pares.size()));
+            URI uri = URI.create("http://localhost:" + porta + "/finalizar?carrinhoId=" + par[0] + "&clienteId="
+                    + par[1]);
+            HttpRequest requisicao = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build();
+            return cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+        };
+
+        GeradorCarga.Configuracao configuracao = GeradorCarga.Configuracao.padrao();
+        GeradorCarga carga = new GeradorCarga(configuracao);
+        Path diretorio = Path.of("target", "benchmark");
+        Files.createDirectories(diretorio);
+
+        List<GeradorCarga.Resultado> resultados = new ArrayList<>();
+        for (Cenario cenario : cenariosSelecionados()) {
+            restaurarSimuladores();
+            cenario.configurar().run();
+
+            GeradorCarga.Resultado resultado = carga.executar(cenario.nome(), finalizar);
+            resultados.add(resultado);
+            distribuicao(diretorio.resolve("carga-finalizar-" + cenario.nome() + ".hgrm"), resultado);
+
+            assertThat(resultado.porStatus()).as("respostas do cenário %s", cenario.nome())
+                    .containsKey(cenario.statusEsperado());
+        }
+
+        String relatorio = relatorio(configuracao, resultados);
+        System.out.println(relatorio);
+        Files.writeString(diretorio.resolve("carga-finalizar.txt"), relatorio);
+    }
+
+    private List<Cenario> cenariosSelecionados() {
+        List<Cenario> todos = List.of(
+                new Cenario("caminho-feliz", 200, () -> {
+                }),
+                new Cenario("fora-de-estoque", 409, () -> estoque.configurarDisponibilidade(false)),
+                new Cenario("pagamento-negado", 409, () -> pagamento.configurarAutorizacao(false)),
+                new Cenario("falha-na-baixa", 409, () -> estoque.configurarBaixaSucesso(false)));
+
+        String filtro = System.getProperty("carga.cenarios", "");
+        if (filtro.isBlank()) {
+            return todos;
+        }
+        List<String> nomes = Arrays.stream(filtro.split(",")).map(String::trim).toList();
+        return todos.stream().filter(c -> nomes.contains(c.nome())).toList();
+    }
+
+    private static String relatorio(GeradorCarga.Configuracao configuracao, List<GeradorCarga.Resultado> resultados) {
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format("modelo=%s taxa=%.0f/s concorrencia=%d aquecimento=%ds duracao=%ds%n%n",
+                configuracao.modelo(), configuracao.taxaPorSegundo(), configuracao.concorrencia(),
+                configuracao.aquecimento().toSeconds(), configuracao.duracao().toSeconds()));
+        relatorio.append(String.format("%-18s %10s %10s %10s %10s %10s %10s  %s%n", "cenario", "requisicoes",
+                "vazao/s", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "status"));
+        for (GeradorCarga.Resultado r : resultados) {
+            relatorio.append(String.format("%-18s %10d %10.1f %10.2f %10.2f %10.2f %10.2f  %s%n", r.cenario(),
+                    r.requisicoes(), r.vazaoPorSegundo(), r.percentilMs(50.0), r.percentilMs(99.0),
+                    r.percentilMs(99.9), r.histograma().getMaxValue() / 1_000.0, r.porStatus()));
+        }
+        return relatorio.toString();
+    }
+
+    /** Distribuição completa em ms, no formato .hgrm do HdrHistogram (plotável). */
+    private static void distribuicao(Path arquivo, GeradorCarga.Resultado resultado) throws IOException {
+        try (PrintStream saida = new PrintStream(Files.newOutputStream(arquivo), false, StandardCharsets.UTF_8)) {
+            resultado.histograma().outputPercentileDistribution(saida, 1_000.0);
+        }
+    }
+}
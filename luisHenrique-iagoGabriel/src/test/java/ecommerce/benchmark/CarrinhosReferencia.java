@@ -0,0 +1,44 @@
+package ecommerce.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Carrinhos determinísticos usados pelo perf-gate e pelos orçamentos de alocação:
+ * o mesmo tamanho gera sempre os mesmos itens (tipos alternados, um em cada quatro
+ * produtos frágil), para que as medidas sejam comparáveis entre execuções.
+ */
+public final class CarrinhosReferencia {
+
+    private static final TipoProduto[] TIPOS = TipoProduto.values();
+
+    private CarrinhosReferencia() {
+    }
+
+    public static CarrinhoDeCompras carrinho(Long id, Cliente cliente, int itens) {
+        List<ItemCompra> lista = new ArrayList<>(itens);
+        for (int i = 0; i < itens; i++) {
+            lista.add(new ItemCompra((long) i + 1, produto(i), (long) (i % 3) + 1));
+        }
+        return new CarrinhoDeCompras(id, cliente, lista, LocalDate.of(2024, 1, 1));
+    }
+
+    public static CarrinhoDeCompras carrinho(int itens) {
+        return carrinho(null, null, itens);
+    }
+
+    private static Produto produto(int i) {
+        return new Produto((long) i + 1, "Produto " + i, "Descrição do produto " + i,
+                BigDecimal.valueOf(1_000 + i * 350L, 2), BigDecimal.valueOf(50 + (i % 7) * 40L, 2),
+                new BigDecimal("20"), new BigDecimal("15"), new BigDecimal("10"), i % 4 == 0,
+                TIPOS[i % TIPOS.length]);
+    }
+}
@@ -0,0 +1,118 @@
+package ecommerce.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Compara medidas com a baseline gravada ({@code <benchmark>.vazao-relativa} e
+ * {@code <benchmark>.bytes-por-op}). A vazão entra dividida pela de uma carga de
+ * calibração medida na mesma execução, de modo que a baseline vale para qualquer
+ * máquina: o que se compara é quanto o código custa em relação à calibração, não
+ * quantas operações por segundo a máquina faz. Regressão é vazão relativa abaixo
+ * de {@code baseline * (1 - toleranciaVazao)} ou alocação acima de
+ * {@code baseline * (1 + toleranciaAlocacao)}; medidas sem baseline são apenas
+ * reportadas.
+ */
+public final class ComparacaoBaseline {
+
+    public record Medida(String benchmark, double opsPorSegundo, double bytesPorOperacao) {
+    }
+
+    public record Linha(String metrica, Double baseline, double atual, String situacao) {
+
+        public boolean regressao() {
+            return "REGRESSAO".equals(situacao);
+        }
+    }
+
+    private final Map<String, Double> baseline;
+    private final double toleranciaVazao;
+    private final double toleranciaAlocacao;
+
+    public ComparacaoBaseline(Map<String, Double> baseline, double toleranciaVazao, double toleranciaAlocacao) {
+        this.baseline = baseline;
+        this.toleranciaVazao = toleranciaVazao;
+        this.toleranciaAlocacao = toleranciaAlocacao;
+    }
+
+    public static Map<String, Double> ler(Reader leitor) throws IOException {
+        Properties propriedades = new Properties();
+        propriedades.load(leitor);
+        Map<String, Double> valores = new TreeMap<>();
+        propriedades.forEach((chave, valor) -> valores.put((String) chave, Double.parseDouble((String) valor)));
+        return valores;
+    }
+
+    public static void gravar(Path arquivo, List<Medida> medidas, Medida calibracao) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer escritor = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            escritor.write("# Baseline do perfil perf-gate; regenerar com -Dperf.atualizar-baseline=true\n");
+            escritor.write("# Vazão relativa à calibração da mesma execução; alocação em bytes por operação\n");
+            for (Medida m : medidas) {
+                escritor.write(String.format(Locale.ROOT, "%s.vazao-relativa=%.4f%n", m.benchmark(),
+                        m.opsPorSegundo() / calibracao.opsPorSegundo()));
+                escritor.write(String.format(Locale.ROOT, "%s.bytes-por-op=%.0f%n", m.benchmark(),
+                        m.bytesPorOperacao()));
+            }
+        }
+    }
+
+    public List<Linha> comparar(List<Medida> medidas, Medida calibracao) {
+        List<Linha> linhas = new ArrayList<>();
+        for (Medida m : medidas) {
+            String vazao = m.benchmark() + ".vazao-relativa";
+            String alocacao = m.benchmark() + ".bytes-por-op";
+            linhas.add(linha(vazao, m.opsPorSegundo() / calibracao.opsPorSegundo(), true));
+            linhas.add(linha(alocacao, m.bytesPorOperacao(), false));
+        }
+        return linhas;
+    }
+
+    private Linha linha(String metrica, double atual, boolean maiorMelhor) {
+        Double referencia = baseline.get(metrica);
+        if (referencia == null) {
+            return new Linha(metrica, null, atual, "SEM BASELINE");
+        }
+        String situacao;
+        if (maiorMelhor) {
+            situacao = atual < referencia * (1 - toleranciaVazao) ? "REGRESSAO"
+                    : atual > referencia * (1 + toleranciaVazao) ? "MELHORA" : "OK";
+        } else {
+            // folga absoluta de 16 bytes: arredondamentos da medição em operações que quase não alocam
+            double limite = referencia * (1 + toleranciaAlocacao) + 16;
+            situacao = atual > limite ? "REGRESSAO"
+                    : atual < referencia * (1 - toleranciaAlocacao) - 16 ? "MELHORA" : "OK";
+        }
+        return new Linha(metrica, referencia, atual, situacao);
+    }
+
+    public String relatorio(List<Linha> linhas) {
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format(Locale.ROOT, "Tolerâncias: vazão -%.0f%%, alocação +%.0f%%%n%n",
+                toleranciaVazao * 100, toleranciaAlocacao * 100));
+        relatorio.append(String.format(Locale.ROOT, "%-44s %14s %14s %9s  %s%n", "metrica", "baseline", "atual",
+                "variacao", "situacao"));
+        for (Linha l : linhas) {
+            String base = l.baseline() == null ? "-" : valor(l.metrica(), l.baseline());
+            String variacao = l.baseline() == null || l.baseline() == 0 ? "-"
+                    : String.format(Locale.ROOT, "%+.1f%%", (l.atual() / l.baseline() - 1) * 100);
+            relatorio.append(String.format(Locale.ROOT, "%-44s %14s %14s %9s  %s%n", l.metrica(), base,
+                    valor(l.metrica(), l.atual()), variacao, l.situacao()));
+        }
+        return relatorio.toString();
+    }
+
+    private static String valor(String metrica, double valor) {
+        return String.format(Locale.ROOT, metrica.endsWith(".vazao-relativa") ? "%.4f" : "%.0f", valor);
+    }
+}
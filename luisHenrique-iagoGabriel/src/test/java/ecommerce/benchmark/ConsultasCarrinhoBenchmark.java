@@ -0,0 +1,145 @@
+package ecommerce.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.service.CompraService;
+
+/**
+ * Latência de {@code findByIdAndCliente} e do caminho de precificação (carrinho +
+ * itens + produtos + calcularCustoTotal) conforme o volume cresce, junto com o
+ * plano de execução do H2 para cada consulta.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ConsultasCarrinhoBenchmark -Dbenchmark.carrinhos=10000,100000,1000000
+ * </pre>
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmark-consultas;DB_CLOSE_DELAY=-1",
+        "carrinhos.arquivamento.habilitado=false",
+        "pedidos.gravacao.diretorio=target/benchmark" })
+public class ConsultasCarrinhoBenchmark {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhoRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void latenciaPorVolume() throws IOException {
+        int[] volumes = Arrays.stream(System.getProperty("benchmark.carrinhos", "10000,100000,1000000").split(","))
+                .mapToInt(v -> Integer.parseInt(v.trim())).toArray();
+        int amostras = Integer.getInteger("benchmark.amostras", 2000);
+
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        GeradorDadosSinteticos gerador = new GeradorDadosSinteticos(jdbc);
+
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format("%-10s %-10s %-22s %10s %10s %10s %10s%n",
+                "carrinhos", "itens", "operacao", "p50(us)", "p90(us)", "p99(us)", "max(us)"));
+
+        String planos = "";
+        for (int volume : volumes) {
+            gerador.limpar();
+            GeradorDadosSinteticos.Resumo resumo = gerador.gerar(GeradorDadosSinteticos.Configuracao.padrao(volume));
+            System.out.printf("Gerados %d carrinhos / %d itens em %d ms%n", resumo.carrinhos(), resumo.itens(),
+                    resumo.milissegundos());
+
+            List<long[]> pares = jdbc.query(
+                    "select id, cliente_id from carrinho_de_compras order by rand() fetch first ? rows only",
+                    (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) }, amostras);
+
+            Consumer<long[]> busca = par -> leitura.executeWithoutResult(s -> assertThat(carrinhoRepository
+                    .findByIdAndCliente(par[0], clienteRepository.getReferenceById(par[1]))).isPresent());
+            Consumer<long[]> precificacao = par -> leitura.executeWithoutResult(s -> {
+                CarrinhoDeCompras carrinho = carrinhoRepository
+                        .findByIdAndCliente(par[0], clienteRepository.getReferenceById(par[1])).orElseThrow();
+                compraService.calcularCustoTotal(carrinho);
+            });
+
+            linha(relatorio, resumo, "findByIdAndCliente", medir(pares, busca));
+            linha(relatorio, resumo, "precificacao", medir(pares, precificacao));
+
+            planos = planos(pares.get(0));
+        }
+
+        relatorio.append(System.lineSeparator()).append(planos);
+        System.out.println(relatorio);
+
+        Path saida = Path.of("target", "benchmark", "consultas-carrinho.txt");
+        Files.createDirectories(saida.getParent());
+        Files.writeString(saida, relatorio);
+    }
+
+    /** Executa uma rodada de aquecimento descartada e devolve as latências da rodada medida, em ns. */
+    private static long[] medir(List<long[]> pares, Consumer<long[]> operacao) {
+        pares.forEach(operacao);
+
+        long[] latencias = new long[pares.size()];
+        for (int i = 0; i < pares.size(); i++) {
+            long inicio = System.nanoTime();
+            operacao.accept(pares.get(i));
+            latencias[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(latencias);
+        return latencias;
+    }
+
+    private static void linha(StringBuilder relatorio, GeradorDadosSinteticos.Resumo resumo, String operacao,
+            long[] latencias) {
+        relatorio.append(String.format("%-10d %-10d %-22s %10.1f %10.1f %10.1f %10.1f%n",
+                resumo.carrinhos(), resumo.itens(), operacao,
+                percentil(latencias, 0.50), percentil(latencias, 0.90), percentil(latencias, 0.99),
+                latencias[latencias.length - 1] / 1_000.0));
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1_000.0;
+    }
+
+    private String planos(long[] par) {
+        Map<String, String> consultas = Map.of(
+                "carrinho por id e cliente",
+                "select * from carrinho_de_compras where id = " + par[0] + " and cliente_id = " + par[1],
+                "itens do carrinho (com produto)",
+                "select * from item_compra i left join produto p on p.id = i.produto_id where i.carrinho_id = "
+                        + par[0],
+                "carrinhos do cliente",
+                "select * from carrinho_de_compras where cliente_id = " + par[1]);
+
+        StringBuilder planos = new StringBuilder("Planos de execução (H2):").append(System.lineSeparator());
+        consultas.forEach((nome, sql) -> planos.append("-- ").append(nome).append(System.lineSeparator())
+                .append(jdbc.queryForObject("explain " + sql, String.class)).append(System.lineSeparator()));
+        return planos.toString();
+    }
+}
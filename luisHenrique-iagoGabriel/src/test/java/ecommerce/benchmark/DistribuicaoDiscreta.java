@@ -0,0 +1,51 @@
+package ecommerce.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Distribuição discreta com pesos, lida de uma especificação no formato
+ * {@code valor:peso,valor:peso} (por exemplo {@code 1:40,2:25,5:10}).
+ */
+public final class DistribuicaoDiscreta<T> {
+
+    private final List<T> valores = new ArrayList<>();
+    private final double[] acumulado;
+
+    private DistribuicaoDiscreta(List<T> valores, List<Double> pesos) {
+        this.valores.addAll(valores);
+        this.acumulado = new double[pesos.size()];
+        double total = pesos.stream().mapToDouble(Double::doubleValue).sum();
+        double soma = 0;
+        for (int i = 0; i < pesos.size(); i++) {
+            soma += pesos.get(i) / total;
+            acumulado[i] = soma;
+        }
+    }
+
+    public static <T> DistribuicaoDiscreta<T> de(String especificacao, Function<String, T> conversor) {
+        List<T> valores = new ArrayList<>();
+        List<Double> pesos = new ArrayList<>();
+        for (String par : especificacao.split(",")) {
+            String[] partes = par.trim().split(":");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Par inválido na distribuição: " + par);
+            }
+            valores.add(conversor.apply(partes[0].trim()));
+            pesos.add(Double.parseDouble(partes[1].trim()));
+        }
+        return new DistribuicaoDiscreta<>(valores, pesos);
+    }
+
+    public T sortear(Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < acumulado.length; i++) {
+            if (r < acumulado[i]) {
+                return valores.get(i);
+            }
+        }
+        return valores.get(valores.size() - 1);
+    }
+}
@@ -0,0 +1,108 @@
+package ecommerce.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.LinhasPedido;
+import ecommerce.external.http.StubExternosHttp;
+
+/**
+ * Vazão e latência dos adaptadores HTTP ({@code externos.modo=http}) contra o
+ * stub local dos dois serviços, em modelo fechado: disponibilidade, autorização e
+ * a sequência de chamadas externas de um checkout (disponibilidade, autorização,
+ * baixa). Mede o cliente — pool, codec JSON, gzip —, não a aplicação.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ExternosHttpBenchmark -Dcarga.concorrencia=32 -Dcarga.duracao-s=20
+ * </pre>
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = { "externos.modo=http", "aquecimento.habilitado=false",
+        "carrinhos.arquivamento.habilitado=false", "rastreamento.habilitado=false",
+        "pedidos.gravacao.diretorio=target/benchmark" })
+public class ExternosHttpBenchmark {
+
+    private static final StubExternosHttp STUB = iniciarStub();
+
+    @DynamicPropertySource
+    static void urls(DynamicPropertyRegistry registro) {
+        registro.add("externos.estoque.url", STUB::url);
+        registro.add("externos.pagamento.url", STUB::url);
+    }
+
+    @AfterAll
+    static void pararStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private IEstoqueExternalPrimitivo estoque;
+
+    @Autowired
+    private IPagamentoExternal pagamento;
+
+    @Test
+    void vazaoContraStub() throws Exception {
+        STUB.registrar(false);
+        LinhasPedido linhas = LinhasPedido.de(new long[] { 1, 2, 3, 4, 5 }, new long[] { 1, 2, 1, 3, 1 });
+        GeradorCarga.Configuracao configuracao = new GeradorCarga.Configuracao(GeradorCarga.Modelo.FECHADO, 0,
+                Integer.getInteger("carga.concorrencia", 16),
+                Duration.ofSeconds(Long.getLong("carga.aquecimento-s", 5L)),
+                Duration.ofSeconds(Long.getLong("carga.duracao-s", 10L)));
+        GeradorCarga carga = new GeradorCarga(configuracao);
+
+        List<GeradorCarga.Resultado> resultados = new ArrayList<>();
+        resultados.add(carga.executar("disponibilidade",
+                sequencia -> estoque.verificarDisponibilidade(linhas).disponivel() ? 200 : 409));
+        resultados.add(carga.executar("autorizacao",
+                sequencia -> pagamento.autorizarPagamento(sequencia, 100.0, "carga-" + sequencia).autorizado() ? 200
+                        : 402));
+        resultados.add(carga.executar("checkout-externos", sequencia -> {
+            estoque.verificarDisponibilidade(linhas);
+            pagamento.autorizarPagamento(sequencia, 100.0, "carga-" + sequencia);
+            return estoque.darBaixa(linhas).sucesso() ? 200 : 409;
+        }));
+
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format("modelo=FECHADO concorrencia=%d aquecimento=%ds duracao=%ds%n%n",
+                configuracao.concorrencia(), configuracao.aquecimento().toSeconds(),
+                configuracao.duracao().toSeconds()));
+        relatorio.append(String.format("%-18s %11s %10s %10s %10s %10s  %s%n", "cenario", "requisicoes", "vazao/s",
+                "p50(ms)", "p99(ms)", "max(ms)", "status"));
+        for (GeradorCarga.Resultado r : resultados) {
+            relatorio.append(String.format("%-18s %11d %10.1f %10.2f %10.2f %10.2f  %s%n", r.cenario(),
+                    r.requisicoes(), r.vazaoPorSegundo(), r.percentilMs(50), r.percentilMs(99),
+                    r.histograma().getMaxValue() / 1_000.0, r.porStatus()));
+        }
+        System.out.println(relatorio);
+        Path diretorio = Path.of("target", "benchmark");
+        Files.createDirectories(diretorio);
+        Files.writeString(diretorio.resolve("externos-http.txt"), relatorio.toString());
+
+        assertThat(resultados).allSatisfy(r -> assertThat(r.porStatus()).containsOnlyKeys(200));
+    }
+
+    private static StubExternosHttp iniciarStub() {
+        try {
+            return new StubExternosHttp(Runtime.getRuntime().availableProcessors() * 4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package ecommerce.benchmark;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Gera carga contra uma operação e registra a latência em HdrHistogram, em
+ * microssegundos, corrigindo a omissão coordenada:
+ * <ul>
+ * <li>modelo ABERTO: chegadas a taxa fixa; cada requisição é medida a partir do
+ * instante em que deveria ter começado, então a fila formada quando o sistema
+ * atrasa entra na latência;</li>
+ * <li>modelo FECHADO: concorrência fixa, sem pausa entre requisições; cada
+ * amostra é registrada com o intervalo esperado (latência média do aquecimento),
+ * que preenche as amostras que um usuário teria feito durante uma parada.</li>
+ * </ul>
+ */
+public final class GeradorCarga {
+
+    public enum Modelo {
+        ABERTO, FECHADO
+    }
+
+    /** Executa uma requisição e devolve o status HTTP (ou outro código de resultado). */
+    @FunctionalInterface
+    public interface Requisicao {
+        int executar(long sequencia) throws Exception;
+    }
+
+    public record Configuracao(Modelo modelo, double taxaPorSegundo, int concorrencia, Duration aquecimento,
+            Duration duracao) {
+
+        /** Defaults sobrescrevíveis por propriedades de sistema {@code carga.*}. */
+        public static Configuracao padrao() {
+            return new Configuracao(
+                    Modelo.valueOf(System.getProperty("carga.modelo", "ABERTO").toUpperCase()),
+                    Double.parseDouble(System.getProperty("carga.taxa", "200")),
+                    Integer.getInteger("carga.concorrencia", 32),
+                    Duration.ofSeconds(Long.getLong("carga.aquecimento-s", 5L)),
+                    Duration.ofSeconds(Long.getLong("carga.duracao-s", 20L)));
+        }
+    }
+
+    public record Resultado(String cenario, Configuracao configuracao, Histogram histograma, long requisicoes,
+            double vazaoPorSegundo, Map<Integer, Long> porStatus) {
+
+        public double percentilMs(double percentil) {
+            return histograma.getValueAtPercentile(percentil) / 1_000.0;
+        }
+    }
+
+    /** Código registrado quando a requisição lança exceção em vez de responder. */
+    public static final int EXCECAO = -1;
+
+    private final Configuracao configuracao;
+
+    public GeradorCarga(Configuracao configuracao) {
+        this.configuracao = configuracao;
+    }
+
+    public Resultado executar(String cenario, Requisicao requisicao) throws InterruptedException {
+        return configuracao.modelo() == Modelo.ABERTO ? aberto(cenario, requisicao) : fechado(cenario, requisicao);
+    }
+
+    private Resultado aberto(String cenario, Requisicao requisicao) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        Map<Integer, LongAdder> porStatus = new ConcurrentHashMap<>();
+        LongAdder medidas = new LongAdder();
+
+        long intervaloNanos = (long) (TimeUnit.SECONDS.toNanos(1) / configuracao.taxaPorSegundo());
+        long inicio = System.nanoTime();
+        long inicioMedicao = inicio + configuracao.aquecimento().toNanos();
+        long fim = inicioMedicao + configuracao.duracao().toNanos();
+
+        // Fila sem limite: se o sistema atrasa, as chegadas acumulam e a espera conta na latência
+        ExecutorService executor = Executors.newFixedThreadPool(configuracao.concorrencia());
+        try {
+            for (long n = 0;; n++) {
+                long previsto = inicio + n * intervaloNanos;
+                if (previsto >= fim) {
+                    break;
+                }
+                esperarAte(previsto);
+
+                long sequencia = n;
+                boolean medir = previsto >= inicioMedicao;
+                executor.execute(() -> {
+                    int status = executarUma(requisicao, sequencia);
+                    if (medir) {
+                        recorder.recordValue(microssegundosDesde(previsto));
+                        porStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        medidas.increment();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        long duracaoMedicao = Math.max(System.nanoTime(), fim) - inicioMedicao;
+        return resultado(cenario, recorder.getIntervalHistogram(), medidas.sum(), duracaoMedicao, porStatus);
+    }
+
+    private Resultado fechado(String cenario, Requisicao requisicao) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        Map<Integer, LongAdder> porStatus = new ConcurrentHashMap<>();
+        AtomicLong sequencia = new AtomicLong();
+
+        // Aquecimento: também define o intervalo esperado usado na correção
+        Recorder aquecimento = new Recorder(3);
+        rodarFechado(aquecimento, 0L, null, requisicao, sequencia, configuracao.aquecimento());
+        Histogram histogramaAquecimento = aquecimento.getIntervalHistogram();
+        long intervaloEsperado = histogramaAquecimento.getTotalCount() == 0 ? 0L
+                : (long) histogramaAquecimento.getMean();
+
+        long inicioMedicao = System.nanoTime();
+        long medidas = rodarFechado(recorder, intervaloEsperado, porStatus, requisicao, sequencia,
+                configuracao.duracao());
+        long duracaoMedicao = System.nanoTime() - inicioMedicao;
+
+        return resultado(cenario, recorder.getIntervalHistogram(), medidas, duracaoMedicao, porStatus);
+    }
+
+    private long rodarFechado(Recorder recorder, long intervaloEsperado, Map<Integer, LongAdder> porStatus,
+            Requisicao requisicao, AtomicLong sequencia, Duration duracao) throws InterruptedException {
+        LongAdder medidas = new LongAdder();
+        long fim = System.nanoTime() + duracao.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(configuracao.concorrencia());
+        for (int t = 0; t < configuracao.concorrencia(); t++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < fim) {
+                    long inicio = System.nanoTime();
+                    int status = executarUma(requisicao, sequencia.getAndIncrement());
+                    long latencia = microssegundosDesde(inicio);
+                    if (intervaloEsperado > 0) {
+                        recorder.recordValueWithExpectedInterval(latencia, intervaloEsperado);
+                    } else {
+                        recorder.recordValue(latencia);
+                    }
+                    if (porStatus != null) {
+                        porStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+                    }
+                    medidas.increment();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(duracao.toMillis() + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+        return medidas.sum();
+    }
+
+    private Resultado resultado(String cenario, Histogram histograma, long requisicoes, long duracaoNanos,
+            Map<Integer, LongAdder> porStatus) {
+        Map<Integer, Long> contagem = new TreeMap<>();
+        porStatus.forEach((status, total) -> contagem.put(status, total.sum()));
+        double vazao = requisicoes / (duracaoNanos / 1_000_000_000.0);
+        return new Resultado(cenario, configuracao, histograma, requisicoes, vazao, contagem);
+    }
+
+    private static int executarUma(Requisicao requisicao, long sequencia) {
+        try {
+            return requisicao.executar(sequencia);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXCECAO;
+        } catch (Exception e) {
+            return EXCECAO;
+        }
+    }
+
+    private static void esperarAte(long instanteNanos) {
+        long restante;
+        while ((restante = instanteNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    private static long microssegundosDesde(long inicioNanos) {
+        return Math.max(1L, (System.nanoTime() - inicioNanos) / 1_000);
+    }
+}
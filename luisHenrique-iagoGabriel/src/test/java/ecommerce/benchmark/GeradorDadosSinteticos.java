@@ -0,0 +1,154 @@
+package ecommerce.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Carrega volumes realistas de clientes, produtos, carrinhos e itens direto por
+ * JDBC em lote, com ids explícitos, e depois reposiciona as colunas identity para
+ * que inserções via JPA continuem funcionando.
+ */
+public class GeradorDadosSinteticos {
+
+    private static final int LOTE = 5_000;
+
+    public record Configuracao(int clientes, int produtos, int carrinhos, String itensPorCarrinho,
+            String tiposProduto, double fracaoFragil, int diasHistorico, long semente) {
+
+        /** Defaults sobrescrevíveis por propriedades de sistema {@code gerador.*}. */
+        public static Configuracao padrao(int carrinhos) {
+            return new Configuracao(
+                    Integer.getInteger("gerador.clientes", Math.max(1, carrinhos / 4)),
+                    Integer.getInteger("gerador.produtos", 10_000),
+                    carrinhos,
+                    System.getProperty("gerador.itensPorCarrinho", "1:35,2:25,3:15,5:12,10:8,30:5"),
+                    System.getProperty("gerador.tiposProduto", "ELETRONICO:30,ROUPA:25,ALIMENTO:20,LIVRO:15,MOVEL:10"),
+                    Double.parseDouble(System.getProperty("gerador.fracaoFragil", "0.15")),
+                    Integer.getInteger("gerador.diasHistorico", 365),
+                    Long.getLong("gerador.semente", 42L));
+        }
+    }
+
+    public record Resumo(long clientes, long produtos, long carrinhos, long itens, long milissegundos) {
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public GeradorDadosSinteticos(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void limpar() {
+        jdbc.update("delete from item_compra");
+        jdbc.update("delete from carrinho_de_compras");
+        jdbc.update("delete from produto");
+        jdbc.update("delete from cliente");
+    }
+
+    public Resumo gerar(Configuracao cfg) {
+        long inicio = System.nanoTime();
+        Random random = new Random(cfg.semente());
+
+        inserirClientes(cfg, random);
+        inserirProdutos(cfg, random);
+        long itens = inserirCarrinhos(cfg, random);
+
+        for (String tabela : List.of("cliente", "produto", "carrinho_de_compras", "item_compra")) {
+            Long max = jdbc.queryForObject("select coalesce(max(id), 0) from " + tabela, Long.class);
+            jdbc.execute("alter table " + tabela + " alter column id restart with " + (max + 1));
+        }
+
+        return new Resumo(cfg.clientes(), cfg.produtos(), cfg.carrinhos(), itens,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private void inserirClientes(Configuracao cfg, Random random) {
+        Regiao[] regioes = Regiao.values();
+        TipoCliente[] tipos = TipoCliente.values();
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (long id = 1; id <= cfg.clientes(); id++) {
+            lote.add(new Object[] { id, "Cliente " + id, regioes[random.nextInt(regioes.length)].ordinal(),
+                    tipos[random.nextInt(tipos.length)].name() });
+            lote = descarregarSeCheio("insert into cliente (id, nome, regiao, tipo) values (?, ?, ?, ?)", lote);
+        }
+        descarregar("insert into cliente (id, nome, regiao, tipo) values (?, ?, ?, ?)", lote);
+    }
+
+    private void inserirProdutos(Configuracao cfg, Random random) {
+        DistribuicaoDiscreta<TipoProduto> tipos = DistribuicaoDiscreta.de(cfg.tiposProduto(), TipoProduto::valueOf);
+        String sql = "insert into produto (id, nome, descricao, preco, peso_fisico, comprimento, largura, altura,"
+                + " fragil, tipo) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (long id = 1; id <= cfg.produtos(); id++) {
+            lote.add(new Object[] { id, "Produto " + id, "Descrição do produto " + id,
+                    decimal(5 + random.nextDouble() * 1995), decimal(0.05 + random.nextDouble() * 30),
+                    decimal(1 + random.nextDouble() * 150), decimal(1 + random.nextDouble() * 100),
+                    decimal(1 + random.nextDouble() * 100), random.nextDouble() < cfg.fracaoFragil(),
+                    tipos.sortear(random).name() });
+            lote = descarregarSeCheio(sql, lote);
+        }
+        descarregar(sql, lote);
+    }
+
+    private long inserirCarrinhos(Configuracao cfg, Random random) {
+        DistribuicaoDiscreta<Integer> itensPorCarrinho = DistribuicaoDiscreta.de(cfg.itensPorCarrinho(),
+                Integer::valueOf);
+        String sqlCarrinho = "insert into carrinho_de_compras (id, cliente_id, data, versao) values (?, ?, ?, 0)";
+        String sqlItem = "insert into item_compra (id, carrinho_id, produto_id, quantidade, versao)"
+                + " values (?, ?, ?, ?, 0)";
+        LocalDate hoje = LocalDate.now();
+
+        List<Object[]> carrinhos = new ArrayList<>(LOTE);
+        List<Object[]> itens = new ArrayList<>(LOTE);
+        long itemId = 0;
+        for (long id = 1; id <= cfg.carrinhos(); id++) {
+            long clienteId = 1 + random.nextInt(cfg.clientes());
+            carrinhos.add(new Object[] { id, clienteId,
+                    Date.valueOf(hoje.minusDays(random.nextInt(Math.max(1, cfg.diasHistorico())))) });
+            carrinhos = descarregarSeCheio(sqlCarrinho, carrinhos);
+
+            int quantidadeItens = itensPorCarrinho.sortear(random);
+            for (int i = 0; i < quantidadeItens; i++) {
+                itens.add(new Object[] { ++itemId, id, 1 + random.nextInt(cfg.produtos()), 1L + random.nextInt(5) });
+                if (itens.size() >= LOTE) {
+                    // Os itens referenciam carrinhos: garante que o carrinho já foi gravado
+                    descarregar(sqlCarrinho, carrinhos);
+                    carrinhos = new ArrayList<>(LOTE);
+                    itens = descarregarSeCheio(sqlItem, itens);
+                }
+            }
+        }
+        descarregar(sqlCarrinho, carrinhos);
+        descarregar(sqlItem, itens);
+        return itemId;
+    }
+
+    private List<Object[]> descarregarSeCheio(String sql, List<Object[]> lote) {
+        if (lote.size() < LOTE) {
+            return lote;
+        }
+        descarregar(sql, lote);
+        return new ArrayList<>(LOTE);
+    }
+
+    private void descarregar(String sql, List<Object[]> lote) {
+        if (!lote.isEmpty()) {
+            jdbc.batchUpdate(sql, lote);
+        }
+    }
+
+    private static BigDecimal decimal(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,193 @@
+package ecommerce.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tempo de inicialização por modo de empacotamento, medido de fora: sobe a
+ * aplicação num processo novo, com o perfil {@code demo}, e mede do
+ * lançamento até o primeiro {@code POST /finalizar} com 200 e até
+ * {@code /actuator/health/readiness} responder 200 (depois do aquecimento).
+ *
+ * <ul>
+ * <li>{@code jar}: o jar executável do Spring Boot (o "antes");</li>
+ * <li>{@code aot}: o jar enxuto de {@code target/inicio-rapido} com {@code -Dspring.aot.enabled=true};</li>
+ * <li>{@code aot+cds}: o mesmo com o arquivo AppCDS da execução de treino.</li>
+ * </ul>
+ *
+ * <pre>
+ * mvn -Pinicio-rapido package -DskipTests
+ * mvn -Pbenchmark test -Dtest=InicioAplicacaoBenchmark -Dinicio.repeticoes=5
+ * </pre>
+ *
+ * Modos sem artefato são marcados como ausentes no relatório.
+ */
+@Tag("benchmark")
+public class InicioAplicacaoBenchmark {
+
+    private static final Pattern DADOS_DEMO = Pattern.compile("clienteId=(\\d+) carrinhos=(\\d+)");
+    private static final Duration LIMITE = Duration.ofMinutes(3);
+
+    private record Modo(String nome, Path diretorio, List<String> argumentosJvm, Path jar) {
+    }
+
+    private record Medida(long primeiraCompraMs, long prontidaoMs) {
+    }
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(500)).build();
+
+    @Test
+    void tempoAtePrimeiraCompra() throws Exception {
+        Path alvo = Path.of("target").toAbsolutePath();
+        Path jarExecutavel = jarExecutavel(alvo);
+        assumeTrue(jarExecutavel != null, "jar executável ausente; rode mvn package antes");
+
+        Path inicioRapido = alvo.resolve("inicio-rapido");
+        Path diretorioJar = alvo.resolve("benchmark").resolve("inicio-jar");
+        Files.createDirectories(diretorioJar);
+        List<Modo> modos = List.of(
+                new Modo("jar", diretorioJar, List.of(), jarExecutavel),
+                new Modo("aot", inicioRapido, List.of("-Dspring.aot.enabled=true"), Path.of("app.jar")),
+                new Modo("aot+cds", inicioRapido,
+                        List.of("-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true"),
+                        Path.of("app.jar")));
+        int repeticoes = Integer.getInteger("inicio.repeticoes", 3);
+
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format("repeticoes=%d (mediana; min entre parenteses)%n%n", repeticoes));
+        relatorio.append(String.format("%-10s %24s %24s%n", "modo", "primeira-compra(ms)", "prontidao(ms)"));
+        for (Modo modo : modos) {
+            if (!disponivel(modo)) {
+                relatorio.append(String.format("%-10s %24s %24s%n", modo.nome(), "ausente", "ausente"));
+                continue;
+            }
+            long[] compras = new long[repeticoes];
+            long[] prontidoes = new long[repeticoes];
+            for (int r = 0; r < repeticoes; r++) {
+                Medida medida = medir(modo);
+                compras[r] = medida.primeiraCompraMs();
+                prontidoes[r] = medida.prontidaoMs();
+            }
+            relatorio.append(String.format("%-10s %24s %24s%n", modo.nome(), resumo(compras), resumo(prontidoes)));
+        }
+
+        System.out.println(relatorio);
+        Path diretorio = alvo.resolve("benchmark");
+        Files.writeString(diretorio.resolve("inicio-aplicacao.txt"), relatorio.toString());
+    }
+
+    private Medida medir(Modo modo) throws IOException, InterruptedException {
+        int porta = portaLivre();
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        comando.addAll(modo.argumentosJvm());
+        comando.addAll(List.of("-jar", modo.jar().toString(), "--server.port=" + porta,
+                "--spring.profiles.active=demo", "--aplicacao.dados-demo.carrinhos=1",
+                "--carrinhos.arquivamento.habilitado=false"));
+
+        long inicio = System.nanoTime();
+        Process processo = new ProcessBuilder(comando).directory(modo.diretorio().toFile())
+                .redirectErrorStream(true).start();
+        AtomicReference<String> finalizar = new AtomicReference<>();
+        Thread leitor = new Thread(() -> lerSaida(processo, porta, finalizar), "inicio-saida");
+        leitor.setDaemon(true);
+        leitor.start();
+        try {
+            long primeiraCompra = -1;
+            long prontidao = -1;
+            long prazo = inicio + LIMITE.toNanos();
+            while ((primeiraCompra < 0 || prontidao < 0) && System.nanoTime() < prazo) {
+                assertThat(processo.isAlive()).as("processo do modo %s", modo.nome()).isTrue();
+                if (primeiraCompra < 0 && finalizar.get() != null && status("POST", finalizar.get()) == 200) {
+                    primeiraCompra = (System.nanoTime() - inicio) / 1_000_000;
+                }
+                if (prontidao < 0
+                        && status("GET", "http://localhost:" + porta + "/actuator/health/readiness") == 200) {
+                    prontidao = (System.nanoTime() - inicio) / 1_000_000;
+                }
+                Thread.sleep(10);
+            }
+            assertThat(primeiraCompra).as("primeira compra no modo %s", modo.nome()).isPositive();
+            assertThat(prontidao).as("prontidão no modo %s", modo.nome()).isPositive();
+            return new Medida(primeiraCompra, prontidao);
+        } finally {
+            processo.destroy();
+            processo.waitFor();
+        }
+    }
+
+    private static void lerSaida(Process processo, int porta, AtomicReference<String> finalizar) {
+        try (BufferedReader saida = new BufferedReader(
+                new InputStreamReader(processo.getInputStream(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = saida.readLine()) != null) {
+                Matcher ids = DADOS_DEMO.matcher(linha);
+                if (finalizar.get() == null && ids.find()) {
+                    finalizar.set("http://localhost:" + porta + "/finalizar?carrinhoId=" + ids.group(2)
+                            + "&clienteId=" + ids.group(1));
+                }
+            }
+        } catch (IOException e) {
+            // processo encerrado
+        }
+    }
+
+    private int status(String metodo, String url) throws InterruptedException {
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30))
+                .method(metodo, HttpRequest.BodyPublishers.noBody()).build();
+        try {
+            return http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean disponivel(Modo modo) {
+        Path jar = modo.diretorio().resolve(modo.jar());
+        boolean arquivoCds = modo.argumentosJvm().stream().noneMatch(a -> a.startsWith("-XX:SharedArchiveFile"))
+                || Files.exists(modo.diretorio().resolve("app.jsa"));
+        return Files.exists(jar) && arquivoCds;
+    }
+
+    private static Path jarExecutavel(Path alvo) throws IOException {
+        try (Stream<Path> arquivos = Files.list(alvo)) {
+            return arquivos.filter(a -> a.toString().endsWith(".jar") && !a.toString().endsWith("-enxuto.jar"))
+                    .findFirst().orElse(null);
+        }
+    }
+
+    private static int portaLivre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String resumo(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return String.format("%d (%d)", ordenados[ordenados.length / 2], ordenados[0]);
+    }
+}
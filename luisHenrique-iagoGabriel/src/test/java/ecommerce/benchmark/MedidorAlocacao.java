@@ -0,0 +1,70 @@
+package ecommerce.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes alocados no heap pela thread atual, via
+ * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes}. O custo da
+ * própria medição é calibrado e descontado.
+ */
+public final class MedidorAlocacao {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+    private static final long CUSTO_MEDICAO = calibrar();
+
+    private MedidorAlocacao() {
+    }
+
+    public static boolean suportado() {
+        return THREADS != null;
+    }
+
+    /** Bytes alocados por uma única execução de {@code operacao}. */
+    public static long bytesAlocados(Runnable operacao) {
+        long id = Thread.currentThread().getId();
+        long antes = THREADS.getThreadAllocatedBytes(id);
+        operacao.run();
+        long depois = THREADS.getThreadAllocatedBytes(id);
+        return Math.max(0L, depois - antes - CUSTO_MEDICAO);
+    }
+
+    /**
+     * Média de bytes por chamada após {@code aquecimento} execuções descartadas,
+     * para que o JIT (e o escape analysis) já tenha atuado.
+     */
+    public static double bytesPorChamada(Runnable operacao, int aquecimento, int repeticoes) {
+        for (int i = 0; i < aquecimento; i++) {
+            operacao.run();
+        }
+        long id = Thread.currentThread().getId();
+        long antes = THREADS.getThreadAllocatedBytes(id);
+        for (int i = 0; i < repeticoes; i++) {
+            operacao.run();
+        }
+        long depois = THREADS.getThreadAllocatedBytes(id);
+        return Math.max(0.0, (double) (depois - antes - CUSTO_MEDICAO) / repeticoes);
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private static long calibrar() {
+        if (THREADS == null) {
+            return 0L;
+        }
+        long id = Thread.currentThread().getId();
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            long antes = THREADS.getThreadAllocatedBytes(id);
+            long depois = THREADS.getThreadAllocatedBytes(id);
+            minimo = Math.min(minimo, depois - antes);
+        }
+        return minimo;
+    }
+}
@@ -0,0 +1,165 @@
+package ecommerce.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.external.fake.CarrinhoDeComprasRepositoryFake;
+import ecommerce.external.fake.ClienteRepositoryFake;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+
+/**
+ * Portão de regressão de desempenho do {@link CompraService}: precificação por
+ * tamanho de carrinho e checkout com repositórios em memória e externos sem
+ * latência, comparados com {@code src/test/resources/perf/baseline.properties}.
+ * Relatório em {@code target/perf-gate/relatorio.txt}.
+ *
+ * <pre>
+ * mvn -Pperf-gate test
+ * mvn -Pperf-gate test -Dperf.tolerancia.vazao=0.15 -Dperf.tolerancia.alocacao=0.05
+ * mvn -Pperf-gate test -Dperf.atualizar-baseline=true
+ * </pre>
+ *
+ * A vazão absoluta depende da máquina; por isso é comparada relativa à de uma
+ * carga de calibração fixa, sem código da aplicação, medida na mesma execução (ver
+ * {@link ComparacaoBaseline}). A alocação por operação é estável entre máquinas.
+ * Regenerar a baseline junto com qualquer mudança no caminho do checkout.
+ */
+@Tag("perf-gate")
+class PortaoDesempenhoTest {
+
+    private static final long AQUECIMENTO_MS = Long.getLong("perf.aquecimento-ms", 2_000L);
+    private static final int RODADAS = Integer.getInteger("perf.rodadas", 5);
+    private static final long RODADA_MS = Long.getLong("perf.rodada-ms", 1_000L);
+
+    // Impede que o JIT descarte o resultado das operações medidas
+    private static volatile Object sumidouro;
+
+    private static final BigDecimal FATOR_CALIBRACAO = new BigDecimal("1.0375");
+
+    @Test
+    void semRegressaoEmRelacaoABaseline() throws IOException {
+        ComparacaoBaseline.Medida calibracao = medir("calibracao", () -> sumidouro = calibrar());
+        List<ComparacaoBaseline.Medida> medidas = new ArrayList<>();
+
+        CompraService precificacao = new CompraService(null, null, null, null);
+        for (int itens : new int[] { 1, 10, 100 }) {
+            CarrinhoDeCompras carrinho = CarrinhosReferencia.carrinho(itens);
+            medidas.add(medir("precificacao.itens-" + itens,
+                    () -> sumidouro = precificacao.calcularCustoTotal(carrinho)));
+        }
+
+        CompraService checkout = compraServiceEmMemoria(10);
+        medidas.add(medir("checkout.itens-10", () -> sumidouro = checkout.finalizarCompra(1L, 1L)));
+
+        Path arquivoBaseline = Path.of(System.getProperty("perf.baseline",
+                "src/test/resources/perf/baseline.properties"));
+        if (Boolean.getBoolean("perf.atualizar-baseline")) {
+            ComparacaoBaseline.gravar(arquivoBaseline, medidas, calibracao);
+        }
+
+        double toleranciaVazao = Double.parseDouble(System.getProperty("perf.tolerancia.vazao", "0.25"));
+        double toleranciaAlocacao = Double.parseDouble(System.getProperty("perf.tolerancia.alocacao", "0.10"));
+        ComparacaoBaseline comparacao = new ComparacaoBaseline(lerBaseline(arquivoBaseline), toleranciaVazao,
+                toleranciaAlocacao);
+
+        List<ComparacaoBaseline.Linha> linhas = comparacao.comparar(medidas, calibracao);
+        String relatorio = String.format(Locale.ROOT, "Calibração: %.0f ops/s%n", calibracao.opsPorSegundo())
+                + comparacao.relatorio(linhas);
+        System.out.println(relatorio);
+        Path saida = Path.of("target", "perf-gate", "relatorio.txt");
+        Files.createDirectories(saida.getParent());
+        Files.writeString(saida, relatorio);
+
+        assertThat(linhas).as("Regressões de desempenho:%n%s", relatorio)
+                .noneMatch(ComparacaoBaseline.Linha::regressao);
+    }
+
+    private static CompraService compraServiceEmMemoria(int itens) {
+        Cliente cliente = new Cliente();
+        cliente.setId(1L);
+        ClienteRepositoryFake clientes = new ClienteRepositoryFake();
+        clientes.salvar(cliente);
+        CarrinhoDeComprasRepositoryFake carrinhos = new CarrinhoDeComprasRepositoryFake();
+        carrinhos.salvar(CarrinhosReferencia.carrinho(1L, cliente, itens));
+
+        return new CompraService(new CarrinhoDeComprasService(carrinhos), new ClienteService(clientes),
+                new EstoqueSimulado(), new PagamentoSimulado());
+    }
+
+    /**
+     * Carga de referência da vazão: aritmética de {@link BigDecimal} e um mapa
+     * pequeno, como a precificação, mas em código que não muda com a aplicação.
+     */
+    private static Object calibrar() {
+        Map<Integer, BigDecimal> parciais = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 1; i <= 16; i++) {
+            BigDecimal parcial = BigDecimal.valueOf(i * 7L, 2).multiply(FATOR_CALIBRACAO)
+                    .setScale(2, RoundingMode.HALF_UP);
+            parciais.put(i, parcial);
+            total = total.add(parcial);
+        }
+        return parciais.get(8).add(total);
+    }
+
+    /** Vazão: mediana das rodadas após o aquecimento; alocação: média sobre todas as rodadas. */
+    private static ComparacaoBaseline.Medida medir(String benchmark, Runnable operacao) {
+        rodar(operacao, AQUECIMENTO_MS);
+
+        double[] vazoes = new double[RODADAS];
+        long operacoes = 0;
+        double bytes = 0;
+        for (int r = 0; r < RODADAS; r++) {
+            long[] resultado = new long[1];
+            long inicio = System.nanoTime();
+            bytes += MedidorAlocacao.bytesAlocados(() -> resultado[0] = rodar(operacao, RODADA_MS));
+            long decorrido = System.nanoTime() - inicio;
+            vazoes[r] = resultado[0] / (decorrido / 1_000_000_000.0);
+            operacoes += resultado[0];
+        }
+        Arrays.sort(vazoes);
+        return new ComparacaoBaseline.Medida(benchmark, vazoes[RODADAS / 2], bytes / operacoes);
+    }
+
+    private static long rodar(Runnable operacao, long milissegundos) {
+        long fim = System.nanoTime() + milissegundos * 1_000_000;
+        long operacoes = 0;
+        do {
+            for (int i = 0; i < 64; i++) {
+                operacao.run();
+            }
+            operacoes += 64;
+        } while (System.nanoTime() < fim);
+        return operacoes;
+    }
+
+    private static Map<String, Double> lerBaseline(Path arquivo) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return Map.of();
+        }
+        try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            return ComparacaoBaseline.ler(leitor);
+        }
+    }
+}
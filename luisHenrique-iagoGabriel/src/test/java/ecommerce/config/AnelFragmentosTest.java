@@ -0,0 +1,55 @@
+package ecommerce.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AnelFragmentosTest {
+
+    private static final int CLIENTES = 100_000;
+
+    @Test
+    void fragmento_distribuiClientesSequenciaisDeFormaEquilibrada() {
+        AnelFragmentos anel = new AnelFragmentos(List.of("f0", "f1", "f2", "f3"), 128);
+
+        Map<String, Integer> porFragmento = new HashMap<>();
+        for (long id = 1; id <= CLIENTES; id++) {
+            porFragmento.merge(anel.fragmento(id), 1, Integer::sum);
+        }
+
+        assertThat(porFragmento).containsOnlyKeys("f0", "f1", "f2", "f3");
+        assertThat(porFragmento.values()).allSatisfy(n -> assertThat(n).isBetween(CLIENTES / 4 * 8 / 10,
+                CLIENTES / 4 * 12 / 10));
+    }
+
+    @Test
+    void novoFragmento_moveSoAFatiaDeleEApenasParaEle() {
+        AnelFragmentos antes = new AnelFragmentos(List.of("f0", "f1", "f2"), 128);
+        AnelFragmentos depois = new AnelFragmentos(List.of("f0", "f1", "f2", "f3"), 128);
+
+        int movidos = 0;
+        for (long id = 1; id <= CLIENTES; id++) {
+            String anterior = antes.fragmento(id);
+            String atual = depois.fragmento(id);
+            if (!anterior.equals(atual)) {
+                assertThat(atual).isEqualTo("f3");
+                movidos++;
+            }
+        }
+
+        assertThat(movidos).isBetween(CLIENTES / 4 * 8 / 10, CLIENTES / 4 * 12 / 10);
+    }
+
+    @Test
+    void construtor_recusaNomesRepetidosOuListaVazia() {
+        assertThatThrownBy(() -> new AnelFragmentos(List.of("f0", "f0"), 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AnelFragmentos(List.of(), 8)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new AnelFragmentos(List.of("unico"), 1).fragmento(42L)).isEqualTo("unico");
+    }
+}
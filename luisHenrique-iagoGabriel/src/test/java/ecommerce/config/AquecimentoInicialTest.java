@@ -0,0 +1,115 @@
+package ecommerce.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.external.fake.CarrinhoDeComprasRepositoryFake;
+import ecommerce.external.fake.ClienteRepositoryFake;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.PedidoRepository;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+import ecommerce.service.GravadorPedidos;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:aquecimento;DB_CLOSE_DELAY=-1",
+        "aquecimento.habilitado=true", "aquecimento.minimo-rodadas=2", "aquecimento.rodadas-estaveis=1",
+        "aquecimento.limiar-compilacao-ms=100000", "aquecimento.iteracoes-por-rodada=16",
+        "aplicacao.dados-demo.carrinhos=3", "pedidos.gravacao.diretorio=target/aquecimento" })
+@ActiveProfiles(DadosDemonstracao.PERFIL)
+class AquecimentoInicialTest {
+
+    /** Último runner: vê a prontidão enquanto os runners ainda rodam. */
+    @TestConfiguration
+    static class ProntidaoDuranteRunners {
+        static final AtomicReference<ReadinessState> observada = new AtomicReference<>();
+
+        @Bean
+        @Order(Ordered.LOWEST_PRECEDENCE)
+        ApplicationRunner observarProntidao(ApplicationAvailability disponibilidade) {
+            return args -> observada.set(disponibilidade.getReadinessState());
+        }
+    }
+
+    @Autowired
+    private AquecimentoInicial aquecimento;
+
+    @Autowired
+    private ApplicationAvailability disponibilidade;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Autowired
+    private PedidoRepository pedidos;
+
+    @Autowired
+    private GravadorPedidos gravador;
+
+    @Autowired
+    private EstoqueSimulado estoque;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void subida_soAceitaTrafegoDepoisDeTodosOsRunners() {
+        assertThat(ProntidaoDuranteRunners.observada.get()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+        assertThat(disponibilidade.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    void aquecer_ensaiaCheckoutNosBeansReaisSemGravarNemChamarExternos() {
+        List<Long> versoesAntes = carrinhos.findAll().stream().map(CarrinhoDeCompras::getVersao).toList();
+
+        AquecimentoInicial.Resumo resumo = aquecimento.aquecer();
+
+        assertThat(resumo.checkouts()).isPositive();
+        assertThat(carrinhos.findAll().stream().map(CarrinhoDeCompras::getVersao).toList())
+                .isEqualTo(versoesAntes);
+        assertThat(pedidos.count()).isZero();
+        assertThat(gravador.pendentes()).isZero();
+        assertThat(estoque.isVerificarDisponibilidadeChamado()).isFalse();
+        assertThat(estoque.isDarBaixaChamado()).isFalse();
+        assertThat(registry.find("compra.desfecho").counters()).extracting(Counter::count)
+                .allMatch(contagem -> contagem == 0.0);
+    }
+
+    @Test
+    void aquecer_respeitaPrazoMesmoSemEstabilizar() {
+        CarrinhoDeComprasRepositoryFake repositorio = new CarrinhoDeComprasRepositoryFake();
+        CarrinhoDeComprasService carrinhoService = new CarrinhoDeComprasService(repositorio);
+        ClienteService clientes = new ClienteService(new ClienteRepositoryFake());
+        CompraService compraService = new CompraService(carrinhoService, clientes, new EstoqueSimulado(),
+                new PagamentoSimulado());
+        AquecimentoInicial limitado = new AquecimentoInicial(compraService, clientes, carrinhoService, repositorio,
+                new ObjectMapper(), new AquecimentoInicial.Limites(Integer.MAX_VALUE, 1, 0, Duration.ofMillis(200), 10));
+
+        AquecimentoInicial.Resumo resumo = limitado.aquecer();
+
+        assertThat(resumo.estabilizou()).isFalse();
+        assertThat(resumo.duracaoMs()).isLessThan(5_000);
+    }
+}
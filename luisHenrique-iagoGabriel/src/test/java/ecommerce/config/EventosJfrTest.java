@@ -0,0 +1,177 @@
+package ecommerce.config;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import ecommerce.entity.Cliente;
+import ecommerce.external.EventoChamadaExternaJfr;
+import ecommerce.external.MonitoresExternos;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.rastreamento.Rastreador;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+import ecommerce.service.EventoCheckoutJfr;
+import ecommerce.service.ObservadorCompra;
+import ecommerce.service.ObservadorCompraJfr;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static ecommerce.service.DomainTestData.carrinhoComItem;
+import static ecommerce.service.DomainTestData.produtoComId;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Eventos JFR do checkout e dos externos")
+public class EventosJfrTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 10L;
+
+    @Mock
+    private ClienteService clienteService;
+
+    @Mock
+    private CarrinhoDeComprasService carrinhoService;
+
+    private EstoqueSimulado estoque;
+    private CompraService service;
+
+    @BeforeEach
+    void setUp() {
+        InstrumentacaoPostProcessor instrumentacao = new InstrumentacaoPostProcessor(true,
+                new StaticListableBeanFactory().getBeanProvider(Rastreador.class),
+                new StaticListableBeanFactory().getBeanProvider(MonitoresExternos.class));
+        estoque = (EstoqueSimulado) instrumentacao.postProcessAfterInitialization(new EstoqueSimulado(), "estoque");
+        PagamentoSimulado pagamento = (PagamentoSimulado) instrumentacao
+                .postProcessAfterInitialization(new PagamentoSimulado(), "pagamento");
+        service = new CompraService(carrinhoService, clienteService, estoque, pagamento, evento -> {
+        }, new ObservadorCompraJfr());
+    }
+
+    private void finalizar() {
+        Cliente cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteService.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente))
+                .thenReturn(carrinhoComItem(produtoComId(1L), 2L));
+        service.finalizarCompra(CARRINHO_ID, CLIENTE_ID);
+    }
+
+    private static List<RecordedEvent> eventos(Path arquivo, String nome) throws Exception {
+        return RecordingFile.readAllEvents(arquivo).stream()
+                .filter(e -> e.getEventType().getName().equals(nome)).toList();
+    }
+
+    @Test
+    void semGravacao_observadorDevolveMedicaoVazia() {
+        assertThat(new ObservadorCompraJfr().iniciar()).isSameAs(ObservadorCompra.Medicao.NENHUMA);
+    }
+
+    @Test
+    void gravacao_registraCheckoutComEtapasEChamadasExternas(@TempDir Path dir) throws Exception {
+        Path arquivo = dir.resolve("checkout.jfr");
+        try (Recording gravacao = new Recording()) {
+            gravacao.enable(EventoCheckoutJfr.NOME);
+            gravacao.enable(EventoChamadaExternaJfr.NOME);
+            gravacao.start();
+            finalizar();
+            gravacao.stop();
+            gravacao.dump(arquivo);
+        }
+
+        List<RecordedEvent> checkouts = eventos(arquivo, EventoCheckoutJfr.NOME);
+        assertThat(checkouts).hasSize(1);
+        RecordedEvent checkout = checkouts.get(0);
+        assertThat(checkout.getString("desfecho")).isEqualTo("SUCESSO");
+        assertThat(checkout.getInt("itens")).isEqualTo(1);
+        assertThat(checkout.getDouble("custoTotal")).isEqualTo(20.0);
+        assertThat(checkout.getDuration("precificacao")).isPositive();
+        assertThat(checkout.getDuration("compensacao")).isZero();
+
+        List<RecordedEvent> chamadas = eventos(arquivo, EventoChamadaExternaJfr.NOME);
+        assertThat(chamadas).extracting(e -> e.getString("servico") + "." + e.getString("operacao"))
+                .containsExactly("estoque.verificarDisponibilidade", "pagamento.autorizarPagamento",
+                        "estoque.darBaixa");
+        assertThat(chamadas).allMatch(e -> e.getBoolean("sucesso"));
+    }
+
+    @Test
+    void endpoint_iniciaHabilitaComLimiarDumpEPara(@TempDir Path dir) throws Exception {
+        Path temporarios = Files.createDirectory(dir.resolve("tmp"));
+        GravacaoJfrEndpoint endpoint = new GravacaoJfrEndpoint(temporarios);
+        assertThat(endpoint.estado()).containsEntry("gravacao", "NENHUMA");
+        assertThatThrownBy(() -> endpoint.dump("dump")).isInstanceOf(InvalidEndpointRequestException.class);
+
+        try {
+            endpoint.executar("iniciar", null, null, null, null);
+            @SuppressWarnings("unchecked")
+            Map<String, Boolean> habilitados = (Map<String, Boolean>) endpoint.estado().get("eventos");
+            assertThat(habilitados).containsEntry(EventoCheckoutJfr.NOME, true);
+
+            // Limiar alto: o checkout rápido não deve ser gravado; as chamadas externas sim
+            endpoint.executar("habilitar", null, EventoCheckoutJfr.NOME, Duration.ofHours(1).toMillis(), null);
+            finalizar();
+
+            Path arquivo = dir.resolve("dump.jfr");
+            try (InputStream fluxo = endpoint.dump("dump").getInputStream()) {
+                Files.copy(fluxo, arquivo);
+            }
+            // O temporário do dump some ao fechar o fluxo
+            try (Stream<Path> restantes = Files.list(temporarios)) {
+                assertThat(restantes).isEmpty();
+            }
+            assertThat(Files.size(arquivo)).isPositive();
+            assertThat(eventos(arquivo, EventoCheckoutJfr.NOME)).isEmpty();
+            assertThat(eventos(arquivo, EventoChamadaExternaJfr.NOME)).hasSize(3);
+
+            endpoint.executar("desabilitar", null, EventoChamadaExternaJfr.NOME, null, null);
+            assertThat(endpoint.estado().get("eventos"))
+                    .isEqualTo(Map.of(EventoCheckoutJfr.NOME, true, EventoChamadaExternaJfr.NOME, false));
+        } finally {
+            endpoint.executar("parar", null, null, null, null);
+        }
+        assertThat(endpoint.estado()).containsEntry("gravacao", "NENHUMA");
+        assertThatThrownBy(() -> endpoint.executar("reiniciar", null, null, null, null))
+                .isInstanceOf(InvalidEndpointRequestException.class);
+    }
+
+    @Test
+    void endpoint_naoGravaPropriedadesNemAmbienteESalvaNoDestino(@TempDir Path dir) throws Exception {
+        GravacaoJfrEndpoint endpoint = new GravacaoJfrEndpoint(dir);
+        Path destino = dir.resolve("salvo.jfr");
+        try {
+            endpoint.executar("iniciar", null, null, null, null);
+            assertThatThrownBy(() -> endpoint.executar("habilitar", null, "jdk.InitialEnvironmentVariable", null,
+                    null)).isInstanceOf(InvalidEndpointRequestException.class);
+            assertThatThrownBy(() -> endpoint.executar("salvar", null, null, null, "relativo.jfr"))
+                    .isInstanceOf(InvalidEndpointRequestException.class);
+
+            Map<String, Object> estado = endpoint.executar("salvar", null, null, null, destino.toString());
+
+            assertThat(estado).containsEntry("arquivo", destino.toString());
+        } finally {
+            endpoint.executar("parar", null, null, null, null);
+        }
+        assertThat(RecordingFile.readAllEvents(destino)).extracting(e -> e.getEventType().getName())
+                .isNotEmpty().doesNotContainAnyElementsOf(GravacaoJfrEndpoint.EVENTOS_SENSIVEIS);
+    }
+}
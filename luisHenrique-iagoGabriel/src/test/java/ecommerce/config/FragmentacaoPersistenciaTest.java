@@ -0,0 +1,203 @@
+package ecommerce.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+/** Três instâncias H2 em memória como fragmentos, verificadas diretamente por JDBC. */
+@SpringBootTest(properties = { "ecommerce.datasource.fragmentacao.habilitado=true",
+        "ecommerce.datasource.fragmentacao.fragmentos[0].nome=f0",
+        "ecommerce.datasource.fragmentacao.fragmentos[0].url=jdbc:h2:mem:fragmento-0;DB_CLOSE_DELAY=-1",
+        "ecommerce.datasource.fragmentacao.fragmentos[0].usuario=sa",
+        "ecommerce.datasource.fragmentacao.fragmentos[1].nome=f1",
+        "ecommerce.datasource.fragmentacao.fragmentos[1].url=jdbc:h2:mem:fragmento-1;DB_CLOSE_DELAY=-1",
+        "ecommerce.datasource.fragmentacao.fragmentos[1].usuario=sa",
+        "ecommerce.datasource.fragmentacao.fragmentos[2].nome=f2",
+        "ecommerce.datasource.fragmentacao.fragmentos[2].url=jdbc:h2:mem:fragmento-2;DB_CLOSE_DELAY=-1",
+        "ecommerce.datasource.fragmentacao.fragmentos[2].usuario=sa",
+        "spring.jpa.hibernate.ddl-auto=create-drop", "aquecimento.habilitado=false",
+        "carrinhos.arquivamento.habilitado=false",
+        "ecommerce.datasource.fragmentacao.replicacao.intervalo-ms=3600000", "spring.jmx.enabled=true",
+        "pedidos.gravacao.diretorio=target/fragmentacao" })
+class FragmentacaoPersistenciaTest {
+
+    private static final int CLIENTES = 12;
+
+    @Autowired
+    private AnelFragmentos anel;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private ConsultaFragmentos consulta;
+
+    @Autowired
+    private FragmentosEndpoint endpoint;
+
+    @Autowired
+    private TransactionTemplate transacao;
+
+    @Autowired
+    private PendenciasReplicacao pendencias;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void checkout_ficaNoFragmentoDoClienteComCatalogoEmTodos() {
+        Produto produto = produtos.save(produtoBasico());
+        Set<String> usados = new HashSet<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            Cliente cliente = clientes.save(new Cliente(null, "Cliente " + i, null, null));
+            CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente,
+                    List.of(new ItemCompra(null, produto, 2L)), LocalDate.now()));
+
+            CompraDTO compra = compraService.finalizarCompra(carrinho.getId(), cliente.getId());
+
+            String fragmento = anel.fragmento(cliente.getId());
+            usados.add(fragmento);
+            assertThat(compra.sucesso()).isTrue();
+            for (String nome : anel.nomes()) {
+                int esperado = nome.equals(fragmento) ? 1 : 0;
+                JdbcTemplate banco = banco(nome);
+                assertThat(banco.queryForObject("select count(*) from cliente where id = ? and nome = ?",
+                        Integer.class, cliente.getId(), "Cliente " + i)).as("cliente em %s", nome).isEqualTo(esperado);
+                assertThat(banco.queryForObject("select count(*) from carrinho_de_compras where cliente_id = ?"
+                        + " and versao = 2", Integer.class, cliente.getId())).as("carrinho em %s", nome)
+                        .isEqualTo(esperado);
+            }
+        }
+
+        assertThat(usados).hasSizeGreaterThan(1);
+        for (String nome : anel.nomes()) {
+            assertThat(banco(nome).queryForObject("select preco from produto where id = ?", BigDecimal.class,
+                    produto.getId())).isEqualByComparingTo(produto.getPreco());
+        }
+    }
+
+    @Test
+    void consultaAdministrativa_juntaTodosOsFragmentos() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            ids.add(clientes.save(new Cliente(null, "Admin " + i, null, null)).getId());
+        }
+
+        List<Cliente> primeiros = consulta.juntar(
+                () -> clientes.findAll(PageRequest.of(0, 5, Sort.by("id"))).getContent(),
+                Comparator.comparing(Cliente::getId), 5);
+        Map<String, Object> painel = endpoint.painel();
+
+        assertThat(consulta.somar(clientes::count)).isGreaterThanOrEqualTo(CLIENTES);
+        assertThat(primeiros).extracting(Cliente::getId).isSorted().hasSize(5);
+        assertThat(primeiros.get(0).getId()).isLessThanOrEqualTo(ids.get(0));
+        assertThat(painel.keySet()).containsAll(anel.nomes()).hasSize(anel.nomes().size() + 1);
+        assertThat(painel).containsKey("replicacoesPendentes");
+        assertThat(endpoint.cliente(ids.get(0))).containsEntry("fragmento", anel.fragmento(ids.get(0)));
+    }
+
+    @Test
+    void transacaoQueAtravessaFragmentos_eRecusada() {
+        Cliente primeiro = clientes.save(new Cliente());
+        Cliente outro = clientes.save(new Cliente());
+        while (anel.fragmento(outro.getId()).equals(anel.fragmento(primeiro.getId()))) {
+            outro = clientes.save(new Cliente());
+        }
+        Long outroId = outro.getId();
+
+        assertThatThrownBy(() -> transacao.executeWithoutResult(status -> {
+            clientes.findById(primeiro.getId());
+            clientes.findById(outroId);
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("dentro de uma transação do fragmento");
+        assertThatThrownBy(clientes::count).isInstanceOf(IllegalStateException.class);
+        assertThat(ContextoFragmento.atual()).isNull();
+    }
+
+    @Test
+    void replicacaoQueFalhaNumFragmento_ficaPendenteAteDarCerto() {
+        JdbcTemplate ultimo = banco(anel.nomes().get(2));
+        ultimo.execute("alter table produto add constraint recusa_preco check (preco <> 777)");
+        Produto produto;
+        try {
+            Produto novo = produtoBasico();
+            novo.setPreco(new BigDecimal("777"));
+            produto = produtos.save(novo);
+
+            assertThat(pendencias.pendentes()).isEqualTo(1);
+            assertThat(banco(anel.nomes().get(1)).queryForObject("select count(*) from produto where id = ?",
+                    Integer.class, produto.getId())).isEqualTo(1);
+            pendencias.repetir();
+            assertThat(pendencias.pendentes()).isEqualTo(1);
+        } finally {
+            ultimo.execute("alter table produto drop constraint recusa_preco");
+        }
+
+        pendencias.repetir();
+
+        assertThat(pendencias.pendentes()).isZero();
+        assertThat(endpoint.painel()).containsEntry("replicacoesPendentes", 0);
+        assertThat(ultimo.queryForObject("select preco from produto where id = ?", BigDecimal.class,
+                produto.getId())).isEqualByComparingTo("777");
+    }
+
+    @Test
+    void anelDiferenteDoGravado_recusaSubirAteSerAceito() {
+        AnelFragmentos outro = new AnelFragmentos(anel.nomes(), 64);
+
+        assertThatThrownBy(() -> new AnelGravado(outro, jdbc, false).verificar())
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("aceitar-novo-anel");
+        new AnelGravado(anel, jdbc, false).verificar();
+
+        try {
+            new AnelGravado(outro, jdbc, true).verificar();
+            for (String nome : anel.nomes()) {
+                assertThat(banco(nome).queryForObject("select assinatura from anel_fragmentos", String.class))
+                        .isEqualTo(outro.assinatura());
+            }
+        } finally {
+            new AnelGravado(anel, jdbc, true).verificar();
+        }
+    }
+
+    private static JdbcTemplate banco(String nome) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:fragmento-" + nome.substring(1) + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+}
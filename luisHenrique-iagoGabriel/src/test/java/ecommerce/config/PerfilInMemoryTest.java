@@ -0,0 +1,73 @@
+package ecommerce.config;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.CacheDisponibilidade;
+import ecommerce.external.fake.CarrinhoDeComprasRepositoryFake;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+import ecommerce.service.GravadorPedidos;
+import ecommerce.service.PedidoService;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+@SpringBootTest(properties = "pedidos.gravacao.diretorio=target/perfil-inmemory")
+@ActiveProfiles("inmemory")
+class PerfilInMemoryTest {
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private GravadorPedidos gravador;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Test
+    void checkout_completoSemBanco() {
+        assertThat(contexto.getBeanNamesForType(DataSource.class)).isEmpty();
+        assertThat(contexto.getBeanNamesForType(CacheDisponibilidade.class)).as("cache só com externos http").isEmpty();
+        assertThat(carrinhos).isInstanceOf(CarrinhoDeComprasRepositoryFake.class);
+
+        Cliente cliente = clientes.save(new Cliente());
+        Produto produto = produtos.save(produtoBasico());
+        CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente,
+                List.of(new ItemCompra(null, produto, 2L)), LocalDate.now()));
+
+        CompraDTO resultado = compraService.finalizarCompra(carrinho.getId(), cliente.getId());
+        gravador.descarregar();
+
+        assertThat(resultado.sucesso()).isTrue();
+        assertThat(carrinho.getVersao()).isEqualTo(2L); // reservado e confirmado
+        assertThat(pedidoService.historico(cliente.getId(), 0, 10)).hasSize(1);
+    }
+}
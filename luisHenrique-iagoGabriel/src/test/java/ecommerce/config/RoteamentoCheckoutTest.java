@@ -0,0 +1,121 @@
+package ecommerce.config;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.CheckoutEmEstagios;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+import ecommerce.service.RequisicaoInvalidaException;
+import ecommerce.service.ResultadoCompra;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+/**
+ * Perfil "roteamento" com primário e réplica em bancos H2 separados e a cópia
+ * automática adiada: entre um {@link ReplicacaoLocalH2#replicar()} e outro, o que
+ * foi gravado só existe no primário.
+ */
+@SpringBootTest(properties = {
+        "ecommerce.datasource.primario.url=jdbc:h2:mem:roteamento-primario;DB_CLOSE_DELAY=-1",
+        "ecommerce.datasource.replicas[0].url=jdbc:h2:mem:roteamento-replica;DB_CLOSE_DELAY=-1",
+        "ecommerce.datasource.replicacao-local.intervalo-ms=3600000", "compra.estagios.habilitado=true",
+        "aquecimento.habilitado=false", "pedidos.gravacao.diretorio=target/roteamento" })
+@ActiveProfiles("roteamento")
+class RoteamentoCheckoutTest {
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private CheckoutEmEstagios checkoutEmEstagios;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private CarrinhoDeComprasService carrinhoService;
+
+    @Autowired
+    private ReplicacaoLocalH2 replicacao;
+
+    @Autowired
+    private JanelaConsistenciaReplica janela;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    private CarrinhoDeCompras carrinhoNovo() {
+        Cliente cliente = clientes.save(new Cliente());
+        Produto produto = produtos.save(produtoBasico());
+        return carrinhos.save(new CarrinhoDeCompras(null, cliente, List.of(new ItemCompra(null, produto, 1L)),
+                LocalDate.now()));
+    }
+
+    @Test
+    void leituraForaDoCheckout_vaiParaAReplicaAtrasada() {
+        CarrinhoDeCompras carrinho = carrinhoNovo();
+        Long clienteId = carrinho.getCliente().getId();
+
+        assertThatThrownBy(() -> clienteService.buscarPorId(clienteId))
+                .isInstanceOf(RequisicaoInvalidaException.class);
+
+        replicacao.replicar();
+
+        assertThat(clienteService.buscarPorId(clienteId).getId()).isEqualTo(clienteId);
+    }
+
+    @Test
+    void finalizar_leEReservaNoPrimarioMesmoComAReplicaAtrasada() {
+        CarrinhoDeCompras carrinho = carrinhoNovo();
+        Long clienteId = carrinho.getCliente().getId();
+
+        ResultadoCompra resultado = compraService.finalizar(carrinho.getId(), clienteId);
+
+        assertThat(resultado.compra().sucesso()).isTrue();
+        assertThat(ContextoRoteamento.isPrimarioForcado()).isFalse();
+        assertThat(ContextoRoteamento.executarNoPrimario(() -> carrinhos.findById(carrinho.getId())))
+                .hasValueSatisfying(noPrimario -> assertThat(noPrimario.getVersao()).isEqualTo(2L));
+        assertThat(carrinhos.findById(carrinho.getId())).isEmpty();
+        // A reserva e a confirmação abriram a janela de leitura no primário
+        assertThat(janela.exigePrimario(clienteId)).isTrue();
+
+        replicacao.replicar();
+
+        Cliente naReplica = clienteService.buscarPorId(clienteId);
+        assertThat(carrinhoService.buscarPorCarrinhoIdEClienteId(carrinho.getId(), naReplica).getVersao())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    void finalizarEmEstagios_usaOPrimarioEmTodosOsEstagios() throws Exception {
+        CarrinhoDeCompras carrinho = carrinhoNovo();
+
+        ResultadoCompra resultado = checkoutEmEstagios.finalizar(carrinho.getId(), carrinho.getCliente().getId())
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(resultado.compra().sucesso()).isTrue();
+        assertThat(ContextoRoteamento.isPrimarioForcado()).isFalse();
+    }
+}
@@ -0,0 +1,126 @@
+package ecommerce.config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.service.CarrinhosAlteradosEvento;
+
+/**
+ * Duas instâncias H2 distintas, cada uma com um marcador próprio, para verificar
+ * para qual delas cada tipo de transação foi roteado.
+ */
+public class RoteamentoLeituraEscritaDataSourceTest {
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+
+    private static DataSource h2(String nome) {
+        DataSource ds = new DriverManagerDataSource("jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("create table if not exists marcador (nome varchar(20))");
+        jdbc.execute("delete from marcador");
+        jdbc.update("insert into marcador values (?)", nome);
+        return ds;
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource roteado = new LazyConnectionDataSourceProxy(
+                new RoteamentoLeituraEscritaDataSource(h2("primario"), List.of(h2("replica"))));
+
+        jdbc = new JdbcTemplate(roteado);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(roteado);
+        escrita = new TransactionTemplate(tm);
+        leitura = new TransactionTemplate(tm);
+        leitura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ContextoRoteamento.limpar();
+    }
+
+    private String marcador() {
+        return jdbc.queryForObject("select nome from marcador", String.class);
+    }
+
+    @Test
+    void transacaoSomenteLeitura_vaiParaReplica() {
+        String nome = leitura.execute(s -> marcador());
+
+        assertThat(nome).isEqualTo("replica");
+    }
+
+    @Test
+    void transacaoDeEscrita_vaiParaPrimario() {
+        String nome = escrita.execute(s -> marcador());
+
+        assertThat(nome).isEqualTo("primario");
+    }
+
+    @Test
+    void leituraComPrimarioForcado_vaiParaPrimario() {
+        ContextoRoteamento.forcarPrimario();
+
+        String nome = leitura.execute(s -> marcador());
+
+        assertThat(nome).isEqualTo("primario");
+    }
+
+    @Test
+    void primarioForcado_segueComATarefaParaOutraThread() throws InterruptedException {
+        AtomicReference<String> nome = new AtomicReference<>();
+        ContextoRoteamento.forcarPrimario();
+        Runnable tarefa = ContextoRoteamento.propagar(() -> nome.set(leitura.execute(s -> marcador())));
+        ContextoRoteamento.limpar();
+
+        Thread outra = new Thread(tarefa);
+        outra.start();
+        outra.join();
+
+        assertThat(nome.get()).isEqualTo("primario");
+        String nestaThread = leitura.execute(s -> marcador());
+        assertThat(nestaThread).isEqualTo("replica");
+    }
+
+    @Test
+    void janela_abreEmQualquerEscritaDeCarrinho() {
+        JanelaConsistenciaReplica janela = new JanelaConsistenciaReplica(100, () -> 0L);
+
+        janela.aoAlterarCarrinhos(new CarrinhosAlteradosEvento(List.of(7L, 8L)));
+
+        assertThat(janela.exigePrimario(7L)).isTrue();
+        assertThat(janela.exigePrimario(8L)).isTrue();
+        assertThat(janela.exigePrimario(9L)).isFalse();
+    }
+
+    @Test
+    void janela_exigePrimarioApenasAteExpirar() {
+        AtomicLong agora = new AtomicLong();
+        JanelaConsistenciaReplica janela = new JanelaConsistenciaReplica(100, agora::get);
+
+        janela.registrarEscrita(7L);
+
+        assertThat(janela.exigePrimario(7L)).isTrue();
+        assertThat(janela.exigePrimario(8L)).isFalse();
+
+        agora.addAndGet(100_000_000L);
+        janela.descartarExpirados();
+
+        assertThat(janela.exigePrimario(7L)).isFalse();
+    }
+}
@@ -0,0 +1,102 @@
+package ecommerce.controller;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:conexao-checkout;DB_CLOSE_DELAY=-1",
+        "aquecimento.habilitado=false", "pedidos.gravacao.diretorio=target/conexao-checkout" })
+@AutoConfigureMockMvc
+class ConexaoDuranteCheckoutTest {
+
+    /** Estado da conexão visto pelo pagamento, entre a reserva e a confirmação. */
+    record Observacao(int conexoesAtivas, boolean entityManagerNaThread) {
+    }
+
+    @TestConfiguration
+    static class PagamentoObservado {
+        static final AtomicReference<Observacao> observada = new AtomicReference<>();
+
+        @Bean
+        @Primary
+        IPagamentoExternal pagamentoObservado(PagamentoSimulado simulado, DataSource dataSource,
+                EntityManagerFactory fabrica) {
+            return new IPagamentoExternal() {
+                @Override
+                public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia) {
+                    try {
+                        observada.set(new Observacao(
+                                dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections(),
+                                TransactionSynchronizationManager.hasResource(fabrica)));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return simulado.autorizarPagamento(clienteId, custoTotal, chaveIdempotencia);
+                }
+
+                @Override
+                public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+                    simulado.cancelarPagamento(clienteId, pagamentoTransacaoId);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Test
+    void finalizar_naoRetemConexaoDuranteOPagamento() throws Exception {
+        Cliente cliente = clientes.save(new Cliente());
+        Produto produto = produtos.save(produtoBasico());
+        CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente,
+                List.of(new ItemCompra(null, produto, 1L)), LocalDate.now()));
+
+        mvc.perform(post("/finalizar").param("carrinhoId", carrinho.getId().toString())
+                .param("clienteId", cliente.getId().toString())).andExpect(status().isOk());
+
+        // Depois da reserva e antes da confirmação: nenhuma conexão emprestada e nenhum
+        // EntityManager de open-in-view preso à requisição
+        assertThat(PagamentoObservado.observada.get()).isEqualTo(new Observacao(0, false));
+    }
+}
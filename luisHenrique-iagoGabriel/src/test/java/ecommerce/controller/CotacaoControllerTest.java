@@ -0,0 +1,139 @@
+package ecommerce.controller;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Produto;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+import static ecommerce.service.DomainTestData.carrinhoComItem;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GET /cotacao - detalhamento do preço com ETag")
+public class CotacaoControllerTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 10L;
+
+    @Mock
+    private ClienteService clienteService;
+
+    @Mock
+    private CarrinhoDeComprasService carrinhoService;
+
+    private CompraService compraService;
+    private MockMvc mvc;
+    private CarrinhoDeCompras carrinho;
+    private Produto produto;
+
+    @BeforeEach
+    void setUp() {
+        compraService = spy(new CompraService(carrinhoService, clienteService, new EstoqueSimulado(),
+                new PagamentoSimulado()));
+        mvc = MockMvcBuilders.standaloneSetup(
+                new CompraController(compraService, Runnable::run, 1, 4096)).build();
+
+        produto = produtoBasico(new BigDecimal("300.00"));
+        produto.setId(7L);
+        produto.setPesoFisico(new BigDecimal("3.0"));
+        produto.setFragil(true);
+        carrinho = carrinhoComItem(produto, 2L);
+        carrinho.setId(CARRINHO_ID);
+        carrinho.setVersao(4L);
+    }
+
+    private void carrinhoDoCliente() {
+        Cliente cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteService.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente)).thenReturn(carrinho);
+    }
+
+    @Test
+    void cotacao_detalhaSubtotalDescontoEFreteComTotalDoCheckout() throws Exception {
+        carrinhoDoCliente();
+        mvc.perform(get("/cotacao").param("carrinhoId", "10").param("clienteId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().string("ETag", "\"" + compraService.impressaoDigital(carrinho) + "\""))
+                .andExpect(jsonPath("$.versao").value(4))
+                .andExpect(jsonPath("$.subtotalItens").value(600.00))
+                .andExpect(jsonPath("$.desconto").value(60.00))
+                .andExpect(jsonPath("$.subtotal").value(540.00))
+                .andExpect(jsonPath("$.fretePeso").value(24.00))
+                .andExpect(jsonPath("$.freteFragil").value(10.00))
+                .andExpect(jsonPath("$.frete").value(34.00))
+                .andExpect(jsonPath("$.total").value(574.00));
+
+        assertThat(compraService.cotar(carrinho).total()).isEqualByComparingTo(compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void ifNoneMatchIgual_devolve304SemPrecificar() throws Exception {
+        carrinhoDoCliente();
+        String etag = mvc.perform(get("/cotacao").param("carrinhoId", "10").param("clienteId", "1"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/cotacao").param("carrinhoId", "10").param("clienteId", "1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        verify(compraService, times(1)).cotar(any(CarrinhoDeCompras.class));
+    }
+
+    @Test
+    void mudancaDeQuantidadeVersaoOuPreco_mudaOEtag() {
+        String original = compraService.impressaoDigital(carrinho);
+
+        carrinho.getItens().get(0).setQuantidade(3L);
+        String quantidade = compraService.impressaoDigital(carrinho);
+        carrinho.setVersao(5L);
+        String versao = compraService.impressaoDigital(carrinho);
+        produto.setPreco(new BigDecimal("299.99"));
+        String preco = compraService.impressaoDigital(carrinho);
+        produto.setPreco(new BigDecimal("299.9900"));
+
+        assertThat(original).startsWith("10-4-");
+        assertThat(List.of(original, quantidade, versao, preco)).doesNotHaveDuplicates();
+        assertThat(compraService.impressaoDigital(carrinho)).isEqualTo(preco);
+    }
+
+    @Test
+    void etagDiferenteOuCarrinhoInvalido() throws Exception {
+        carrinhoDoCliente();
+        mvc.perform(get("/cotacao").param("carrinhoId", "10").param("clienteId", "1")
+                .header("If-None-Match", "\"10-3-abc\""))
+                .andExpect(status().isOk());
+
+        carrinho.setItens(List.of());
+        mvc.perform(get("/cotacao").param("carrinhoId", "10").param("clienteId", "1"))
+                .andExpect(status().isBadRequest());
+        verify(compraService, never()).calcularCustoTotal(any());
+    }
+}
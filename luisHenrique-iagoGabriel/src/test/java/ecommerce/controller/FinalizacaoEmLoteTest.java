@@ -0,0 +1,171 @@
+package ecommerce.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+
+@DisplayName("Checkout em lote - NDJSON com paralelismo limitado")
+public class FinalizacaoEmLoteTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final ObjectMapper json = new ObjectMapper();
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private static final BiFunction<Long, Long, ResponseEntity<CompraDTO>> APROVA_PARES = (carrinho,
+            cliente) -> carrinho % 2 == 0 ? ResponseEntity.ok(new CompraDTO(true, carrinho * 10, "ok"))
+                    : ResponseEntity.status(409).body(new CompraDTO(false, null, "Pagamento não autorizado."));
+
+    private static InputStream ndjson(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<ResultadoLoteDTO> resultados(ByteArrayOutputStream saida) throws IOException {
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        List<ResultadoLoteDTO> lidos = new ArrayList<>();
+        for (String linha : linhas) {
+            lidos.add(json.readValue(linha, ResultadoLoteDTO.class));
+        }
+        lidos.sort(Comparator.comparingLong(ResultadoLoteDTO::linha));
+        return lidos;
+    }
+
+    @Test
+    void processaCadaLinhaEReportaInvalidas() throws Exception {
+        FinalizacaoEmLote lote = new FinalizacaoEmLote(executor, 4, 64, APROVA_PARES);
+        String entrada = "{\"carrinhoId\":2,\"clienteId\":1}\r\n"
+                + "\n"
+                + "{\"carrinhoId\":3,\"clienteId\":1}\n"
+                + "não é json\n"
+                + "{\"carrinhoId\":4}\n"
+                + "{\"carrinhoId\":6,\"clienteId\":1,\"observacao\":\"" + "x".repeat(100) + "\"}\n"
+                + "{\"carrinhoId\":8,\"clienteId\":5}";
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        FinalizacaoEmLote.Resumo resumo = lote.processar(ndjson(entrada), saida);
+
+        List<ResultadoLoteDTO> resultados = resultados(saida);
+        assertThat(resultados).extracting(ResultadoLoteDTO::linha).containsExactly(1L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(resultados).extracting(ResultadoLoteDTO::status).containsExactly(200, 409, 400, 400, 400, 200);
+        assertThat(resultados.get(0).compra()).isEqualTo(new CompraDTO(true, 20L, "ok"));
+        assertThat(resultados.get(2).compra().mensagem()).isEqualTo("Linha não é um JSON válido.");
+        assertThat(resultados.get(3).compra().mensagem()).isEqualTo("carrinhoId e clienteId são obrigatórios.");
+        assertThat(resultados.get(4).compra().mensagem()).isEqualTo("Linha maior que 64 bytes.");
+        assertThat(resultados.get(5).clienteId()).isEqualTo(5L);
+        assertThat(resumo).isEqualTo(new FinalizacaoEmLote.Resumo(6, 4));
+    }
+
+    @Test
+    void limitaLinhasEmCursoEParaDeLerQuandoCheio() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch duasEmCurso = new CountDownLatch(2);
+        AtomicInteger emCurso = new AtomicInteger();
+        AtomicInteger pico = new AtomicInteger();
+        FinalizacaoEmLote lote = new FinalizacaoEmLote(executor, 2, 256, (carrinho, cliente) -> {
+            pico.accumulateAndGet(emCurso.incrementAndGet(), Math::max);
+            duasEmCurso.countDown();
+            try {
+                liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            emCurso.decrementAndGet();
+            return APROVA_PARES.apply(carrinho, cliente);
+        });
+
+        String entrada = LongStream.rangeClosed(1, 50)
+                .mapToObj(i -> "{\"carrinhoId\":" + i + ",\"clienteId\":1}")
+                .collect(Collectors.joining("\n"));
+        byte[] bytes = entrada.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger lidos = new AtomicInteger();
+        InputStream contada = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                // Entrega uma linha por leitura, para medir quanto foi consumido
+                int n = 0;
+                int c;
+                while (n < len && (c = read()) != -1) {
+                    b[off + n++] = (byte) c;
+                    if (c == '\n') {
+                        break;
+                    }
+                }
+                if (n > 0) {
+                    lidos.incrementAndGet();
+                }
+                return n == 0 ? -1 : n;
+            }
+        };
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        CompletableFuture<FinalizacaoEmLote.Resumo> execucao = CompletableFuture.supplyAsync(() -> {
+            try {
+                return lote.processar(contada, saida);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(duasEmCurso.await(5, TimeUnit.SECONDS)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        // Duas em curso e a terceira lida, esperando vaga
+        assertThat(lidos.get()).isEqualTo(3);
+        liberar.countDown();
+
+        assertThat(execucao.get(10, TimeUnit.SECONDS)).isEqualTo(new FinalizacaoEmLote.Resumo(50, 25));
+        assertThat(pico.get()).isEqualTo(2);
+        assertThat(resultados(saida)).hasSize(50);
+    }
+
+    @Test
+    void clienteDesconectado_paraDeLerEPropagaFalha() {
+        AtomicInteger chamadas = new AtomicInteger();
+        FinalizacaoEmLote lote = new FinalizacaoEmLote(Runnable::run, 1, 256, (carrinho, cliente) -> {
+            chamadas.incrementAndGet();
+            return APROVA_PARES.apply(carrinho, cliente);
+        });
+        OutputStream desconectada = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        String entrada = LongStream.rangeClosed(1, 20)
+                .mapToObj(i -> "{\"carrinhoId\":" + i + ",\"clienteId\":1}")
+                .collect(Collectors.joining("\n"));
+
+        assertThatThrownBy(() -> lote.processar(ndjson(entrada), desconectada)).isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+        assertThat(chamadas.get()).isEqualTo(1);
+    }
+}
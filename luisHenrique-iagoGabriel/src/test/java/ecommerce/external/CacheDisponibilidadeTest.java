@@ -0,0 +1,115 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import ecommerce.config.InstrumentacaoPostProcessor;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PerfilLatencia;
+import ecommerce.external.fake.SimulacaoChamada;
+import ecommerce.rastreamento.Rastreador;
+
+class CacheDisponibilidadeTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+    private final CacheDisponibilidade cache = new CacheDisponibilidade(new CacheDisponibilidade.Configuracao(
+            Duration.ofNanos(1_000), Duration.ofNanos(100), 0.5, 1_000), relogio::get);
+
+    @Test
+    void consultar_respondeLocalmenteSoBemAbaixoDaQuantidadeConfirmada() {
+        LinhasPedido confirmadas = linhas(1L, 10L, 2L, 4L);
+        assertThat(cache.consultar(confirmadas)).isNull();
+        cache.registrar(confirmadas, cache.marca(confirmadas), CacheDisponibilidade.DISPONIVEL);
+
+        assertThat(cache.consultar(linhas(1L, 5L, 2L, 2L))).isSameAs(CacheDisponibilidade.DISPONIVEL);
+        assertThat(cache.consultar(linhas(1L, 6L))).as("perto do limite").isNull();
+        assertThat(cache.consultar(linhas(1L, 1L, 3L, 1L))).as("produto desconhecido").isNull();
+
+        relogio.set(1_000);
+        assertThat(cache.consultar(linhas(1L, 1L))).as("expirado").isNull();
+        assertThat(cache.acertos()).isEqualTo(1);
+        assertThat(cache.encaminhadas()).isEqualTo(4);
+    }
+
+    @Test
+    void consultar_recusaLocalmentePorPoucoTempoEIgnoraRecusaSemProdutos() {
+        LinhasPedido pedido = linhas(1L, 8L, 2L, 1L);
+        cache.registrar(pedido, cache.marca(pedido), new DisponibilidadeDTO(false, List.of(1L)));
+        cache.registrar(linhas(3L, 1L), cache.marca(linhas(3L, 1L)), new DisponibilidadeDTO(false, List.of()));
+
+        assertThat(cache.consultar(linhas(2L, 1L, 1L, 9L))).isEqualTo(new DisponibilidadeDTO(false, List.of(1L)));
+        assertThat(cache.consultar(linhas(1L, 7L))).as("abaixo da recusada").isNull();
+        assertThat(cache.consultar(linhas(3L, 1L))).isNull();
+
+        relogio.set(100);
+        assertThat(cache.consultar(linhas(1L, 9L))).isNull();
+        assertThat(cache.recusasLocais()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidar_esqueceOProdutoEDescartaRespostaEmVoo() {
+        LinhasPedido pedido = linhas(1L, 10L);
+        cache.registrar(pedido, cache.marca(pedido), CacheDisponibilidade.DISPONIVEL);
+        cache.invalidar(linhas(1L, 2L));
+        assertThat(cache.consultar(linhas(1L, 1L))).isNull();
+
+        long marca = cache.marca(pedido);
+        cache.invalidar(linhas(1L, 2L));
+        cache.registrar(pedido, marca, CacheDisponibilidade.DISPONIVEL);
+
+        assertThat(cache.consultar(linhas(1L, 1L))).isNull();
+        assertThat(cache.tamanho()).isZero();
+    }
+
+    @Test
+    void estoqueInstrumentado_pulaChamadasSegurasEInvalidaNaBaixa() {
+        AtomicInteger verificacoes = new AtomicInteger();
+        EstoqueSimulado contador = new EstoqueSimulado() {
+            @Override
+            public DisponibilidadeDTO verificarDisponibilidade(List<Long> ids, List<Long> quantidades) {
+                verificacoes.incrementAndGet();
+                return CacheDisponibilidade.DISPONIVEL;
+            }
+        };
+        CacheDisponibilidade real = new CacheDisponibilidade(new CacheDisponibilidade.Configuracao(
+                Duration.ofMinutes(1), Duration.ofMinutes(1), 0.5, 1_000));
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("cache", real);
+        EstoqueSimulado estoque = (EstoqueSimulado) new InstrumentacaoPostProcessor(false,
+                beans.getBeanProvider(Rastreador.class), beans.getBeanProvider(MonitoresExternos.class),
+                beans.getBeanProvider(CacheDisponibilidade.class))
+                .postProcessAfterInitialization(contador, "estoque");
+
+        estoque.verificarDisponibilidade(linhas(7L, 10L));
+        estoque.verificarDisponibilidade(linhas(7L, 2L));
+        estoque.verificarDisponibilidade(List.of(7L, 7L), List.of(1L, 2L));
+        assertThat(verificacoes).hasValue(1);
+
+        estoque.configurarSimulacao(new SimulacaoChamada(PerfilLatencia.NENHUMA, 1.0, 0));
+        assertThatThrownBy(() -> estoque.darBaixa(linhas(7L, 1L))).isInstanceOf(FalhaServicoExternoException.class);
+        estoque.configurarSimulacao(SimulacaoChamada.SEM_EFEITO);
+        EstoqueBaixaDTO baixa = estoque.darBaixa(linhas(7L, 1L));
+        estoque.verificarDisponibilidade(linhas(7L, 2L));
+
+        assertThat(baixa.sucesso()).isTrue();
+        assertThat(verificacoes).hasValue(2);
+    }
+
+    private static LinhasPedido linhas(long... idQuantidade) {
+        LinhasPedido.Construtor construtor = LinhasPedido.construtor(idQuantidade.length / 2);
+        for (int i = 0; i < idQuantidade.length; i += 2) {
+            construtor.adicionar(idQuantidade[i], idQuantidade[i + 1]);
+        }
+        return construtor.construir();
+    }
+}
@@ -0,0 +1,69 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.external.fake.EstoqueSimulado;
+
+class LinhasPedidoTest {
+
+    @Test
+    void construtor_somaProdutosRepetidosNaOrdemDaPrimeiraOcorrencia() {
+        LinhasPedido linhas = LinhasPedido.construtor(4)
+                .adicionar(7L, 1L).adicionar(3L, 2L).adicionar(7L, 4L).adicionar(9L, 1L)
+                .construir();
+
+        assertThat(linhas.ids()).containsExactly(7L, 3L, 9L);
+        assertThat(linhas.quantidades()).containsExactly(5L, 2L, 1L);
+    }
+
+    @Test
+    void construtor_consolidaTambemAcimaDaBuscaLinear() {
+        LinhasPedido.Construtor construtor = LinhasPedido.construtor(2);
+        for (int rodada = 0; rodada < 3; rodada++) {
+            for (long id = 1; id <= 100; id++) {
+                construtor.adicionar(id * 1_000_003L, id);
+            }
+        }
+        LinhasPedido linhas = construtor.construir();
+
+        assertThat(linhas.tamanho()).isEqualTo(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(linhas.id(i)).isEqualTo((i + 1) * 1_000_003L);
+            assertThat(linhas.quantidade(i)).isEqualTo(3L * (i + 1));
+        }
+    }
+
+    @Test
+    void de_listasComIdNulo_recusaComoArgumentoInvalido() {
+        assertThatThrownBy(() -> LinhasPedido.de(Arrays.asList(5L, null), List.of(1L, 1L)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Linha 1 sem id de produto ou sem quantidade.");
+        assertThatThrownBy(() -> LinhasPedido.de(List.of(5L), Arrays.asList((Long) null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void de_implementacaoAntiga_recebeListasConsolidadas() {
+        IEstoqueExternal antigo = mock(IEstoqueExternal.class);
+        IEstoqueExternalPrimitivo estoque = IEstoqueExternalPrimitivo.de(antigo);
+
+        estoque.verificarDisponibilidade(LinhasPedido.de(new long[] { 5L, 6L, 5L }, new long[] { 1L, 1L, 2L }));
+
+        verify(antigo).verificarDisponibilidade(List.of(5L, 6L), List.of(3L, 1L));
+    }
+
+    @Test
+    void de_implementacaoNativa_eUsadaSemAdaptador() {
+        EstoqueSimulado simulado = new EstoqueSimulado();
+
+        assertThat(IEstoqueExternalPrimitivo.de(simulado)).isSameAs(simulado);
+        assertThat(LinhasPedido.construtor(0).construir()).isSameAs(LinhasPedido.VAZIA);
+    }
+}
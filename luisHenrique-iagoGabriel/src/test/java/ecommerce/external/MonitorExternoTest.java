@@ -0,0 +1,146 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import ecommerce.config.InstrumentacaoPostProcessor;
+import ecommerce.config.SaudeExternosEndpoint;
+import ecommerce.external.MonitorExterno.EstadoCircuito;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PerfilLatencia;
+import ecommerce.external.fake.SimulacaoChamada;
+import ecommerce.rastreamento.Rastreador;
+
+@DisplayName("Monitor dos serviços externos - janela deslizante, disjuntor e contenção")
+public class MonitorExternoTest {
+
+    private final AtomicLong relogio = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private void avancar(long ms) {
+        relogio.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    private MonitorExterno monitor(boolean circuito) {
+        return new MonitorExterno("estoque", new MonitorExterno.Configuracao(Duration.ofSeconds(10), 10, circuito,
+                0.5, 4, Duration.ofSeconds(5)), relogio::get);
+    }
+
+    @Test
+    void janela_esqueceChamadasAntigasEResumeLatenciaELote() {
+        JanelaDeslizante janela = new JanelaDeslizante(10_000, 10, relogio::get);
+        janela.registrar(TimeUnit.MILLISECONDS.toNanos(100), true, 30);
+        avancar(6_000);
+        for (int i = 0; i < 9; i++) {
+            janela.registrar(TimeUnit.MICROSECONDS.toNanos(500), false, 2);
+        }
+
+        JanelaDeslizante.Resumo resumo = janela.resumo();
+        assertThat(resumo.chamadas()).isEqualTo(10);
+        assertThat(resumo.taxaErro()).isCloseTo(0.1, within(1e-9));
+        assertThat(resumo.maxLote()).isEqualTo(30);
+        assertThat(resumo.loteMedio()).isCloseTo(4.8, within(1e-9));
+        assertThat(resumo.percentilMs(50.0)).isEqualTo(0.511);
+        assertThat(resumo.percentilMs(100.0)).isEqualTo(131.071);
+
+        avancar(5_000);
+        assertThat(janela.resumo().chamadas()).isEqualTo(9);
+        avancar(10_000);
+        assertThat(janela.resumo().chamadas()).isZero();
+        assertThat(janela.resumo().percentilMs(99.0)).isZero();
+    }
+
+    @Test
+    void disjuntor_abreRecusaSondaEFecha() {
+        MonitorExterno monitor = monitor(true);
+        for (int i = 0; i < 4; i++) {
+            monitor.entrar(false);
+            monitor.sair(1_000, i % 2 == 1, 1);
+        }
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.ABERTO);
+        assertThatThrownBy(() -> monitor.entrar(false)).isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessage("estoque: circuito aberto.");
+        assertThat(monitor.recusadas()).isEqualTo(1);
+
+        // Estorno passa mesmo com o circuito aberto
+        monitor.entrar(true);
+        monitor.sair(1_000, false, 1);
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.ABERTO);
+
+        avancar(5_000);
+        monitor.entrar(false);
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.MEIO_ABERTO);
+        assertThatThrownBy(() -> monitor.entrar(false)).isInstanceOf(FalhaServicoExternoException.class);
+        monitor.sair(1_000, true, 1);
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.ABERTO);
+
+        avancar(5_000);
+        monitor.entrar(false);
+        monitor.sair(1_000, false, 1);
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.FECHADO);
+        assertThat(monitor.resumo().chamadas()).isZero();
+        assertThat(monitor.emCurso()).isZero();
+    }
+
+    @Test
+    void disjuntorDesabilitado_soMede() {
+        MonitorExterno monitor = monitor(false);
+        for (int i = 0; i < 10; i++) {
+            monitor.entrar(false);
+            monitor.sair(1_000, true, 1);
+        }
+        assertThat(monitor.estadoCircuito()).isEqualTo(EstadoCircuito.FECHADO);
+        assertThat(monitor.resumo().taxaErro()).isEqualTo(1.0);
+    }
+
+    @Test
+    void contencao_contaSobreposicoesPorProduto() {
+        ContencaoProdutos contencao = new ContencaoProdutos();
+        contencao.entrar(List.of(1L, 2L));
+        contencao.entrar(List.of(1L));
+        contencao.entrar(List.of(1L));
+        contencao.sair(List.of(1L));
+        contencao.sair(List.of(1L));
+        contencao.sair(List.of(1L, 2L));
+        contencao.entrar(List.of(2L));
+        contencao.sair(List.of(2L));
+
+        assertThat(contencao.maisDisputados(10)).containsExactly(
+                new ContencaoProdutos.Estatistica(1L, 3, 2, 3),
+                new ContencaoProdutos.Estatistica(2L, 2, 0, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void painel_mostraChamadasDoEstoqueInstrumentado() {
+        MonitoresExternos monitores = new MonitoresExternos(MonitorExterno.Configuracao.padrao());
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("monitores", monitores);
+        EstoqueSimulado estoque = (EstoqueSimulado) new InstrumentacaoPostProcessor(false,
+                beans.getBeanProvider(Rastreador.class), beans.getBeanProvider(MonitoresExternos.class))
+                .postProcessAfterInitialization(new EstoqueSimulado(), "estoque");
+
+        estoque.verificarDisponibilidade(List.of(7L, 8L, 9L), List.of(1L, 1L, 1L));
+        estoque.configurarSimulacao(new SimulacaoChamada(PerfilLatencia.NENHUMA, 1.0, 0));
+        assertThatThrownBy(() -> estoque.darBaixa(List.of(7L), List.of(1L)))
+                .isInstanceOf(FalhaServicoExternoException.class);
+
+        Map<String, Object> painel = new SaudeExternosEndpoint(monitores).servico("estoque");
+        assertThat(painel).containsEntry("circuito", "FECHADO").containsEntry("chamadas", 2L)
+                .containsEntry("erros", 1L).containsEntry("emCurso", 0);
+        assertThat((Map<String, Object>) painel.get("lote")).containsEntry("maximo", 3L)
+                .containsEntry("medio", 2.0);
+        assertThat((List<ContencaoProdutos.Estatistica>) painel.get("contencaoProdutos"))
+                .extracting(ContencaoProdutos.Estatistica::produtoId).containsExactlyInAnyOrder(7L, 8L, 9L);
+        assertThat(new SaudeExternosEndpoint(monitores).servico("frete")).isNull();
+    }
+}
@@ -0,0 +1,163 @@
+package ecommerce.external.fake;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Pedido;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+
+@DisplayName("Repositórios em memória - ids, índices e concorrência")
+class RepositorioEmMemoriaTest {
+
+    @Test
+    void save_concorrente_geraIdsUnicosEIndexaPorCliente() throws Exception {
+        CarrinhoDeComprasRepositoryFake repository = new CarrinhoDeComprasRepositoryFake();
+        Cliente cliente = cliente(1L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        repository.save(new CarrinhoDeCompras(null, cliente, List.of(), null));
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(repository.count()).isEqualTo(4_000);
+        assertThat(repository.idsPorCliente(1L)).hasSize(4_000);
+    }
+
+    @Test
+    void findByIdAndCliente_usaIndiceEAcompanhaTrocaDeCliente() {
+        CarrinhoDeComprasRepositoryFake repository = new CarrinhoDeComprasRepositoryFake();
+        Cliente dono = cliente(1L);
+        Cliente outro = cliente(2L);
+        repository.salvar(new CarrinhoDeCompras(10L, dono, List.of(), null));
+
+        assertThat(repository.findByIdAndCliente(10L, dono)).isPresent();
+        assertThat(repository.findByIdAndCliente(10L, outro)).isEmpty();
+
+        repository.save(new CarrinhoDeCompras(10L, outro, List.of(), null));
+
+        assertThat(repository.findByIdAndCliente(10L, dono)).isEmpty();
+        assertThat(repository.findByIdAndCliente(10L, outro)).isPresent();
+
+        repository.deleteById(10L);
+
+        assertThat(repository.idsPorCliente(2L)).isEmpty();
+    }
+
+    @Test
+    void save_deInstanciaAlteradaComOutroCliente_reindexa() {
+        CarrinhoDeComprasRepositoryFake repository = new CarrinhoDeComprasRepositoryFake();
+        Cliente dono = cliente(1L);
+        Cliente outro = cliente(2L);
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(10L, dono, List.of(), null);
+        repository.salvar(carrinho);
+
+        // A mesma referência que está no mapa, alterada antes de salvar de novo
+        carrinho.setCliente(outro);
+        repository.save(carrinho);
+
+        assertThat(repository.findByIdAndCliente(10L, dono)).isEmpty();
+        assertThat(repository.findByIdAndCliente(10L, outro)).isPresent();
+        assertThat(repository.idsPorCliente(1L)).isEmpty();
+    }
+
+    @Test
+    void findAll_ordenadoEPorExemplo_comoNoBanco() {
+        ClienteRepositoryFake clientes = new ClienteRepositoryFake();
+        clientes.save(new Cliente(1L, "Bruna", Regiao.SUDESTE, TipoCliente.OURO));
+        clientes.save(new Cliente(2L, "ana", Regiao.NORDESTE, TipoCliente.BRONZE));
+        clientes.save(new Cliente(3L, "Carlos", Regiao.SUDESTE, TipoCliente.BRONZE));
+
+        assertThat(clientes.findAll(Sort.by(Sort.Order.asc("nome").ignoreCase())))
+                .extracting(Cliente::getId).containsExactly(2L, 1L, 3L);
+        assertThat(clientes.findAll(Example.of(new Cliente(null, null, Regiao.SUDESTE, null)),
+                Sort.by("id").descending())).extracting(Cliente::getId).containsExactly(3L, 1L);
+        Example<Cliente> comecaComA = Example.of(new Cliente(null, "A", null, null),
+                ExampleMatcher.matching().withIgnoreCase().withStringMatcher(ExampleMatcher.StringMatcher.STARTING));
+        assertThat(clientes.findOne(comecaComA)).map(Cliente::getId).contains(2L);
+        assertThat(clientes.count(Example.of(new Cliente(null, null, null, TipoCliente.BRONZE)))).isEqualTo(2);
+        assertThat(clientes.exists(Example.of(new Cliente(null, "Ana", null, null)))).isFalse();
+        List<Cliente> bronze = clientes.findBy(Example.of(new Cliente(null, null, null, TipoCliente.BRONZE)),
+                consulta -> consulta.sortBy(Sort.by("nome")).all());
+        assertThat(bronze).extracting(Cliente::getId).containsExactly(3L, 2L);
+
+        CarrinhoDeComprasRepositoryFake carrinhos = new CarrinhoDeComprasRepositoryFake();
+        carrinhos.save(new CarrinhoDeCompras(10L, cliente(1L), List.of(), null));
+        carrinhos.save(new CarrinhoDeCompras(11L, cliente(2L), List.of(), null));
+
+        CarrinhoDeCompras sonda = new CarrinhoDeCompras(null, cliente(2L), List.of(), null);
+        assertThat(carrinhos.findAll(Example.of(sonda))).extracting(CarrinhoDeCompras::getId).containsExactly(11L);
+    }
+
+    @Test
+    void incrementarVersao_concorrente_apenasUmaReservaVence() throws Exception {
+        CarrinhoDeComprasRepositoryFake repository = new CarrinhoDeComprasRepositoryFake();
+        repository.salvar(new CarrinhoDeCompras(10L, cliente(1L), List.of(), null));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int vencedores = 0;
+        try {
+            List<Future<Integer>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tarefas.add(executor.submit(() -> repository.incrementarVersao(10L, cliente(1L), 0L)));
+            }
+            for (Future<Integer> tarefa : tarefas) {
+                vencedores += tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(vencedores).isEqualTo(1);
+        assertThat(repository.findById(10L).orElseThrow().getVersao()).isEqualTo(1L);
+    }
+
+    @Test
+    void pedidos_historicoOrdenadoEPaginadoPorCliente() {
+        PedidoRepositoryFake repository = new PedidoRepositoryFake();
+        LocalDateTime agora = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Pedido("p" + i, 1L, 10L + i, 100L + i, BigDecimal.TEN, agora.plusMinutes(i)));
+        }
+        repository.save(new Pedido("outro", 2L, 99L, 999L, BigDecimal.ONE, agora));
+
+        List<Pedido> pagina = repository.findByClienteIdOrderByDataHoraDesc(1L, PageRequest.of(0, 2));
+
+        assertThat(pagina).extracting(Pedido::getCodigo).containsExactly("p4", "p3");
+        assertThat(repository.findByCodigo("outro")).isPresent();
+        assertThat(repository.findCodigosExistentes(List.of("p0", "x"))).containsExactly("p0");
+    }
+
+    private static Cliente cliente(Long id) {
+        Cliente cliente = new Cliente();
+        cliente.setId(id);
+        return cliente;
+    }
+}
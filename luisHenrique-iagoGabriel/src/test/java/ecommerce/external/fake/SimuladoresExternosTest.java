@@ -0,0 +1,120 @@
+package ecommerce.external.fake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.external.FalhaServicoExternoException;
+
+@DisplayName("Simuladores externos - latência, falhas e concorrência")
+class SimuladoresExternosTest {
+
+    @Test
+    void autorizarPagamento_sobConcorrencia_geraIdsUnicosECrescentes() throws Exception {
+        PagamentoSimulado pagamento = new PagamentoSimulado();
+        pagamento.configurarProximaTransacao(1000L);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tarefas.add(executor.submit(() -> {
+                    long anterior = Long.MIN_VALUE;
+                    for (int i = 0; i < 1_000; i++) {
+                        long id = pagamento.autorizarPagamento(1L, 10.0, "chave").transacaoId();
+                        assertThat(id).isGreaterThan(anterior);
+                        anterior = id;
+                        ids.add(id);
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(8_000);
+        assertThat(ids).allSatisfy(id -> assertThat(id).isBetween(1000L, 8_999L));
+    }
+
+    @Test
+    void simulacao_quandoLatenciaExcedeTimeout_esgotaTempo() {
+        SimulacaoChamada simulacao = new SimulacaoChamada(PerfilLatencia.fixa(200), 0.0, 20);
+
+        List<Long> esperas = new ArrayList<>();
+        assertThatThrownBy(() -> simulacao.aplicar("estoque.darBaixa", new Random(1), esperas::add))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessage("estoque.darBaixa: tempo esgotado após 20 ms.");
+
+        // Espera só até o timeout, não os 200 ms da latência
+        assertThat(esperas).containsExactly(20L);
+    }
+
+    @Test
+    void simulacao_comTaxaDeFalhaTotal_sempreFalha() {
+        EstoqueSimulado estoque = new EstoqueSimulado();
+        estoque.configurarSimulacao(new SimulacaoChamada(PerfilLatencia.NENHUMA, 1.0, 0));
+
+        assertThatThrownBy(() -> estoque.verificarDisponibilidade(List.of(1L), List.of(1L)))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessage("estoque.verificarDisponibilidade: falha simulada.");
+        assertThat(estoque.isVerificarDisponibilidadeChamado()).isTrue();
+    }
+
+    @Test
+    void simulacao_comTaxaDeFalhaParcial_falhaNaProporcaoConfigurada() {
+        SimulacaoChamada simulacao = new SimulacaoChamada(PerfilLatencia.NENHUMA, 0.25, 0);
+        Random aleatorio = new Random(42);
+
+        int falhas = 0;
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                simulacao.aplicar("pagamento.autorizarPagamento", aleatorio);
+            } catch (FalhaServicoExternoException e) {
+                falhas++;
+            }
+        }
+
+        assertThat(falhas / 10_000.0).isCloseTo(0.25, within(0.02));
+    }
+
+    @Test
+    void caudaLonga_respeitaMedianaEP99Configurados() {
+        PerfilLatencia perfil = PerfilLatencia.caudaLonga(20, 400);
+        Random aleatorio = new Random(7);
+
+        long[] amostras = new long[100_000];
+        for (int i = 0; i < amostras.length; i++) {
+            amostras[i] = perfil.amostrarMs(aleatorio);
+        }
+        Arrays.sort(amostras);
+
+        assertThat(amostras[amostras.length / 2]).isBetween(18L, 22L);
+        assertThat(amostras[(int) (amostras.length * 0.99)]).isBetween(360L, 440L);
+    }
+
+    @Test
+    void normal_nuncaProduzLatenciaNegativa() {
+        PerfilLatencia perfil = PerfilLatencia.normal(5, 20);
+        Random aleatorio = new Random(1);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(perfil.amostrarMs(aleatorio)).isGreaterThanOrEqualTo(0L);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ecommerce.external.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.CacheDisponibilidade;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.IEstoqueExternalPrimitivo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.LinhasPedido;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.rastreamento.Rastreador;
+import ecommerce.rastreamento.Span;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+@SpringBootTest(properties = { "externos.modo=http", "aquecimento.habilitado=false",
+        "pedidos.gravacao.diretorio=target/externos-http",
+        "spring.cloud.openfeign.client.config.estoque.read-timeout=300",
+        "spring.cloud.openfeign.client.config.pagamento.read-timeout=300" })
+class ExternosHttpIntegracaoTest {
+
+    private static final StubExternosHttp STUB = iniciarStub();
+
+    @DynamicPropertySource
+    static void urls(DynamicPropertyRegistry registro) {
+        registro.add("externos.estoque.url", STUB::url);
+        registro.add("externos.pagamento.url", STUB::url);
+    }
+
+    @AfterAll
+    static void pararStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private IEstoqueExternalPrimitivo estoque;
+
+    @Autowired
+    private IPagamentoExternal pagamento;
+
+    @Autowired
+    private Rastreador rastreador;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @BeforeEach
+    void limpar() {
+        STUB.limpar();
+    }
+
+    @Test
+    void checkout_usaOsServicosHttpComJsonGzipEConexaoReaproveitada() {
+        assertThat(estoque).isInstanceOf(EstoqueHttp.class);
+        assertThat(pagamento).isInstanceOf(PagamentoHttp.class);
+        assertThat(contexto.getBeanNamesForType(EstoqueSimulado.class)).isEmpty();
+        assertThat(contexto.getBeanNamesForType(CacheDisponibilidade.class)).hasSize(1);
+
+        Cliente cliente = clientes.save(new Cliente());
+        Produto produto = produtos.save(produtoBasico());
+        CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente,
+                List.of(new ItemCompra(null, produto, 2L), new ItemCompra(null, produto, 1L)), LocalDate.now()));
+
+        CompraDTO resultado = compraService.finalizarCompra(carrinho.getId(), cliente.getId());
+
+        assertThat(resultado.sucesso()).isTrue();
+        assertThat(resultado.transacaoPagamentoId()).isPositive();
+        List<StubExternosHttp.Requisicao> recebidas = STUB.recebidas();
+        assertThat(recebidas).extracting(StubExternosHttp.Requisicao::caminho).containsExactly(
+                "/estoque/disponibilidade", "/pagamentos/autorizacao", "/estoque/baixa");
+        assertThat(recebidas.get(0).corpo())
+                .isEqualTo("{\"ids\":[" + produto.getId() + "],\"quantidades\":[3]}");
+        assertThat(recebidas.get(0).cabecalho("Content-Type")).startsWith("application/json");
+        assertThat(recebidas.get(1).cabecalho(PagamentoClient.CHAVE_IDEMPOTENCIA))
+                .isEqualTo("carrinho-" + carrinho.getId() + "-v1");
+        assertThat(recebidas.get(2).cabecalho(EstoqueClient.CHAVE_IDEMPOTENCIA))
+                .isEqualTo("carrinho-" + carrinho.getId() + "-v1");
+        assertThat(recebidas).allMatch(StubExternosHttp.Requisicao::respostaComprimida);
+        assertThat(recebidas).extracting(StubExternosHttp.Requisicao::portaRemota).containsOnly(
+                recebidas.get(0).portaRemota());
+    }
+
+    @Test
+    void estoque_respondeIndisponiveisEPropagaTraceparent() {
+        STUB.indisponivel(7L);
+        Span raiz = rastreador.iniciarRaiz("teste", null);
+        DisponibilidadeDTO disponibilidade;
+        try {
+            disponibilidade = estoque.verificarDisponibilidade(LinhasPedido.de(new long[] { 5, 7 }, new long[] { 1, 2 }));
+        } finally {
+            raiz.finalizar();
+        }
+
+        assertThat(disponibilidade.disponivel()).isFalse();
+        assertThat(disponibilidade.idsProdutosIndisponiveis()).containsExactly(7L);
+        assertThat(STUB.recebidas().get(0).cabecalho(Rastreador.CABECALHO)).startsWith("00-" + raiz.traceId() + "-");
+    }
+
+    @Test
+    void pagamento_cancelaPorCaminhoEParametro() {
+        pagamento.cancelarPagamento(3L, 42L);
+
+        assertThat(STUB.recebidas().get(0).caminho()).isEqualTo("/pagamentos/42/cancelamento?clienteId=3");
+    }
+
+    @Test
+    void erroHttp_viraFalhaDeServicoExterno() {
+        STUB.falharCom(503);
+
+        assertThatThrownBy(() -> estoque.darBaixa(LinhasPedido.de(new long[] { 1 }, new long[] { 1 })))
+                .isInstanceOf(FalhaServicoExternoException.class).hasMessage("estoque.darBaixa: HTTP 503.");
+        assertThatThrownBy(() -> pagamento.autorizarPagamento(1L, 10.0, "carrinho-1-v1"))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessage("pagamento.autorizarPagamento: HTTP 503.")
+                .satisfies(falha -> assertThat(falha.getSuppressed()).extracting(Throwable::getMessage)
+                        .containsExactly("pagamento.cancelarPorChave: HTTP 503."));
+    }
+
+    @Test
+    void autorizacaoSemResposta_cancelaPelaChaveAntesDeFalhar() {
+        STUB.atrasar(Duration.ofSeconds(1), "/pagamentos/autorizacao");
+
+        assertThatThrownBy(() -> pagamento.autorizarPagamento(3L, 10.0, "carrinho-7-v2"))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessageStartingWith("pagamento.autorizarPagamento: falha de comunicação")
+                .satisfies(falha -> assertThat(falha.getSuppressed()).isEmpty());
+
+        List<StubExternosHttp.Requisicao> recebidas = STUB.recebidas();
+        assertThat(recebidas).extracting(StubExternosHttp.Requisicao::caminho).containsExactly(
+                "/pagamentos/autorizacao", "/pagamentos/idempotencia/carrinho-7-v2/cancelamento?clienteId=3");
+        assertThat(recebidas.get(0).cabecalho(PagamentoClient.CHAVE_IDEMPOTENCIA)).isEqualTo("carrinho-7-v2");
+    }
+
+    @Test
+    void baixaSemResposta_estornaPelaChaveAntesDeFalhar() {
+        STUB.atrasar(Duration.ofSeconds(1), "/estoque/baixa");
+
+        assertThatThrownBy(() -> estoque.darBaixa(LinhasPedido.de(new long[] { 1 }, new long[] { 1 }), "carrinho-7-v2"))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessageStartingWith("estoque.darBaixa: falha de comunicação")
+                .satisfies(falha -> assertThat(falha.getSuppressed()).isEmpty());
+
+        List<StubExternosHttp.Requisicao> recebidas = STUB.recebidas();
+        assertThat(recebidas).extracting(StubExternosHttp.Requisicao::caminho).containsExactly(
+                "/estoque/baixa", "/estoque/baixas/idempotencia/carrinho-7-v2/estorno");
+        assertThat(recebidas.get(0).cabecalho(EstoqueClient.CHAVE_IDEMPOTENCIA)).isEqualTo("carrinho-7-v2");
+    }
+
+    @Test
+    void baixaComErroDoServidor_guardaAChaveQuandoOEstornoTambemFalha() {
+        STUB.falharCom(503);
+
+        assertThatThrownBy(() -> estoque.darBaixa(LinhasPedido.de(new long[] { 1 }, new long[] { 1 }), "carrinho-1-v1"))
+                .hasMessage("estoque.darBaixa: HTTP 503.")
+                .satisfies(falha -> assertThat(falha.getSuppressed()).extracting(Throwable::getMessage)
+                        .containsExactly("estoque.estornarPorChave(carrinho-1-v1): HTTP 503."));
+    }
+
+    @Test
+    void autorizacaoRecusadaPeloProvedor_naoCancela() {
+        STUB.falharCom(422);
+
+        assertThatThrownBy(() -> pagamento.autorizarPagamento(1L, 10.0, "carrinho-1-v1"))
+                .hasMessage("pagamento.autorizarPagamento: HTTP 422.");
+        assertThat(STUB.recebidas()).hasSize(1);
+    }
+
+    @Test
+    void tempoDeLeituraEsgotado_viraFalhaDeServicoExterno() {
+        STUB.atrasar(Duration.ofSeconds(1));
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> estoque.verificarDisponibilidade(LinhasPedido.de(new long[] { 1 }, new long[] { 1 })))
+                .isInstanceOf(FalhaServicoExternoException.class)
+                .hasMessageStartingWith("estoque.verificarDisponibilidade: falha de comunicação");
+        assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofMillis(900));
+    }
+
+    private static StubExternosHttp iniciarStub() {
+        try {
+            return new StubExternosHttp(4);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
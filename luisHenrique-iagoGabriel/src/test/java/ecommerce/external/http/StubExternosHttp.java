@@ -0,0 +1,178 @@
+package ecommerce.external.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP local que imita os serviços de estoque e de pagamento nos
+ * contratos de {@link EstoqueClient} e {@link PagamentoClient}. Comprime as
+ * respostas quando o cliente aceita gzip, guarda as requisições recebidas e pode
+ * responder com erro ou com atraso.
+ */
+public class StubExternosHttp implements AutoCloseable {
+
+    public record Requisicao(String caminho, Map<String, List<String>> cabecalhos, String corpo, int portaRemota,
+            boolean respostaComprimida) {
+
+        public String cabecalho(String nome) {
+            return cabecalhos.entrySet().stream().filter(e -> e.getKey().equalsIgnoreCase(nome))
+                    .map(e -> e.getValue().get(0)).findFirst().orElse(null);
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer servidor;
+    private final ExecutorService threads;
+    private final ConcurrentLinkedQueue<Requisicao> recebidas = new ConcurrentLinkedQueue<>();
+    private final AtomicLong proximaTransacao = new AtomicLong(1);
+    private final Set<Long> indisponiveis = ConcurrentHashMap.newKeySet();
+    private volatile boolean registrar = true;
+    private volatile int statusErro;
+    private volatile Duration atraso = Duration.ZERO;
+    private volatile String caminhoAtrasado;
+
+    public StubExternosHttp(int threads) throws IOException {
+        this.servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        this.threads = Executors.newFixedThreadPool(threads);
+        servidor.setExecutor(this.threads);
+        servidor.createContext("/", this::atender);
+        servidor.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort();
+    }
+
+    public void falharCom(int status) {
+        this.statusErro = status;
+    }
+
+    public void atrasar(Duration atraso) {
+        atrasar(atraso, null);
+    }
+
+    /** Atrasa só as requisições para {@code caminho}; nulo atrasa todas. */
+    public void atrasar(Duration atraso, String caminho) {
+        this.caminhoAtrasado = caminho;
+        this.atraso = atraso;
+    }
+
+    public void indisponivel(long produtoId) {
+        indisponiveis.add(produtoId);
+    }
+
+    /** Desliga o registro das requisições (benchmarks). */
+    public void registrar(boolean registrar) {
+        this.registrar = registrar;
+    }
+
+    public void limpar() {
+        recebidas.clear();
+        indisponiveis.clear();
+        statusErro = 0;
+        atraso = Duration.ZERO;
+        caminhoAtrasado = null;
+    }
+
+    public List<Requisicao> recebidas() {
+        return new ArrayList<>(recebidas);
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            byte[] corpo = ler(troca.getRequestBody());
+            String caminho = troca.getRequestURI().getPath();
+            String aceita = troca.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = aceita != null && aceita.contains("gzip");
+            if (registrar) {
+                recebidas.add(new Requisicao(troca.getRequestURI().toString(), Map.copyOf(troca.getRequestHeaders()),
+                        new String(corpo, StandardCharsets.UTF_8),
+                        troca.getRemoteAddress().getPort(), gzip));
+            }
+            if (!atraso.isZero() && (caminhoAtrasado == null || caminhoAtrasado.equals(caminho))) {
+                Thread.sleep(atraso.toMillis());
+            }
+            if (statusErro != 0) {
+                troca.sendResponseHeaders(statusErro, -1);
+                return;
+            }
+            Object resposta = responder(caminho, corpo);
+            if (resposta == null) {
+                troca.sendResponseHeaders(caminho.endsWith("/cancelamento") || caminho.endsWith("/estorno") ? 204 : 404, -1);
+                return;
+            }
+            byte[] saida = mapper.writeValueAsBytes(resposta);
+            if (gzip) {
+                saida = comprimir(saida);
+                troca.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            troca.getResponseHeaders().set("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, saida.length);
+            try (OutputStream saidaResposta = troca.getResponseBody()) {
+                saidaResposta.write(saida);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object responder(String caminho, byte[] corpo) throws IOException {
+        switch (caminho) {
+        case "/estoque/disponibilidade": {
+            List<Long> faltando = new ArrayList<>();
+            for (JsonNode id : mapper.readTree(corpo).path("ids")) {
+                if (indisponiveis.contains(id.asLong())) {
+                    faltando.add(id.asLong());
+                }
+            }
+            return Map.of("disponivel", faltando.isEmpty(), "idsProdutosIndisponiveis", faltando);
+        }
+        case "/estoque/baixa":
+            return Map.of("sucesso", true);
+        case "/pagamentos/autorizacao":
+            return Map.of("autorizado", true, "transacaoId", proximaTransacao.getAndIncrement());
+        default:
+            return null;
+        }
+    }
+
+    private static byte[] ler(InputStream entrada) throws IOException {
+        try (entrada) {
+            return entrada.readAllBytes();
+        }
+    }
+
+    private static byte[] comprimir(byte[] dados) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(dados.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(dados);
+        }
+        return saida.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        threads.shutdownNow();
+    }
+}
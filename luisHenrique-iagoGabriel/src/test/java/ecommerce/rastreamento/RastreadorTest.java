@@ -0,0 +1,215 @@
+package ecommerce.rastreamento;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.config.InstrumentacaoPostProcessor;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.MonitoresExternos;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PerfilLatencia;
+import ecommerce.external.fake.SimulacaoChamada;
+
+@DisplayName("Rastreador - spans, propagação e amostragem na cabeça e na cauda")
+public class RastreadorTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    /** Guarda os rastros exportados. */
+    private static class ExportadorMemoria implements ExportadorSpans {
+        final List<Rastreador.Motivo> motivos = new ArrayList<>();
+        final List<List<Span>> rastros = new ArrayList<>();
+
+        @Override
+        public void exportar(Rastreador.Motivo motivo, List<Span> spans) {
+            motivos.add(motivo);
+            rastros.add(spans);
+        }
+    }
+
+    private final ExportadorMemoria exportador = new ExportadorMemoria();
+
+    private Rastreador rastreador(double taxa, long limiteLentoMs) {
+        return new Rastreador(taxa, Duration.ofMillis(limiteLentoMs), exportador);
+    }
+
+    private static EstoqueSimulado instrumentar(EstoqueSimulado estoque, Rastreador rastreador) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("rastreador", rastreador);
+        return (EstoqueSimulado) new InstrumentacaoPostProcessor(false, beans.getBeanProvider(Rastreador.class),
+                beans.getBeanProvider(MonitoresExternos.class)).postProcessAfterInitialization(estoque, "estoque");
+    }
+
+    @Test
+    void amostradoNaCabeca_exportaSpansEncadeados() {
+        Rastreador rastreador = rastreador(1.0, 60_000);
+        EstoqueSimulado estoque = instrumentar(new EstoqueSimulado(), rastreador);
+
+        Span raiz = rastreador.iniciarRaiz("POST /finalizar", null);
+        estoque.verificarDisponibilidade(List.of(1L), List.of(1L));
+        estoque.darBaixa(List.of(1L), List.of(1L));
+        raiz.finalizar();
+
+        assertThat(rastreador.ativo()).isFalse();
+        assertThat(exportador.motivos).containsExactly(Rastreador.Motivo.CABECA);
+        List<Span> spans = exportador.rastros.get(0);
+        assertThat(spans).extracting(Span::nome).containsExactly("estoque.verificarDisponibilidade",
+                "estoque.darBaixa", "POST /finalizar");
+        assertThat(spans).extracting(Span::traceId).containsOnly(raiz.traceId());
+        assertThat(spans.subList(0, 2)).extracting(Span::paiId).containsOnly(raiz.spanId());
+        assertThat(raiz.paiId()).isNull();
+        assertThat(spans).allMatch(s -> s.duracaoNanos() >= 0);
+    }
+
+    @Test
+    void naoAmostrado_descartaRapidoMasGuardaFalhoELento() throws Exception {
+        Rastreador rastreador = rastreador(0.0, 20);
+        EstoqueSimulado estoque = instrumentar(new EstoqueSimulado(), rastreador);
+
+        rastreador.iniciarRaiz("rapido", null).finalizar();
+
+        Span falho = rastreador.iniciarRaiz("falho", null);
+        estoque.configurarSimulacao(new SimulacaoChamada(PerfilLatencia.NENHUMA, 1.0, 0));
+        assertThatThrownBy(() -> estoque.darBaixa(List.of(1L), List.of(1L)))
+                .isInstanceOf(FalhaServicoExternoException.class);
+        falho.finalizar();
+
+        Span lento = rastreador.iniciarRaiz("lento", null);
+        TimeUnit.MILLISECONDS.sleep(30);
+        lento.finalizar();
+
+        assertThat(exportador.motivos).containsExactly(Rastreador.Motivo.ERRO, Rastreador.Motivo.LENTO);
+        assertThat(exportador.rastros.get(0)).extracting(Span::erro)
+                .containsExactly("FalhaServicoExternoException", null);
+        assertThat(rastreador.exportados()).isEqualTo(2);
+        assertThat(rastreador.descartados()).isEqualTo(1);
+    }
+
+    @Test
+    void foraDeRastro_interceptadorNaoCriaSpans() {
+        Rastreador rastreador = rastreador(1.0, 0);
+        EstoqueSimulado estoque = instrumentar(new EstoqueSimulado(), rastreador);
+
+        estoque.verificarDisponibilidade(List.of(1L), List.of(1L));
+
+        assertThat(rastreador.iniciar("solto")).isSameAs(Span.NENHUM);
+        assertThat(rastreador.traceparent()).isNull();
+        assertThat(exportador.rastros).isEmpty();
+    }
+
+    @Test
+    void filtro_continuaTraceparentRecebidoEDevolveContexto() throws Exception {
+        Rastreador rastreador = rastreador(0.0, 60_000);
+        MockHttpServletRequest requisicao = new MockHttpServletRequest("POST", "/finalizar");
+        requisicao.addHeader(Rastreador.CABECALHO, TRACEPARENT);
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+        List<String> propagado = new ArrayList<>();
+
+        new FiltroRastreamento(rastreador).doFilter(requisicao, resposta, new MockFilterChain(new jakarta.servlet.http.HttpServlet() {
+            @Override
+            protected void service(jakarta.servlet.http.HttpServletRequest req,
+                    jakarta.servlet.http.HttpServletResponse res) {
+                Span filho = rastreador.iniciar("chamada de saída");
+                propagado.add(rastreador.traceparent());
+                filho.finalizar();
+            }
+        }));
+
+        // O chamador amostrou (flag 01): o rastro é exportado mesmo com taxa local zero
+        assertThat(exportador.motivos).containsExactly(Rastreador.Motivo.CABECA);
+        Span raiz = exportador.rastros.get(0).get(1);
+        assertThat(raiz.nome()).isEqualTo("POST /finalizar");
+        assertThat(raiz.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(raiz.paiId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(resposta.getHeader(Rastreador.CABECALHO))
+                .isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-" + raiz.spanId() + "-01");
+        assertThat(propagado.get(0)).matches("00-4bf92f3577b34da6a3ce929d0e0e4736-[0-9a-f]{16}-01")
+                .doesNotContain(raiz.spanId());
+    }
+
+    @Test
+    void exportadorArquivo_gravaUmSpanPorLinha(@TempDir Path dir) throws Exception {
+        Path arquivo = dir.resolve("spans/spans.ndjson");
+        try (ExportadorArquivo arquivoExportador = new ExportadorArquivo(arquivo)) {
+            Rastreador rastreador = new Rastreador(1.0, Duration.ofSeconds(1), arquivoExportador);
+            Span raiz = rastreador.iniciarRaiz("raiz", null);
+            rastreador.iniciar("filho").finalizar();
+            raiz.finalizar();
+        }
+
+        List<String> linhas = Files.readAllLines(arquivo);
+        assertThat(linhas).hasSize(2);
+        JsonNode filho = new ObjectMapper().readTree(linhas.get(0));
+        JsonNode raiz = new ObjectMapper().readTree(linhas.get(1));
+        assertThat(filho.get("nome").asText()).isEqualTo("filho");
+        assertThat(filho.get("paiId").asText()).isEqualTo(raiz.get("spanId").asText());
+        assertThat(raiz.get("paiId").isNull()).isTrue();
+        assertThat(raiz.get("motivo").asText()).isEqualTo("CABECA");
+        assertThat(raiz.get("traceId").asText()).hasSize(32);
+    }
+
+    @Test
+    void propagar_levaOSpanCorrenteParaOutraThreadESoltaDepois() throws Exception {
+        Rastreador rastreador = rastreador(1.0, 60_000);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(4));
+        try {
+            AtomicReference<String> propagado = new AtomicReference<>();
+            AtomicReference<Boolean> ativoDepois = new AtomicReference<>();
+            Span raiz = rastreador.iniciarRaiz("raiz", null);
+            executor.submit(Rastreador.propagar(() -> {
+                Span filho = rastreador.iniciar("na-outra-thread");
+                propagado.set(rastreador.traceparent());
+                filho.finalizar();
+            })).get();
+            executor.submit(() -> ativoDepois.set(rastreador.ativo())).get();
+            raiz.finalizar();
+
+            assertThat(propagado.get()).startsWith("00-" + raiz.traceId() + "-");
+            assertThat(ativoDepois.get()).isFalse();
+            assertThat(exportador.rastros).hasSize(1);
+            assertThat(exportador.rastros.get(0)).extracting(Span::nome).containsExactly("na-outra-thread", "raiz");
+            assertThat(exportador.rastros.get(0).get(0).paiId()).isEqualTo(raiz.spanId());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void propagar_foraDeRastro_devolveAPropriaTarefa() {
+        Runnable tarefa = () -> {
+        };
+        assertThat(Rastreador.propagar(tarefa)).isSameAs(tarefa);
+    }
+
+    @Test
+    void exportadorSaturado_descartaSemSegurarAThread() {
+        Rastreador rastreador = new Rastreador(1.0, Duration.ofSeconds(1), (motivo, spans) -> {
+            throw new RejectedExecutionException("cheia");
+        });
+        rastreador.iniciarRaiz("raiz", null).finalizar();
+
+        assertThat(rastreador.descartados()).isEqualTo(1);
+        assertThat(rastreador.exportados()).isZero();
+    }
+}
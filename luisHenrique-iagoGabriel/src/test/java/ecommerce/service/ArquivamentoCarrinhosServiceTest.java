@@ -0,0 +1,82 @@
+package ecommerce.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ArquivamentoCarrinhosServiceTest {
+
+    private static final LocalDate HOJE = LocalDate.of(2024, 6, 1);
+
+    private JdbcTemplate jdbc;
+    private ArquivamentoCarrinhosService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:arquivamento;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop all objects");
+        jdbc.execute("create table carrinho_de_compras (id bigint primary key, cliente_id bigint, data date)");
+        jdbc.execute("create table item_compra (id bigint primary key, carrinho_id bigint, produto_id bigint, quantidade bigint)");
+        jdbc.execute("create table carrinho_de_compras_arquivo (id bigint primary key, cliente_id bigint, data date, arquivado_em timestamp)");
+        jdbc.execute("create table item_compra_arquivo (id bigint primary key, carrinho_id bigint, produto_id bigint, quantidade bigint)");
+
+        // Carrinhos 1..10: ímpares antigos, pares recentes; dois itens por carrinho
+        for (long id = 1; id <= 10; id++) {
+            LocalDate data = id % 2 == 1 ? HOJE.minusDays(200) : HOJE.minusDays(1);
+            jdbc.update("insert into carrinho_de_compras values (?, ?, ?)", id, 100 + id, data);
+            jdbc.update("insert into item_compra values (?, ?, ?, ?)", id * 10, id, 1L, 2L);
+            jdbc.update("insert into item_compra values (?, ?, ?, ?)", id * 10 + 1, id, 2L, 1L);
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        service = new ArquivamentoCarrinhosService(jdbc, tx, 2, 90, true);
+    }
+
+    private long contar(String tabela) {
+        return jdbc.queryForObject("select count(*) from " + tabela, Long.class);
+    }
+
+    @Test
+    void arquivar_moveCarrinhosAntigosEItensEmLotes() {
+        long movidos = service.arquivar(HOJE.minusDays(90));
+
+        assertThat(movidos).isEqualTo(5);
+        assertThat(contar("carrinho_de_compras")).isEqualTo(5);
+        assertThat(contar("item_compra")).isEqualTo(10);
+        assertThat(contar("carrinho_de_compras_arquivo")).isEqualTo(5);
+        assertThat(contar("item_compra_arquivo")).isEqualTo(10);
+        assertThat(jdbc.queryForList("select id from carrinho_de_compras_arquivo order by id", Long.class))
+                .containsExactly(1L, 3L, 5L, 7L, 9L);
+        assertThat(jdbc.queryForList("select distinct carrinho_id from item_compra order by carrinho_id", Long.class))
+                .containsExactly(2L, 4L, 6L, 8L, 10L);
+    }
+
+    @Test
+    void arquivar_publicaOsClientesDeCadaLote() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:arquivamento;DB_CLOSE_DELAY=-1", "sa", "");
+        List<Object> eventos = new ArrayList<>();
+        ArquivamentoCarrinhosService comEventos = new ArquivamentoCarrinhosService(jdbc,
+                new TransactionTemplate(new DataSourceTransactionManager(ds)), 2, 90, true, null, eventos::add);
+
+        comEventos.arquivar(HOJE.minusDays(90));
+
+        assertThat(eventos).containsExactly(new CarrinhosAlteradosEvento(List.of(101L, 103L)),
+                new CarrinhosAlteradosEvento(List.of(105L, 107L)), new CarrinhosAlteradosEvento(List.of(109L)));
+    }
+
+    @Test
+    void arquivar_semCarrinhosAntigos_naoAlteraNada() {
+        assertThat(service.arquivar(HOJE.minusDays(365))).isZero();
+        assertThat(contar("carrinho_de_compras")).isEqualTo(10);
+        assertThat(contar("carrinho_de_compras_arquivo")).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CheckoutEmEstagios.Estagio;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+/** Dois checkouts em estágios do mesmo carrinho ao mesmo tempo, com a reserva de verdade no banco. */
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:estagios-concorrencia;DB_CLOSE_DELAY=-1",
+        "aquecimento.habilitado=false", "carrinhos.arquivamento.habilitado=false",
+        "pedidos.gravacao.diretorio=target/estagios-concorrencia" })
+class CheckoutEmEstagiosConcorrenciaTest {
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private IEstoqueExternal estoque;
+
+    @Autowired
+    private RetentativaConflito retentativa;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private ObservadorCompra observador;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final Map<Estagio, ExecutorEstagio> executores = new EnumMap<>(Estagio.class);
+
+    @AfterEach
+    void tearDown() {
+        executores.values().forEach(ExecutorEstagio::encerrar);
+    }
+
+    @Test
+    void mesmoCarrinhoAoMesmoTempo_soUmConclui() throws Exception {
+        Produto produto = produtos.save(produtoBasico(new BigDecimal("10.00")));
+        Cliente cliente = clientes.save(new Cliente());
+        CarrinhoDeCompras carrinho = carrinhos.save(new CarrinhoDeCompras(null, cliente,
+                List.of(new ItemCompra(null, produto, 2L)), LocalDate.now()));
+        // Os dois só autorizam depois de ambos terem reservado: nenhum chega à baixa antes do outro carregar
+        PagamentoComBarreira pagamento = new PagamentoComBarreira(new CyclicBarrier(2));
+        for (Estagio estagio : Estagio.values()) {
+            executores.put(estagio, new ExecutorEstagio(estagio.name().toLowerCase(), 2, 4,
+                    ExecutorEstagio.Politica.CHAMADOR));
+        }
+        CheckoutEmEstagios checkout = new CheckoutEmEstagios(compraService, estoque, pagamento, retentativa, eventos,
+                observador, executores);
+
+        List<CompletableFuture<ResultadoCompra>> futuros = List.of(
+                checkout.finalizar(carrinho.getId(), cliente.getId()),
+                checkout.finalizar(carrinho.getId(), cliente.getId()));
+
+        long concluidos = 0;
+        long conflitos = 0;
+        for (CompletableFuture<ResultadoCompra> futuro : futuros) {
+            try {
+                concluidos += futuro.get(10, TimeUnit.SECONDS).compra().sucesso() ? 1 : 0;
+            } catch (ExecutionException e) {
+                assertThat(e).hasCauseInstanceOf(OptimisticLockingFailureException.class);
+                conflitos++;
+            }
+        }
+        assertThat(concluidos).isEqualTo(1);
+        assertThat(conflitos).isEqualTo(1);
+        assertThat(pagamento.autorizados.get()).isEqualTo(2);
+        assertThat(pagamento.cancelados.get()).isEqualTo(1);
+        // Duas reservas e uma confirmação
+        assertThat(jdbc.queryForObject("select versao from carrinho_de_compras where id = ?", Long.class,
+                carrinho.getId())).isEqualTo(3L);
+    }
+
+    private static final class PagamentoComBarreira implements IPagamentoExternal {
+        final PagamentoSimulado simulado = new PagamentoSimulado();
+        final CyclicBarrier barreira;
+        final AtomicInteger autorizados = new AtomicInteger();
+        final AtomicInteger cancelados = new AtomicInteger();
+
+        PagamentoComBarreira(CyclicBarrier barreira) {
+            this.barreira = barreira;
+        }
+
+        @Override
+        public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia) {
+            try {
+                barreira.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+            autorizados.incrementAndGet();
+            return simulado.autorizarPagamento(clienteId, custoTotal, chaveIdempotencia);
+        }
+
+        @Override
+        public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+            cancelados.incrementAndGet();
+            simulado.cancelarPagamento(clienteId, pagamentoTransacaoId);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.Cliente;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.service.CheckoutEmEstagios.Estagio;
+import ecommerce.service.ObservadorCompra.Desfecho;
+import ecommerce.service.ObservadorCompra.Etapa;
+import static ecommerce.service.DomainTestData.carrinhoComItem;
+import static ecommerce.service.DomainTestData.produtoBasico;
+import static ecommerce.service.DomainTestData.produtoComId;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("CheckoutEmEstagios - Mesmo checkout, um executor por estágio")
+public class CheckoutEmEstagiosTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 10L;
+
+    @Mock
+    private ClienteService clienteService;
+
+    @Mock
+    private CarrinhoDeComprasService carrinhoService;
+
+    private EstoqueSimulado estoque;
+    private PagamentoSimulado pagamento;
+    private Gravador observador;
+    private List<CompraFinalizadaEvento> eventos;
+    private Map<Estagio, ExecutorEstagio> executores;
+    private Cliente cliente;
+
+    /** Etapas, desfecho e as threads em que cada etapa foi medida. */
+    private static class Gravador implements ObservadorCompra, ObservadorCompra.Medicao {
+        final List<Etapa> etapas = new ArrayList<>();
+        final List<String> threads = new ArrayList<>();
+        Desfecho desfecho;
+
+        @Override
+        public Medicao iniciar() {
+            return this;
+        }
+
+        @Override
+        public synchronized void etapa(Etapa etapa, long duracaoNanos) {
+            etapas.add(etapa);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public synchronized void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal) {
+            this.desfecho = desfecho;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        estoque = new EstoqueSimulado();
+        pagamento = new PagamentoSimulado();
+        observador = new Gravador();
+        eventos = new ArrayList<>();
+        executores = new EnumMap<>(Estagio.class);
+        for (Estagio estagio : Estagio.values()) {
+            executores.put(estagio, new ExecutorEstagio(estagio.name().toLowerCase(), 2, 4,
+                    estagio == Estagio.PAGAMENTO ? ExecutorEstagio.Politica.RECUSAR : ExecutorEstagio.Politica.CHAMADOR));
+        }
+
+        cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteService.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente))
+                .thenAnswer(invocacao -> carrinhoComItem(produtoComId(1L), 2L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executores.values().forEach(ExecutorEstagio::encerrar);
+    }
+
+    private CheckoutEmEstagios checkout() {
+        CompraService compraService = new CompraService(carrinhoService, clienteService, estoque, pagamento,
+                evento -> eventos.add((CompraFinalizadaEvento) evento), observador);
+        return new CheckoutEmEstagios(compraService, estoque, pagamento, new RetentativaConflito(1, 0),
+                evento -> eventos.add((CompraFinalizadaEvento) evento), observador, executores);
+    }
+
+    @Test
+    void sucesso_cadaEtapaNaThreadDoSeuEstagio() throws Exception {
+        pagamento.configurarProximaTransacao(77L);
+
+        ResultadoCompra resultado = checkout().finalizar(CARRINHO_ID, CLIENTE_ID).get(5, TimeUnit.SECONDS);
+
+        assertThat(resultado.compra().sucesso()).isTrue();
+        assertThat(resultado.compra().transacaoPagamentoId()).isEqualTo(77L);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.SUCESSO);
+        assertThat(observador.etapas).containsExactly(Etapa.CLIENTE, Etapa.CARRINHO, Etapa.DISPONIBILIDADE,
+                Etapa.PRECIFICACAO, Etapa.AUTORIZACAO_PAGAMENTO, Etapa.BAIXA_ESTOQUE);
+        assertThat(observador.threads).satisfiesExactly(
+                t -> assertThat(t).startsWith("compra-carregamento-"),
+                t -> assertThat(t).startsWith("compra-carregamento-"),
+                t -> assertThat(t).startsWith("compra-disponibilidade-"),
+                t -> assertThat(t).startsWith("compra-precificacao-"),
+                t -> assertThat(t).startsWith("compra-pagamento-"),
+                t -> assertThat(t).startsWith("compra-baixa-"));
+        assertThat(eventos).singleElement().satisfies(e -> assertThat(e.transacaoPagamentoId()).isEqualTo(77L));
+    }
+
+    @Test
+    void falhaNaBaixa_compensaNoEstagioDeCompensacaoAntesDeTerminar() {
+        estoque.configurarBaixaSucesso(false);
+
+        assertThatThrownBy(() -> checkout().finalizar(CARRINHO_ID, CLIENTE_ID).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(CompraRecusadaException.class);
+
+        assertThat(pagamento.isCancelarChamado()).isTrue();
+        assertThat(observador.etapas).endsWith(Etapa.BAIXA_ESTOQUE, Etapa.COMPENSACAO);
+        assertThat(observador.threads.get(observador.threads.size() - 1)).startsWith("compra-compensacao-");
+        assertThat(observador.desfecho).isEqualTo(Desfecho.FALHA_BAIXA);
+        assertThat(eventos).isEmpty();
+    }
+
+    @Test
+    void carrinhoInvalido_voltaRejeitadoSemChamarOsExternos() throws Exception {
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente))
+                .thenAnswer(invocacao -> carrinhoComItem(produtoBasico(BigDecimal.ZERO), 2L));
+
+        ResultadoCompra resultado = checkout().finalizar(CARRINHO_ID, CLIENTE_ID).get(5, TimeUnit.SECONDS);
+
+        assertThat(resultado.rejeitada()).isTrue();
+        assertThat(observador.desfecho).isEqualTo(Desfecho.INVALIDO);
+        assertThat(estoque.isVerificarDisponibilidadeChamado()).isFalse();
+    }
+
+    @Test
+    void pagamentoSaturado_recusaOExcedenteSemEsperar() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        PagamentoSimulado lento = new PagamentoSimulado() {
+            @Override
+            public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chave) {
+                try {
+                    liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.autorizarPagamento(clienteId, custoTotal, chave);
+            }
+        };
+        pagamento = lento;
+        CheckoutEmEstagios checkout = checkout();
+
+        // 2 threads + 4 na fila cabem no pagamento; os demais são recusados sem esperar a liberação
+        List<CompletableFuture<ResultadoCompra>> futuros = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futuros.add(checkout.finalizar(CARRINHO_ID, CLIENTE_ID));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (futuros.stream().filter(CompletableFuture::isDone).count() < 4 && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        List<CompletableFuture<ResultadoCompra>> recusados = futuros.stream().filter(CompletableFuture::isDone).toList();
+        liberar.countDown();
+
+        assertThat(recusados).hasSize(4).allSatisfy(futuro -> assertThatThrownBy(futuro::join)
+                .hasCauseInstanceOf(RejectedExecutionException.class));
+        assertThat(futuros.stream().filter(futuro -> !recusados.contains(futuro)))
+                .allSatisfy(futuro -> assertThat(futuro.get(5, TimeUnit.SECONDS).compra().sucesso()).isTrue());
+        assertThat(executores.get(Estagio.PAGAMENTO).recusadas()).isEqualTo(4);
+        assertThat(executores.get(Estagio.PAGAMENTO).tamanhoFila()).isZero();
+    }
+
+    @Test
+    void encerrar_esperaABaixaEEstornaAntesDeParar() throws Exception {
+        CountDownLatch naBaixa = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        doAnswer(invocacao -> {
+            naBaixa.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            throw new ObjectOptimisticLockingFailureException("CarrinhoDeCompras", CARRINHO_ID);
+        }).when(carrinhoService).confirmarReserva(any(), anyLong());
+        CheckoutEmEstagios checkout = checkout();
+        CompletableFuture<ResultadoCompra> futuro = checkout.finalizar(CARRINHO_ID, CLIENTE_ID);
+        assertThat(naBaixa.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> encerramento = CompletableFuture.runAsync(checkout::encerrar);
+        // A compensação segue aberta enquanto a baixa não termina, sem prazo
+        Thread.sleep(100);
+        assertThat(encerramento).isNotDone();
+        assertThat(executores.get(Estagio.COMPENSACAO).encerrado()).isFalse();
+        liberar.countDown();
+        encerramento.get(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> futuro.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(pagamento.isCancelarChamado()).isTrue();
+        assertThat(observador.desfecho).isEqualTo(Desfecho.CONFLITO);
+        assertThat(checkout.finalizar(CARRINHO_ID, CLIENTE_ID)).failsWithin(1, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void compensacaoEncerrada_rodaNaThreadDeQuemEntrega() {
+        ExecutorEstagio compensacao = new ExecutorEstagio("compensacao", 1, 1, ExecutorEstagio.Politica.CHAMADOR);
+        compensacao.encerrar();
+        AtomicReference<Thread> executou = new AtomicReference<>();
+
+        compensacao.executar(() -> executou.set(Thread.currentThread()));
+
+        assertThat(executou.get()).isSameAs(Thread.currentThread());
+        assertThat(compensacao.executadasNoChamador()).isEqualTo(1);
+    }
+}
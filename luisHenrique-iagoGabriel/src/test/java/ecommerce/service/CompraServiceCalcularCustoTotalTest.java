@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -394,7 +395,7 @@ public class CompraServiceCalcularCustoTotalTest {
         when(carrinhoService.buscarPorCarrinhoIdEClienteId(10L, cliente)).thenReturn(carrinho);
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, java.util.List.of()));
-        when(pagamentoExternal.autorizarPagamento(eq(5L), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(5L), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(false, 0L));
 
         CompraService svc = new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal);
@@ -424,7 +425,7 @@ public class CompraServiceCalcularCustoTotalTest {
         when(carrinhoService.buscarPorCarrinhoIdEClienteId(3L, cliente)).thenReturn(carrinho);
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, java.util.List.of()));
-        when(pagamentoExternal.autorizarPagamento(eq(9L), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(9L), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(true, 12345L));
         when(estoqueExternal.darBaixa(anyList(), anyList()))
                 .thenReturn(new EstoqueBaixaDTO(false));
@@ -454,7 +455,7 @@ public class CompraServiceCalcularCustoTotalTest {
         when(carrinhoService.buscarPorCarrinhoIdEClienteId(4L, cliente)).thenReturn(carrinho);
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, java.util.List.of()));
-        when(pagamentoExternal.autorizarPagamento(eq(7L), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(7L), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(true, 9876L));
         when(estoqueExternal.darBaixa(anyList(), anyList()))
                 .thenReturn(new EstoqueBaixaDTO(true));
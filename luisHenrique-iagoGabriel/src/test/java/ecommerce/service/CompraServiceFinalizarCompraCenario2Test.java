@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -13,12 +14,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.Mock;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import ecommerce.dto.CompraDTO;
 import ecommerce.dto.DisponibilidadeDTO;
@@ -29,6 +33,7 @@ import ecommerce.entity.Cliente;
 import ecommerce.entity.ItemCompra;
 import ecommerce.entity.Produto;
 import ecommerce.entity.TipoProduto;
+import ecommerce.external.FalhaServicoExternoException;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
 import ecommerce.external.fake.CarrinhoDeComprasRepositoryFake;
@@ -100,7 +105,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
 
-        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(true, 123L));
 
         when(estoqueExternal.darBaixa(anyList(), anyList()))
@@ -113,7 +118,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         assertEquals("Compra finalizada com sucesso.", resultado.mensagem());
 
         verify(estoqueExternal).verificarDisponibilidade(anyList(), anyList());
-        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble());
+        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble(), eq("carrinho-10-v1"));
         verify(estoqueExternal).darBaixa(anyList(), anyList());
         verify(pagamentoExternal, never()).cancelarPagamento(anyLong(), anyLong());
     }
@@ -140,7 +145,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         assertEquals("Itens fora de estoque.", ex.getMessage());
 
         verify(estoqueExternal).verificarDisponibilidade(anyList(), anyList());
-        verify(pagamentoExternal, never()).autorizarPagamento(anyLong(), anyDouble());
+        verify(pagamentoExternal, never()).autorizarPagamento(anyLong(), anyDouble(), anyString());
         verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
         verify(pagamentoExternal, never()).cancelarPagamento(anyLong(), anyLong());
     }
@@ -160,7 +165,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
 
-        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(false, null));
 
         IllegalStateException ex = assertThrows(
@@ -170,7 +175,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         assertEquals("Pagamento não autorizado.", ex.getMessage());
 
         verify(estoqueExternal).verificarDisponibilidade(anyList(), anyList());
-        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble());
+        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble(), anyString());
         verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
         verify(pagamentoExternal, never()).cancelarPagamento(anyLong(), anyLong());
     }
@@ -192,7 +197,7 @@ public class CompraServiceFinalizarCompraCenario2Test {
         when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
                 .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
 
-        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble()))
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString()))
                 .thenReturn(new PagamentoDTO(true, transacaoId));
 
         when(estoqueExternal.darBaixa(anyList(), anyList()))
@@ -205,8 +210,93 @@ public class CompraServiceFinalizarCompraCenario2Test {
         assertEquals("Erro ao dar baixa no estoque.", ex.getMessage());
 
         verify(estoqueExternal).verificarDisponibilidade(anyList(), anyList());
-        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble());
+        verify(pagamentoExternal).autorizarPagamento(eq(clienteId), anyDouble(), anyString());
         verify(estoqueExternal).darBaixa(anyList(), anyList());
         verify(pagamentoExternal).cancelarPagamento(clienteId, transacaoId);
     }
+
+    @Test
+    void deveCancelarPagamentoEPropagarFalha_quandoEstoqueFalhaNaBaixa() {
+        Long clienteId = 1L;
+        Long carrinhoId = 10L;
+
+        Cliente cliente = new Cliente();
+        cliente.setId(clienteId);
+        clienteRepositoryFake.salvar(cliente);
+
+        CarrinhoDeCompras carrinho = criarCarrinhoBasico(carrinhoId, cliente);
+        carrinhoRepositoryFake.salvar(carrinho);
+
+        Long transacaoId = 777L;
+
+        when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+                .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
+
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString()))
+                .thenReturn(new PagamentoDTO(true, transacaoId));
+
+        when(estoqueExternal.darBaixa(anyList(), anyList()))
+                .thenThrow(new FalhaServicoExternoException("estoque.darBaixa: tempo esgotado após 50 ms."));
+
+        assertThrows(
+                FalhaServicoExternoException.class,
+                () -> compraService.finalizarCompra(carrinhoId, clienteId));
+
+        verify(pagamentoExternal).cancelarPagamento(clienteId, transacaoId);
+    }
+
+    @Test
+    void deveManterFalhaDaBaixaESuprimirFalhaDoEstorno_quandoEstornoTambemFalha() {
+        Long clienteId = 1L;
+        Long carrinhoId = 10L;
+
+        Cliente cliente = new Cliente();
+        cliente.setId(clienteId);
+        clienteRepositoryFake.salvar(cliente);
+
+        CarrinhoDeCompras carrinho = criarCarrinhoBasico(carrinhoId, cliente);
+        carrinhoRepositoryFake.salvar(carrinho);
+
+        when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+                .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString()))
+                .thenReturn(new PagamentoDTO(true, 777L));
+        when(estoqueExternal.darBaixa(anyList(), anyList()))
+                .thenThrow(new FalhaServicoExternoException("estoque.darBaixa: tempo esgotado após 50 ms."));
+        FalhaServicoExternoException falhaEstorno =
+                new FalhaServicoExternoException("pagamento.cancelarPagamento: falha simulada.");
+        doThrow(falhaEstorno).when(pagamentoExternal).cancelarPagamento(clienteId, 777L);
+
+        FalhaServicoExternoException ex = assertThrows(
+                FalhaServicoExternoException.class,
+                () -> compraService.finalizarCompra(carrinhoId, clienteId));
+
+        assertEquals("estoque.darBaixa: tempo esgotado após 50 ms.", ex.getMessage());
+        assertArrayEquals(new Throwable[] { falhaEstorno }, ex.getSuppressed());
+    }
+
+    @Test
+    void deveEstornarSemDarBaixa_quandoCarrinhoMudaDepoisDaReserva() {
+        Long clienteId = 1L;
+        Long carrinhoId = 10L;
+
+        Cliente cliente = new Cliente();
+        cliente.setId(clienteId);
+        clienteRepositoryFake.salvar(cliente);
+        carrinhoRepositoryFake.salvar(criarCarrinhoBasico(carrinhoId, cliente));
+
+        when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+                .thenReturn(new DisponibilidadeDTO(true, Collections.emptyList()));
+        // Outro checkout reserva o carrinho enquanto este espera o pagamento
+        when(pagamentoExternal.autorizarPagamento(eq(clienteId), anyDouble(), anyString())).thenAnswer(invocacao -> {
+            assertEquals(1, carrinhoRepositoryFake.incrementarVersao(carrinhoId, cliente, 1L));
+            return new PagamentoDTO(true, 123L);
+        });
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> compraService.finalizarCompra(carrinhoId, clienteId));
+
+        verify(pagamentoExternal).cancelarPagamento(clienteId, 123L);
+        verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+    }
 }
@@ -0,0 +1,232 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.external.FalhaServicoExternoException;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.external.fake.PerfilLatencia;
+import ecommerce.external.fake.SimulacaoChamada;
+import ecommerce.service.ObservadorCompra.Desfecho;
+import ecommerce.service.ObservadorCompra.Etapa;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import static ecommerce.service.DomainTestData.carrinhoComItem;
+import static ecommerce.service.DomainTestData.produtoComId;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CompraService - Etapas e desfechos reportados ao observador")
+public class CompraServiceObservadorTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 10L;
+
+    @Mock
+    private ClienteService clienteService;
+
+    @Mock
+    private CarrinhoDeComprasService carrinhoService;
+
+    private EstoqueSimulado estoque;
+    private PagamentoSimulado pagamento;
+    private ObservadorGravador observador;
+    private CompraService service;
+    private Cliente cliente;
+
+    /** Guarda as etapas e o desfecho do último checkout. */
+    private static class ObservadorGravador implements ObservadorCompra, ObservadorCompra.Medicao {
+        final List<Etapa> etapas = new ArrayList<>();
+        Desfecho desfecho;
+        int itens;
+        BigDecimal custoTotal;
+        int concluidas;
+
+        @Override
+        public Medicao iniciar() {
+            return this;
+        }
+
+        @Override
+        public void etapa(Etapa etapa, long duracaoNanos) {
+            assertThat(duracaoNanos).isNotNegative();
+            etapas.add(etapa);
+        }
+
+        @Override
+        public void concluir(Desfecho desfecho, int itens, BigDecimal custoTotal) {
+            this.desfecho = desfecho;
+            this.itens = itens;
+            this.custoTotal = custoTotal;
+            concluidas++;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        estoque = new EstoqueSimulado();
+        pagamento = new PagamentoSimulado();
+        observador = new ObservadorGravador();
+        service = new CompraService(carrinhoService, clienteService, estoque, pagamento, evento -> {
+        }, observador);
+
+        cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+    }
+
+    private void carrinhoComDoisItens() {
+        CarrinhoDeCompras carrinho = carrinhoComItem(produtoComId(1L), 2L);
+        when(clienteService.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente)).thenReturn(carrinho);
+    }
+
+    @Test
+    void sucesso_registraTodasAsEtapasMenosCompensacao() {
+        carrinhoComDoisItens();
+
+        service.finalizarCompra(CARRINHO_ID, CLIENTE_ID);
+
+        assertThat(observador.etapas).containsExactly(Etapa.CLIENTE, Etapa.CARRINHO, Etapa.DISPONIBILIDADE,
+                Etapa.PRECIFICACAO, Etapa.AUTORIZACAO_PAGAMENTO, Etapa.BAIXA_ESTOQUE);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.SUCESSO);
+        assertThat(observador.itens).isEqualTo(1);
+        assertThat(observador.custoTotal).isEqualByComparingTo("20.00");
+        assertThat(observador.concluidas).isEqualTo(1);
+    }
+
+    @Test
+    void foraDeEstoque_terminaAntesDaPrecificacao() {
+        carrinhoComDoisItens();
+        estoque.configurarDisponibilidade(false);
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(observador.etapas).containsExactly(Etapa.CLIENTE, Etapa.CARRINHO, Etapa.DISPONIBILIDADE);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.FORA_DE_ESTOQUE);
+        assertThat(observador.custoTotal).isNull();
+    }
+
+    @Test
+    void pagamentoNegado_reportaCustoCalculado() {
+        carrinhoComDoisItens();
+        pagamento.configurarAutorizacao(false);
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(observador.etapas).endsWith(Etapa.PRECIFICACAO, Etapa.AUTORIZACAO_PAGAMENTO);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.PAGAMENTO_NEGADO);
+        assertThat(observador.custoTotal).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void falhaNaBaixa_registraCompensacao() {
+        carrinhoComDoisItens();
+        estoque.configurarBaixaSucesso(false);
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(observador.etapas).endsWith(Etapa.BAIXA_ESTOQUE, Etapa.COMPENSACAO);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.FALHA_BAIXA);
+    }
+
+    @Test
+    void excecaoDoEstoqueNaBaixa_registraCompensacaoEFalhaExterna() {
+        carrinhoComDoisItens();
+        EstoqueSimulado estoqueQueFalhaNaBaixa = new EstoqueSimulado() {
+            @Override
+            public ecommerce.dto.EstoqueBaixaDTO darBaixa(List<Long> ids, List<Long> quantidades) {
+                throw new FalhaServicoExternoException("estoque.darBaixa: falha simulada.");
+            }
+        };
+        service = new CompraService(carrinhoService, clienteService, estoqueQueFalhaNaBaixa, pagamento, evento -> {
+        }, observador);
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(FalhaServicoExternoException.class);
+
+        assertThat(observador.etapas).endsWith(Etapa.BAIXA_ESTOQUE, Etapa.COMPENSACAO);
+        assertThat(observador.desfecho).isEqualTo(Desfecho.FALHA_EXTERNA);
+        assertThat(pagamento.isCancelarChamado()).isTrue();
+    }
+
+    @Test
+    void falhaExternaNaDisponibilidade_reportaFalhaExterna() {
+        carrinhoComDoisItens();
+        estoque.configurarSimulacao(new SimulacaoChamada(PerfilLatencia.NENHUMA, 1.0, 0));
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(FalhaServicoExternoException.class);
+
+        assertThat(observador.desfecho).isEqualTo(Desfecho.FALHA_EXTERNA);
+    }
+
+    @Test
+    void clienteInexistente_reportaInvalidoSemItens() {
+        when(clienteService.buscarPorId(CLIENTE_ID)).thenThrow(new IllegalArgumentException("Cliente não encontrado"));
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(observador.etapas).isEmpty();
+        assertThat(observador.desfecho).isEqualTo(Desfecho.INVALIDO);
+        assertThat(observador.itens).isZero();
+    }
+
+    @Test
+    void conflitoDeVersao_estornaSemDarBaixaEReportaConflito() {
+        carrinhoComDoisItens();
+        doThrow(new ObjectOptimisticLockingFailureException(CarrinhoDeCompras.class, CARRINHO_ID))
+                .when(carrinhoService).confirmarReserva(any(), anyLong());
+
+        assertThatThrownBy(() -> service.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(observador.etapas).containsExactly(Etapa.CLIENTE, Etapa.CARRINHO, Etapa.DISPONIBILIDADE,
+                Etapa.PRECIFICACAO, Etapa.AUTORIZACAO_PAGAMENTO, Etapa.COMPENSACAO);
+        assertThat(pagamento.isCancelarChamado()).isTrue();
+        assertThat(estoque.isDarBaixaChamado()).isFalse();
+        assertThat(observador.desfecho).isEqualTo(Desfecho.CONFLITO);
+    }
+
+    @Test
+    void metricasCompra_registraTimersContadoresEEmAndamento() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MetricasCompra metricas = new MetricasCompra(registry);
+
+        ObservadorCompra.Medicao medicao = metricas.iniciar();
+        assertThat(registry.get("compra.em.andamento").gauge().value()).isEqualTo(1.0);
+
+        medicao.etapa(Etapa.PRECIFICACAO, TimeUnit.MILLISECONDS.toNanos(3));
+        medicao.concluir(Desfecho.PAGAMENTO_NEGADO, 2, BigDecimal.TEN);
+
+        assertThat(registry.get("compra.em.andamento").gauge().value()).isZero();
+        assertThat(registry.get("compra.etapa").tag("etapa", "precificacao").timer().count()).isEqualTo(1);
+        assertThat(registry.get("compra.etapa").tag("etapa", "precificacao").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3.0);
+        assertThat(registry.get("compra.finalizar").tag("desfecho", "pagamento_negado").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("compra.desfecho").tag("desfecho", "pagamento_negado").counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.get("compra.desfecho").tag("desfecho", "sucesso").counter().count()).isZero();
+    }
+}
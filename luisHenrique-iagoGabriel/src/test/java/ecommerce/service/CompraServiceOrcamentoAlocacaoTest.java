@@ -0,0 +1,68 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import ecommerce.benchmark.CarrinhosReferencia;
+import ecommerce.benchmark.MedidorAlocacao;
+import ecommerce.entity.CarrinhoDeCompras;
+
+/**
+ * Orçamentos de alocação (bytes por chamada, após aquecimento do JIT) do caminho
+ * de precificação. Os valores têm ~20% de folga sobre o medido; uma mudança que
+ * estoure o orçamento deve reduzir a alocação ou justificar o novo valor aqui.
+ * Mede com o JIT aquecido e depende da JVM, por isso roda com o portão de
+ * desempenho ({@code mvn -Pperf-gate test}), não na suíte padrão.
+ */
+@Tag("perf-gate")
+@DisplayName("CompraService - Orçamento de alocação da precificação")
+public class CompraServiceOrcamentoAlocacaoTest {
+
+    private static final int AQUECIMENTO = 20_000;
+    private static final int REPETICOES = 2_000;
+
+    private final CompraService service = new CompraService(null, null, null, null);
+
+    @BeforeAll
+    static void verificarSuporte() {
+        assumeTrue(MedidorAlocacao.suportado(), "JVM sem medição de alocação por thread");
+    }
+
+    @ParameterizedTest(name = "{0} item(ns) → calcularCustoTotal <= {1} bytes")
+    @CsvSource({ "1, 2500", "10, 6000", "100, 24500" })
+    void calcularCustoTotal_dentroDoOrcamento(int itens, long orcamento) {
+        CarrinhoDeCompras carrinho = CarrinhosReferencia.carrinho(itens);
+
+        double bytes = MedidorAlocacao.bytesPorChamada(() -> service.calcularCustoTotal(carrinho), AQUECIMENTO,
+                REPETICOES);
+
+        assertThat(bytes).as("bytes por chamada com %d item(ns)", itens).isLessThanOrEqualTo(orcamento);
+    }
+
+    @ParameterizedTest(name = "{0} item(ns) → calcularFrete <= {1} bytes")
+    @CsvSource({ "1, 1000", "10, 2000", "100, 10700" })
+    void calcularFrete_dentroDoOrcamento(int itens, long orcamento) {
+        CarrinhoDeCompras carrinho = CarrinhosReferencia.carrinho(itens);
+
+        double bytes = MedidorAlocacao.bytesPorChamada(() -> service.calcularFrete(carrinho), AQUECIMENTO,
+                REPETICOES);
+
+        assertThat(bytes).as("bytes por chamada com %d item(ns)", itens).isLessThanOrEqualTo(orcamento);
+    }
+
+    @ParameterizedTest(name = "{0} item(ns) → calcularSubtotal <= {1} bytes")
+    @CsvSource({ "1, 1400", "10, 4000", "100, 13700" })
+    void calcularSubtotal_dentroDoOrcamento(int itens, long orcamento) {
+        CarrinhoDeCompras carrinho = CarrinhosReferencia.carrinho(itens);
+
+        double bytes = MedidorAlocacao.bytesPorChamada(() -> service.calcularSubtotal(carrinho), AQUECIMENTO,
+                REPETICOES);
+
+        assertThat(bytes).as("bytes por chamada com %d item(ns)", itens).isLessThanOrEqualTo(orcamento);
+    }
+}
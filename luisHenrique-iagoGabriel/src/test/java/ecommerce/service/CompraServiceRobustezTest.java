@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
 import ecommerce.entity.Produto;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
@@ -169,4 +170,22 @@ public class CompraServiceRobustezTest {
                                 .hasMessage(Msg.get("erro.produto.descricao.invalida"));
         }
 
+
+        @Test
+        void finalizar_quandoProdutoSemId_deveRejeitarSemChamarExternos() {
+                Cliente cliente = new Cliente();
+                cliente.setId(1L);
+                Mockito.when(clienteSvc.buscarPorId(1L)).thenReturn(cliente);
+                Mockito.when(carrinhoSvc.buscarPorCarrinhoIdEClienteId(1L, cliente))
+                                .thenReturn(carrinhoComItem(produtoBasico(), 1L));
+
+                ResultadoCompra resultado = service.finalizar(1L, 1L);
+
+                assertThat(resultado.rejeitada())
+                                .as("Produto não persistido não vai ao estoque como id 0")
+                                .isTrue();
+                assertThat(resultado.validacao().violacoes()).containsExactly(Violacao.PRODUTO_SEM_ID);
+                assertThat(resultado.validacao().mensagem()).isEqualTo(Msg.get("erro.produto.sem.id"));
+                Mockito.verifyNoInteractions(estoque, pagamento);
+        }
 }
@@ -0,0 +1,100 @@
+package ecommerce.service;
+
+import static ecommerce.service.DomainTestData.carrinhoComItem;
+import static ecommerce.service.DomainTestData.carrinhoComItemValido;
+import static ecommerce.service.DomainTestData.produtoBasico;
+import static ecommerce.service.DomainTestData.produtoComId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+
+public class CompraServiceValidacaoTest {
+
+    private CarrinhoDeComprasService carrinhoService;
+    private ClienteService clienteService;
+    private IEstoqueExternal estoque;
+    private CompraService service;
+
+    @BeforeEach
+    void setUp() {
+        carrinhoService = mock(CarrinhoDeComprasService.class);
+        clienteService = mock(ClienteService.class);
+        estoque = mock(IEstoqueExternal.class);
+        service = new CompraService(carrinhoService, clienteService, estoque, mock(IPagamentoExternal.class));
+    }
+
+    @Test
+    void validar_carrinhoValido_devolveInstanciaPreAlocada() {
+        ResultadoValidacao resultado = service.validar(carrinhoComItemValido(2L, new BigDecimal("10.00")));
+
+        assertThat(resultado).isSameAs(ResultadoValidacao.VALIDO);
+        assertThat(resultado.violacoes()).isEmpty();
+    }
+
+    @Test
+    void validar_reportaTodasAsViolacoesDeTodosOsItens() {
+        Produto semPreco = produtoBasico();
+        semPreco.setPreco(null);
+        semPreco.setNome(" ");
+        Produto semTipo = produtoBasico();
+        semTipo.setTipo(null);
+        CarrinhoDeCompras carrinho = carrinhoComItem(semPreco, 0L);
+        List<ItemCompra> itens = new ArrayList<>(carrinho.getItens());
+        itens.add(new ItemCompra(2L, semTipo, 1L));
+        carrinho.setItens(itens);
+
+        ResultadoValidacao resultado = service.validar(carrinho);
+
+        assertThat(resultado.valido()).isFalse();
+        assertThat(resultado.primeira()).isEqualTo(Violacao.ITEM_QUANTIDADE_INVALIDA);
+        assertThat(resultado.violacoes()).containsExactly(Violacao.ITEM_QUANTIDADE_INVALIDA,
+                Violacao.PRODUTO_PRECO_INVALIDO, Violacao.PRODUTO_TIPO_INVALIDO, Violacao.PRODUTO_NOME_INVALIDO);
+        assertThat(resultado.mensagem()).startsWith(Violacao.ITEM_QUANTIDADE_INVALIDA.mensagem())
+                .contains(Violacao.PRODUTO_TIPO_INVALIDO.mensagem());
+    }
+
+    @Test
+    void finalizar_carrinhoInvalido_rejeitaSemReservarNemChamarExternos() {
+        Cliente cliente = new Cliente();
+        CarrinhoDeCompras carrinho = carrinhoComItem(produtoComId(1L), -1L);
+        when(clienteService.buscarPorId(1L)).thenReturn(cliente);
+        when(carrinhoService.buscarPorCarrinhoIdEClienteId(1L, cliente)).thenReturn(carrinho);
+
+        ResultadoCompra resultado = service.finalizar(1L, 1L);
+
+        assertThat(resultado.rejeitada()).isTrue();
+        assertThat(resultado.compra().sucesso()).isFalse();
+        assertThat(resultado.compra().mensagem()).isEqualTo(Violacao.ITEM_QUANTIDADE_INVALIDA.mensagem());
+        verify(carrinhoService, never()).reservarParaCompra(any());
+        verify(estoque, never()).verificarDisponibilidade(anyList(), anyList());
+    }
+
+    @Test
+    void excecoesRemanescentes_naoCapturamPilha() {
+        var invalida = assertThrows(RequisicaoInvalidaException.class,
+                () -> service.calcularCustoTotal(carrinhoComItem(produtoBasico(), 0L)));
+
+        assertThat(invalida.getStackTrace()).isEmpty();
+        assertThat(invalida.getValidacao().primeira()).isEqualTo(Violacao.ITEM_QUANTIDADE_INVALIDA);
+        assertThat(new CompraRecusadaException("Pagamento não autorizado.").getStackTrace()).isEmpty();
+    }
+}
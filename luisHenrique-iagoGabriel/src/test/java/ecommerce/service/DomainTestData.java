@@ -67,6 +67,13 @@ public final class DomainTestData {
         return p;
     }
 
+    /** {@link #produtoBasico()} com id, como vem do banco: o checkout recusa produto sem id. */
+    public static Produto produtoComId(long id) {
+        Produto p = produtoBasico();
+        p.setId(id);
+        return p;
+    }
+
     public static Produto produtoBasico(BigDecimal preco) {
         Produto p = new Produto();
         p.setNome("Mouse");
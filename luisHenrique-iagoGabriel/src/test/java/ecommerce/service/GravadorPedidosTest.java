@@ -0,0 +1,185 @@
+package ecommerce.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ecommerce.entity.Pedido;
+import ecommerce.repository.PedidoRepository;
+
+public class GravadorPedidosTest {
+
+    @TempDir
+    Path dir;
+
+    private PedidoRepository repository;
+    private Path arquivo;
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(PedidoRepository.class);
+        arquivo = dir.resolve("pedidos.journal");
+    }
+
+    private static Pedido pedido(String codigo) {
+        return new Pedido(codigo, 1L, 2L, 3L, new BigDecimal("10.50"), LocalDateTime.of(2024, 1, 1, 10, 0));
+    }
+
+    // Linhas em todos os segmentos do journal no diretório
+    private long linhasNoDisco() throws IOException {
+        long linhas = 0;
+        try (Stream<Path> segmentos = Files.list(dir)) {
+            for (Path segmento : segmentos.toList()) {
+                linhas += Files.readAllLines(segmento).size();
+            }
+        }
+        return linhas;
+    }
+
+    @Test
+    void registrar_naoGravaNoBancoAteADescarga() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 16, 4);
+
+        gravador.registrar(pedido("a"));
+        gravador.registrar(pedido("b"));
+
+        verify(repository, never()).saveAll(anyList());
+        assertThat(gravador.pendentes()).isEqualTo(2);
+        assertThat(linhasNoDisco()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void descarregar_gravaEmLotesETruncaJournal() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 16, 2);
+        for (String codigo : List.of("a", "b", "c")) {
+            gravador.registrar(pedido(codigo));
+        }
+
+        gravador.descarregar();
+
+        ArgumentCaptor<List<Pedido>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).saveAll(lotes.capture());
+        assertThat(lotes.getAllValues().get(0)).hasSize(2);
+        assertThat(gravador.pendentes()).isZero();
+        assertThat(linhasNoDisco()).isZero();
+    }
+
+    @Test
+    void descarregar_quandoBancoFalha_mantemJournalERetentaDepois() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 16, 8);
+        gravador.registrar(pedido("a"));
+        when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("banco fora")).thenReturn(List.of());
+
+        gravador.descarregar();
+
+        assertThat(gravador.pendentes()).isEqualTo(1);
+        assertThat(linhasNoDisco()).isEqualTo(1);
+
+        gravador.descarregar();
+
+        assertThat(gravador.pendentes()).isZero();
+        assertThat(linhasNoDisco()).isZero();
+    }
+
+    @Test
+    void descarregar_comTrafegoContinuo_descartaSegmentosJaGravados() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 1, 8);
+        when(repository.save(any(Pedido.class))).thenThrow(new IllegalStateException("banco fora"));
+        // Pedidos chegam durante a descarga: um no buffer, outro em gravação síncrona que falha
+        AtomicBoolean primeiroLote = new AtomicBoolean(true);
+        when(repository.saveAll(anyList())).thenAnswer(invocacao -> {
+            if (primeiroLote.getAndSet(false)) {
+                gravador.registrar(pedido("b"));
+                gravador.registrar(pedido("c"));
+            }
+            return List.of();
+        });
+        gravador.registrar(pedido("a"));
+
+        gravador.descarregar();
+
+        // O buffer não terminou vazio, mas o segmento com "a" já foi descartado
+        assertThat(gravador.pendentes()).isEqualTo(1);
+        assertThat(linhasNoDisco()).isEqualTo(2);
+
+        gravador.descarregar();
+
+        assertThat(gravador.pendentes()).isZero();
+        assertThat(linhasNoDisco()).isZero();
+    }
+
+    @Test
+    void registrar_comBufferCheio_gravaDeFormaSincrona() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 1, 8);
+
+        gravador.registrar(pedido("a"));
+        gravador.registrar(pedido("b"));
+
+        verify(repository).save(any(Pedido.class));
+        assertThat(gravador.pendentes()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void registrar_comBufferCheioEBancoFora_mantemJournalAteADescarga() throws IOException {
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 1, 8);
+        when(repository.save(any(Pedido.class))).thenThrow(new IllegalStateException("banco fora"));
+
+        gravador.registrar(pedido("a"));
+        gravador.registrar(pedido("b"));
+
+        assertThat(gravador.pendentes()).isEqualTo(2);
+        assertThat(linhasNoDisco()).isEqualTo(2);
+
+        gravador.descarregar();
+
+        ArgumentCaptor<List<Pedido>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).saveAll(lotes.capture());
+        assertThat(lotes.getAllValues().get(0)).extracting(Pedido::getCodigo).containsExactly("b");
+        assertThat(gravador.pendentes()).isZero();
+        assertThat(linhasNoDisco()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recuperar_regravaApenasPedidosAusentesNoBanco() throws IOException {
+        // Journal de arquivo único, de antes da divisão em segmentos
+        Files.writeString(arquivo, JournalPedidos.formatar(pedido("legado")));
+        try (JournalPedidos journal = new JournalPedidos(arquivo, false)) {
+            journal.anexar(pedido("ja-gravado"));
+            journal.anexar(pedido("perdido"));
+        }
+        // Linha parcial, como a deixada por uma queda no meio da escrita
+        Files.writeString(dir.resolve("pedidos.journal.1"), "incompl", java.nio.file.StandardOpenOption.APPEND);
+        when(repository.findCodigosExistentes(anyCollection())).thenReturn(List.of("ja-gravado"));
+
+        GravadorPedidos gravador = new GravadorPedidos(repository, new JournalPedidos(arquivo, false), 16, 8);
+        gravador.recuperar();
+
+        ArgumentCaptor<List<Pedido>> regravados = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(regravados.capture());
+        assertThat(regravados.getValue()).extracting(Pedido::getCodigo).containsExactly("legado", "perdido");
+        assertThat(regravados.getValue().get(0).getValorTotal()).isEqualByComparingTo("10.50");
+        assertThat(linhasNoDisco()).isZero();
+    }
+}
@@ -0,0 +1,187 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.config.RecalculoCarrinhosEndpoint;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import static ecommerce.service.DomainTestData.produtoBasico;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:recalculo;DB_CLOSE_DELAY=-1",
+        "aquecimento.habilitado=false", "carrinhos.arquivamento.habilitado=false",
+        "carrinhos.recalculo.tamanho-trecho=16", "carrinhos.recalculo.tamanho-pagina=64",
+        "carrinhos.recalculo.carrinhos-por-segundo=0", "spring.jmx.enabled=true",
+        "pedidos.gravacao.diretorio=target/recalculo" })
+class RecalculoCarrinhosServiceTest {
+
+    @Autowired
+    private RecalculoCarrinhosService service;
+
+    @Autowired
+    private RecalculoCarrinhosEndpoint endpoint;
+
+    @Autowired
+    private ProdutoRepository produtos;
+
+    @Autowired
+    private ClienteRepository clientes;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhos;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate transacao;
+
+    @Autowired
+    private ForkJoinPool pool;
+
+    @Test
+    void recalcular_gravaTotalDosCarrinhosAfetadosSemMudarVersao() {
+        Produto promocao = produtos.save(produtoBasico(new BigDecimal("100.00")));
+        Produto outro = produtos.save(produtoBasico(new BigDecimal("30.00")));
+        Cliente cliente = clientes.save(new Cliente());
+        List<Long> afetados = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            afetados.add(salvarCarrinho(cliente, promocao, outro).getId());
+        }
+        Long naoAfetado = salvarCarrinho(cliente, outro).getId();
+        Long invalido = salvarCarrinho(cliente, promocao, produtos.save(produtoBasico(BigDecimal.ZERO))).getId();
+
+        promocao.setPreco(new BigDecimal("80.00"));
+        produtos.save(promocao);
+        RecalculoCarrinhosService.Resultado resultado = service.recalcular(List.of(promocao.getId()));
+
+        assertThat(resultado.carrinhos()).isEqualTo(151);
+        assertThat(resultado.atualizados()).isEqualTo(150);
+        assertThat(resultado.invalidos()).isEqualTo(1);
+        assertThat(resultado.conflitos()).isZero();
+        CarrinhoDeCompras recalculado = carrinhos.buscarComItens(List.of(afetados.get(149))).get(0);
+        assertThat(recalculado.getValorTotal()).isEqualByComparingTo(compraService.calcularCustoTotal(recalculado));
+        assertThat(recalculado.getTotalCalculadoEm()).isNotNull();
+        assertThat(jdbc.queryForObject("select count(*) from carrinho_de_compras where id in (?, ?)"
+                + " and valor_total is null", Long.class, naoAfetado, invalido)).isEqualTo(2);
+        assertThat(jdbc.queryForList("select distinct coalesce(versao, 0) from carrinho_de_compras where id in ("
+                + afetados.get(0) + ", " + afetados.get(149) + ")", Long.class)).containsExactly(0L);
+    }
+
+    @Test
+    void recalcular_carrinhoReservadoDepoisDaLeitura_naoGravaTotal() {
+        Produto produto = produtos.save(produtoBasico(new BigDecimal("10.00")));
+        CarrinhoDeCompras carrinho = salvarCarrinho(clientes.save(new Cliente()), produto);
+        // Um checkout reserva o carrinho logo depois de o recálculo lê-lo
+        CarrinhoDeComprasRepository repositorio = mock(CarrinhoDeComprasRepository.class, delegatesTo(carrinhos));
+        doAnswer(invocacao -> {
+            List<CarrinhoDeCompras> lidos = carrinhos.buscarComItens(invocacao.getArgument(0));
+            carrinhos.incrementarVersao(carrinho.getId(), carrinho.getCliente(), 0L);
+            return lidos;
+        }).when(repositorio).buscarComItens(anyCollection());
+        RecalculoCarrinhosService comReserva = new RecalculoCarrinhosService(repositorio, compraService, jdbc,
+                transacao, pool, 16, 64, 0);
+
+        RecalculoCarrinhosService.Resultado resultado = comReserva.recalcular(List.of(produto.getId()));
+
+        assertThat(resultado.conflitos()).isEqualTo(1);
+        assertThat(resultado.atualizados()).isZero();
+        assertThat(jdbc.queryForObject("select valor_total from carrinho_de_compras where id = ?", BigDecimal.class,
+                carrinho.getId())).isNull();
+    }
+
+    @Test
+    void recalcular_maisProdutosQueUmIn_contaCadaCarrinhoUmaVez() {
+        Produto primeiro = produtos.save(produtoBasico(new BigDecimal("10.00")));
+        Produto ultimo = produtos.save(produtoBasico(new BigDecimal("20.00")));
+        Cliente cliente = clientes.save(new Cliente());
+        for (int i = 0; i < 100; i++) {
+            salvarCarrinho(cliente, primeiro, ultimo);
+        }
+        List<Long> produtoIds = new ArrayList<>();
+        produtoIds.add(primeiro.getId());
+        for (long i = 1; i <= RecalculoCarrinhosService.MAXIMO_PARAMETROS_IN; i++) {
+            produtoIds.add(-i);
+        }
+        produtoIds.add(ultimo.getId());
+
+        RecalculoCarrinhosService.Resultado resultado = service.recalcular(produtoIds);
+
+        assertThat(resultado.carrinhos()).isEqualTo(100);
+        assertThat(resultado.atualizados()).isEqualTo(100);
+    }
+
+    @Test
+    void recalcular_carrinhoRemovidoDepoisDaPagina_naoEntraNaConta() {
+        Produto produto = produtos.save(produtoBasico(new BigDecimal("10.00")));
+        Cliente cliente = clientes.save(new Cliente());
+        salvarCarrinho(cliente, produto);
+        Long removido = salvarCarrinho(cliente, produto).getId();
+        CarrinhoDeComprasRepository repositorio = mock(CarrinhoDeComprasRepository.class, delegatesTo(carrinhos));
+        doAnswer(invocacao -> carrinhos.buscarComItens(invocacao.getArgument(0)).stream()
+                .filter(carrinho -> !carrinho.getId().equals(removido)).toList())
+                .when(repositorio).buscarComItens(anyCollection());
+        RecalculoCarrinhosService semUm = new RecalculoCarrinhosService(repositorio, compraService, jdbc,
+                transacao, pool, 16, 64, 0);
+
+        RecalculoCarrinhosService.Resultado resultado = semUm.recalcular(List.of(produto.getId()));
+
+        assertThat(resultado.carrinhos()).isEqualTo(1);
+        assertThat(resultado.atualizados()).isEqualTo(1);
+    }
+
+    @Test
+    void endpoint_recalculaEmSegundoPlano() {
+        Produto produto = produtos.save(produtoBasico(new BigDecimal("10.00")));
+        salvarCarrinho(clientes.save(new Cliente()), produto);
+
+        endpoint.recalcular(List.of(produto.getId()));
+        RecalculoCarrinhosService.Resultado resultado = endpoint.aguardar();
+
+        assertThat(resultado.atualizados()).isEqualTo(1);
+        assertThat(endpoint.estado()).containsEntry("emCurso", false).containsEntry("resultado", resultado);
+    }
+
+    @Test
+    void limiteVazao_espacaOsTrechos() {
+        RecalculoCarrinhosService.LimiteVazao limite = new RecalculoCarrinhosService.LimiteVazao(1000);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            limite.aguardar(50);
+        }
+
+        // O primeiro trecho passa direto; os outros três esperam 50 ms cada
+        assertThat((System.nanoTime() - inicio) / 1_000_000).isGreaterThanOrEqualTo(145);
+    }
+
+    private CarrinhoDeCompras salvarCarrinho(Cliente cliente, Produto... itens) {
+        List<ItemCompra> lista = new ArrayList<>();
+        for (Produto produto : itens) {
+            lista.add(new ItemCompra(null, produto, 2L));
+        }
+        return carrinhos.save(new CarrinhoDeCompras(null, cliente, lista, LocalDate.now()));
+    }
+}
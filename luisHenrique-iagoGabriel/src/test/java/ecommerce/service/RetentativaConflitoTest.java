@@ -0,0 +1,77 @@
+package ecommerce.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.external.fake.CarrinhoDeComprasRepositoryFake;
+
+public class RetentativaConflitoTest {
+
+    private final RetentativaConflito retentativa = new RetentativaConflito(3, 0);
+
+    private static ObjectOptimisticLockingFailureException conflito() {
+        return new ObjectOptimisticLockingFailureException(CarrinhoDeCompras.class, 1L);
+    }
+
+    @Test
+    void executar_repeteAteSucesso() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        String resultado = retentativa.executar(() -> {
+            if (chamadas.incrementAndGet() < 3) {
+                throw conflito();
+            }
+            return "ok";
+        });
+
+        assertThat(resultado).isEqualTo("ok");
+        assertThat(chamadas).hasValue(3);
+    }
+
+    @Test
+    void executar_desisteAposMaximoDeTentativas() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> retentativa.executar(() -> {
+            chamadas.incrementAndGet();
+            throw conflito();
+        }));
+
+        assertThat(chamadas).hasValue(3);
+    }
+
+    @Test
+    void executar_naoRepeteOutrasFalhas() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retentativa.executar(() -> {
+            chamadas.incrementAndGet();
+            throw new IllegalStateException("Pagamento não autorizado.");
+        }));
+
+        assertThat(chamadas).hasValue(1);
+    }
+
+    @Test
+    void reservarParaCompra_comVersaoDesatualizada_detectaConflito() {
+        Cliente cliente = new Cliente(1L, "Ana", null, null);
+        CarrinhoDeComprasRepositoryFake repository = new CarrinhoDeComprasRepositoryFake();
+        repository.salvar(new CarrinhoDeCompras(10L, cliente, java.util.List.of(), null));
+        CarrinhoDeComprasService service = new CarrinhoDeComprasService(repository);
+
+        // Duas leituras do mesmo carrinho, como em dois checkouts concorrentes
+        CarrinhoDeCompras lidoPorA = new CarrinhoDeCompras(10L, cliente, java.util.List.of(), null);
+        CarrinhoDeCompras lidoPorB = new CarrinhoDeCompras(10L, cliente, java.util.List.of(), null);
+
+        service.reservarParaCompra(lidoPorA);
+
+        assertThat(repository.findById(10L).orElseThrow().getVersao()).isEqualTo(1L);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> service.reservarParaCompra(lidoPorB));
+    }
+}